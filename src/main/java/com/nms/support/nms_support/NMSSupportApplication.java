@@ -4,6 +4,7 @@ package com.nms.support.nms_support;
 import com.nms.support.nms_support.service.globalPack.IconUtils;
 import com.nms.support.nms_support.service.globalPack.LoggerUtil;
 import com.nms.support.nms_support.service.globalPack.SingleInstanceService;
+import com.nms.support.nms_support.service.globalPack.TrashManager;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
@@ -62,6 +63,9 @@ public class NMSSupportApplication extends Application {
             // Show stage
             stage.show();
             System.out.println("Stage shown successfully");
+
+            // Finish deleting trash left by an earlier run, in the background
+            TrashManager.resumePending();
             
             // Print system info
             System.out.println("Java runtime  : " + System.getProperty("java.runtime.version"));
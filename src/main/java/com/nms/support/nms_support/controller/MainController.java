@@ -523,6 +523,10 @@ public class MainController implements Initializable {
                         KeyCombination.SHIFT_DOWN
                 );
                 scene.getAccelerators().put(forceUpdateTemplateAccelerator, this::forceUpdateDefaultWorkflowTemplateAndOpen);
+
+                // Add Ctrl+Shift+S accelerator for SSH diagnostics
+                KeyCodeCombination sshDiagnosticsAccelerator = new KeyCodeCombination(KeyCode.S, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN);
+                scene.getAccelerators().put(sshDiagnosticsAccelerator, this::showSshDiagnosticsDialog);
                 
                 logger.info("Keyboard accelerators setup completed");
             } else {
@@ -2494,6 +2498,19 @@ public class MainController implements Initializable {
         }
     }
 
+    /**
+     * Shows SSH latency, traffic and cache statistics
+     */
+    private void showSshDiagnosticsDialog() {
+        try {
+            Stage parentStage = (Stage) root.getScene().getWindow();
+            new SSHDiagnosticsDialog().showDialog(parentStage);
+        } catch (Exception e) {
+            logger.severe("Error showing SSH diagnostics dialog: " + e.getMessage());
+            DialogUtil.showError("Error", "An error occurred while showing SSH diagnostics:\n" + e.getMessage());
+        }
+    }
+
     private void openNmsMcpSetupDialog() {
         try {
             Stage parentStage = (Stage) ((nmsMcpSetupButton != null ? nmsMcpSetupButton : clineButton).getScene().getWindow());
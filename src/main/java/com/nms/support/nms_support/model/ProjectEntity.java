@@ -36,6 +36,7 @@ public class ProjectEntity {
     private String biPublisher;
     private String selectedApplication; // Store the previously selected application
     private String jdkHome; // Optional per-project JDK home override
+    private String archiveCompression; // Server archive compression (AUTO, NONE, FAST, BALANCED, BEST)
     // Semicolon-separated JAR directories for Jar Decompiler tab (persisted)
     private String jarDecompilerPaths;
 
@@ -401,6 +402,9 @@ public class ProjectEntity {
 
     public String getJdkHome() { return jdkHome; }
     public void setJdkHome(String jdkHome) { this.jdkHome = jdkHome; }
+
+    public String getArchiveCompression() { return archiveCompression; }
+    public void setArchiveCompression(String archiveCompression) { this.archiveCompression = archiveCompression; }
     
     // ===== Jar Decompiler persisted paths (semicolon-separated) =====
     public String getJarDecompilerPaths() {
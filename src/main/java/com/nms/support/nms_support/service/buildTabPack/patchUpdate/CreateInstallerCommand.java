@@ -25,6 +25,7 @@ import javax.xml.transform.stream.StreamResult;
 
 import com.nms.support.nms_support.controller.BuildAutomation;
 import com.nms.support.nms_support.model.ProjectEntity;
+import com.nms.support.nms_support.service.globalPack.CopyEngine;
 import com.nms.support.nms_support.service.globalPack.DialogUtil;
 import com.nms.support.nms_support.service.globalPack.LoggerUtil;
 import com.nms.support.nms_support.service.globalPack.ManageFile;
@@ -644,19 +645,21 @@ public class CreateInstallerCommand {
 		if (javaLibDir.exists() && javaLibDir.isDirectory()) {
 			File[] jarFiles = javaLibDir.listFiles((dir, name) -> name.endsWith(".jar"));
 			if (jarFiles != null) {
+				Map<Path, Path> jars = new LinkedHashMap<>();
 				for (File jarFile : jarFiles) {
-					File destFile = new File(nmsLibDir, jarFile.getName());
-					Files.copy(jarFile.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-					progressCallback.onProgress(0, "Copied: " + jarFile.getName() + " to " + nmsLibDir.getPath());
+					jars.put(jarFile.toPath(), new File(nmsLibDir, jarFile.getName()).toPath());
 				}
+				CopyEngine.Result result = CopyEngine.copyFiles(jars, DirectoryProcessor.jarCopyMode(), null, null);
+				progressCallback.onProgress(0, "JAR files in " + nmsLibDir.getPath() + ": " + result.summary());
 			}
 		}
 
 		// Search and copy logo16.ico file
 		File logoFile = findFile(productDir, "logo16.ico");
 		if (logoFile != null) {
-			Files.copy(logoFile.toPath(), destLogoFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-			progressCallback.onProgress(0, "Copied logo16.ico to " + destLogoFile.getPath());
+			if (CopyEngine.copyFile(logoFile.toPath(), destLogoFile.toPath())) {
+				progressCallback.onProgress(0, "Copied logo16.ico to " + destLogoFile.getPath());
+			}
 		} else {
 			throw new IOException("logo16.ico not found in any subdirectory of " + productDir.getPath());
 		}
@@ -664,16 +667,18 @@ public class CreateInstallerCommand {
 		// Search and copy license.properties file
 		File licenseFile = findFile(productDir, "license.properties");
 		if (licenseFile != null) {
-			Files.copy(licenseFile.toPath(), destLicenseFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-			progressCallback.onProgress(0, "Copied license.properties to " + destLicenseFile.getPath());
+			if (CopyEngine.copyFile(licenseFile.toPath(), destLicenseFile.toPath())) {
+				progressCallback.onProgress(0, "Copied license.properties to " + destLicenseFile.getPath());
+			}
 		} else {
 			throw new IOException("license.properties not found in any subdirectory of " + productDir.getPath());
 		}
 		// Search and copy nms.nsi file
 		File nsiFile = findFile(productDir, "nms.nsi");
 		if (nsiFile != null) {
-			Files.copy(nsiFile.toPath(), destNSIFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-			progressCallback.onProgress(0, "Copied nms.nsi to " + destNSIFile.getPath());
+			if (CopyEngine.copyFile(nsiFile.toPath(), destNSIFile.toPath())) {
+				progressCallback.onProgress(0, "Copied nms.nsi to " + destNSIFile.getPath());
+			}
 		} else {
 			throw new IOException("nms.nsi not found in any subdirectory of " + productDir.getPath());
 		}
@@ -705,31 +710,9 @@ public class CreateInstallerCommand {
 		if (!source.exists()) {
 			throw new IOException("Source directory does not exist: " + source.getAbsolutePath());
 		}
-
-		if (source.isDirectory()) {
-			// Ensure destination directory exists
-			if (!destination.exists()) {
-				if (!destination.mkdirs()) {
-					throw new IOException("Failed to create directory: " + destination.getAbsolutePath());
-				}
-			}
-
-			// List all files and directories in the source directory
-			String[] files = source.list();
-			if (files != null) {
-				for (String file : files) {
-					File srcFile = new File(source, file);
-					File destFile = new File(destination, file);
-					if (srcFile.isDirectory()) {
-						copyDirectory(srcFile, destFile); // Recursive call
-					} else {
-						Files.copy(srcFile.toPath(), destFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-					}
-				}
-			}
-		} else {
-			throw new IOException("Source is not a directory: " + source.getAbsolutePath());
-		}
+		// Files left from an earlier installer build are skipped when unchanged
+		CopyEngine.Result result = CopyEngine.copyTree(source.toPath(), destination.toPath(), CopyEngine.Mode.COPY, null, null);
+		LoggerUtil.getLogger().info("Copied " + source + " to " + destination + ": " + result.summary());
 	}
 
 	public  String adjustUrl(String urlString) {
@@ -1,62 +1,29 @@
 package com.nms.support.nms_support.service.buildTabPack.patchUpdate;
 
+import com.nms.support.nms_support.service.globalPack.ArtifactStore;
+import com.nms.support.nms_support.service.globalPack.CopyEngine;
 import com.nms.support.nms_support.service.globalPack.LoggerUtil;
 import com.nms.support.nms_support.service.globalPack.ProgressCallback;
+import com.nms.support.nms_support.service.globalPack.TrashManager;
 
 import java.io.*;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class DirectoryProcessor {
     private static ProgressCallback progressCallback;
-    private static final int MAX_RETRY_ATTEMPTS = 3;
-    private static final long RETRY_DELAY_MS = 1000; // 1 second
-    
+
     /**
-     * Safely copy a file with retry logic to handle file locks
+     * Copy a file unless the destination is already identical, and report which it was.
      */
-    private static void safeCopyFile(Path source, Path destination) throws IOException {
-        IOException lastException = null;
-        
-        for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS; attempt++) {
-            try {
-                // Check if destination file is locked by trying to open it
-                if (Files.exists(destination)) {
-                    try (FileChannel channel = FileChannel.open(destination, StandardOpenOption.WRITE)) {
-                        try (FileLock lock = channel.tryLock()) {
-                            if (lock == null) {
-                                throw new IOException("File is locked by another process: " + destination);
-                            }
-                        }
-                    }
-                }
-                
-                // Perform the copy operation
-                Files.copy(source, destination, StandardCopyOption.REPLACE_EXISTING);
-                return; // Success, exit retry loop
-                
-            } catch (IOException e) {
-                lastException = e;
-                LoggerUtil.error(new IOException("Attempt " + attempt + " failed to copy " + source + " to " + destination + ": " + e.getMessage()));
-                
-                if (attempt < MAX_RETRY_ATTEMPTS) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS);
-                        progressCallback.onProgress(0, "Retrying file copy (attempt " + (attempt + 1) + "/" + MAX_RETRY_ATTEMPTS + ")...");
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new IOException("Copy operation interrupted", ie);
-                    }
-                }
-            }
-        }
-        
-        // If we get here, all retry attempts failed
-        throw new IOException("Failed to copy file after " + MAX_RETRY_ATTEMPTS + " attempts: " + source + " to " + destination, lastException);
+    private static void copyIfChanged(File source, File destination, int progress) throws IOException {
+        boolean copied = CopyEngine.copyFile(source.toPath(), destination.toPath());
+        progressCallback.onProgress(progress, (copied ? "Copied " : "Unchanged: ") + source.getName()
+            + (copied ? " to " + destination.getPath() : ""));
     }
-    
+
     public static void processDirectory(String baseDir, ProgressCallback progressCallback) throws IOException {
         DirectoryProcessor.progressCallback = progressCallback;
         progressCallback.onProgress(10, "Starting directory processing...");
@@ -94,28 +61,24 @@ public class DirectoryProcessor {
         if (javaLibDir.exists() && javaLibDir.isDirectory()) {
             File[] jarFiles = javaLibDir.listFiles((dir, name) -> name.endsWith(".jar"));
             if (jarFiles != null) {
-                int totalJars = jarFiles.length;
-                int processedJars = 0;
-                
+                Map<Path, Path> jars = new LinkedHashMap<>();
                 for (File jarFile : jarFiles) {
-                    // Check for cancellation
+                    jars.put(jarFile.toPath(), new File(nmsLibDir, jarFile.getName()).toPath());
+                }
+                try {
+                    // Jars already in nmslib are skipped; the rest are copied in parallel (linked only if the store links too)
+                    CopyEngine.Result result = CopyEngine.copyFiles(jars, jarCopyMode(), progressCallback::isCancelled,
+                        (files, totalFiles, bytes) -> progressCallback.onProgress(20 + (int) ((files * 20.0) / Math.max(1, totalFiles)),
+                            "Processing JAR files: " + files + "/" + totalFiles)); // 20-40% range
+                    progressCallback.onProgress(40, "JAR files in " + nmsLibDir.getPath() + ": " + result.summary());
+                } catch (IOException e) {
                     if (progressCallback.isCancelled()) {
                         progressCallback.onError("Directory processing cancelled by user");
                         return;
                     }
-                    
-                    File destFile = new File(nmsLibDir, jarFile.getName());
-                    try {
-                        safeCopyFile(jarFile.toPath(), destFile.toPath());
-                        processedJars++;
-                        
-                        int progress = 20 + (int)((processedJars * 20.0) / totalJars); // 20-40% range
-                        progressCallback.onProgress(progress, "Copied: " + jarFile.getName() + " to " + nmsLibDir.getPath());
-                    } catch (IOException e) {
-                        LoggerUtil.error(new IOException("Failed to copy JAR file: " + jarFile.getName() + " - " + e.getMessage()));
-                        progressCallback.onError("Directory processing failed: " + e.getMessage());
-                        throw e;
-                    }
+                    LoggerUtil.error(new IOException("Failed to copy JAR files: " + e.getMessage()));
+                    progressCallback.onError("Directory processing failed: " + e.getMessage());
+                    throw e;
                 }
             }
         }
@@ -130,8 +93,7 @@ public class DirectoryProcessor {
         progressCallback.onProgress(45, "Searching for logo16.ico file...");
         File logoFile = findFile(productDir, "logo16.ico");
         if (logoFile != null) {
-            safeCopyFile(logoFile.toPath(), destLogoFile.toPath());
-            progressCallback.onProgress(50, "Copied logo16.ico to " + destLogoFile.getPath());
+            copyIfChanged(logoFile, destLogoFile, 50);
         } else {
             throw new IOException("logo16.ico not found in any subdirectory of " + productDir.getPath());
         }
@@ -146,8 +108,7 @@ public class DirectoryProcessor {
         progressCallback.onProgress(55, "Searching for license.properties file...");
         File licenseFile = findFile(productDir, "license.properties");
         if (licenseFile != null) {
-            safeCopyFile(licenseFile.toPath(), destLicenseFile.toPath());
-            progressCallback.onProgress(60, "Copied license.properties to " + destLicenseFile.getPath());
+            copyIfChanged(licenseFile, destLicenseFile, 60);
         } else {
             throw new IOException("license.properties not found in any subdirectory of " + productDir.getPath());
         }
@@ -162,8 +123,7 @@ public class DirectoryProcessor {
         progressCallback.onProgress(65, "Searching for nms.nsi file...");
         File nsiFile = findFile(productDir, "nms.nsi");
         if (nsiFile != null) {
-            safeCopyFile(nsiFile.toPath(), destNSIFile.toPath());
-            progressCallback.onProgress(70, "Copied nms.nsi to " + destNSIFile.getPath());
+            copyIfChanged(nsiFile, destNSIFile, 70);
         } else {
             throw new IOException("nms.nsi not found in any subdirectory of " + productDir.getPath());
         }
@@ -172,6 +132,14 @@ public class DirectoryProcessor {
         progressCallback.onComplete("Directory processing completed successfully");
     }
 
+    /**
+     * How java/lib jars get into nmslib: linked only if the artifact store links too, since the
+     * java folder itself may be linked from the store and an nmslib link would share that file.
+     */
+    static CopyEngine.Mode jarCopyMode() {
+        return ArtifactStore.isHardLinks() ? CopyEngine.Mode.LINK_OR_COPY : CopyEngine.Mode.COPY;
+    }
+
     private static File findFile(File dir, String fileName) {
         if (dir == null || !dir.isDirectory()) {
             return null;
@@ -194,6 +162,9 @@ public class DirectoryProcessor {
         return null;
     }
 
+    /**
+     * Copy a directory tree, skipping files the destination already has in the same version.
+     */
     public static void copyDirectory(File source, File destination, ProgressCallback progressCallback) throws IOException {
         DirectoryProcessor.progressCallback = progressCallback;
         
@@ -201,42 +172,18 @@ public class DirectoryProcessor {
             throw new IOException("Source directory does not exist: " + source.getAbsolutePath());
         }
 
-        if (source.isDirectory()) {
-            // Ensure destination directory exists
-            if (!destination.exists()) {
-                if (!destination.mkdirs()) {
-                    throw new IOException("Failed to create directory: " + destination.getAbsolutePath());
-                }
+        try {
+            CopyEngine.Result result = CopyEngine.copyTree(source.toPath(), destination.toPath(), CopyEngine.Mode.COPY,
+                progressCallback::isCancelled,
+                (files, totalFiles, bytes) -> progressCallback.onProgress((int) ((files * 100.0) / Math.max(1, totalFiles)),
+                    "Copied " + files + "/" + totalFiles + " files"));
+            progressCallback.onProgress(100, "Copied " + source.getName() + ": " + result.summary());
+        } catch (IOException e) {
+            if (progressCallback.isCancelled()) {
+                progressCallback.onError("Directory copying cancelled by user");
+                return;
             }
-
-            // List all files and directories in the source directory
-            String[] files = source.list();
-            if (files != null) {
-                int totalFiles = files.length;
-                int processedFiles = 0;
-                
-                for (String file : files) {
-                    // Check for cancellation
-                    if (progressCallback.isCancelled()) {
-                        progressCallback.onError("Directory copying cancelled by user");
-                        return;
-                    }
-                    
-                    File srcFile = new File(source, file);
-                    File destFile = new File(destination, file);
-                    if (srcFile.isDirectory()) {
-                        copyDirectory(srcFile, destFile, progressCallback); // Recursive call
-                    } else {
-                        safeCopyFile(srcFile.toPath(), destFile.toPath());
-                        processedFiles++;
-                        
-                        int progress = (int)((processedFiles * 100.0) / totalFiles);
-                        progressCallback.onProgress(progress, "Copied: " + file);
-                    }
-                }
-            }
-        } else {
-            throw new IOException("Source is not a directory: " + source.getAbsolutePath());
+            throw e;
         }
     }
 
@@ -254,6 +201,13 @@ public class DirectoryProcessor {
 
         progressCallback.onProgress(10, "Starting directory cleanup...");
 
+        // Rename into the trash and delete in the background
+        if (TrashManager.delete(dir)) {
+            progressCallback.onProgress(100, "Directory moved to trash");
+            progressCallback.onComplete("Directory cleanup completed successfully");
+            return true;
+        }
+
         Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
             @Override
             public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
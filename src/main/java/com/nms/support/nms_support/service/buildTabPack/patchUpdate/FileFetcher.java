@@ -2,87 +2,218 @@ package com.nms.support.nms_support.service.buildTabPack.patchUpdate;
 
 import java.io.*;
 import java.net.*;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.*;
 import javax.net.ssl.*;
+import java.security.DigestInputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
 import java.security.cert.X509Certificate;
+import com.nms.support.nms_support.service.globalPack.ArtifactStore;
 import com.nms.support.nms_support.service.globalPack.LoggerUtil;
 import com.nms.support.nms_support.service.globalPack.ProgressCallback;
+import com.nms.support.nms_support.service.globalPack.TransferProgress;
+import com.nms.support.nms_support.service.globalPack.TransferScheduler;
 
+/**
+ * Downloads the JAR resources listed in the ConfigurationAssistant JNLP into nmslib.
+ *
+ * Jars are kept in the shared {@link ArtifactStore}, with a per-project {@link ResourceManifest},
+ * because every setup empties the product directory. A refresh asks the server only for what
+ * changed since the last one, then links the stored jars into the product's nmslib. Projects
+ * on the same server share the stored jars and their HTTP validators.
+ *
+ * Features:
+ * - One shared HttpClient: keep-alive connections, HTTP/2 over TLS where the server offers it
+ * - Bounded parallel downloads (8 in flight by default, see {@link #setMaxConcurrency})
+ * - Conditional GET for the JNLP and every jar: unchanged ones are answered with a 304
+ * - Diff against the previous refresh (added, changed, removed jars) shown in the process monitor
+ * - Jars removed from the JNLP are deleted from the product directory and released in the store
+ * - Jars are written to a temporary file and moved into place, so a failed download never leaves a truncated jar
+ */
 public class FileFetcher {
-    private static ProgressCallback progressCallback;
-    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration JNLP_TIMEOUT = Duration.ofSeconds(60);
+    private static final Duration DOWNLOAD_TIMEOUT = Duration.ofMinutes(2);
+    private static final Pattern JNLP_VERSION_PATTERN = Pattern.compile("<jnlp\\b[^>]*\\sversion=\"([^\"]+)\"");
+    private static final Pattern PROPERTY_VERSION_PATTERN =
+        Pattern.compile("<property\\s+name=\"[^\"]*[Vv]ersion[^\"]*\"\\s+value=\"([^\"]+)\"");
+
+    private static volatile int maxConcurrency = 8;
+    private static HttpClient httpClient;
+
+    /**
+     * Set how many jars are downloaded at the same time (at least 1).
+     */
+    public static void setMaxConcurrency(int concurrency) {
+        maxConcurrency = Math.max(1, concurrency);
+    }
+
+    public static int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
     public static void loadResources(String downloadDir, String baseUrl, ProgressCallback progressCallback) {
-        FileFetcher.progressCallback = progressCallback;
-        
+        loadResources(downloadDir, baseUrl, null, progressCallback);
+    }
+
+    /**
+     * @param downloadDir Product directory; jars are installed into its nmslib folder
+     * @param baseUrl NMS web application URL
+     * @param projectName Project whose manifest and store references are used (null for a shared default)
+     * @param progressCallback Progress, diff messages and cancellation
+     */
+    public static void loadResources(String downloadDir, String baseUrl, String projectName, ProgressCallback progressCallback) {
         progressCallback.onProgress(10, "Starting resource loading process...");
-        
-        // Base URL of the website to fetch files from
-        // Directory where files will be saved
-        //String downloadDir = "C:\\Oracle NMS\\temp";
 
         // Disable SSL verification
         progressCallback.onProgress(15, "Configuring SSL settings...");
         try {
-            disableSSLVerification();
+            client();
             progressCallback.onProgress(16, "SSL settings configured successfully");
         } catch (Exception e) {
             progressCallback.onProgress(16, "Warning: SSL configuration failed, continuing with default settings");
             LoggerUtil.getLogger().warning("SSL configuration failed: " + e.getMessage());
         }
-        
+
         progressCallback.onProgress(20, "Fetching JAR file list from server...");
         progressCallback.onProgress(21, "Base URL: " + baseUrl);
         LoggerUtil.getLogger().info("FileFetcher: Starting resource loading with base URL: " + baseUrl);
         try {
-            List<String> jarFiles = fetchJarFiles(baseUrl);
+            Path cacheDir = ResourceManifest.cacheDir(projectName);
+            Files.createDirectories(cacheDir);
+            ResourceManifest.Manifest previous = ResourceManifest.load(cacheDir, baseUrl);
+            ResourceManifest.Manifest current = new ResourceManifest.Manifest();
+            current.setBaseUrl(baseUrl);
+
+            List<String> jarFiles = fetchJarFiles(baseUrl, previous, current, progressCallback);
             LoggerUtil.getLogger().info("FileFetcher: Successfully fetched " + jarFiles.size() + " JAR files");
             progressCallback.onProgress(25, "Found " + jarFiles.size() + " JAR files to download");
 
-            List<String> Failed = new ArrayList<String>();
+            List<String> Failed = Collections.synchronizedList(new ArrayList<String>());
+            Map<String, ResourceManifest.JarEntry> entries = new ConcurrentHashMap<>();
             int totalFiles = jarFiles.size();
-            int downloadedFiles = 0;
+            AtomicInteger downloadedFiles = new AtomicInteger();
+            AtomicInteger unchangedFiles = new AtomicInteger();
+            AtomicInteger next = new AtomicInteger();
+            int threads = Math.max(1, Math.min(maxConcurrency, totalFiles));
+            LoggerUtil.getLogger().info("FileFetcher: Downloading " + totalFiles + " files with " + threads + " connection(s)");
 
+            // Bytes are counted from the response streams; progress stays file-based, the message shows throughput.
+            // A refresh yields bandwidth to product and project downloads.
+            int[] filePercent = {30};
+            TransferProgress transfer = new TransferProgress("Downloading JARs", 0,
+                snapshot -> progressCallback.onProgress(filePercent[0], snapshot.describe()))
+                .schedule(hostOf(baseUrl), TransferScheduler.Priority.BACKGROUND, progressCallback)
+                .start();
+            ExecutorService pool = Executors.newFixedThreadPool(threads, r -> Thread.ofVirtual().name("jar-fetch").unstarted(r));
+            try {
+                for (int t = 0; t < threads; t++) {
+                    pool.execute(() -> {
+                        int index;
+                        while (!progressCallback.isCancelled() && (index = next.getAndIncrement()) < totalFiles) {
+                            String jarFile = jarFiles.get(index);
+                            ResourceManifest.JarEntry before = previous.getJars().get(jarFile);
+                            try {
+                                // Construct the URL for the JAR file
+                                URI fileUri = URI.create(baseUrl + jarFile);
+                                LoggerUtil.getLogger().info("FileFetcher: Downloading file: " + jarFile + " from " + fileUri);
+
+                                // Download the file into the store, unless the server reports the stored copy unchanged
+                                ResourceManifest.JarEntry entry = downloadFile(fileUri, before, transfer, progressCallback);
+                                entries.put(jarFile, entry);
+                                if (entry.isUnchanged()) {
+                                    unchangedFiles.incrementAndGet();
+                                }
+                                int done = downloadedFiles.incrementAndGet();
+                                LoggerUtil.getLogger().info("FileFetcher: " + (entry.isUnchanged() ? "Unchanged" : "Downloaded")
+                                    + " file " + done + "/" + totalFiles + ": " + jarFile);
+
+                                int progress = 30 + (int)((done * 55.0) / totalFiles); // 30-85% range
+                                filePercent[0] = progress;
+                                progressCallback.onProgress(progress, "Downloaded " + done + "/" + totalFiles + " files"
+                                    + (unchangedFiles.get() > 0 ? " (" + unchangedFiles.get() + " unchanged)" : ""));
+                            } catch (IOException | RuntimeException e) {
+                                if (progressCallback.isCancelled()) {
+                                    return;
+                                }
+                                Failed.add(jarFile);
+                                LoggerUtil.error(e);
+                                LoggerUtil.getLogger().severe("FileFetcher: Failed to download file " + jarFile + ": " + e.getClass().getSimpleName() + " - " + e.getMessage());
+                                progressCallback.onProgress(filePercent[0], "Failed to download: " + jarFile);
+                                // An intact copy from the last refresh is still better than none
+                                if (before != null && ArtifactStore.contains(before.getSha256())) {
+                                    entries.put(jarFile, before);
+                                    progressCallback.onProgress(filePercent[0], "Using cached copy of " + before.getName());
+                                }
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                return;
+                            }
+                        }
+                    });
+                }
+                pool.shutdown();
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                pool.shutdownNow();
+                throw new IOException("Interrupted while downloading resources", e);
+            } finally {
+                transfer.close();
+            }
+
+            // Check for cancellation
+            if (progressCallback.isCancelled()) {
+                LoggerUtil.getLogger().info("FileFetcher: Resource loading cancelled by user");
+                progressCallback.onError("Resource loading cancelled by user");
+                return;
+            }
+
+            // Keep the JNLP order in the manifest
             for (String jarFile : jarFiles) {
-                try {
-                    // Check for cancellation
-                    if (progressCallback.isCancelled()) {
-                        LoggerUtil.getLogger().info("FileFetcher: Resource loading cancelled by user");
-                        progressCallback.onError("Resource loading cancelled by user");
-                        return;
-                    }
-                    
-                    // Construct the URL for the JAR file
-                    URL fileUrl = new URL(baseUrl + jarFile);
-                    LoggerUtil.getLogger().info("FileFetcher: Downloading file: " + jarFile + " from " + fileUrl.toString());
-
-                    // Download the file
-                    downloadFile(fileUrl, downloadDir+"\\nmslib");
-                    downloadedFiles++;
-                    LoggerUtil.getLogger().info("FileFetcher: Successfully downloaded file " + downloadedFiles + "/" + totalFiles + ": " + jarFile);
-                    
-                    int progress = 30 + (int)((downloadedFiles * 60.0) / totalFiles); // 30-90% range
-                    progressCallback.onProgress(progress, "Downloaded " + downloadedFiles + "/" + totalFiles + " files");
-                    
-                } catch (IOException e) {
-                    Failed.add(jarFile);
-                    e.printStackTrace();
-                    LoggerUtil.error(e);
-                    LoggerUtil.getLogger().severe("FileFetcher: Failed to download file " + jarFile + ": " + e.getClass().getSimpleName() + " - " + e.getMessage());
-                    progressCallback.onProgress(0, "Failed to download: " + jarFile);
+                ResourceManifest.JarEntry entry = entries.get(jarFile);
+                if (entry != null) {
+                    current.getJars().put(jarFile, entry);
                 }
             }
-            
+            if (!Failed.isEmpty()) {
+                // Re-read the JNLP next time, so the failed jars are requested again
+                current.setJnlpEtag(null);
+                current.setJnlpLastModified(null);
+            }
+            ResourceManifest.Diff diff = ResourceManifest.diff(previous, current, new HashSet<>(jarFiles));
+            reportDiff(diff, progressCallback);
+
+            progressCallback.onProgress(90, "Installing JAR files into product directory...");
+            installJars(current, diff, Paths.get(downloadDir, "nmslib"), progressCallback);
+            ArtifactStore.retain(projectName != null ? projectName : "default", "nmslib", hashes(current));
+            ResourceManifest.save(cacheDir, current);
+            LoggerUtil.getLogger().info("🗃️ Artifact store: " + ArtifactStore.describe());
+
             progressCallback.onProgress(95, "Resource loading completed");
+            String unchanged = unchangedFiles.get() > 0 ? " (" + unchangedFiles.get() + " unchanged)" : "";
             if (!Failed.isEmpty()) {
-                LoggerUtil.getLogger().severe("FileFetcher: Resource loading failed - " + Failed.size() + " files failed to download. Failed files: " + Failed.toString());
+                // Missing jars were never fatal here; report them without failing the step
+                LoggerUtil.getLogger().severe("FileFetcher: " + Failed.size() + " files failed to download. Failed files: " + Failed.toString());
                 progressCallback.onProgress(95, "Resources Failed to Download: " + Failed.toString());
-                // Mark as failed if any downloads failed
-                progressCallback.onError("Resource loading failed: " + Failed.size() + " files failed to download. Failed files: " + Failed.toString());
+                progressCallback.onComplete("Resource loading completed. " + (totalFiles - Failed.size()) + " of " + totalFiles
+                    + " files downloaded" + unchanged + ", failed: " + Failed.toString());
             } else {
-                LoggerUtil.getLogger().info("FileFetcher: Resource loading completed successfully. All " + totalFiles + " files downloaded.");
-                progressCallback.onComplete("Resource loading completed successfully. All " + totalFiles + " files downloaded.");
+                LoggerUtil.getLogger().info("FileFetcher: Resource loading completed successfully. All " + totalFiles + " files downloaded" + unchanged + ".");
+                progressCallback.onComplete("Resource loading completed successfully. All " + totalFiles + " files downloaded" + unchanged + ".");
             }
         } catch (IOException e) {
             System.out.println("FileFetcher IOException: " + e.getClass().getSimpleName() + " - " + e.getMessage());
@@ -107,22 +238,27 @@ public class FileFetcher {
         }
     }
 
-    private static List<String> fetchJarFiles(String baseUrl) throws IOException {
+    /**
+     * Fetch the jar list from the JNLP (or the JNLPX fallback) and record it in the current manifest.
+     */
+    private static List<String> fetchJarFiles(String baseUrl, ResourceManifest.Manifest previous,
+                                              ResourceManifest.Manifest current,
+                                              ProgressCallback progressCallback) throws IOException {
         String jnlpUrl = baseUrl + "/ConfigurationAssistant.jnlp";
         List<String> jarFiles = null;
         IOException lastException = null;
-        
+
         // Try to load .jnlp file first
         try {
             LoggerUtil.getLogger().info("Fetching JAR files from: " + jnlpUrl);
-            jarFiles = fetchJarFilesFromJnlp(jnlpUrl);
+            jarFiles = fetchJarFilesFromJnlp(jnlpUrl, previous, current);
         } catch (IOException e) {
             // If .jnlp fails, try .jnlpx as fallback
             lastException = e;
             String jnlpxUrl = baseUrl + "/ConfigurationAssistant.jnlpx";
             LoggerUtil.getLogger().info("Failed to load .jnlp file, trying .jnlpx fallback: " + jnlpxUrl);
             try {
-                jarFiles = fetchJarFilesFromJnlp(jnlpxUrl);
+                jarFiles = fetchJarFilesFromJnlp(jnlpxUrl, previous, current);
             } catch (IOException fallbackException) {
                 // Both failed, throw exception with details
                 String errorMessage = "Failed to load both .jnlp and .jnlpx files for ConfigurationAssistant";
@@ -132,173 +268,310 @@ public class FileFetcher {
                 throw new IOException(errorMessage, lastException);
             }
         }
-        
+
         return jarFiles;
     }
-    
-    private static List<String> fetchJarFilesFromJnlp(String jnlpUrl) throws IOException {
+
+    private static List<String> fetchJarFilesFromJnlp(String jnlpUrl, ResourceManifest.Manifest previous,
+                                                      ResourceManifest.Manifest current) throws IOException {
         List<String> jarFiles = new ArrayList<>();
-        HttpURLConnection connection = null;
-        
+
         try {
-            // Open connection to the JNLP URL
-            LoggerUtil.getLogger().info("Creating URL object for: " + jnlpUrl);
-            URL url = new URL(jnlpUrl);
-            LoggerUtil.getLogger().info("Opening connection to: " + url.toString());
-            connection = (HttpURLConnection) url.openConnection();
-            LoggerUtil.getLogger().info("Connection opened successfully");
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(30000); // 30 second timeout
-            connection.setReadTimeout(60000); // 60 second timeout
+            LoggerUtil.getLogger().info("Requesting: " + jnlpUrl);
+            HttpRequest.Builder request = requestBuilder(URI.create(jnlpUrl), JNLP_TIMEOUT).GET();
+            // Ask for the JNLP only if it changed since the jar list was last parsed
+            boolean cached = jnlpUrl.equals(previous.getJnlpUrl()) && !previous.getJars().isEmpty();
+            if (cached) {
+                conditionalHeaders(request, previous.getJnlpEtag(), previous.getJnlpLastModified());
+            }
+            HttpResponse<String> response = client().send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
 
             // Check response code
-            int responseCode = connection.getResponseCode();
-            LoggerUtil.getLogger().info("HTTP Response Code: " + responseCode);
-            
+            int responseCode = response.statusCode();
+            LoggerUtil.getLogger().info("HTTP Response Code: " + responseCode + " (" + response.version() + ")");
+
+            current.setJnlpUrl(jnlpUrl);
+            if (cached && responseCode == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                LoggerUtil.getLogger().info("JNLP unchanged since last refresh, reusing " + previous.getJars().size() + " cached JAR entries");
+                current.setJnlpEtag(previous.getJnlpEtag());
+                current.setJnlpLastModified(previous.getJnlpLastModified());
+                current.setServerVersion(previous.getServerVersion());
+                jarFiles.addAll(previous.getJars().keySet());
+                return jarFiles;
+            }
+
             if (responseCode != HttpURLConnection.HTTP_OK) {
-                String errorMsg = "HTTP error: " + responseCode + " - " + connection.getResponseMessage();
+                String errorMsg = "HTTP error: " + responseCode;
                 LoggerUtil.getLogger().severe("HTTP Error: " + errorMsg);
                 throw new IOException(errorMsg);
             }
 
-            LoggerUtil.getLogger().info("HTTP response OK, reading response content");
-            // Read the response with proper resource management
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                StringBuilder response = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    response.append(line);
-                    response.append("\n");
-                }
+            // Find the argument portion and extract jar files
+            String responseText = response.body();
+            LoggerUtil.getLogger().info("Response content length: " + responseText.length() + " characters");
+            LoggerUtil.getLogger().info("Response content preview: " + responseText.substring(0, Math.min(200, responseText.length())));
 
-                // Find the argument portion and extract jar files
-                String responseText = response.toString();
-                LoggerUtil.getLogger().info("Response content length: " + responseText.length() + " characters");
-                LoggerUtil.getLogger().info("Response content preview: " + responseText.substring(0, Math.min(200, responseText.length())));
-                
-                Pattern argumentPattern = Pattern.compile("<argument>(.*?)</argument>", Pattern.DOTALL);
-                Matcher argumentMatcher = argumentPattern.matcher(responseText);
-                int argumentCount = 0;
-                while (argumentMatcher.find()) {
-                    argumentCount++;
-                    String argumentContent = argumentMatcher.group(1);
-                    LoggerUtil.getLogger().info("Found argument " + argumentCount + ": " + argumentContent);
-                    // If the argument content contains jar files
-                    if (argumentContent.contains(".jar")) {
-                        String[] jars = argumentContent.split(";");
-                        LoggerUtil.getLogger().info("Found " + jars.length + " JAR files in argument: " + argumentContent);
-                        for (String jar : jars) {
-                            jarFiles.add(jar.trim());
+            Pattern argumentPattern = Pattern.compile("<argument>(.*?)</argument>", Pattern.DOTALL);
+            Matcher argumentMatcher = argumentPattern.matcher(responseText);
+            int argumentCount = 0;
+            while (argumentMatcher.find()) {
+                argumentCount++;
+                String argumentContent = argumentMatcher.group(1);
+                LoggerUtil.getLogger().info("Found argument " + argumentCount + ": " + argumentContent);
+                // If the argument content contains jar files
+                if (argumentContent.contains(".jar")) {
+                    String[] jars = argumentContent.split(";");
+                    LoggerUtil.getLogger().info("Found " + jars.length + " JAR files in argument: " + argumentContent);
+                    for (String jar : jars) {
+                        String trimmed = jar.trim();
+                        if (!trimmed.isEmpty() && !jarFiles.contains(trimmed)) {
+                            jarFiles.add(trimmed);
                         }
                     }
                 }
-                LoggerUtil.getLogger().info("Total arguments found: " + argumentCount + ", JAR files extracted: " + jarFiles.size());
             }
-            
+            LoggerUtil.getLogger().info("Total arguments found: " + argumentCount + ", JAR files extracted: " + jarFiles.size());
+
             // If no JAR files found, throw an exception
             if (jarFiles.isEmpty()) {
                 throw new IOException("No JAR files found in the JNLP configuration");
             }
-            
+
+            current.setJnlpEtag(response.headers().firstValue("ETag").orElse(null));
+            current.setJnlpLastModified(response.headers().firstValue("Last-Modified").orElse(null));
+            current.setServerVersion(serverVersion(responseText, current.getJnlpLastModified()));
+            LoggerUtil.getLogger().info("Server resource version: " + current.getServerVersion());
+
         } catch (IOException e) {
             LoggerUtil.getLogger().severe("fetchJarFilesFromJnlp IOException for " + jnlpUrl + ": " + e.getClass().getSimpleName() + " - " + e.getMessage());
             throw e; // Re-throw to allow fallback mechanism
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching JAR files from " + jnlpUrl, e);
         } catch (Exception e) {
             LoggerUtil.getLogger().severe("fetchJarFilesFromJnlp Exception for " + jnlpUrl + ": " + e.getClass().getSimpleName() + " - " + e.getMessage());
             throw new IOException("Unexpected error while fetching JAR files from " + jnlpUrl + ": " + e.getClass().getSimpleName(), e);
-        } finally {
-            // Ensure connection is properly closed
-            if (connection != null) {
-                connection.disconnect();
-            }
         }
-        
+
         return jarFiles;
     }
 
-    private static void disableSSLVerification() {
+    /**
+     * Version of the server's resources: the JNLP version attribute or a version property if
+     * present, otherwise the JNLP's Last-Modified date, otherwise a short hash of its content.
+     */
+    private static String serverVersion(String jnlpText, String lastModified) {
+        Matcher matcher = JNLP_VERSION_PATTERN.matcher(jnlpText);
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+        matcher = PROPERTY_VERSION_PATTERN.matcher(jnlpText);
+        if (matcher.find()) {
+            return matcher.group(1);
+        }
+        if (lastModified != null) {
+            return lastModified;
+        }
+        return "jnlp-" + sha256(jnlpText.getBytes(StandardCharsets.UTF_8)).substring(0, 12);
+    }
+
+    /**
+     * Host of the web application, for the per-host bandwidth cap (null if the URL has none).
+     */
+    private static String hostOf(String baseUrl) {
         try {
-            // Install a trust manager that trusts all certificates
-            TrustManager[] trustAll = new TrustManager[]{
-                new X509TrustManager() {
-                    public X509Certificate[] getAcceptedIssuers() {
-                        return null;
-                    }
+            return URI.create(baseUrl).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
 
-                    public void checkClientTrusted(X509Certificate[] certs, String authType) {
-                    }
+    /**
+     * Shared client, created on first use. Certificates are not verified, as before with
+     * HttpsURLConnection: NMS servers commonly run with self-signed certificates.
+     */
+    private static synchronized HttpClient client() throws IOException {
+        if (httpClient == null) {
+            if (System.getProperty("jdk.internal.httpclient.disableHostnameVerification") == null) {
+                System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
+            }
+            try {
+                httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .connectTimeout(CONNECT_TIMEOUT)
+                    .sslContext(trustAllContext())
+                    .build();
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Failed to configure SSL: " + e.getMessage(), e);
+            }
+        }
+        return httpClient;
+    }
 
-                    public void checkServerTrusted(X509Certificate[] certs, String authType) {
-                    }
+    /**
+     * Request builder; plain HTTP stays on HTTP/1.1 so servers never see an h2c upgrade request.
+     */
+    private static HttpRequest.Builder requestBuilder(URI uri, Duration timeout) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(timeout);
+        if ("http".equalsIgnoreCase(uri.getScheme())) {
+            builder.version(HttpClient.Version.HTTP_1_1);
+        }
+        return builder;
+    }
+
+    private static SSLContext trustAllContext() throws GeneralSecurityException {
+        // Install a trust manager that trusts all certificates
+        TrustManager[] trustAll = new TrustManager[]{
+            new X509TrustManager() {
+                public X509Certificate[] getAcceptedIssuers() {
+                    return new X509Certificate[0];
                 }
-            };
 
-            // Set up a context that uses the trust manager
-            SSLContext sc = SSLContext.getInstance("SSL");
-            sc.init(null, trustAll, new java.security.SecureRandom());
-            HttpsURLConnection.setDefaultSSLSocketFactory(sc.getSocketFactory());
+                public void checkClientTrusted(X509Certificate[] certs, String authType) {
+                }
 
-            // Create an all-trusting host name verifier
-            HostnameVerifier allHostsValid = (hostname, session) -> true;
-            HttpsURLConnection.setDefaultHostnameVerifier(allHostsValid);
-        } catch (Exception e) {
-            e.printStackTrace();
-            LoggerUtil.error(e);
-            progressCallback.onError("Failed to configure SSL: " + e.getMessage());
-        }
-    }
+                public void checkServerTrusted(X509Certificate[] certs, String authType) {
+                }
+            }
+        };
 
-    private static void downloadFile(URL fileUrl, String downloadDir) {
-        HttpURLConnection connection = null;
-        try {
-            // Open a connection to the file URL
-            connection = (HttpURLConnection) fileUrl.openConnection();
-            connection.setRequestMethod("GET");
-            connection.setConnectTimeout(30000); // 30 second timeout
-            connection.setReadTimeout(120000); // 2 minute timeout for large files
+        // Set up a context that uses the trust manager
+        SSLContext sc = SSLContext.getInstance("TLS");
+        sc.init(null, trustAll, new java.security.SecureRandom());
+        return sc;
+    }
 
-            // Get the file name from the URL
-            String fileName = new File(fileUrl.getPath()).getName();
-            Path filePath = Paths.get(downloadDir, fileName);
+    /**
+     * Download one jar into the artifact store.
+     *
+     * The request is conditional if the store still holds the jar of the last refresh, or a jar
+     * another project fetched from the same URL.
+     *
+     * @param before Entry of the last refresh, or null
+     * @param transfer Counts the bytes and paces them to the refresh's bandwidth share
+     * @param progressCallback Checked for cancellation while reading
+     * @return The new entry; {@link ResourceManifest.JarEntry#isUnchanged()} if the server reported the stored copy unchanged (304)
+     */
+    private static ResourceManifest.JarEntry downloadFile(URI fileUri, ResourceManifest.JarEntry before,
+                                                          TransferProgress transfer, ProgressCallback progressCallback)
+            throws IOException, InterruptedException {
+        // Get the file name from the URL
+        String fileName = new File(fileUri.getPath()).getName();
 
-            // Create the download directory if it doesn't exist
-            Files.createDirectories(filePath.getParent());
+        ResourceManifest.JarEntry known = null;
+        if (before != null && fileName.equals(before.getName()) && ArtifactStore.contains(before.getSha256())) {
+            known = before;
+        } else {
+            ArtifactStore.Source source = ArtifactStore.getSource(fileUri.toString());
+            if (source != null) {
+                known = new ResourceManifest.JarEntry(fileName, ArtifactStore.sizeOf(source.getSha256()),
+                    source.getSha256(), source.getEtag(), source.getLastModified());
+            }
+        }
+        HttpRequest.Builder request = requestBuilder(fileUri, DOWNLOAD_TIMEOUT).GET();
+        if (known != null) {
+            conditionalHeaders(request, known.getEtag(), known.getLastModified());
+        }
 
-            // Open input stream to read the file
-            try (InputStream in = connection.getInputStream();
-                 OutputStream out = Files.newOutputStream(filePath, StandardOpenOption.CREATE)) {
+        HttpResponse<InputStream> response = client().send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        MessageDigest sha256 = ArtifactStore.digest("SHA-256");
+        MessageDigest md5 = ArtifactStore.digest("MD5");
+        Path partPath;
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED && known != null) {
+                known.setUnchanged(true);
+                return known;
+            }
+            if (response.statusCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP error: " + response.statusCode() + " for URL: " + fileUri);
+            }
 
-                // Read the file data from the input stream and write it to the output stream
-                byte[] buffer = new byte[8192]; // Increased buffer size for better performance
+            // Write to a temporary file of the store, so a failure never leaves a truncated jar
+            partPath = ArtifactStore.newTempFile(".part");
+            try (InputStream in = new DigestInputStream(new DigestInputStream(transfer.count(body), sha256), md5);
+                 OutputStream out = Files.newOutputStream(partPath)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
                 int bytesRead;
                 while ((bytesRead = in.read(buffer)) != -1) {
+                    if (progressCallback.isCancelled()) {
+                        throw new IOException("Download cancelled by user");
+                    }
                     out.write(buffer, 0, bytesRead);
                 }
-
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-            LoggerUtil.error(e);
-            LoggerUtil.getLogger().severe("downloadFile IOException: " + e.getClass().getSimpleName() + " - " + e.getMessage() + " for URL: " + fileUrl.toString());
-            String errorMessage = e.getMessage();
-            if (errorMessage == null || errorMessage.trim().isEmpty()) {
-                errorMessage = "Failed to download file from " + fileUrl.toString();
+            } catch (IOException e) {
+                Files.deleteIfExists(partPath);
+                throw e;
             }
-            progressCallback.onProgress(0, "Failed to download file: " + errorMessage);
-        } catch (Exception e) {
-            e.printStackTrace();
-            LoggerUtil.error(e);
-            LoggerUtil.getLogger().severe("downloadFile Exception: " + e.getClass().getSimpleName() + " - " + e.getMessage() + " for URL: " + fileUrl.toString());
-            String errorMessage = e.getMessage();
-            if (errorMessage == null || errorMessage.trim().isEmpty()) {
-                errorMessage = "Unexpected error downloading file from " + fileUrl.toString() + ": " + e.getClass().getSimpleName();
+        }
+
+        long size = Files.size(partPath);
+        String sha = HexFormat.of().formatHex(sha256.digest());
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        ArtifactStore.put(partPath, sha, HexFormat.of().formatHex(md5.digest()));
+        ArtifactStore.putSource(fileUri.toString(), etag, lastModified, sha);
+        return new ResourceManifest.JarEntry(fileName, size, sha, etag, lastModified);
+    }
+
+    private static void conditionalHeaders(HttpRequest.Builder request, String etag, String lastModified) {
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+    }
+
+    // ===== DIFF AND INSTALL =====
+
+    /**
+     * Show what changed since the last refresh in the process monitor.
+     */
+    private static void reportDiff(ResourceManifest.Diff diff, ProgressCallback progressCallback) {
+        LoggerUtil.getLogger().info("FileFetcher: Resource changes - " + diff.summary());
+        progressCallback.onProgress(88, "Resource changes since last refresh: " + diff.summary());
+        for (String line : diff.lines()) {
+            LoggerUtil.getLogger().info("FileFetcher:   " + line);
+            progressCallback.onProgress(88, "  " + line);
+        }
+    }
+
+    /**
+     * Link the stored jars into the product's nmslib and delete the jars the JNLP no longer lists.
+     */
+    private static void installJars(ResourceManifest.Manifest manifest, ResourceManifest.Diff diff,
+                                    Path productLibDir, ProgressCallback progressCallback) throws IOException {
+        Files.createDirectories(productLibDir);
+        Set<String> names = new HashSet<>();
+        int installed = 0;
+        for (ResourceManifest.JarEntry entry : manifest.getJars().values()) {
+            names.add(entry.getName());
+            if (ArtifactStore.install(entry.getSha256(), productLibDir.resolve(entry.getName()))) {
+                installed++;
+            } else {
+                LoggerUtil.getLogger().severe("FileFetcher: " + entry.getName() + " is no longer in the artifact store");
+                progressCallback.onProgress(90, "Missing from artifact store: " + entry.getName());
             }
-            progressCallback.onProgress(0, "Failed to download file: " + errorMessage);
-        } finally {
-            // Ensure connection is properly closed
-            if (connection != null) {
-                connection.disconnect();
+        }
+        for (String removed : diff.getRemoved()) {
+            if (!names.contains(removed) && Files.deleteIfExists(productLibDir.resolve(removed))) {
+                LoggerUtil.getLogger().info("FileFetcher: Deleted removed JAR " + removed);
             }
         }
+        LoggerUtil.getLogger().info("FileFetcher: Installed " + installed + " JAR files into " + productLibDir
+            + (ArtifactStore.isHardLinks() ? " (linked from artifact store)" : ""));
+    }
+
+    private static Set<String> hashes(ResourceManifest.Manifest manifest) {
+        Set<String> hashes = new HashSet<>();
+        for (ResourceManifest.JarEntry entry : manifest.getJars().values()) {
+            hashes.add(entry.getSha256());
+        }
+        return hashes;
+    }
+
+    private static String sha256(byte[] data) {
+        return HexFormat.of().formatHex(ArtifactStore.digest("SHA-256").digest(data));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,615 @@
+package com.nms.support.nms_support.service.buildTabPack.patchUpdate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nms.support.nms_support.model.ProjectEntity;
+import com.nms.support.nms_support.service.globalPack.ArtifactStore;
+import com.nms.support.nms_support.service.globalPack.LoggerUtil;
+import com.nms.support.nms_support.service.globalPack.ProgressCallback;
+import com.nms.support.nms_support.service.globalPack.TransferProgress;
+import com.nms.support.nms_support.service.globalPack.TransferScheduler;
+import com.nms.support.nms_support.service.globalPack.sshj.LineConsumer;
+import com.nms.support.nms_support.service.globalPack.sshj.SSHJSessionManager;
+import net.schmizz.sshj.sftp.SFTPClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Manifest-based delta sync of the remote java directory.
+ *
+ * A full download zips the whole remote java tree, transfers it and re-extracts everything,
+ * even when only a few jars changed since the last setup. After every successful sync a
+ * manifest (path, size, mtime, MD5 per file) is stored next to the product's java folder;
+ * the next sync compares it against a fresh remote manifest and only transfers what changed.
+ *
+ * Features:
+ * - Remote manifest collected with a single command (find -L + md5sum, symlinks followed, working/ excluded)
+ * - Only new or changed files are transferred: a few files directly over SFTP when the SSH
+ *   user can read them, otherwise one zip of just the changed files
+ * - Files that disappeared on the server are deleted locally
+ * - Local files that were removed or resized since the last sync are fetched again
+ * - Without a manifest, the java folder is seeded from the {@link ArtifactStore} by MD5 (e.g. another
+ *   project on the same version) and only the files the store lacks are transferred
+ * - Falls back to a full download when there is no usable manifest and the store holds too little
+ */
+public final class JavaDeltaSync {
+
+    // Stored in the product directory, next to (not inside) the java folder
+    static final String MANIFEST_FILE_NAME = ".java_sync_manifest.json";
+    private static final int MANIFEST_VERSION = 1;
+    private static final int MANIFEST_TIMEOUT_SECONDS = 300;
+    private static final int ZIP_TIMEOUT_SECONDS = 600;
+    private static final int COMMAND_TIMEOUT_SECONDS = 30;
+    // Up to this many changed files are fetched one by one; more are zipped together
+    private static final int DIRECT_TRANSFER_MAX_FILES = 16;
+    private static final String CHECKSUM_SEPARATOR = "==JAVA_SYNC_CHECKSUMS==";
+    // Seeding from the artifact store pays off once it covers this share of the remote bytes
+    private static final double MIN_SEEDED_SHARE = 0.5;
+    // File group of the java folder in the artifact store
+    private static final String STORE_GROUP = "java";
+
+    private static volatile boolean enabled = true;
+
+    private JavaDeltaSync() {
+    }
+
+    /**
+     * Enable or disable delta sync. When disabled every download is a full download.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // ===== MANIFEST =====
+
+    /**
+     * Collect path, size, mtime and MD5 of every file below the remote java directory
+     * (excluding working/) with one remote command.
+     *
+     * @return Remote manifest, or null if it could not be collected
+     */
+    static Manifest fetchRemoteManifest(SSHJSessionManager ssh, ProjectEntity project, String remoteDir,
+                                        ProgressCallback progressCallback) {
+        String dir = remoteDir.endsWith("/") ? remoteDir : remoteDir + "/";
+        // -L: files behind symlinks are listed like the zip and tar transfers deliver them (as regular
+        // files); without it they would look deleted on the server and be removed locally
+        String command = String.format(
+            "cd %s && find -L . -path ./working -prune -o -type f -printf 'F\\t%%s\\t%%T@\\t%%P\\n' && echo '%s' && "
+                + "find -L . -path ./working -prune -o -type f -print0 | xargs -0 -r md5sum",
+            dir, CHECKSUM_SEPARATOR);
+
+        Manifest manifest = new Manifest();
+        manifest.setHost(project.getHost());
+        manifest.setRemoteDir(remoteDir);
+
+        final boolean[] inChecksums = {false};
+        final int[] lines = {0};
+        LineConsumer consumer = line -> {
+            if (line.equals(CHECKSUM_SEPARATOR)) {
+                inChecksums[0] = true;
+                return;
+            }
+            if (!inChecksums[0]) {
+                String[] parts = line.split("\t", 4);
+                if (parts.length == 4 && parts[0].equals("F")) {
+                    try {
+                        manifest.files.put(parts[3], new FileEntry(Long.parseLong(parts[1]), parts[2], null));
+                    } catch (NumberFormatException e) {
+                        LoggerUtil.getLogger().fine("Skipping manifest line: " + line);
+                    }
+                }
+            } else if (line.length() > 34 && line.charAt(32) == ' ') {
+                // "<md5>  ./path"; escaped names (leading backslash) keep no checksum and compare by size/mtime
+                String path = line.substring(34);
+                FileEntry entry = manifest.files.get(path.startsWith("./") ? path.substring(2) : path);
+                if (entry != null) {
+                    entry.setMd5(line.substring(0, 32));
+                }
+            }
+            if (++lines[0] % 500 == 0) {
+                progressCallback.onProgress(35, "Reading remote file list... (" + manifest.files.size() + " files)");
+            }
+        };
+
+        try {
+            progressCallback.onProgress(32, "Collecting remote file manifest...");
+            SSHJSessionManager.CommandResult result =
+                ssh.executeCommandStreaming(command, MANIFEST_TIMEOUT_SECONDS, consumer, cancellationOnly(progressCallback));
+            if (!result.isSuccess() || !inChecksums[0]) {
+                LoggerUtil.getLogger().warning("Remote manifest command failed (exit " + result.getExitCode() + "), using full download");
+                return null;
+            }
+        } catch (Exception e) {
+            LoggerUtil.getLogger().warning("Could not collect remote manifest, using full download: " + e.getMessage());
+            return null;
+        }
+
+        LoggerUtil.getLogger().info("📋 Remote manifest: " + manifest.files.size() + " files in " + remoteDir);
+        return manifest;
+    }
+
+    /**
+     * Load the manifest of the last successful sync, or null if there is none usable for this server.
+     */
+    static Manifest loadLocalManifest(String localExtractDir, ProjectEntity project, String remoteDir) {
+        File file = new File(localExtractDir, MANIFEST_FILE_NAME);
+        if (!file.isFile() || !new File(localExtractDir, "java").isDirectory()) {
+            return null;
+        }
+        try {
+            Manifest manifest = new ObjectMapper().readValue(file, Manifest.class);
+            if (manifest.getVersion() != MANIFEST_VERSION
+                    || !remoteDir.equals(manifest.getRemoteDir())
+                    || project.getHost() == null || !project.getHost().equals(manifest.getHost())) {
+                LoggerUtil.getLogger().info("Local java manifest belongs to another server or directory, using full download");
+                return null;
+            }
+            return manifest;
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Unreadable java manifest, using full download: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store the manifest of a completed sync next to the java folder (written atomically).
+     */
+    static void saveManifest(String localExtractDir, Manifest manifest) {
+        Path target = new File(localExtractDir, MANIFEST_FILE_NAME).toPath();
+        Path temp = new File(localExtractDir, MANIFEST_FILE_NAME + ".tmp").toPath();
+        try {
+            manifest.setSyncedAt(System.currentTimeMillis());
+            new ObjectMapper().writeValue(temp.toFile(), manifest);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LoggerUtil.getLogger().info("💾 Saved java manifest (" + manifest.files.size() + " files): " + target);
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Failed to save java manifest, next sync will be a full download: " + e.getMessage());
+            deleteManifest(localExtractDir);
+        }
+    }
+
+    /**
+     * Forget the last sync, e.g. before the java folder is replaced by a full download.
+     */
+    static void deleteManifest(String localExtractDir) {
+        try {
+            Files.deleteIfExists(new File(localExtractDir, MANIFEST_FILE_NAME).toPath());
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Failed to delete java manifest: " + e.getMessage());
+        }
+    }
+
+    // ===== DELTA SYNC =====
+
+    /**
+     * Bring the local java folder up to date with the remote one by transferring only changes.
+     *
+     * @param ssh Initialized session
+     * @param project Project (server zip files are tracked on it)
+     * @param remoteDir Remote java directory
+     * @param localExtractDir Product directory containing the java folder
+     * @param local Manifest of the last sync
+     * @param remote Current remote manifest
+     * @param progressCallback Progress callback
+     * @throws Exception If the transfer fails; the local manifest is removed so the next sync is a full one
+     */
+    static void sync(SSHJSessionManager ssh, ProjectEntity project, String remoteDir, String localExtractDir,
+                     Manifest local, Manifest remote, ProgressCallback progressCallback) throws Exception {
+        File javaDir = new File(localExtractDir, "java");
+
+        List<String> changed = new ArrayList<>();
+        long changedBytes = 0;
+        for (Map.Entry<String, FileEntry> entry : remote.files.entrySet()) {
+            String path = entry.getKey();
+            FileEntry before = local.files.get(path);
+            if (isChanged(before, entry.getValue(), new File(javaDir, path))) {
+                changed.add(path);
+                changedBytes += entry.getValue().getSize();
+            } else {
+                entry.getValue().setSha256(before.getSha256());
+            }
+        }
+        List<String> removed = new ArrayList<>();
+        for (String path : local.files.keySet()) {
+            if (!remote.files.containsKey(path)) {
+                removed.add(path);
+            }
+        }
+
+        LoggerUtil.getLogger().info(String.format("🔄 Java delta: %d changed/new (%d bytes), %d removed, %d unchanged",
+            changed.size(), changedBytes, removed.size(), remote.files.size() - changed.size()));
+        progressCallback.onProgress(45, String.format("Delta sync: %d changed, %d removed, %d unchanged files",
+            changed.size(), removed.size(), remote.files.size() - changed.size()));
+
+        // The manifest only describes a consistent folder again once this sync completed
+        deleteManifest(localExtractDir);
+
+        // Local files may be hard links into the artifact store; unlink them so the transfer never writes into a shared object
+        for (String path : changed) {
+            Files.deleteIfExists(safeResolve(javaDir, path).toPath());
+        }
+
+        if (!changed.isEmpty()) {
+            if (changed.size() <= DIRECT_TRANSFER_MAX_FILES && !ssh.hasTargetUser()) {
+                transferDirect(ssh, remoteDir, javaDir, changed, progressCallback);
+            } else {
+                transferArchive(ssh, project, remoteDir, javaDir, changed, progressCallback);
+            }
+        }
+
+        for (String path : removed) {
+            File file = safeResolve(javaDir, path);
+            if (file.isFile() && file.delete()) {
+                LoggerUtil.getLogger().fine("Deleted file removed on server: " + path);
+                pruneEmptyParents(file.getParentFile(), javaDir);
+            }
+        }
+
+        storeJavaFolder(localExtractDir, project, remote, progressCallback);
+        saveManifest(localExtractDir, remote);
+        progressCallback.onProgress(95, String.format("Delta sync completed: %d files updated, %d removed",
+            changed.size(), removed.size()));
+    }
+
+    // ===== ARTIFACT STORE =====
+
+    /**
+     * Fill an empty java folder with the files the artifact store already holds, matched by the
+     * MD5 of the remote manifest, and describe them as a manifest for {@link #sync}.
+     *
+     * @param javaDir Empty java folder
+     * @param remote Current remote manifest
+     * @return Manifest of the seeded files, or null if the store covers too little of the remote folder to be worth it
+     */
+    static Manifest seedFromStore(File javaDir, Manifest remote, ProgressCallback progressCallback) throws IOException {
+        Manifest seeded = new Manifest();
+        seeded.setHost(remote.getHost());
+        seeded.setRemoteDir(remote.getRemoteDir());
+
+        long totalBytes = 0;
+        long seededBytes = 0;
+        Map<String, String> hashes = new LinkedHashMap<>();
+        for (Map.Entry<String, FileEntry> entry : remote.files.entrySet()) {
+            totalBytes += entry.getValue().getSize();
+            String sha256 = ArtifactStore.findByMd5(entry.getValue().getMd5());
+            if (sha256 != null && ArtifactStore.sizeOf(sha256) == entry.getValue().getSize()) {
+                hashes.put(entry.getKey(), sha256);
+                seededBytes += entry.getValue().getSize();
+            }
+        }
+        if (hashes.isEmpty() || seededBytes < totalBytes * MIN_SEEDED_SHARE) {
+            LoggerUtil.getLogger().info("🗃️ Artifact store holds " + hashes.size() + " of " + remote.files.size()
+                + " java files, using full download");
+            return null;
+        }
+
+        progressCallback.onProgress(38, "Installing " + hashes.size() + " of " + remote.files.size() + " java files from local store...");
+        for (Map.Entry<String, String> entry : hashes.entrySet()) {
+            FileEntry now = remote.files.get(entry.getKey());
+            if (ArtifactStore.install(entry.getValue(), safeResolve(javaDir, entry.getKey()).toPath())) {
+                FileEntry copy = new FileEntry(now.getSize(), now.getMtime(), now.getMd5());
+                copy.setSha256(entry.getValue());
+                seeded.files.put(entry.getKey(), copy);
+            }
+        }
+        LoggerUtil.getLogger().info(String.format("🗃️ Seeded %d java files (%d of %d bytes) from the artifact store",
+            seeded.files.size(), seededBytes, totalBytes));
+        return seeded;
+    }
+
+    /**
+     * Add the files of the java folder to the artifact store and record them as the project's
+     * java files there. Files seeded from the store are not hashed again; the SHA-256 of every
+     * file is kept in the manifest. Failures only cost the sharing, never the download.
+     *
+     * @param manifest Manifest about to be saved for the folder, or null
+     */
+    static void storeJavaFolder(String localExtractDir, ProjectEntity project, Manifest manifest,
+                                ProgressCallback progressCallback) {
+        Path javaDir = new File(localExtractDir, "java").toPath();
+        if (!Files.isDirectory(javaDir)) {
+            return;
+        }
+        progressCallback.onProgress(96, "Adding java files to local artifact store...");
+        Set<String> hashes = new HashSet<>();
+        try (Stream<Path> files = Files.walk(javaDir)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String path = javaDir.relativize(file).toString().replace(File.separatorChar, '/');
+                FileEntry entry = manifest != null ? manifest.files.get(path) : null;
+                if (entry != null && entry.getSha256() != null && ArtifactStore.contains(entry.getSha256())
+                        && Files.size(file) == entry.getSize()) {
+                    hashes.add(entry.getSha256());
+                    continue;
+                }
+                String sha256 = ArtifactStore.adopt(file, entry != null ? entry.getMd5() : null);
+                hashes.add(sha256);
+                if (entry != null) {
+                    entry.setSha256(sha256);
+                }
+            }
+            ArtifactStore.retain(project.getName(), STORE_GROUP, hashes);
+            LoggerUtil.getLogger().info("🗃️ Stored " + hashes.size() + " java files; artifact store: " + ArtifactStore.describe());
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("⚠️ Could not add java files to the artifact store: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Whether a remote file must be transferred: new, different content, or the local copy is gone or resized.
+     */
+    private static boolean isChanged(FileEntry before, FileEntry now, File localFile) {
+        if (before == null || !localFile.isFile() || localFile.length() != now.getSize()) {
+            return true;
+        }
+        if (before.getMd5() != null && now.getMd5() != null) {
+            return !before.getMd5().equals(now.getMd5());
+        }
+        return before.getSize() != now.getSize() || !before.getMtime().equals(now.getMtime());
+    }
+
+    /**
+     * Fetch a few files one by one over SFTP (only when the SSH user itself owns the files).
+     */
+    private static void transferDirect(SSHJSessionManager ssh, String remoteDir, File javaDir, List<String> changed,
+                                       ProgressCallback progressCallback) throws Exception {
+        String dir = remoteDir.endsWith("/") ? remoteDir : remoteDir + "/";
+        try (SFTPClient sftp = ssh.openSftp(); TransferProgress transfer = schedule(ssh, progressCallback)) {
+            sftp.getFileTransfer().setTransferListener(transfer.toSftpListener());
+            int done = 0;
+            for (String path : changed) {
+                if (progressCallback.isCancelled()) {
+                    throw new IOException("Delta sync cancelled by user");
+                }
+                File target = safeResolve(javaDir, path);
+                File parent = target.getParentFile();
+                if (!parent.isDirectory() && !parent.mkdirs()) {
+                    throw new IOException("Failed to create directory " + parent);
+                }
+                // Download next to the target and swap, so an interrupted transfer never leaves half a jar
+                File temp = new File(parent, target.getName() + ".part");
+                sftp.get(dir + path, temp.getAbsolutePath());
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                done++;
+                progressCallback.onProgress(50 + done * 40 / changed.size(), "Downloaded " + done + "/" + changed.size() + ": " + path);
+            }
+        }
+    }
+
+    /**
+     * Zip only the changed files on the server (as the target user), download and extract over the java folder.
+     */
+    private static void transferArchive(SSHJSessionManager ssh, ProjectEntity project, String remoteDir, File javaDir,
+                                        List<String> changed, ProgressCallback progressCallback) throws Exception {
+        String dir = remoteDir.endsWith("/") ? remoteDir : remoteDir + "/";
+        long timestamp = System.currentTimeMillis();
+        String remoteListPath = "/tmp/java_delta_list_" + timestamp + ".txt";
+        String remoteZipPath = "/tmp/downloaded_java_delta_" + timestamp + ".zip";
+        File localList = File.createTempFile("java_delta_list_", ".txt");
+        File localZip = new File(System.getProperty("java.io.tmpdir"), "downloaded_java_delta_" + timestamp + ".zip");
+
+        project.addServerZipFile(remoteZipPath, "Java delta sync - " + (ssh.getPurpose() != null ? ssh.getPurpose() : "default"));
+        try (SFTPClient sftp = ssh.openSftp(); TransferProgress transfer = schedule(ssh, progressCallback)) {
+            sftp.getFileTransfer().setTransferListener(transfer.toSftpListener());
+            try {
+                // The file list goes up over SFTP; it can be far longer than a shell command line may be.
+                // It belongs to the SSH user, so it must be readable by the sudo target user.
+                Files.write(localList.toPath(), changed, StandardCharsets.UTF_8);
+                sftp.put(localList.getAbsolutePath(), remoteListPath);
+                sftp.chmod(remoteListPath, 0644);
+
+                progressCallback.onProgress(55, "Zipping " + changed.size() + " changed files on server...");
+                String zipCommand = String.format(
+                    "cd %s && zip -q %s -@ < %s && chmod 644 %s && echo 'ZIP_COMPLETED_SUCCESSFULLY'",
+                    dir, remoteZipPath, remoteListPath, remoteZipPath);
+                SSHJSessionManager.CommandResult result =
+                    ssh.executeCommand(zipCommand, ZIP_TIMEOUT_SECONDS, cancellationOnly(progressCallback));
+                if (!result.isSuccess() || !result.getOutput().contains("ZIP_COMPLETED_SUCCESSFULLY")) {
+                    throw new IOException("Zipping changed files failed with exit code " + result.getExitCode());
+                }
+
+                if (progressCallback.isCancelled()) {
+                    throw new IOException("Delta sync cancelled by user");
+                }
+                progressCallback.onProgress(65, "Downloading changed files...");
+                sftp.get(remoteZipPath, localZip.getAbsolutePath());
+            } finally {
+                try {
+                    sftp.rm(remoteListPath);
+                } catch (IOException e) {
+                    LoggerUtil.getLogger().fine("Failed to remove remote delta list: " + e.getMessage());
+                }
+            }
+
+            progressCallback.onProgress(80, "Extracting changed files...");
+            SFTPDownloadAndUnzip.unzipFile(localZip.getAbsolutePath(), javaDir.getAbsolutePath(), progressCallback);
+        } finally {
+            // The zip belongs to the target user, so it is removed through the session
+            try {
+                ssh.executeCommandWithoutCancellation("rm -f " + remoteZipPath, COMMAND_TIMEOUT_SECONDS);
+                project.removeServerZipFile(remoteZipPath);
+            } catch (Exception e) {
+                LoggerUtil.getLogger().warning("Failed to remove remote delta zip: " + e.getMessage());
+            }
+            if (!localList.delete() || (localZip.exists() && !localZip.delete())) {
+                LoggerUtil.getLogger().fine("Could not delete local delta temp files");
+            }
+        }
+    }
+
+    /**
+     * Delta transfers are small and the user is waiting for them, so they go ahead of bulk downloads.
+     * Progress is reported per file by the caller; the transfer only feeds the scheduler and the metrics.
+     */
+    private static TransferProgress schedule(SSHJSessionManager ssh, ProgressCallback progressCallback) {
+        return new TransferProgress("Delta sync", 0, snapshot -> { })
+            .recordMetrics(ssh.getHost(), ssh.getPurpose())
+            .schedule(ssh.getHost(), TransferScheduler.Priority.INTERACTIVE, progressCallback);
+    }
+
+    /**
+     * Forward only cancellation, so generic command progress does not overwrite the sync progress.
+     */
+    private static ProgressCallback cancellationOnly(ProgressCallback progressCallback) {
+        return new ProgressCallback() {
+            @Override
+            public void onProgress(int progress, String message) {
+            }
+
+            @Override
+            public void onComplete(String message) {
+            }
+
+            @Override
+            public void onError(String error) {
+                LoggerUtil.getLogger().warning("Delta sync command error: " + error);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return progressCallback.isCancelled();
+            }
+        };
+    }
+
+    /**
+     * Resolve a manifest path below the java folder, rejecting paths that escape it.
+     */
+    private static File safeResolve(File javaDir, String path) throws IOException {
+        File file = new File(javaDir, path);
+        if (!file.getCanonicalPath().startsWith(javaDir.getCanonicalPath() + File.separator)) {
+            throw new IOException("Manifest entry is outside of the java folder: " + path);
+        }
+        return file;
+    }
+
+    private static void pruneEmptyParents(File dir, File root) {
+        while (dir != null && !dir.equals(root)) {
+            String[] children = dir.list();
+            if (children == null || children.length > 0 || !dir.delete()) {
+                return;
+            }
+            dir = dir.getParentFile();
+        }
+    }
+
+    // ===== MANIFEST MODEL =====
+
+    /**
+     * Manifest of the remote java directory as of the last sync.
+     */
+    public static class Manifest {
+        private int version = MANIFEST_VERSION;
+        private String host;
+        private String remoteDir;
+        private long syncedAt;
+        private Map<String, FileEntry> files = new LinkedHashMap<>();
+
+        public int getVersion() {
+            return version;
+        }
+
+        public void setVersion(int version) {
+            this.version = version;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public String getRemoteDir() {
+            return remoteDir;
+        }
+
+        public void setRemoteDir(String remoteDir) {
+            this.remoteDir = remoteDir;
+        }
+
+        public long getSyncedAt() {
+            return syncedAt;
+        }
+
+        public void setSyncedAt(long syncedAt) {
+            this.syncedAt = syncedAt;
+        }
+
+        public Map<String, FileEntry> getFiles() {
+            return files;
+        }
+
+        public void setFiles(Map<String, FileEntry> files) {
+            this.files = files != null ? files : new HashMap<>();
+        }
+    }
+
+    /**
+     * Size, modification time (seconds since epoch, as printed by find), MD5 and, once the file
+     * is in the artifact store, SHA-256 of one file.
+     */
+    public static class FileEntry {
+        private long size;
+        private String mtime;
+        private String md5;
+        private String sha256;
+
+        public FileEntry() {
+        }
+
+        FileEntry(long size, String mtime, String md5) {
+            this.size = size;
+            this.mtime = mtime;
+            this.md5 = md5;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public String getMtime() {
+            return mtime;
+        }
+
+        public void setMtime(String mtime) {
+            this.mtime = mtime;
+        }
+
+        public String getMd5() {
+            return md5;
+        }
+
+        public void setMd5(String md5) {
+            this.md5 = md5;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public void setSha256(String sha256) {
+            this.sha256 = sha256;
+        }
+    }
+}
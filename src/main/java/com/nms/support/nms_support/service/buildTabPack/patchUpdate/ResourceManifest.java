@@ -0,0 +1,344 @@
+package com.nms.support.nms_support.service.buildTabPack.patchUpdate;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nms.support.nms_support.service.globalPack.LoggerUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parsed JNLP resource list of one project, kept between product refreshes.
+ *
+ * Every setup wipes the product directory, so jars fetched into it cannot be reused. The
+ * jars themselves live in the shared {@link com.nms.support.nms_support.service.globalPack.ArtifactStore};
+ * this manifest records per project which jars the JNLP listed (names, sizes, SHA-256, HTTP
+ * validators and the server version). The next refresh sends conditional requests for the
+ * JNLP and every jar, compares the result with the previous manifest and reports what the
+ * patch actually changed.
+ *
+ * Features:
+ * - One manifest per project, under Documents/nms_support_data/resource_cache
+ * - Stored atomically; a manifest of another server is ignored
+ * - Diff of two manifests: added, changed and removed jars
+ */
+public final class ResourceManifest {
+
+    static final String MANIFEST_FILE_NAME = "manifest.json";
+    private static final int MANIFEST_VERSION = 2;
+    // Diff lines shown in the process monitor per category
+    private static final int MAX_LISTED = 25;
+
+    private ResourceManifest() {
+    }
+
+    /**
+     * Resource cache directory of a project.
+     */
+    public static Path cacheDir(String projectName) {
+        String safeName = projectName == null || projectName.isBlank()
+            ? "default" : projectName.replaceAll("[^A-Za-z0-9._-]", "_");
+        return Paths.get(System.getProperty("user.home"), "Documents", "nms_support_data", "resource_cache", safeName);
+    }
+
+    /**
+     * Load the manifest of the last refresh, or an empty one if there is none usable for this server.
+     */
+    static Manifest load(Path cacheDir, String baseUrl) {
+        File file = cacheDir.resolve(MANIFEST_FILE_NAME).toFile();
+        if (file.isFile()) {
+            try {
+                Manifest manifest = new ObjectMapper().readValue(file, Manifest.class);
+                if (manifest.getVersion() == MANIFEST_VERSION && baseUrl.equals(manifest.getBaseUrl())) {
+                    return manifest;
+                }
+                LoggerUtil.getLogger().info("Resource manifest belongs to another server, starting fresh");
+            } catch (IOException e) {
+                LoggerUtil.getLogger().warning("Unreadable resource manifest, starting fresh: " + e.getMessage());
+            }
+        }
+        Manifest manifest = new Manifest();
+        manifest.setBaseUrl(baseUrl);
+        return manifest;
+    }
+
+    /**
+     * Store the manifest of a completed refresh (written atomically).
+     */
+    static void save(Path cacheDir, Manifest manifest) {
+        Path target = cacheDir.resolve(MANIFEST_FILE_NAME);
+        Path temp = cacheDir.resolve(MANIFEST_FILE_NAME + ".tmp");
+        try {
+            manifest.setFetchedAt(System.currentTimeMillis());
+            new ObjectMapper().writeValue(temp.toFile(), manifest);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LoggerUtil.getLogger().info("💾 Saved resource manifest (" + manifest.getJars().size() + " jars): " + target);
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Failed to save resource manifest, next refresh downloads all jars: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Compare the previous manifest with the current one.
+     *
+     * @param listed Every jar the JNLP lists now, including ones that failed to download,
+     *               so a failed download is not mistaken for a removal
+     */
+    static Diff diff(Manifest previous, Manifest current, Collection<String> listed) {
+        Diff diff = new Diff(previous.getServerVersion(), current.getServerVersion());
+        for (Map.Entry<String, JarEntry> entry : current.getJars().entrySet()) {
+            JarEntry before = previous.getJars().get(entry.getKey());
+            if (before == null) {
+                diff.added.add(entry.getValue().getName());
+            } else if (before.getSha256() == null || !before.getSha256().equals(entry.getValue().getSha256())) {
+                diff.changed.add(entry.getValue().getName());
+            } else {
+                diff.unchanged++;
+            }
+        }
+        for (Map.Entry<String, JarEntry> entry : previous.getJars().entrySet()) {
+            if (!listed.contains(entry.getKey())) {
+                diff.removed.add(entry.getValue().getName());
+            }
+        }
+        return diff;
+    }
+
+    // ===== MANIFEST MODEL =====
+
+    /**
+     * Jar list of the JNLP as of the last refresh, keyed by the href listed in the JNLP.
+     */
+    public static class Manifest {
+        private int version = MANIFEST_VERSION;
+        private String baseUrl;
+        private String jnlpUrl;
+        private String jnlpEtag;
+        private String jnlpLastModified;
+        private String serverVersion;
+        private long fetchedAt;
+        private Map<String, JarEntry> jars = new LinkedHashMap<>();
+
+        public int getVersion() {
+            return version;
+        }
+
+        public void setVersion(int version) {
+            this.version = version;
+        }
+
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        public void setBaseUrl(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String getJnlpUrl() {
+            return jnlpUrl;
+        }
+
+        public void setJnlpUrl(String jnlpUrl) {
+            this.jnlpUrl = jnlpUrl;
+        }
+
+        public String getJnlpEtag() {
+            return jnlpEtag;
+        }
+
+        public void setJnlpEtag(String jnlpEtag) {
+            this.jnlpEtag = jnlpEtag;
+        }
+
+        public String getJnlpLastModified() {
+            return jnlpLastModified;
+        }
+
+        public void setJnlpLastModified(String jnlpLastModified) {
+            this.jnlpLastModified = jnlpLastModified;
+        }
+
+        public String getServerVersion() {
+            return serverVersion;
+        }
+
+        public void setServerVersion(String serverVersion) {
+            this.serverVersion = serverVersion;
+        }
+
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+
+        public void setFetchedAt(long fetchedAt) {
+            this.fetchedAt = fetchedAt;
+        }
+
+        public Map<String, JarEntry> getJars() {
+            return jars;
+        }
+
+        public void setJars(Map<String, JarEntry> jars) {
+            this.jars = jars != null ? jars : new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * One jar: file name, size and SHA-256 of the stored copy and the HTTP validators the server sent with it.
+     */
+    public static class JarEntry {
+        private String name;
+        private long size;
+        private String sha256;
+        private String etag;
+        private String lastModified;
+        private boolean unchanged;
+
+        public JarEntry() {
+        }
+
+        JarEntry(String name, long size, String sha256, String etag, String lastModified) {
+            this.name = name;
+            this.size = size;
+            this.sha256 = sha256;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * Whether this refresh found the jar unchanged (304) rather than downloading it; not stored.
+         */
+        @JsonIgnore
+        public boolean isUnchanged() {
+            return unchanged;
+        }
+
+        @JsonIgnore
+        public void setUnchanged(boolean unchanged) {
+            this.unchanged = unchanged;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public void setSha256(String sha256) {
+            this.sha256 = sha256;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public void setEtag(String etag) {
+            this.etag = etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public void setLastModified(String lastModified) {
+            this.lastModified = lastModified;
+        }
+    }
+
+    // ===== DIFF =====
+
+    /**
+     * What changed between two refreshes, by jar file name.
+     */
+    public static final class Diff {
+        private final String fromVersion;
+        private final String toVersion;
+        private final List<String> added = new ArrayList<>();
+        private final List<String> changed = new ArrayList<>();
+        private final List<String> removed = new ArrayList<>();
+        private int unchanged;
+
+        Diff(String fromVersion, String toVersion) {
+            this.fromVersion = fromVersion;
+            this.toVersion = toVersion;
+        }
+
+        public List<String> getAdded() {
+            return added;
+        }
+
+        public List<String> getChanged() {
+            return changed;
+        }
+
+        public List<String> getRemoved() {
+            return removed;
+        }
+
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && changed.isEmpty() && removed.isEmpty();
+        }
+
+        /**
+         * One-line summary, e.g. "Server 23.1 -> 23.2: 2 added, 5 changed, 1 removed, 140 unchanged".
+         */
+        public String summary() {
+            StringBuilder text = new StringBuilder();
+            if (fromVersion != null && toVersion != null && !fromVersion.equals(toVersion)) {
+                text.append("Server ").append(fromVersion).append(" -> ").append(toVersion).append(": ");
+            } else if (toVersion != null) {
+                text.append("Server ").append(toVersion).append(": ");
+            }
+            return text.append(added.size()).append(" added, ").append(changed.size()).append(" changed, ")
+                .append(removed.size()).append(" removed, ").append(unchanged).append(" unchanged").toString();
+        }
+
+        /**
+         * Lines listing the jars per category ("+ a.jar", "~ b.jar", "- c.jar"), capped per category.
+         */
+        public List<String> lines() {
+            List<String> lines = new ArrayList<>();
+            list(lines, "+ ", added);
+            list(lines, "~ ", changed);
+            list(lines, "- ", removed);
+            return lines;
+        }
+
+        private static void list(List<String> lines, String prefix, List<String> names) {
+            for (int i = 0; i < names.size() && i < MAX_LISTED; i++) {
+                lines.add(prefix + names.get(i));
+            }
+            if (names.size() > MAX_LISTED) {
+                lines.add(prefix + "... and " + (names.size() - MAX_LISTED) + " more");
+            }
+        }
+    }
+}
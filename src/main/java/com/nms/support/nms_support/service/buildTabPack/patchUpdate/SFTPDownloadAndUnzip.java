@@ -4,25 +4,31 @@ import net.schmizz.sshj.sftp.SFTPClient;
 import net.schmizz.sshj.sftp.FileAttributes;
 import com.nms.support.nms_support.model.ProjectEntity;
 import com.nms.support.nms_support.service.globalPack.LoggerUtil;
+import com.nms.support.nms_support.service.globalPack.ParallelZipExtractor;
 import com.nms.support.nms_support.service.globalPack.ProgressCallback;
 import com.nms.support.nms_support.service.globalPack.sshj.SSHJSessionManager;
+import com.nms.support.nms_support.service.globalPack.sshj.LineConsumer;
 import com.nms.support.nms_support.service.globalPack.ProcessMonitorManager;
+import com.nms.support.nms_support.service.globalPack.RemoteArchiver;
+import com.nms.support.nms_support.service.globalPack.SegmentedSftpDownloader;
+import com.nms.support.nms_support.service.globalPack.StreamingArchiveDownload;
+import com.nms.support.nms_support.service.globalPack.TransferProgress;
+import com.nms.support.nms_support.service.globalPack.TransferScheduler;
 import com.nms.support.nms_support.service.globalPack.UnifiedSSHService;
 
 import java.io.*;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 /**
  * Professional SFTP download and unzip service
- * Handles remote zip creation and local extraction with proper error handling
+ * Handles remote zip creation and local extraction with proper error handling;
+ * streams a remote tar archive straight into the java folder when possible
  */
 public class SFTPDownloadAndUnzip {
-    private static final int BUFFER_SIZE = 8192;
     private static final int ZIP_TIMEOUT_SECONDS = 600; // 5 minutes for zip operations
     private static final int COMMAND_TIMEOUT_SECONDS = 30; // 30 seconds for other commands
+    private static final int STREAM_TIMEOUT_SECONDS = 1800; // 30 minutes for a streamed download
 
     /**
      * Download and extract Java files from remote server with purpose-based session isolation
@@ -70,6 +76,48 @@ public class SFTPDownloadAndUnzip {
             String remoteDir = resolveRemoteDirectory(ssh, progressCallback);
             progressCallback.onProgress(30, "Remote directory resolved: " + remoteDir);
 
+            // Delta sync: transfer only what changed since the last download
+            JavaDeltaSync.Manifest remoteManifest = null;
+            if (JavaDeltaSync.isEnabled()) {
+                remoteManifest = JavaDeltaSync.fetchRemoteManifest(ssh, project, remoteDir, progressCallback);
+                JavaDeltaSync.Manifest localManifest = remoteManifest != null
+                    ? JavaDeltaSync.loadLocalManifest(localExtractDir, project, remoteDir) : null;
+                if (localManifest == null && remoteManifest != null) {
+                    // No earlier download here; start from what other projects already fetched
+                    localManifest = JavaDeltaSync.seedFromStore(prepareJavaFolder(localExtractDir), remoteManifest, progressCallback);
+                }
+                if (localManifest != null) {
+                    progressCallback.onProgress(40, "Comparing with last download...");
+                    JavaDeltaSync.sync(ssh, project, remoteDir, localExtractDir, localManifest, remoteManifest, progressCallback);
+                    progressCallback.onComplete("Java delta sync completed successfully");
+                    return;
+                }
+            }
+
+            // Streaming: remote tar piped straight into the java folder, no temp files on either side
+            if (StreamingArchiveDownload.isEnabled()) {
+                File productJavaFolder = prepareJavaFolder(localExtractDir);
+                try {
+                    StreamingArchiveDownload.download(ssh, remoteDir, List.of("./working"), productJavaFolder,
+                        totalSize(remoteManifest), RemoteArchiver.Compression.of(project.getArchiveCompression()),
+                        STREAM_TIMEOUT_SECONDS, progressCallback, 40, 95);
+                    JavaDeltaSync.storeJavaFolder(localExtractDir, project, remoteManifest, progressCallback);
+                    if (remoteManifest != null) {
+                        JavaDeltaSync.saveManifest(localExtractDir, remoteManifest);
+                    }
+                    progressCallback.onComplete("Java download and extraction completed successfully");
+                    return;
+                } catch (Exception e) {
+                    if (progressCallback.isCancelled()) {
+                        progressCallback.onError("SFTP download cancelled by user during streaming");
+                        ProcessMonitorManager.getInstance().immediateSessionCleanup(ssh.getSessionId());
+                        return;
+                    }
+                    LoggerUtil.getLogger().warning("⚠️ Streaming download failed, falling back to zip + SFTP: " + e.getMessage());
+                    progressCallback.onProgress(40, "Streaming unavailable, creating zip on server...");
+                }
+            }
+
             // Check for cancellation before creating zip
             if (progressCallback.isCancelled()) {
                 progressCallback.onError("SFTP download cancelled by user before zip creation");
@@ -113,124 +161,21 @@ public class SFTPDownloadAndUnzip {
             long fileSize = attrs.getSize();
             LoggerUtil.getLogger().info("Remote zip file size: " + fileSize + " bytes (" + (fileSize / 1024 / 1024) + " MB)");
             
-            // Create progress tracking variables
-            final long[] bytesDownloaded = {0};
-            final long[] startTime = {System.currentTimeMillis()};
-            final long[] lastUpdateTime = {System.currentTimeMillis()};
-            
-        // Start a background thread to monitor download progress BEFORE starting download
-        LoggerUtil.getLogger().info("Starting SFTP download to: " + localZipFilePath);
-        progressCallback.onProgress(70, "Starting SFTP download...");
-        
-        // Start progress monitoring thread BEFORE download
-        Thread progressMonitor = new Thread(() -> {
-            try {
-                LoggerUtil.getLogger().info("Starting download progress monitoring...");
-                progressCallback.onProgress(70, "Starting download progress monitoring...");
-                
-                while (true) {
-                    // Check for cancellation
-                    if (progressCallback.isCancelled()) {
-                        LoggerUtil.getLogger().info("Download progress monitoring cancelled");
-                        return;
-                    }
-                    
-                    // Check if file exists and get its current size
-                    File localFile = new File(localZipFilePath);
-                    if (localFile.exists()) {
-                        long currentSize = localFile.length();
-                        
-                        // Update progress every 2 seconds for real-time updates (instead of 5 seconds)
-                        long currentTime = System.currentTimeMillis();
-                        if (currentTime - lastUpdateTime[0] >= 2000 || currentSize >= fileSize) {
-                            LoggerUtil.getLogger().info("Download progress update: " + currentSize + " / " + fileSize + " bytes");
-                            
-                            // Calculate progress percentage
-                            int progressPercent = (int) ((currentSize * 100) / fileSize);
-                            
-                            // Calculate download speed
-                            double speedBps = currentSize / ((currentTime - startTime[0]) / 1000.0);
-                            String speedText = formatSpeed(speedBps);
-                            
-                            // Calculate ETA
-                            long remainingBytes = fileSize - currentSize;
-                            long estimatedTimeRemaining = 0;
-                            if (speedBps > 0) {
-                                estimatedTimeRemaining = (long) (remainingBytes / speedBps);
-                            }
-                            String timeRemainingText = formatTime(estimatedTimeRemaining);
-                            
-                            // Format sizes
-                            String downloadedText = formatSize(currentSize);
-                            String totalText = formatSize(fileSize);
-                            
-                            // Create detailed progress message
-                            String progressMessage = String.format("Downloading: %s / %s (%.1f%%) - Speed: %s - ETA: %s", 
-                                downloadedText, totalText, (currentSize * 100.0 / fileSize), speedText, timeRemainingText);
-                            
-                            // Log to console for debugging
-                            LoggerUtil.getLogger().info("Download progress: " + progressMessage);
-                            System.out.println("[DOWNLOAD] " + progressMessage);
-                            
-                            // Calculate progress percentage for UI (70-85% range)
-                            int uiProgress = 70 + (int)(progressPercent * 0.15);
-                            
-                            // Send SINGLE progress update to avoid UI flooding (removed duplicate calls)
-                            progressCallback.onProgress(uiProgress, progressMessage);
-                            
-                            lastUpdateTime[0] = currentTime;
-                            
-                            // If download is complete, break
-                            if (currentSize >= fileSize) {
-                                LoggerUtil.getLogger().info("Download completed, stopping progress monitoring");
-                                progressCallback.onProgress(85, "Download completed successfully");
-                                break;
-                            }
-                        }
-                    } else {
-                        // File doesn't exist yet, show initial progress every 2 seconds
-                        long currentTime = System.currentTimeMillis();
-                        if (currentTime - lastUpdateTime[0] >= 2000) {
-                            String message = "Download starting... (0 / " + formatSize(fileSize) + ")";
-                            LoggerUtil.getLogger().info(message);
-                            progressCallback.onProgress(70, message);
-                            lastUpdateTime[0] = currentTime;
-                        }
-                    }
-                    
-                    // Sleep for 500ms for more frequent updates
-                    Thread.sleep(500);
-                }
-            } catch (InterruptedException e) {
-                // Thread interrupted, stop monitoring
-                LoggerUtil.getLogger().info("Download progress monitoring interrupted");
-                Thread.currentThread().interrupt();
+            // Byte counts come straight from the downloader; throughput, ETA and stalls from TransferProgress
+            LoggerUtil.getLogger().info("Starting SFTP download to: " + localZipFilePath);
+            progressCallback.onProgress(71, "Downloading file from server...");
+            try (TransferProgress transfer = new TransferProgress("Downloading", fileSize,
+                    TransferProgress.toCallback(progressCallback, 70, 85))
+                    .recordMetrics(ssh.getHost(), ssh.getPurpose())
+                    .schedule(ssh.getHost(), TransferScheduler.Priority.FOREGROUND, progressCallback)
+                    .start()) {
+                SegmentedSftpDownloader.download(ssh, remoteZipFilePath, new File(localZipFilePath),
+                    progressCallback::isCancelled, transfer::update);
+                LoggerUtil.getLogger().info("SFTP download completed");
+            } catch (Exception e) {
+                LoggerUtil.getLogger().severe("SFTP download failed: " + e.getMessage());
+                throw new RuntimeException("SFTP download failed: " + e.getMessage(), e);
             }
-        });
-        
-        // Start the progress monitoring thread
-        progressMonitor.start();
-        
-        // Now start the actual SFTP download
-        LoggerUtil.getLogger().info("Starting actual SFTP download...");
-        progressCallback.onProgress(71, "Downloading file from server...");
-        
-        try {
-            sftpClient.get(remoteZipFilePath, localZipFilePath);
-            LoggerUtil.getLogger().info("SFTP download completed");
-        } catch (Exception e) {
-            LoggerUtil.getLogger().severe("SFTP download failed: " + e.getMessage());
-            throw new RuntimeException("SFTP download failed: " + e.getMessage(), e);
-        }
-        
-        // Wait for progress monitoring to complete
-        try {
-            progressMonitor.join();
-            LoggerUtil.getLogger().info("Download progress monitoring completed");
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new RuntimeException("Download monitoring interrupted");
-        }
         
             progressCallback.onProgress(85, "Download completed successfully");
 
@@ -278,26 +223,17 @@ public class SFTPDownloadAndUnzip {
             progressCallback.onProgress(90, "Preparing extraction directory...");
             
             // Create java directory (delete and recreate if exists)
-            String productJavaDir = localExtractDir + File.separator + "java";
-            File productJavaFolder = new File(productJavaDir);
-            
-            if (productJavaFolder.exists()) {
-                LoggerUtil.getLogger().info("Deleting existing java folder: " + productJavaDir);
-                progressCallback.onProgress(91, "Cleaning existing java folder...");
-                deleteDirectory(productJavaFolder);
-            }
-            
-            // Create the directory
-            if (!productJavaFolder.mkdirs()) {
-                throw new IOException("Failed to create java directory: " + productJavaDir);
-            }
-            
-            LoggerUtil.getLogger().info("Created java directory: " + productJavaDir);
+            progressCallback.onProgress(91, "Cleaning existing java folder...");
+            String productJavaDir = prepareJavaFolder(localExtractDir).getPath();
             progressCallback.onProgress(92, "Extracting to java folder...");
             
             // Extract zip file to java directory
             unzipFile(localZipFilePath, productJavaDir, progressCallback);
             progressCallback.onProgress(95, "Extraction completed to java folder");
+            JavaDeltaSync.storeJavaFolder(localExtractDir, project, remoteManifest, progressCallback);
+            if (remoteManifest != null) {
+                JavaDeltaSync.saveManifest(localExtractDir, remoteManifest);
+            }
 
             // Clean up local zip file after successful extraction
             LoggerUtil.getLogger().info("Cleaning up temp zip file: " + localZipFilePath);
@@ -359,6 +295,41 @@ public class SFTPDownloadAndUnzip {
         start(localExtractDir, project, progressCallback, "default");
     }
 
+    /**
+     * Delete and recreate the java folder below the product directory.
+     * The delta sync manifest is removed first, since it no longer describes the folder.
+     */
+    private static File prepareJavaFolder(String localExtractDir) throws IOException {
+        String productJavaDir = localExtractDir + File.separator + "java";
+        File productJavaFolder = new File(productJavaDir);
+        
+        JavaDeltaSync.deleteManifest(localExtractDir);
+        if (productJavaFolder.exists()) {
+            LoggerUtil.getLogger().info("Deleting existing java folder: " + productJavaDir);
+            deleteDirectory(productJavaFolder);
+        }
+        
+        if (!productJavaFolder.mkdirs()) {
+            throw new IOException("Failed to create java directory: " + productJavaDir);
+        }
+        LoggerUtil.getLogger().info("Created java directory: " + productJavaDir);
+        return productJavaFolder;
+    }
+    
+    /**
+     * Total file size listed in a manifest, 0 if there is none.
+     */
+    private static long totalSize(JavaDeltaSync.Manifest manifest) {
+        if (manifest == null) {
+            return 0;
+        }
+        long total = 0;
+        for (JavaDeltaSync.FileEntry entry : manifest.getFiles().values()) {
+            total += entry.getSize();
+        }
+        return total;
+    }
+
     /**
      * Resolve the remote directory path for java files
      * REQUIRES: NMS_HOME environment variable must be set and java directory must exist
@@ -432,11 +403,12 @@ public class SFTPDownloadAndUnzip {
         // Normalize the remote directory path
         String normalizedRemoteDir = remoteDir.endsWith("/") ? remoteDir : remoteDir + "/";
         
-        // Build zip command - same format as ServerProjectService
-        String zipCommand = String.format(
-            "cd %s && zip -rv %s . -x 'working/*' 2>&1 && chmod 644 %s && echo 'ZIP_COMPLETED_SUCCESSFULLY'",
-            normalizedRemoteDir, remoteZipFilePath, remoteZipFilePath
-        );
+        // Quiet zip at the project's compression level; progress comes from the archive size
+        RemoteArchiver.Plan plan = RemoteArchiver.plan(ssh, RemoteArchiver.Compression.of(project.getArchiveCompression()));
+        if (!plan.hasZip()) {
+            throw new Exception("zip is not available on the server");
+        }
+        String zipCommand = plan.zipCommand(normalizedRemoteDir, remoteZipFilePath, "working/*");
         
         LoggerUtil.getLogger().info("=== ZIP FILE CREATION ===");
         LoggerUtil.getLogger().info("Remote directory: " + normalizedRemoteDir);
@@ -458,44 +430,22 @@ public class SFTPDownloadAndUnzip {
             throw new RuntimeException("Zip operation cancelled by user");
         }
         
-        progressCallback.onProgress(55, "Creating zip on server (this may take several minutes)...");
+        progressCallback.onProgress(55, "Creating zip on server (zip -" + plan.getCompression().getLevel() + ", this may take several minutes)...");
         LoggerUtil.getLogger().info("Starting zip command execution...");
         
-        // Create simple progress callback that counts files (same as ServerProjectService)
-        ProgressCallback zipProgressCallback = new ProgressCallback() {
-            private int fileCount = 0;
-            private int lastProgressUpdate = 55;
-            private long lastProgressTime = System.currentTimeMillis();
-            
+        // The command reports the archive size every two seconds
+        final long[] archiveBytes = {0};
+        LineConsumer zipLineConsumer = RemoteArchiver.sizeLines(bytes -> {
+            archiveBytes[0] = bytes;
+            int dynamicProgress = Math.min(55 + (int) (bytes / (20L * 1024 * 1024)), 85);
+            progressCallback.onProgress(dynamicProgress, "Zipping files... (" + formatSize(bytes) + " written)");
+        });
+        
+        // Cancellation-only callback so generic command progress does not overwrite the zip progress
+        ProgressCallback zipCancellationCallback = new ProgressCallback() {
             @Override
             public void onProgress(int progress, String message) {
-                // Check for cancellation
-                if (progressCallback.isCancelled()) {
-                    LoggerUtil.getLogger().info("Zip cancelled by user");
-                    try {
-                        ssh.forceKillCurrentCommand();
-                    } catch (Exception e) {
-                        LoggerUtil.getLogger().warning("Failed to kill command: " + e.getMessage());
-                    }
-                    return;
-                }
-                
-                // Count files being added
-                if (message != null && (message.contains("adding:") || message.contains("updating:"))) {
-                    fileCount++;
-                    
-                    // Update every 10 files OR every 2 seconds
-                    long currentTime = System.currentTimeMillis();
-                    boolean shouldUpdate = (fileCount % 10 == 0) || ((currentTime - lastProgressTime) >= 2000);
-                    
-                    if (shouldUpdate) {
-                        int dynamicProgress = Math.min(55 + (fileCount / 2), 85);
-                        progressCallback.onProgress(dynamicProgress, "Zipping files... (" + fileCount + " files processed)");
-                        lastProgressUpdate = dynamicProgress;
-                        lastProgressTime = currentTime;
-                        LoggerUtil.getLogger().fine("Zip progress: " + fileCount + " files");
-                    }
-                }
+                // Progress is reported from the streamed lines instead
             }
             
             @Override
@@ -517,7 +467,7 @@ public class SFTPDownloadAndUnzip {
         // Execute zip command with 10 minute timeout (same as ServerProjectService)
         SSHJSessionManager.CommandResult result = null;
         try {
-            result = ssh.executeCommand(zipCommand, 600, zipProgressCallback);
+            result = ssh.executeCommandStreaming(zipCommand, 600, zipLineConsumer, zipCancellationCallback);
         } catch (RuntimeException e) {
             if (e.getMessage().contains("cancelled by user")) {
                 LoggerUtil.getLogger().info("Zip cancelled during execution, cleaning up...");
@@ -559,7 +509,7 @@ public class SFTPDownloadAndUnzip {
         
         LoggerUtil.getLogger().info("=== ZIP COMMAND RESULT ===");
         LoggerUtil.getLogger().info("Zip exit code: " + result.getExitCode());
-        LoggerUtil.getLogger().info("Output length: " + result.getOutput().length());
+        LoggerUtil.getLogger().info("Zip size: " + formatSize(archiveBytes[0]));
         LoggerUtil.getLogger().info("Completion marker found: YES");
         LoggerUtil.getLogger().info("=== END ZIP COMMAND RESULT ===");
         
@@ -596,141 +546,26 @@ public class SFTPDownloadAndUnzip {
     }
 
     /**
-     * Extract zip file to local directory
+     * Extract zip file to local directory, several entries at a time
      */
-    private static void unzipFile(String zipFilePath, String destDir, ProgressCallback progressCallback) throws IOException {
-        File destDirFile = new File(destDir);
-        if (!destDirFile.exists()) {
-            destDirFile.mkdirs();
-        }
-
+    static void unzipFile(String zipFilePath, String destDir, ProgressCallback progressCallback) throws IOException {
         LoggerUtil.getLogger().info("Starting extraction from: " + zipFilePath + " to: " + destDir);
         progressCallback.onProgress(90, "Starting extraction...");
 
-        try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zipFilePath))) {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            ZipEntry zipEntry = zis.getNextEntry();
-            int fileCount = 0;
-            long startTime = System.currentTimeMillis();
-            long lastUpdateTime = startTime;
-            
-            while (zipEntry != null) {
-                if (progressCallback.isCancelled()) {
-                    throw new IOException("Extraction cancelled by user");
-                }
-                
-                File newFile = newFile(destDirFile, zipEntry);
-                if (zipEntry.isDirectory()) {
-                    if (!newFile.isDirectory() && !newFile.mkdirs()) {
-                        throw new IOException("Failed to create directory " + newFile);
-                    }
-                } else {
-                    File parent = newFile.getParentFile();
-                    if (!parent.isDirectory() && !parent.mkdirs()) {
-                        throw new IOException("Failed to create directory " + parent);
-                    }
-                    
-                    try (FileOutputStream fos = new FileOutputStream(newFile)) {
-                        int len;
-                        while ((len = zis.read(buffer)) > 0) {
-                            if (progressCallback.isCancelled()) {
-                                throw new IOException("Extraction cancelled by user");
-                            }
-                            fos.write(buffer, 0, len);
-                        }
-                    }
-                }
-                
-                zipEntry = zis.getNextEntry();
-                fileCount++;
-                
-                // Update progress every 5 seconds with simple status (no random increments)
+        long[] lastUpdateTime = {System.currentTimeMillis()};
+        int fileCount = ParallelZipExtractor.extract(new File(zipFilePath), new File(destDir), progressCallback::isCancelled,
+            (files, totalFiles, bytes) -> {
+                // Update progress every 2 seconds with simple status
                 long currentTime = System.currentTimeMillis();
-                if (currentTime - lastUpdateTime >= 5000) {
-                    progressCallback.onProgress(90, "Extracting files... (" + fileCount + " files processed)");
-                    lastUpdateTime = currentTime;
+                if (currentTime - lastUpdateTime[0] >= 2000) {
+                    progressCallback.onProgress(90 + (int) (files * 5L / Math.max(1, totalFiles)),
+                        "Extracting files... (" + files + " / " + totalFiles + " files, " + formatSize(bytes) + ")");
+                    lastUpdateTime[0] = currentTime;
                 }
-            }
-            zis.closeEntry();
-            
-            LoggerUtil.getLogger().info("Extraction completed. Total files extracted: " + fileCount);
-            progressCallback.onProgress(95, "Extraction completed - " + fileCount + " files extracted");
-        }
-    }
-
-    /**
-     * Create new file with security checks
-     */
-    private static File newFile(File destinationDir, ZipEntry zipEntry) throws IOException {
-        File destFile = new File(destinationDir, zipEntry.getName());
-        String destDirPath = destinationDir.getCanonicalPath();
-        String destFilePath = destFile.getCanonicalPath();
+            });
 
-        if (!destFilePath.startsWith(destDirPath + File.separator)) {
-            throw new IOException("Entry is outside of the target dir: " + zipEntry.getName());
-        }
-        return destFile;
-    }
-    
-    /**
-     * Update download progress with detailed information
-     */
-    private static void updateDownloadProgress(ProgressCallback progressCallback, long bytesDownloaded, 
-            long totalBytes, long elapsedTime, long timeSinceLastUpdate) {
-        
-        // Calculate progress percentage
-        int progressPercent = (int) ((bytesDownloaded * 100) / totalBytes);
-        
-        // Calculate download speed (bytes per second)
-        double speedBps = bytesDownloaded / (elapsedTime / 1000.0);
-        String speedText = formatSpeed(speedBps);
-        
-        // Calculate estimated time remaining
-        long remainingBytes = totalBytes - bytesDownloaded;
-        long estimatedTimeRemaining = 0;
-        if (speedBps > 0) {
-            estimatedTimeRemaining = (long) (remainingBytes / speedBps);
-        }
-        String timeRemainingText = formatTime(estimatedTimeRemaining);
-        
-        // Format downloaded and total sizes
-        String downloadedText = formatSize(bytesDownloaded);
-        String totalText = formatSize(totalBytes);
-        
-        // Create detailed progress message
-        String progressMessage = String.format("Downloading: %s / %s (%.1f%%) - Speed: %s - ETA: %s", 
-            downloadedText, totalText, (bytesDownloaded * 100.0 / totalBytes), speedText, timeRemainingText);
-        
-        // Log to console for debugging
-        LoggerUtil.getLogger().info("Download progress: " + progressMessage);
-        System.out.println("[DOWNLOAD] " + progressMessage);
-        
-        // Calculate progress percentage for UI (70-85% range)
-        int uiProgress = 70 + (int)(progressPercent * 0.15);
-        
-        // Send detailed progress message to UI
-        progressCallback.onProgress(uiProgress, progressMessage);
-        
-        // Also send a simple progress update for UI
-        String simpleMessage = String.format("Download: %.1f%% (%s/%s)", 
-            (bytesDownloaded * 100.0 / totalBytes), downloadedText, totalText);
-        progressCallback.onProgress(uiProgress, simpleMessage);
-        
-        // Force UI update by sending a status message
-        progressCallback.onProgress(uiProgress, "Download in progress... " + simpleMessage);
-    }
-    
-    /**
-     * Format speed in appropriate units
-     */
-    private static String formatSpeed(double bytesPerSecond) {
-        if (bytesPerSecond < 1024) {
-            return String.format("%.1f B/s", bytesPerSecond);
-        } else if (bytesPerSecond < 1024 * 1024) {
-            return String.format("%.1f KB/s", bytesPerSecond / 1024);
-        } else {
-            return String.format("%.1f MB/s", bytesPerSecond / (1024 * 1024));
-        }
+        LoggerUtil.getLogger().info("Extraction completed. Total files extracted: " + fileCount);
+        progressCallback.onProgress(95, "Extraction completed - " + fileCount + " files extracted");
     }
     
     /**
@@ -746,19 +581,6 @@ public class SFTPDownloadAndUnzip {
         }
     }
     
-    /**
-     * Format time in appropriate units
-     */
-    private static String formatTime(long seconds) {
-        if (seconds < 60) {
-            return String.format("%ds", seconds);
-        } else if (seconds < 3600) {
-            return String.format("%dm %ds", seconds / 60, seconds % 60);
-        } else {
-            return String.format("%dh %dm", seconds / 3600, (seconds % 3600) / 60);
-        }
-    }
-    
     /**
      * Recursively delete a directory and all its contents
      */
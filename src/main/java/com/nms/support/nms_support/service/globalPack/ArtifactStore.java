@@ -0,0 +1,632 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Content-addressed store of product files, shared by all projects.
+ *
+ * Many projects run the same NMS product version, and every product installation used to
+ * download and keep its own copy of the same jars. Files are now stored once under
+ * Documents/nms_support_data/artifact_store, keyed by their SHA-256, and product directories
+ * are populated from the stored objects, so a second project on the same version downloads nothing.
+ *
+ * Product directories get independent copies by default. Hard links save the disk space too,
+ * but every project then shares one file: a jar patched in place (by an IDE, a build or a user)
+ * changes it for all of them. Linking is therefore opt-in via {@link #setHardLinks(boolean)}.
+ *
+ * Features:
+ * - Objects addressed by SHA-256, with an MD5 index for sources that only report MD5 (remote manifests)
+ * - Copies by default; hard links when enabled and possible
+ * - Reference counting per project and file group (e.g. "nmslib", "java")
+ * - LRU size cap: unreferenced objects are evicted, least recently used first
+ * - HTTP validators per source URL, so a jar fetched by one project can be revalidated by another
+ * - Objects whose size or modification time changed (written through a link) are discarded
+ * - An object's hash is verified before it is installed into a project, so a copy modified in
+ *   place without changing size or time is not passed on either
+ */
+public final class ArtifactStore {
+
+    private static final long DEFAULT_MAX_BYTES = 10L * 1024 * 1024 * 1024;
+    private static final int INDEX_VERSION = 1;
+    private static final String INDEX_FILE_NAME = "index.json";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static volatile long maxBytes = DEFAULT_MAX_BYTES;
+    private static volatile boolean hardLinks = false;
+
+    private static Path root = Paths.get(System.getProperty("user.home"), "Documents", "nms_support_data", "artifact_store");
+    private static Index index;
+    // MD5 -> SHA-256 of stored objects, rebuilt after objects were added or removed
+    private static Map<String, String> md5Index;
+
+    private ArtifactStore() {
+    }
+
+    // ===== CONFIGURATION =====
+
+    /**
+     * Size above which unreferenced objects are evicted.
+     */
+    public static void setMaxBytes(long bytes) {
+        maxBytes = Math.max(0, bytes);
+    }
+
+    public static long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Populate product directories with hard links instead of copies (off by default).
+     * Links save disk space, but a file written in place then changes for every project sharing it.
+     */
+    public static void setHardLinks(boolean enable) {
+        hardLinks = enable;
+    }
+
+    public static boolean isHardLinks() {
+        return hardLinks;
+    }
+
+    /**
+     * Move the store, e.g. to another drive. Objects already stored stay where they are.
+     */
+    public static synchronized void setRoot(Path directory) {
+        root = directory;
+        index = null;
+        md5Index = null;
+    }
+
+    // ===== OBJECTS =====
+
+    /**
+     * Whether an intact object with this hash is stored.
+     */
+    public static synchronized boolean contains(String sha256) {
+        return sha256 != null && verified(sha256) != null;
+    }
+
+    /**
+     * SHA-256 of a stored object with the given MD5, or null.
+     */
+    public static synchronized String findByMd5(String md5) {
+        if (md5 == null) {
+            return null;
+        }
+        if (md5Index == null) {
+            md5Index = new HashMap<>();
+            for (Map.Entry<String, ObjectEntry> entry : index().objects.entrySet()) {
+                if (entry.getValue().getMd5() != null) {
+                    md5Index.put(entry.getValue().getMd5(), entry.getKey());
+                }
+            }
+        }
+        String sha256 = md5Index.get(md5.toLowerCase());
+        return sha256 != null && verified(sha256) != null ? sha256 : null;
+    }
+
+    /**
+     * Size of a stored object, or -1 if it is not stored.
+     */
+    public static synchronized long sizeOf(String sha256) {
+        ObjectEntry entry = sha256 != null ? index().objects.get(sha256) : null;
+        return entry != null ? entry.getSize() : -1;
+    }
+
+    /**
+     * A new temporary file inside the store, on the same volume as the objects, for downloads
+     * that are added with {@link #put(Path, String, String)} afterwards.
+     */
+    public static Path newTempFile(String suffix) throws IOException {
+        Path tmp = storeRoot().resolve("tmp");
+        Files.createDirectories(tmp);
+        return tmp.resolve(UUID.randomUUID() + suffix);
+    }
+
+    /**
+     * Move a downloaded file into the store.
+     *
+     * @param file File to take over; it is moved (or deleted, if the object already exists)
+     * @param sha256 SHA-256 of the file
+     * @param md5 MD5 of the file, or null
+     */
+    public static synchronized void put(Path file, String sha256, String md5) throws IOException {
+        Path object = objectPath(sha256);
+        if (verified(sha256) != null) {
+            Files.deleteIfExists(file);
+        } else {
+            Files.createDirectories(object.getParent());
+            Files.move(file, object, StandardCopyOption.REPLACE_EXISTING);
+            record(sha256, object, md5);
+        }
+        touch(sha256, md5);
+    }
+
+    /**
+     * Add a file that stays where it is: the store keeps a copy of it (or, with hard links
+     * enabled, a link to it, and an identical object already stored replaces the file by a
+     * link, so both share one copy on disk).
+     *
+     * @param md5 MD5 of the file if already known (e.g. from a remote manifest), or null to compute it
+     * @return SHA-256 of the file
+     */
+    public static String adopt(Path file, String md5) throws IOException {
+        Hashes hashes = hash(file);
+        if (md5 != null && !md5.equalsIgnoreCase(hashes.md5)) {
+            throw new IOException("MD5 mismatch for " + file + ": expected " + md5 + ", got " + hashes.md5);
+        }
+        synchronized (ArtifactStore.class) {
+            Path object = objectPath(hashes.sha256);
+            // Already stored: nothing to add, or with hard links share the stored copy
+            boolean stored = verified(hashes.sha256) != null && (!hardLinks || install(hashes.sha256, file));
+            if (!stored) {
+                Files.createDirectories(object.getParent());
+                Files.deleteIfExists(object);
+                if (!hardLinks || !link(file, object)) {
+                    Files.copy(file, object, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                record(hashes.sha256, object, hashes.md5);
+            }
+            touch(hashes.sha256, hashes.md5);
+        }
+        return hashes.sha256;
+    }
+
+    /**
+     * Place a stored object at a target path (copy, or hard link if enabled). The object's
+     * hash is checked first, since it may have been modified through a link of another project.
+     *
+     * @return false if the object is not stored (or no longer intact)
+     */
+    public static synchronized boolean install(String sha256, Path target) throws IOException {
+        Path object = verified(sha256);
+        if (object == null) {
+            return false;
+        }
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        if (Files.exists(target) && Files.isSameFile(target, object)) {
+            touch(sha256, null);
+            return true;
+        }
+        if (!hash(object).sha256.equals(sha256)) {
+            discard(sha256, object, "was modified in place");
+            return false;
+        }
+        Files.deleteIfExists(target);
+        if (!hardLinks || !link(object, target)) {
+            Files.copy(object, target, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        touch(sha256, null);
+        return true;
+    }
+
+    // ===== REFERENCES =====
+
+    /**
+     * Replace the objects a project references for one group of files, then evict
+     * unreferenced objects above the size cap and save the index.
+     *
+     * @param project Project name
+     * @param group File group within the project (e.g. "nmslib", "java")
+     * @param hashes Every object the group uses now
+     */
+    public static synchronized void retain(String project, String group, Collection<String> hashes) {
+        index().owners.put(project + "/" + group, new TreeSet<>(hashes));
+        trim();
+        save();
+    }
+
+    /**
+     * Drop every reference of a project, e.g. when it is deleted.
+     */
+    public static synchronized void release(String project) {
+        if (index().owners.keySet().removeIf(owner -> owner.startsWith(project + "/"))) {
+            LoggerUtil.getLogger().info("🗃️ Released artifact references of project " + project);
+            trim();
+            save();
+        }
+    }
+
+    /**
+     * Number of project groups referencing an object.
+     */
+    public static synchronized int refCount(String sha256) {
+        int count = 0;
+        for (TreeSet<String> hashes : index().owners.values()) {
+            if (hashes.contains(sha256)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ===== SOURCES =====
+
+    /**
+     * HTTP validators last seen for a URL, or null.
+     */
+    public static synchronized Source getSource(String url) {
+        Source source = index().sources.get(url);
+        return source != null && verified(source.getSha256()) != null ? source : null;
+    }
+
+    public static synchronized void putSource(String url, String etag, String lastModified, String sha256) {
+        if (etag == null && lastModified == null) {
+            index().sources.remove(url);
+        } else {
+            index().sources.put(url, new Source(etag, lastModified, sha256));
+        }
+    }
+
+    /**
+     * Write the index to disk (also done by {@link #retain} and {@link #release}).
+     */
+    public static synchronized void save() {
+        Path target = storeRoot().resolve(INDEX_FILE_NAME);
+        Path temp = storeRoot().resolve(INDEX_FILE_NAME + ".tmp");
+        try {
+            Files.createDirectories(storeRoot());
+            new ObjectMapper().writeValue(temp.toFile(), index());
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Failed to save artifact store index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Short description for logs, e.g. "1532 objects, 812.4 MB (cap 10.00 GB)".
+     */
+    public static synchronized String describe() {
+        long total = 0;
+        for (ObjectEntry entry : index().objects.values()) {
+            total += entry.getSize();
+        }
+        return index().objects.size() + " objects, " + TransferProgress.formatSize(total)
+            + " (cap " + TransferProgress.formatSize(maxBytes) + ")";
+    }
+
+    // ===== HASHING =====
+
+    /**
+     * SHA-256 and MD5 of a file, in one pass.
+     */
+    public static Hashes hash(Path file) throws IOException {
+        MessageDigest sha256 = digest("SHA-256");
+        MessageDigest md5 = digest("MD5");
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                sha256.update(buffer, 0, n);
+                md5.update(buffer, 0, n);
+            }
+        }
+        return new Hashes(HexFormat.of().formatHex(sha256.digest()), HexFormat.of().formatHex(md5.digest()));
+    }
+
+    public static MessageDigest digest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    private static Path storeRoot() {
+        synchronized (ArtifactStore.class) {
+            return root;
+        }
+    }
+
+    private static Index index() {
+        if (index == null) {
+            Path file = root.resolve(INDEX_FILE_NAME);
+            if (Files.isRegularFile(file)) {
+                try {
+                    Index loaded = new ObjectMapper().readValue(file.toFile(), Index.class);
+                    if (loaded.getVersion() == INDEX_VERSION) {
+                        index = loaded;
+                    }
+                } catch (IOException e) {
+                    LoggerUtil.getLogger().warning("Unreadable artifact store index, starting empty: " + e.getMessage());
+                }
+            }
+            if (index == null) {
+                index = new Index();
+            }
+        }
+        return index;
+    }
+
+    private static Path objectPath(String sha256) {
+        return root.resolve("objects").resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    /**
+     * Path of an object if it is stored and unchanged since it was recorded, else null (and forgotten).
+     */
+    private static Path verified(String sha256) {
+        ObjectEntry entry = index().objects.get(sha256);
+        if (entry == null) {
+            return null;
+        }
+        Path object = objectPath(sha256);
+        try {
+            if (Files.isRegularFile(object) && Files.size(object) == entry.getSize()
+                    && Files.getLastModifiedTime(object).toMillis() == entry.getFileModified()) {
+                return object;
+            }
+        } catch (IOException e) {
+            // Treated as missing
+        }
+        discard(sha256, object, "is missing or was modified");
+        return null;
+    }
+
+    /**
+     * Forget an object and delete its file. Projects that link to it keep their own link.
+     */
+    private static void discard(String sha256, Path object, String reason) {
+        LoggerUtil.getLogger().warning("⚠️ Artifact " + sha256 + " " + reason + ", discarding it");
+        index().objects.remove(sha256);
+        md5Index = null;
+        try {
+            Files.deleteIfExists(object);
+        } catch (IOException e) {
+            LoggerUtil.getLogger().fine("Could not delete modified artifact: " + e.getMessage());
+        }
+    }
+
+    private static void record(String sha256, Path object, String md5) throws IOException {
+        ObjectEntry entry = new ObjectEntry();
+        entry.setSize(Files.size(object));
+        entry.setFileModified(Files.getLastModifiedTime(object).toMillis());
+        entry.setMd5(md5);
+        index().objects.put(sha256, entry);
+        md5Index = null;
+    }
+
+    private static void touch(String sha256, String md5) {
+        ObjectEntry entry = index().objects.get(sha256);
+        if (entry != null) {
+            entry.setLastUsed(System.currentTimeMillis());
+            if (md5 != null && entry.getMd5() == null) {
+                entry.setMd5(md5);
+                md5Index = null;
+            }
+        }
+    }
+
+    private static boolean link(Path existing, Path link) {
+        try {
+            Files.createLink(link, existing);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            LoggerUtil.getLogger().fine("Hard link not possible, copying instead: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Evict unreferenced objects, least recently used first, until the store fits the size cap.
+     */
+    private static void trim() {
+        Map<String, ObjectEntry> objects = index().objects;
+        long total = 0;
+        for (ObjectEntry entry : objects.values()) {
+            total += entry.getSize();
+        }
+        if (total <= maxBytes) {
+            return;
+        }
+
+        TreeSet<String> referenced = new TreeSet<>();
+        for (TreeSet<String> hashes : index().owners.values()) {
+            referenced.addAll(hashes);
+        }
+        List<Map.Entry<String, ObjectEntry>> candidates = new ArrayList<>();
+        for (Map.Entry<String, ObjectEntry> entry : objects.entrySet()) {
+            if (!referenced.contains(entry.getKey())) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Map.Entry.comparingByValue((a, b) -> Long.compare(a.getLastUsed(), b.getLastUsed())));
+
+        int evicted = 0;
+        long freed = 0;
+        Iterator<Map.Entry<String, ObjectEntry>> iterator = candidates.iterator();
+        while (total > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, ObjectEntry> candidate = iterator.next();
+            try {
+                Files.deleteIfExists(objectPath(candidate.getKey()));
+            } catch (IOException e) {
+                LoggerUtil.getLogger().warning("Could not evict artifact " + candidate.getKey() + ": " + e.getMessage());
+                continue;
+            }
+            objects.remove(candidate.getKey());
+            md5Index = null;
+            index().sources.values().removeIf(source -> candidate.getKey().equals(source.getSha256()));
+            total -= candidate.getValue().getSize();
+            freed += candidate.getValue().getSize();
+            evicted++;
+        }
+        if (evicted > 0) {
+            LoggerUtil.getLogger().info("🗃️ Evicted " + evicted + " unused artifacts (" + TransferProgress.formatSize(freed) + ")");
+        }
+        if (total > maxBytes) {
+            LoggerUtil.getLogger().info("Artifact store above its cap; the rest is still referenced by projects");
+        }
+    }
+
+    // ===== INNER CLASSES =====
+
+    /**
+     * SHA-256 and MD5 of one file, as lowercase hex.
+     */
+    public static final class Hashes {
+        private final String sha256;
+        private final String md5;
+
+        Hashes(String sha256, String md5) {
+            this.sha256 = sha256;
+            this.md5 = md5;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public String getMd5() {
+            return md5;
+        }
+    }
+
+    /**
+     * Persisted state: objects, references per project group and HTTP sources.
+     */
+    public static class Index {
+        private int version = INDEX_VERSION;
+        private Map<String, ObjectEntry> objects = new HashMap<>();
+        private Map<String, TreeSet<String>> owners = new HashMap<>();
+        private Map<String, Source> sources = new HashMap<>();
+
+        public int getVersion() {
+            return version;
+        }
+
+        public void setVersion(int version) {
+            this.version = version;
+        }
+
+        public Map<String, ObjectEntry> getObjects() {
+            return objects;
+        }
+
+        public void setObjects(Map<String, ObjectEntry> objects) {
+            this.objects = objects != null ? objects : new HashMap<>();
+        }
+
+        public Map<String, TreeSet<String>> getOwners() {
+            return owners;
+        }
+
+        public void setOwners(Map<String, TreeSet<String>> owners) {
+            this.owners = owners != null ? owners : new HashMap<>();
+        }
+
+        public Map<String, Source> getSources() {
+            return sources;
+        }
+
+        public void setSources(Map<String, Source> sources) {
+            this.sources = sources != null ? sources : new HashMap<>();
+        }
+    }
+
+    /**
+     * One stored object: size and modification time (to detect changes through a link),
+     * MD5 and last use (for LRU eviction).
+     */
+    public static class ObjectEntry {
+        private long size;
+        private long fileModified;
+        private long lastUsed;
+        private String md5;
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public long getFileModified() {
+            return fileModified;
+        }
+
+        public void setFileModified(long fileModified) {
+            this.fileModified = fileModified;
+        }
+
+        public long getLastUsed() {
+            return lastUsed;
+        }
+
+        public void setLastUsed(long lastUsed) {
+            this.lastUsed = lastUsed;
+        }
+
+        public String getMd5() {
+            return md5;
+        }
+
+        public void setMd5(String md5) {
+            this.md5 = md5;
+        }
+    }
+
+    /**
+     * HTTP validators of the response a stored object came from.
+     */
+    public static class Source {
+        private String etag;
+        private String lastModified;
+        private String sha256;
+
+        public Source() {
+        }
+
+        Source(String etag, String lastModified, String sha256) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.sha256 = sha256;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public void setEtag(String etag) {
+            this.etag = etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public void setLastModified(String lastModified) {
+            this.lastModified = lastModified;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public void setSha256(String sha256) {
+            this.sha256 = sha256;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Copies files and directory trees, skipping files the destination already has.
+ *
+ * Product processing used to copy every jar again on each run, one at a time, after
+ * checking each destination for a file lock and with retry sleeps around every copy.
+ * Re-running it over an existing tree now costs little more than a stat per file.
+ *
+ * Features:
+ * - Identical files are skipped: same file (hard link), or same size and modification time;
+ *   optionally the contents are compared when only the modification time differs
+ * - Remaining files are copied by a bounded worker pool with {@link Files#copy(Path, Path, java.nio.file.CopyOption...)},
+ *   which uses the operating system's copy routine rather than a Java buffer loop
+ * - Hard links instead of copies when asked for and source and destination share a volume
+ * - Each file is written next to its destination and moved into place, so an existing file
+ *   (possibly a hard link shared with other copies) is replaced, never written into
+ * - Retries only when a copy actually fails (e.g. a jar locked on Windows)
+ * - Result with files copied, linked and skipped, and bytes moved
+ */
+public final class CopyEngine {
+
+    private static final int MAX_THREADS = 8;
+    private static final int MAX_RETRY_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MS = 1000;
+    private static final long PROGRESS_INTERVAL_MS = 500;
+    private static final String TEMP_SUFFIX = ".copying";
+
+    private static volatile boolean verifyContent = false;
+
+    private CopyEngine() {
+    }
+
+    /**
+     * How files that are not skipped get to the destination.
+     */
+    public enum Mode {
+        /** Independent copies. */
+        COPY,
+        /** Hard links where source and destination share a volume, copies otherwise. */
+        LINK_OR_COPY
+    }
+
+    /**
+     * Compare contents when size matches but modification time does not (off by default).
+     * Catches files that were touched but not changed, at the cost of reading both.
+     */
+    public static void setVerifyContent(boolean enable) {
+        verifyContent = enable;
+    }
+
+    public static boolean isVerifyContent() {
+        return verifyContent;
+    }
+
+    // ===== COPY =====
+
+    /**
+     * Copy a directory tree into a destination directory, skipping files that are already identical.
+     * Files in the destination that the source does not have are left alone.
+     *
+     * @param cancelled Checked between files (can be null)
+     * @param progressListener Receives progress about twice a second on the calling thread (can be null)
+     */
+    public static Result copyTree(Path source, Path destination, Mode mode, BooleanSupplier cancelled,
+                                  ProgressListener progressListener) throws IOException {
+        if (!Files.isDirectory(source)) {
+            throw new IOException("Source is not a directory: " + source.toAbsolutePath());
+        }
+        Map<Path, Path> files = new LinkedHashMap<>();
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(destination.resolve(source.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    files.put(file, destination.resolve(source.relativize(file).toString()));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return copyFiles(files, mode, cancelled, progressListener);
+    }
+
+    /**
+     * Copy files to their destinations, skipping the ones that are already identical.
+     * Parent directories of the destinations must exist.
+     *
+     * @param files Source file to destination file, in the order they should be processed
+     * @param cancelled Checked between files (can be null)
+     * @param progressListener Receives progress about twice a second on the calling thread (can be null)
+     */
+    public static Result copyFiles(Map<Path, Path> files, Mode mode, BooleanSupplier cancelled,
+                                   ProgressListener progressListener) throws IOException {
+        long started = System.currentTimeMillis();
+        List<Path> sources = new ArrayList<>(files.keySet());
+        boolean link = mode == Mode.LINK_OR_COPY && !sources.isEmpty()
+            && sameVolume(sources.get(0), files.get(sources.get(0)).toAbsolutePath().getParent());
+
+        Result result = new Result();
+        int threads = Math.max(1, Math.min(sources.size(),
+            Math.min(MAX_THREADS, Math.max(4, Runtime.getRuntime().availableProcessors() * 2))));
+        AtomicInteger next = new AtomicInteger();
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        BooleanSupplier stopped = () -> failure.get() != null || (cancelled != null && cancelled.getAsBoolean());
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "copy-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (int t = 0; t < threads; t++) {
+                pool.execute(() -> {
+                    int index;
+                    while (!stopped.getAsBoolean() && (index = next.getAndIncrement()) < sources.size()) {
+                        Path source = sources.get(index);
+                        try {
+                            transfer(source, files.get(source), link, result);
+                        } catch (IOException e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                });
+            }
+            pool.shutdown();
+
+            while (!pool.awaitTermination(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (progressListener != null) {
+                    progressListener.onProgress(result.getFiles(), sources.size(), result.getBytesCopied());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while copying", e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            throw new IOException("Copy cancelled by user");
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        if (progressListener != null) {
+            progressListener.onProgress(result.getFiles(), sources.size(), result.getBytesCopied());
+        }
+        result.elapsedMs = System.currentTimeMillis() - started;
+        LoggerUtil.getLogger().info("📁 Copy: " + result.summary());
+        return result;
+    }
+
+    /**
+     * Copy one file unless the destination is already identical.
+     *
+     * @return true if the file was copied, false if it was skipped
+     */
+    public static boolean copyFile(Path source, Path destination) throws IOException {
+        Result result = new Result();
+        transfer(source, destination, false, result);
+        return result.getFilesSkipped() == 0;
+    }
+
+    /**
+     * Whether the destination already holds the same file as the source.
+     */
+    public static boolean isIdentical(Path source, Path destination) throws IOException {
+        if (!Files.isRegularFile(destination, LinkOption.NOFOLLOW_LINKS)) {
+            return false;
+        }
+        if (Files.isSameFile(source, destination)) {
+            return true;
+        }
+        BasicFileAttributes src = Files.readAttributes(source, BasicFileAttributes.class);
+        BasicFileAttributes dst = Files.readAttributes(destination, BasicFileAttributes.class);
+        if (src.size() != dst.size()) {
+            return false;
+        }
+        // Milliseconds: copies do not keep the full precision of every file system
+        if (src.lastModifiedTime().toMillis() == dst.lastModifiedTime().toMillis()) {
+            return true;
+        }
+        return verifyContent && Files.mismatch(source, destination) == -1;
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    private static void transfer(Path source, Path destination, boolean link, Result result) throws IOException {
+        if (isIdentical(source, destination)) {
+            result.skipped.incrementAndGet();
+            return;
+        }
+
+        Path temp = destination.resolveSibling(destination.getFileName() + TEMP_SUFFIX);
+        IOException lastException = null;
+        for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS; attempt++) {
+            try {
+                boolean linked = link && createLink(temp, source);
+                if (!linked) {
+                    Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                Files.move(temp, destination, StandardCopyOption.REPLACE_EXISTING);
+                if (linked) {
+                    result.linked.incrementAndGet();
+                } else {
+                    result.copied.incrementAndGet();
+                    result.bytes.addAndGet(Files.size(destination));
+                }
+                return;
+            } catch (IOException e) {
+                lastException = e;
+                Files.deleteIfExists(temp);
+                LoggerUtil.getLogger().warning("Attempt " + attempt + " failed to copy " + source + " to " + destination + ": " + e.getMessage());
+                if (attempt < MAX_RETRY_ATTEMPTS) {
+                    try {
+                        Thread.sleep(RETRY_DELAY_MS);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Copy operation interrupted", ie);
+                    }
+                }
+            }
+        }
+        throw new IOException("Failed to copy file after " + MAX_RETRY_ATTEMPTS + " attempts: " + source + " to " + destination, lastException);
+    }
+
+    private static boolean createLink(Path link, Path existing) {
+        try {
+            Files.deleteIfExists(link);
+            Files.createLink(link, existing);
+            return true;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            LoggerUtil.getLogger().fine("Hard link not possible, copying instead: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean sameVolume(Path source, Path destinationDir) {
+        try {
+            return Files.getFileStore(source).equals(Files.getFileStore(destinationDir));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ===== INNER CLASSES =====
+
+    /**
+     * What a copy did.
+     */
+    public static final class Result {
+        private final AtomicInteger copied = new AtomicInteger();
+        private final AtomicInteger linked = new AtomicInteger();
+        private final AtomicInteger skipped = new AtomicInteger();
+        private final AtomicLong bytes = new AtomicLong();
+        private long elapsedMs;
+
+        public int getFilesCopied() {
+            return copied.get();
+        }
+
+        public int getFilesLinked() {
+            return linked.get();
+        }
+
+        public int getFilesSkipped() {
+            return skipped.get();
+        }
+
+        /**
+         * Files handled so far: copied, linked or skipped.
+         */
+        public int getFiles() {
+            return copied.get() + linked.get() + skipped.get();
+        }
+
+        public long getBytesCopied() {
+            return bytes.get();
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        /**
+         * One-line summary, e.g. "12 copied (35.2 MB), 3 linked, 140 unchanged in 1.2s".
+         */
+        public String summary() {
+            return getFilesCopied() + " copied (" + TransferProgress.formatSize(getBytesCopied()) + "), "
+                + getFilesLinked() + " linked, " + getFilesSkipped() + " unchanged"
+                + String.format(" in %.1fs", elapsedMs / 1000.0);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param files Files handled so far (copied, linked or skipped)
+         * @param totalFiles Files to handle
+         * @param bytes Bytes copied so far
+         */
+        void onProgress(int files, int totalFiles, long bytes);
+    }
+}
@@ -93,6 +93,7 @@ public class InfoDialog {
         addShortcutRow(shortcutsGrid, 5, "Ctrl + R", "Restart application (Application Management tab)");
         addShortcutRow(shortcutsGrid, 6, "Ctrl + E", "Edit default Cline workflow template");
         addShortcutRow(shortcutsGrid, 7, "Ctrl + Shift + E", "Force update and open system default Cline workflow template");
+        addShortcutRow(shortcutsGrid, 8, "Ctrl + Shift + S", "Open SSH latency and traffic diagnostics");
         
         shortcutsSection.getChildren().addAll(shortcutsTitle, shortcutsGrid);
         
@@ -0,0 +1,208 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts a zip archive with several threads.
+ *
+ * Extracting tens of thousands of small files is dominated by per-file create and close
+ * latency (and on Windows by the virus scanner hooking each of them), not by inflating.
+ * A single {@code ZipInputStream} pass pays that latency one file at a time; here the archive
+ * is opened with {@link ZipFile} for random access, so independent entries are written in
+ * parallel.
+ *
+ * Features:
+ * - All entry paths checked against the destination directory before anything is written (zip-slip)
+ * - Directories created up front, in one pass, so workers never race on mkdirs
+ * - Bounded worker pool with large per-worker buffers
+ * - Duplicate entry names are written once, with the last entry (as a sequential extraction would),
+ *   so two workers never write the same file
+ * - Cancellation checked between writes; the first failure of any kind stops all workers and fails the extraction
+ * - Progress reported from the calling thread, so callers need no extra synchronization
+ */
+public final class ParallelZipExtractor {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final int MAX_THREADS = 8;
+    private static final long PROGRESS_INTERVAL_MS = 500;
+
+    private ParallelZipExtractor() {
+    }
+
+    /**
+     * Extract every entry of a zip file into a directory.
+     *
+     * @param zipFile Zip archive
+     * @param destDir Destination directory (created if missing)
+     * @param cancelled Checked between writes; extraction stops with an IOException once it returns true (can be null)
+     * @param progressListener Receives progress about twice a second on the calling thread (can be null)
+     * @return Number of files extracted
+     * @throws IOException On unsafe entry names, read/write errors or cancellation
+     */
+    public static int extract(File zipFile, File destDir, BooleanSupplier cancelled,
+                              ProgressListener progressListener) throws IOException {
+        if (!destDir.isDirectory() && !destDir.mkdirs()) {
+            throw new IOException("Failed to create directory " + destDir);
+        }
+
+        try (ZipFile zip = new ZipFile(zipFile)) {
+            // Resolve and check every path first, then create all directories in order.
+            // Targets are keyed by File, which compares like the file system (case-insensitive on Windows).
+            Map<File, ZipEntry> byTarget = new TreeMap<>();
+            TreeSet<String> directories = new TreeSet<>();
+            int duplicates = 0;
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                File target = newFile(destDir, entry).getCanonicalFile();
+                if (entry.isDirectory()) {
+                    directories.add(target.getPath());
+                } else {
+                    if (byTarget.put(target, entry) != null) {
+                        duplicates++;
+                    }
+                    directories.add(target.getParentFile().getPath());
+                }
+            }
+            if (duplicates > 0) {
+                LoggerUtil.getLogger().warning("⚠️ " + zipFile.getName() + " has " + duplicates
+                    + " duplicate entry name(s); the last entry of each is extracted");
+            }
+            List<File> targets = new ArrayList<>(byTarget.keySet());
+            List<ZipEntry> files = new ArrayList<>(byTarget.values());
+            for (String directory : directories) {
+                File dir = new File(directory);
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("Failed to create directory " + dir);
+                }
+            }
+
+            int threads = Math.max(1, Math.min(files.size(),
+                Math.min(MAX_THREADS, Math.max(4, Runtime.getRuntime().availableProcessors() * 2))));
+            LoggerUtil.getLogger().info("📂 Extracting " + files.size() + " files from " + zipFile.getName()
+                + " with " + threads + " thread(s)");
+
+            AtomicInteger next = new AtomicInteger();
+            AtomicInteger done = new AtomicInteger();
+            AtomicLong bytes = new AtomicLong();
+            AtomicReference<IOException> failure = new AtomicReference<>();
+            BooleanSupplier stopped = () -> failure.get() != null || (cancelled != null && cancelled.getAsBoolean());
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "zip-extract-worker");
+                t.setDaemon(true);
+                return t;
+            });
+            try {
+                for (int t = 0; t < threads; t++) {
+                    pool.execute(() -> {
+                        byte[] buffer = new byte[BUFFER_SIZE];
+                        int index;
+                        while (!stopped.getAsBoolean() && (index = next.getAndIncrement()) < files.size()) {
+                            try {
+                                bytes.addAndGet(write(zip, files.get(index), targets.get(index), buffer, stopped));
+                                done.incrementAndGet();
+                            } catch (IOException e) {
+                                failure.compareAndSet(null, e);
+                            } catch (RuntimeException e) {
+                                failure.compareAndSet(null, new IOException("Failed to extract "
+                                    + files.get(index).getName() + ": " + e, e));
+                            }
+                        }
+                    });
+                }
+                pool.shutdown();
+
+                while (!pool.awaitTermination(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    if (progressListener != null) {
+                        progressListener.onProgress(done.get(), files.size(), bytes.get());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted during extraction", e);
+            } finally {
+                pool.shutdownNow();
+            }
+
+            if (cancelled != null && cancelled.getAsBoolean()) {
+                throw new IOException("Extraction cancelled by user");
+            }
+            if (failure.get() != null) {
+                throw failure.get();
+            }
+            if (done.get() != files.size()) {
+                // A worker died without recording why (e.g. an Error)
+                throw new IOException("Only " + done.get() + " of " + files.size() + " files extracted from " + zipFile.getName());
+            }
+            if (progressListener != null) {
+                progressListener.onProgress(done.get(), files.size(), bytes.get());
+            }
+            return done.get();
+        }
+    }
+
+    /**
+     * Create new file with security checks
+     */
+    public static File newFile(File destinationDir, ZipEntry zipEntry) throws IOException {
+        File destFile = new File(destinationDir, zipEntry.getName());
+        String destDirPath = destinationDir.getCanonicalPath();
+        String destFilePath = destFile.getCanonicalPath();
+
+        if (!destFilePath.startsWith(destDirPath + File.separator)) {
+            throw new IOException("Entry is outside of the target dir: " + zipEntry.getName());
+        }
+        return destFile;
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    private static long write(ZipFile zip, ZipEntry entry, File target, byte[] buffer,
+                              BooleanSupplier stopped) throws IOException {
+        long written = 0;
+        try (InputStream in = zip.getInputStream(entry);
+             OutputStream out = new FileOutputStream(target)) {
+            int len;
+            while ((len = in.read(buffer)) > 0) {
+                if (stopped.getAsBoolean()) {
+                    throw new IOException("Extraction cancelled by user");
+                }
+                out.write(buffer, 0, len);
+                written += len;
+            }
+        }
+        return written;
+    }
+
+    // ===== INNER INTERFACE =====
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param files Files extracted so far
+         * @param totalFiles Files in the archive
+         * @param bytes Bytes written so far
+         */
+        void onProgress(int files, int totalFiles, long bytes);
+    }
+}
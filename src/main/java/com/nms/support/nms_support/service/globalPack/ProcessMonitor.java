@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -529,15 +530,41 @@ public class ProcessMonitor {
         public VBox getExpandableContent() { return expandableContent; }
     }
     
+    private static final String PAUSE_TEXT = "Pause Transfers";
+    private static final String RESUME_TEXT = "Resume Transfers";
+    private static final String PAUSE_BUTTON_STYLE =
+        "-fx-background-color: white; " +
+        "-fx-border-color: #cbd5e1; " +
+        "-fx-border-width: 1; " +
+        "-fx-border-radius: 6; " +
+        "-fx-background-radius: 6; " +
+        "-fx-text-fill: #334155; " +
+        "-fx-padding: 8 20; " +
+        "-fx-cursor: hand;";
+    private static final String RESUME_BUTTON_STYLE =
+        "-fx-background-color: #f59e0b; " +
+        "-fx-border-color: #f59e0b; " +
+        "-fx-border-width: 1; " +
+        "-fx-border-radius: 6; " +
+        "-fx-background-radius: 6; " +
+        "-fx-text-fill: white; " +
+        "-fx-padding: 8 20; " +
+        "-fx-cursor: hand; " +
+        "-fx-effect: dropshadow(gaussian, rgba(245, 158, 11, 0.3), 3, 0, 0, 1);";
+    
     private final String title;
     private final String projectName;
     private final Map<String, ProcessStep> steps = new ConcurrentHashMap<>();
     private final VBox stepsContainer = new VBox(2);
     private final Stage dialogStage;
     private final Button actionButton;
+    private final Button pauseButton;
     private final AtomicBoolean isRunning = new AtomicBoolean(true);
     private final AtomicBoolean hasFailed = new AtomicBoolean(false);
     private final AtomicBoolean isCompleted = new AtomicBoolean(false);
+    private final AtomicBoolean isPaused = new AtomicBoolean(false);
+    // Transfers registered with the TransferScheduler for this process; the pause button shows while > 0
+    private final AtomicInteger activeTransfers = new AtomicInteger();
     private final CountDownLatch completionLatch = new CountDownLatch(1);
     
     // Scroll position tracking
@@ -601,6 +628,7 @@ public class ProcessMonitor {
                 // Stop the process
                 isRunning.set(false);
                 hasFailed.set(true);
+                hidePauseButton();
                 actionButton.setText("Stopping...");
                 actionButton.setDisable(true);
                 completionLatch.countDown();
@@ -611,6 +639,14 @@ public class ProcessMonitor {
             }
         });
         
+        // Pause button: holds the transfers of this process in the TransferScheduler
+        this.pauseButton = new Button(PAUSE_TEXT);
+        this.pauseButton.setFont(Font.font("Segoe UI", FontWeight.BOLD, 13));
+        this.pauseButton.setStyle(PAUSE_BUTTON_STYLE);
+        this.pauseButton.setOnAction(e -> setPaused(!isPaused.get()));
+        this.pauseButton.setVisible(false);
+        this.pauseButton.setManaged(false);
+        
         // Handle window close event - minimize during execution, allow close when completed
         this.dialogStage.setOnCloseRequest(e -> {
             if (isRunning.get()) {
@@ -731,7 +767,7 @@ public class ProcessMonitor {
         footer.setPadding(new Insets(12, 20, 16, 20));
         footer.setStyle("-fx-background-color: #f8fafc; -fx-background-radius: 0 0 12 12;");
         
-        footer.getChildren().add(actionButton);
+        footer.getChildren().addAll(pauseButton, actionButton);
         return footer;
     }
     
@@ -833,6 +869,7 @@ public class ProcessMonitor {
             smartScrollToBottom();
             // Update button to show OK
             Platform.runLater(() -> {
+                hidePauseButton();
                 actionButton.setText("OK");
                 actionButton.setStyle(
                     "-fx-background-color: #3b82f6; " +
@@ -869,6 +906,7 @@ public class ProcessMonitor {
             }
             
             // Update button to show OK
+            hidePauseButton();
             actionButton.setText("OK");
             actionButton.setStyle(
                 "-fx-background-color: #10b981; " +
@@ -906,6 +944,7 @@ public class ProcessMonitor {
             }
             
             // Update button to show OK
+            hidePauseButton();
             actionButton.setText("OK");
             actionButton.setStyle(
                 "-fx-background-color: #ef4444; " +
@@ -1041,6 +1080,44 @@ public class ProcessMonitor {
         return isRunning.get();
     }
     
+    /**
+     * Check if the user paused the transfers of this process.
+     * Transfers scheduled with this monitor's {@link ProgressCallback} wait while it is true.
+     */
+    public boolean isPaused() {
+        return isPaused.get();
+    }
+    
+    /**
+     * Pause or resume the transfers of this process.
+     */
+    public final void setPaused(boolean paused) {
+        if (isPaused.getAndSet(paused) == paused) {
+            return;
+        }
+        logger.info((paused ? "⏸️ Transfers paused: " : "▶️ Transfers resumed: ") + title);
+        Platform.runLater(() -> {
+            pauseButton.setText(paused ? RESUME_TEXT : PAUSE_TEXT);
+            pauseButton.setStyle(paused ? RESUME_BUTTON_STYLE : PAUSE_BUTTON_STYLE);
+        });
+    }
+    
+    /**
+     * A transfer of this process was registered with the {@link TransferScheduler}; shows the pause button.
+     */
+    public void transferStarted() {
+        activeTransfers.incrementAndGet();
+        Platform.runLater(this::updatePauseButton);
+    }
+    
+    /**
+     * A transfer of this process has ended; the pause button is hidden once none is left.
+     */
+    public void transferEnded() {
+        activeTransfers.updateAndGet(count -> Math.max(0, count - 1));
+        Platform.runLater(this::updatePauseButton);
+    }
+    
     /**
      * Check if any step has failed
      */
@@ -1121,11 +1198,37 @@ public class ProcessMonitor {
         waitForCompletion();
     }
     
+    /**
+     * Show the pause button while the running process has registered transfers, hide it (and
+     * release a pause) otherwise. Must run on the FX thread.
+     */
+    private void updatePauseButton() {
+        if (isRunning.get() && activeTransfers.get() > 0) {
+            pauseButton.setVisible(true);
+            pauseButton.setManaged(true);
+        } else {
+            hidePauseButton();
+        }
+    }
+    
+    /**
+     * Release a pause and hide the pause button once the process has ended.
+     * Must run on the FX thread.
+     */
+    private void hidePauseButton() {
+        isPaused.set(false);
+        pauseButton.setText(PAUSE_TEXT);
+        pauseButton.setStyle(PAUSE_BUTTON_STYLE);
+        pauseButton.setVisible(false);
+        pauseButton.setManaged(false);
+    }
+    
     /**
      * Reset the process monitor for reuse
      */
     public void reset() {
         isRunning.set(true);
+        isPaused.set(false);
         hasFailed.set(false);
         isCompleted.set(false);
         wasAtBottom = true;
@@ -1136,7 +1239,8 @@ public class ProcessMonitor {
                 step.updateProgress(0);
             }
             
-            // Reset button
+            // Reset buttons
+            updatePauseButton();
             actionButton.setText("Stop");
             actionButton.setStyle(
                 "-fx-background-color: #ef4444; " +
@@ -34,6 +34,21 @@ public class ProcessMonitorAdapter implements ProgressCallback {
         return !processMonitor.isRunning();
     }
     
+    @Override
+    public boolean isPaused() {
+        return processMonitor.isPaused();
+    }
+    
+    @Override
+    public void onTransferStarted() {
+        processMonitor.transferStarted();
+    }
+    
+    @Override
+    public void onTransferEnded() {
+        processMonitor.transferEnded();
+    }
+    
     /**
      * Additional method to log messages without changing progress
      * This can be used for informational messages during processing
@@ -175,6 +175,9 @@ public class ProcessMonitorManager {
                 .append("\n");
         }
         
+        // Connections of both SSH stacks, including cached ones without a registered session
+        info.append(SSHConnectionGovernor.getLiveConnectionsInfo());
+        
         return info.toString();
     }
     
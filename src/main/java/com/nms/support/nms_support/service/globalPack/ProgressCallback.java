@@ -28,4 +28,25 @@ public interface ProgressCallback {
      * @return true if cancelled, false otherwise
      */
     boolean isCancelled();
+    
+    /**
+     * Check if the user paused the operation's transfers
+     * @return true while paused, false otherwise
+     */
+    default boolean isPaused() {
+        return false;
+    }
+    
+    /**
+     * Called when a transfer of the operation is registered with the {@link TransferScheduler}
+     * and can be paused from now on
+     */
+    default void onTransferStarted() {
+    }
+    
+    /**
+     * Called when a transfer registered with the {@link TransferScheduler} has ended
+     */
+    default void onTransferEnded() {
+    }
 }
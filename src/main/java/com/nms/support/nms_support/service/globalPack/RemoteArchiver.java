@@ -0,0 +1,307 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import com.nms.support.nms_support.service.globalPack.sshj.LineConsumer;
+import com.nms.support.nms_support.service.globalPack.sshj.SSHJSessionManager;
+import com.nms.support.nms_support.service.globalPack.sshj.SSHMetrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Chooses how a remote directory is archived on the server.
+ *
+ * Archiving used to be a fixed {@code zip -rv} at the default level: single-threaded
+ * deflate of the whole tree plus one line of verbose output per file, sent back over the
+ * shell only to be counted. Here the archivers available on the server are detected once
+ * per host and the compression level follows the link: no compression where the network is
+ * faster than the server can compress, more where bandwidth is the bottleneck.
+ *
+ * Features:
+ * - One probe per host for tar, pigz, zstd, gzip and zip, cached for the session
+ * - Compression chosen per project; AUTO derives it from the measured transfer rate of the host
+ * - Streams use tar with pigz (parallel gzip) when available, gzip otherwise, or no compressor at all
+ * - The zip fallback runs quietly and reports the archive size every two seconds instead of every file
+ * - zstd is detected but not used: there is no zstd decoder on the client
+ */
+public final class RemoteArchiver {
+
+    // Marker of the periodic size lines written by the quiet zip command
+    private static final String SIZE_MARKER = "ARCHIVE_BYTES ";
+    private static final int PROBE_TIMEOUT_SECONDS = 30;
+    private static final List<String> TOOLS = List.of("tar", "pigz", "zstd", "gzip", "zip");
+
+    // Thresholds for AUTO, in KB/s of earlier transfers from the same host
+    private static final long LAN_RATE_KBPS = 20 * 1024;
+    private static final long FAST_LINK_RATE_KBPS = 4 * 1024;
+
+    private static final Map<String, Set<String>> toolsByHost = new ConcurrentHashMap<>();
+
+    private RemoteArchiver() {
+    }
+
+    // ===== COMPRESSION =====
+
+    /**
+     * Compression level of server-side archives, chosen per project.
+     */
+    public enum Compression {
+        AUTO(-1, "Automatic (by link speed)"),
+        NONE(0, "None (LAN)"),
+        FAST(1, "Fast (-1)"),
+        BALANCED(6, "Balanced (-6)"),
+        BEST(9, "Best (-9, slow VPN)");
+
+        private final int level;
+        private final String label;
+
+        Compression(int level, String label) {
+            this.level = level;
+            this.label = label;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * Parse a stored value; unknown or empty values mean AUTO.
+         */
+        public static Compression of(String value) {
+            if (value == null || value.isBlank()) {
+                return AUTO;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                LoggerUtil.getLogger().warning("⚠️ Unknown archive compression '" + value + "', using AUTO");
+                return AUTO;
+            }
+        }
+    }
+
+    // ===== SELECTION =====
+
+    /**
+     * Archivers available on the server of a session, probed once per host.
+     */
+    public static Set<String> detectTools(SSHJSessionManager ssh) {
+        String host = ssh.getHost() != null ? ssh.getHost() : "unknown";
+        Set<String> cached = toolsByHost.get(host);
+        if (cached != null) {
+            return cached;
+        }
+
+        StringBuilder probe = new StringBuilder("for t in");
+        for (String tool : TOOLS) {
+            probe.append(' ').append(tool);
+        }
+        probe.append("; do command -v $t >/dev/null 2>&1 && echo \"TOOL $t\"; done; true");
+
+        Set<String> tools = new LinkedHashSet<>();
+        try {
+            SSHJSessionManager.CommandResult result = ssh.executeCommand(probe.toString(), PROBE_TIMEOUT_SECONDS);
+            for (String line : result.getOutput().split("\\R")) {
+                String trimmed = line.trim();
+                if (trimmed.startsWith("TOOL ") && TOOLS.contains(trimmed.substring(5))) {
+                    tools.add(trimmed.substring(5));
+                }
+            }
+        } catch (Exception e) {
+            // Not cached, so the next archive probes again
+            LoggerUtil.getLogger().warning("⚠️ Could not detect archivers on " + host + ", assuming zip only: " + e.getMessage());
+            return Set.of("zip");
+        }
+
+        Set<String> detected = Collections.unmodifiableSet(tools);
+        toolsByHost.put(host, detected);
+        LoggerUtil.getLogger().info("🧰 Archivers on " + host + ": " + (detected.isEmpty() ? "none" : String.join(", ", detected)));
+        if (detected.contains("zstd")) {
+            LoggerUtil.getLogger().fine("zstd is available on " + host + " but cannot be decoded locally; using gzip-compatible formats");
+        }
+        return detected;
+    }
+
+    /**
+     * Resolve the archive settings for one transfer.
+     *
+     * @param ssh Initialized session
+     * @param compression Project setting; AUTO uses the measured transfer rate of the host
+     */
+    public static Plan plan(SSHJSessionManager ssh, Compression compression) {
+        Set<String> tools = detectTools(ssh);
+        Compression effective = compression == Compression.AUTO ? autoCompression(ssh.getHost()) : compression;
+
+        String compressor = null;
+        if (effective.getLevel() > 0) {
+            if (tools.contains("pigz")) {
+                compressor = "pigz";
+            } else if (tools.contains("gzip")) {
+                compressor = "gzip";
+            }
+        }
+        Plan plan = new Plan(tools.contains("tar"), tools.contains("zip"), compressor, effective);
+        LoggerUtil.getLogger().info("📦 Archive plan for " + ssh.getHost() + ": " + plan
+            + (compression == Compression.AUTO ? " (auto)" : ""));
+        return plan;
+    }
+
+    /**
+     * Forget detected archivers, e.g. after software was installed on a server.
+     */
+    public static void clearCache() {
+        toolsByHost.clear();
+    }
+
+    // ===== PROGRESS =====
+
+    /**
+     * Line consumer for {@link Plan#zipCommand} output: size lines go to the listener,
+     * anything else zip prints (warnings, errors) is logged.
+     */
+    public static LineConsumer sizeLines(LongConsumer archiveBytes) {
+        return line -> {
+            if (line.startsWith(SIZE_MARKER)) {
+                try {
+                    archiveBytes.accept(Long.parseLong(line.substring(SIZE_MARKER.length()).trim()));
+                } catch (NumberFormatException e) {
+                    // Size not readable yet
+                }
+            } else if (!line.isBlank() && !line.contains("ZIP_COMPLETED_SUCCESSFULLY")) {
+                LoggerUtil.getLogger().warning("zip: " + line);
+            }
+        };
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    private static Compression autoCompression(String host) {
+        long rate = SSHMetrics.transferRate(host);
+        if (rate >= LAN_RATE_KBPS) {
+            return Compression.NONE;
+        }
+        if (rate == 0 || rate >= FAST_LINK_RATE_KBPS) {
+            // Unknown links start fast; the first transfer measures them
+            return Compression.FAST;
+        }
+        return Compression.BALANCED;
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "'\\''") + "'";
+    }
+
+    // ===== INNER CLASS =====
+
+    /**
+     * Archive settings for one transfer.
+     */
+    public static final class Plan {
+        private final boolean tar;
+        private final boolean zip;
+        private final String compressor;
+        private final Compression compression;
+
+        Plan(boolean tar, boolean zip, String compressor, Compression compression) {
+            this.tar = tar;
+            this.zip = zip;
+            this.compressor = compressor;
+            this.compression = compression;
+        }
+
+        /**
+         * Whether the server can write a tar stream to stdout.
+         */
+        public boolean canStream() {
+            return tar;
+        }
+
+        public boolean hasZip() {
+            return zip;
+        }
+
+        public Compression getCompression() {
+            return compression;
+        }
+
+        /**
+         * Command that writes the directory as a tar stream (compressed unless the plan says none) to stdout.
+         *
+         * @param remoteDir Remote directory, as a shell word
+         * @param excludes Paths relative to remoteDir to leave out
+         */
+        public String streamCommand(String remoteDir, List<String> excludes) throws IOException {
+            if (!tar) {
+                throw new IOException("tar is not available on the server");
+            }
+            StringBuilder command = new StringBuilder("cd ").append(remoteDir).append(" && ");
+            if (compressor != null) {
+                // Keep tar's exit code visible through the pipe where the shell supports it
+                command.insert(0, "(set -o pipefail) 2>/dev/null && set -o pipefail; ");
+            }
+            // -h: archive what symlinks point to, as zip -r does; the extractor rejects link entries
+            command.append("tar -chf -");
+            for (String exclude : excludes) {
+                command.append(" --exclude=").append(quote(exclude));
+            }
+            command.append(" .");
+            if (compressor != null) {
+                command.append(" | ").append(compressor).append(" -").append(compression.getLevel()).append(" -c");
+            }
+            return command.toString();
+        }
+
+        /**
+         * Decoder for the stdout of {@link #streamCommand}.
+         */
+        public InputStream decode(InputStream stdout, int bufferSize) throws IOException {
+            return compressor != null ? new GZIPInputStream(stdout, bufferSize) : stdout;
+        }
+
+        /**
+         * Command that zips a directory into a file without per-file output.
+         *
+         * zip writes to stdout and the shell redirects into the archive, so the file grows while
+         * zip runs and its size can be reported; a plain {@code zip file.zip} writes to a hidden
+         * temporary file and renames it at the end. The output ends with
+         * {@code ZIP_COMPLETED_SUCCESSFULLY} on success.
+         *
+         * @param remoteDir Remote directory, as a shell word
+         * @param zipPath Absolute path of the archive to create
+         * @param excludePattern zip exclude pattern (e.g. {@code working/*}), or null
+         */
+        public String zipCommand(String remoteDir, String zipPath, String excludePattern) {
+            String zip = "zip -q -r -" + compression.getLevel() + " - ."
+                + (excludePattern != null ? " -x " + quote(excludePattern) : "");
+            return "cd " + remoteDir + " && ( " + zip + " > " + zipPath + " & pid=$!; "
+                + "while kill -0 $pid 2>/dev/null; do sleep 2; echo \"" + SIZE_MARKER + "$(wc -c < " + zipPath + ")\"; done; "
+                + "wait $pid ) 2>&1 && chmod 644 " + zipPath + " && echo 'ZIP_COMPLETED_SUCCESSFULLY'";
+        }
+
+        /**
+         * Short description for logs and progress messages (e.g. "tar | pigz -1").
+         */
+        public String describe() {
+            if (!tar) {
+                return "zip -" + compression.getLevel();
+            }
+            return compressor != null ? "tar | " + compressor + " -" + compression.getLevel() : "tar";
+        }
+
+        @Override
+        public String toString() {
+            return describe() + " [" + compression + (zip ? ", zip fallback" : "") + "]";
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Per-host connection and channel budget shared by the JSch ({@link SSHSessionManager}) and
+ * SSHJ ({@code SSHJSessionManager}) stacks.
+ *
+ * Both stacks cache connections independently, so parallel setups against one server used
+ * to open as many TCP connections and channels as there were purposes and downloads, and
+ * ran into the server's MaxStartups/MaxSessions limits. Every SSH connection and channel
+ * now takes a permit from this governor first.
+ *
+ * Features:
+ * - Per-host limits for connections and channels, with defaults and per-host overrides
+ * - Fair (FIFO) queueing: waiters are served in arrival order, a waiter gives up after a timeout
+ * - When the connection limit is reached, idle connections of the host are evicted
+ *   least-recently-used first, whichever stack they belong to
+ * - Connections that died underneath their owner are reclaimed automatically
+ * - One consolidated view of all live connections of both stacks
+ */
+public final class SSHConnectionGovernor {
+
+    // sshd's MaxStartups starts dropping at 10 concurrent unauthenticated connections
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 8;
+    // Shells, exec and SFTP channels across all connections of a host
+    public static final int DEFAULT_MAX_CHANNELS_PER_HOST = 32;
+    // How long a caller waits for a permit before giving up
+    private static final long DEFAULT_WAIT_TIMEOUT_MS = 60_000;
+    // Upper bound for a single wait, so dead connections are re-checked regularly
+    private static final long WAIT_SLICE_MS = 1_000;
+
+    private static volatile int defaultMaxConnections = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    private static volatile int defaultMaxChannels = DEFAULT_MAX_CHANNELS_PER_HOST;
+    private static volatile long waitTimeoutMs = DEFAULT_WAIT_TIMEOUT_MS;
+
+    private static final Map<String, HostBudget> budgets = new ConcurrentHashMap<>();
+
+    private SSHConnectionGovernor() {
+    }
+
+    // ===== PUBLIC API =====
+
+    /**
+     * Take a connection permit for a host, waiting in line if the host is at its limit.
+     * Idle connections of the host are evicted (least recently used first) to make room.
+     *
+     * The returned ticket counts as busy for its creator. Bind it once connected, mark it
+     * idle while unused and release it when the connection is closed.
+     *
+     * @param host SSH host
+     * @param stack Owning implementation, e.g. "JSch" or "SSHJ"
+     * @param label Description of the connection for diagnostics (user, purpose, ...)
+     * @return Connection ticket
+     * @throws IOException If no permit became available within the wait timeout
+     */
+    public static ConnectionTicket acquireConnection(String host, String stack, String label) throws IOException {
+        HostBudget budget = budgets.computeIfAbsent(host, HostBudget::new);
+        return budget.acquireConnection(stack, label);
+    }
+
+    /**
+     * Take a channel permit for a host, waiting in line if the host is at its limit.
+     *
+     * @param host SSH host
+     * @param stack Owning implementation, e.g. "JSch" or "SSHJ"
+     * @return Channel permit; release it when the channel is closed
+     * @throws IOException If no permit became available within the wait timeout
+     */
+    public static ChannelPermit acquireChannel(String host, String stack) throws IOException {
+        HostBudget budget = budgets.computeIfAbsent(host, HostBudget::new);
+        return budget.acquireChannel(stack);
+    }
+
+    /**
+     * Set the limits used for hosts without an override.
+     */
+    public static void setDefaultLimits(int maxConnections, int maxChannels) {
+        defaultMaxConnections = Math.max(1, maxConnections);
+        defaultMaxChannels = Math.max(1, maxChannels);
+    }
+
+    /**
+     * Override the limits for one host, e.g. to match its sshd MaxStartups/MaxSessions.
+     */
+    public static void setHostLimits(String host, int maxConnections, int maxChannels) {
+        HostBudget budget = budgets.computeIfAbsent(host, HostBudget::new);
+        synchronized (budget) {
+            budget.maxConnections = Math.max(1, maxConnections);
+            budget.maxChannels = Math.max(1, maxChannels);
+            budget.notifyAll();
+        }
+    }
+
+    /**
+     * Set how long callers wait for a permit before failing.
+     */
+    public static void setWaitTimeoutMillis(long timeoutMs) {
+        waitTimeoutMs = Math.max(0, timeoutMs);
+    }
+
+    /**
+     * Get a summary of usage against the limits for all hosts.
+     *
+     * @return Statistics string
+     */
+    public static String getStatistics() {
+        StringBuilder stats = new StringBuilder("SSH budget:");
+        if (budgets.isEmpty()) {
+            return stats.append(" no hosts").toString();
+        }
+        for (HostBudget budget : budgets.values()) {
+            synchronized (budget) {
+                stats.append(String.format(" %s %d/%d connections, %d/%d channels, %d waiting;",
+                    budget.host, budget.tickets.size(), budget.maxConnections(),
+                    budget.channels, budget.maxChannels(),
+                    budget.connectionWaiters.size() + budget.channelWaiters.size()));
+            }
+        }
+        return stats.toString();
+    }
+
+    /**
+     * Get one consolidated view of the live connections of both SSH stacks.
+     *
+     * @return Multi-line description, one line per host and per connection
+     */
+    public static String getLiveConnectionsInfo() {
+        long now = System.currentTimeMillis();
+        StringBuilder info = new StringBuilder();
+        int total = 0;
+        for (HostBudget budget : budgets.values()) {
+            synchronized (budget) {
+                if (budget.tickets.isEmpty() && budget.channels == 0) {
+                    continue;
+                }
+                total += budget.tickets.size();
+                info.append("  Host ").append(budget.host)
+                    .append(": ").append(budget.tickets.size()).append("/").append(budget.maxConnections()).append(" connections")
+                    .append(", ").append(budget.channels).append("/").append(budget.maxChannels()).append(" channels")
+                    .append(", ").append(budget.connectionWaiters.size() + budget.channelWaiters.size()).append(" waiting\n");
+                for (ConnectionTicket ticket : budget.tickets) {
+                    info.append("    - [").append(ticket.stack).append("] ").append(ticket.label)
+                        .append(" | ").append(ticket.busy > 0 ? "busy (" + ticket.busy + ")" : "idle " + (now - ticket.lastUsed) / 1000 + "s")
+                        .append(" | age ").append((now - ticket.createdAt) / 1000).append("s\n");
+                }
+            }
+        }
+        return "Live SSH connections (" + total + "):\n" + info;
+    }
+
+    // ===== INNER CLASSES =====
+
+    /**
+     * Permit for one connection. Tracks whether the connection is in use, so idle ones
+     * can be evicted when another caller needs the slot.
+     */
+    public static final class ConnectionTicket {
+        private final HostBudget budget;
+        private final String stack;
+        private final String label;
+        private final long createdAt = System.currentTimeMillis();
+        private long lastUsed = createdAt;
+        private int busy = 1;
+        private boolean evicted;
+        private boolean released;
+        private BooleanSupplier connectedCheck;
+        private Runnable evictor;
+
+        private ConnectionTicket(HostBudget budget, String stack, String label) {
+            this.budget = budget;
+            this.stack = stack;
+            this.label = label;
+        }
+
+        /**
+         * Attach the established connection: how to check it is still up and how to close it
+         * when it is evicted. Unbound tickets are never evicted.
+         */
+        public void bind(BooleanSupplier connectedCheck, Runnable evictor) {
+            synchronized (budget) {
+                this.connectedCheck = connectedCheck;
+                this.evictor = evictor;
+            }
+        }
+
+        /**
+         * Mark the connection as used by one more caller.
+         *
+         * @return false if the connection was evicted or released and must not be used
+         */
+        public boolean markBusy() {
+            synchronized (budget) {
+                if (evicted || released) {
+                    return false;
+                }
+                busy++;
+                lastUsed = System.currentTimeMillis();
+                return true;
+            }
+        }
+
+        /**
+         * Mark that one caller no longer uses the connection.
+         */
+        public void markIdle() {
+            synchronized (budget) {
+                busy = Math.max(0, busy - 1);
+                lastUsed = System.currentTimeMillis();
+            }
+        }
+
+        /**
+         * Give the permit back. Idempotent.
+         */
+        public void release() {
+            budget.release(this);
+        }
+    }
+
+    /**
+     * Permit for one channel. Release is idempotent.
+     */
+    public static final class ChannelPermit {
+        private final HostBudget budget;
+        private boolean released;
+
+        private ChannelPermit(HostBudget budget) {
+            this.budget = budget;
+        }
+
+        public void release() {
+            synchronized (budget) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                budget.channels--;
+                budget.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Limits, usage and wait queues of one host. All state is guarded by the instance lock.
+     */
+    private static final class HostBudget {
+        final String host;
+        final List<ConnectionTicket> tickets = new ArrayList<>();
+        final ArrayDeque<Object> connectionWaiters = new ArrayDeque<>();
+        final ArrayDeque<Object> channelWaiters = new ArrayDeque<>();
+        int channels;
+        // 0 = use the default limit
+        int maxConnections;
+        int maxChannels;
+
+        HostBudget(String host) {
+            this.host = host;
+        }
+
+        int maxConnections() {
+            return maxConnections > 0 ? maxConnections : defaultMaxConnections;
+        }
+
+        int maxChannels() {
+            return maxChannels > 0 ? maxChannels : defaultMaxChannels;
+        }
+
+        ConnectionTicket acquireConnection(String stack, String label) throws IOException {
+            Object waiter = new Object();
+            long deadline = System.currentTimeMillis() + waitTimeoutMs;
+            boolean logged = false;
+            synchronized (this) {
+                connectionWaiters.addLast(waiter);
+            }
+            try {
+                while (true) {
+                    ConnectionTicket victim;
+                    synchronized (this) {
+                        reapDeadConnections();
+                        boolean first = connectionWaiters.peekFirst() == waiter;
+                        if (first && tickets.size() < maxConnections()) {
+                            ConnectionTicket ticket = new ConnectionTicket(this, stack, label);
+                            tickets.add(ticket);
+                            return ticket;
+                        }
+                        victim = first ? leastRecentlyUsedIdle() : null;
+                        if (victim != null) {
+                            victim.evicted = true;
+                        } else {
+                            long remaining = deadline - System.currentTimeMillis();
+                            if (remaining <= 0) {
+                                throw new IOException("SSH connection limit reached for " + host + " ("
+                                    + maxConnections() + " connections in use, waited " + waitTimeoutMs / 1000 + "s)");
+                            }
+                            if (!logged) {
+                                LoggerUtil.getLogger().info("⏳ Waiting for SSH connection slot on " + host
+                                    + " (" + tickets.size() + "/" + maxConnections() + " in use, "
+                                    + (connectionWaiters.size() - 1) + " other callers waiting)");
+                                logged = true;
+                            }
+                            wait(Math.min(remaining, WAIT_SLICE_MS));
+                            continue;
+                        }
+                    }
+
+                    // Close the victim outside the lock; its owner drops it on next use
+                    LoggerUtil.getLogger().info("♻️ Evicting idle " + victim.stack + " connection to make room: " + victim.label);
+                    try {
+                        if (victim.evictor != null) {
+                            victim.evictor.run();
+                        }
+                    } catch (RuntimeException e) {
+                        LoggerUtil.getLogger().warning("Failed to close evicted SSH connection: " + e.getMessage());
+                    }
+                    victim.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for SSH connection slot on " + host, e);
+            } finally {
+                synchronized (this) {
+                    connectionWaiters.remove(waiter);
+                    notifyAll();
+                }
+            }
+        }
+
+        ChannelPermit acquireChannel(String stack) throws IOException {
+            Object waiter = new Object();
+            long deadline = System.currentTimeMillis() + waitTimeoutMs;
+            synchronized (this) {
+                channelWaiters.addLast(waiter);
+                try {
+                    boolean logged = false;
+                    while (channelWaiters.peekFirst() != waiter || channels >= maxChannels()) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            throw new IOException("SSH channel limit reached for " + host + " ("
+                                + maxChannels() + " channels in use, waited " + waitTimeoutMs / 1000 + "s)");
+                        }
+                        if (!logged) {
+                            LoggerUtil.getLogger().info("⏳ Waiting for " + stack + " channel slot on " + host
+                                + " (" + channels + "/" + maxChannels() + " in use)");
+                            logged = true;
+                        }
+                        wait(Math.min(remaining, WAIT_SLICE_MS));
+                    }
+                    channels++;
+                    return new ChannelPermit(this);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for SSH channel slot on " + host, e);
+                } finally {
+                    channelWaiters.remove(waiter);
+                    notifyAll();
+                }
+            }
+        }
+
+        synchronized void release(ConnectionTicket ticket) {
+            if (ticket.released) {
+                return;
+            }
+            ticket.released = true;
+            tickets.remove(ticket);
+            notifyAll();
+        }
+
+        /**
+         * Free the slots of bound connections that are no longer connected.
+         */
+        private void reapDeadConnections() {
+            tickets.removeIf(ticket -> {
+                if (ticket.connectedCheck == null || ticket.connectedCheck.getAsBoolean()) {
+                    return false;
+                }
+                LoggerUtil.getLogger().info("🗑️ Reclaiming slot of closed " + ticket.stack + " connection: " + ticket.label);
+                ticket.released = true;
+                return true;
+            });
+        }
+
+        private ConnectionTicket leastRecentlyUsedIdle() {
+            return tickets.stream()
+                .filter(ticket -> ticket.busy == 0 && !ticket.evicted && ticket.evictor != null)
+                .min(Comparator.comparingLong(ticket -> ticket.lastUsed))
+                .orElse(null);
+        }
+    }
+}
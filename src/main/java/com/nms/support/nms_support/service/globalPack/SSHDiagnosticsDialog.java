@@ -0,0 +1,236 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import com.nms.support.nms_support.service.globalPack.sshj.SSHJSessionManager;
+import com.nms.support.nms_support.service.globalPack.sshj.SSHMetrics;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.*;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.stage.FileChooser;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+import javafx.stage.StageStyle;
+import org.kordamp.ikonli.javafx.FontIcon;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.logging.Logger;
+
+/**
+ * Dialog showing per-host SSH latency, traffic and query cache statistics
+ */
+public class SSHDiagnosticsDialog {
+    private static final Logger logger = Logger.getLogger(SSHDiagnosticsDialog.class.getName());
+    private static final String PROFESSIONAL_FONT_FAMILY = "'Segoe UI', 'Inter', 'Roboto', 'Arial', sans-serif";
+
+    private Stage dialog;
+    private Stage parentStage;
+    private TableView<SSHMetrics.LatencyRow> latencyTable;
+    private TableView<SSHMetrics.TrafficRow> trafficTable;
+    private Label statusLabel;
+
+    /**
+     * Shows the diagnostics dialog
+     */
+    public void showDialog(Stage parentStage) {
+        this.parentStage = parentStage;
+
+        createDialog();
+        refresh();
+
+        dialog.showAndWait();
+    }
+
+    private void createDialog() {
+        dialog = new Stage();
+        dialog.initStyle(StageStyle.UTILITY);
+        dialog.initModality(Modality.APPLICATION_MODAL);
+        dialog.initOwner(parentStage);
+        dialog.setTitle("SSH Diagnostics");
+
+        // Set app icon
+        IconUtils.setStageIcon(dialog);
+
+        // Main container
+        VBox mainContainer = new VBox(12);
+        mainContainer.setPadding(new Insets(24));
+        mainContainer.setStyle(String.format(
+            "-fx-font-family: %s; -fx-background-color: #F9FAFB;",
+            PROFESSIONAL_FONT_FAMILY
+        ));
+
+        // Header
+        HBox header = createHeader();
+
+        // Description
+        Label descLabel = new Label("Latency per phase in milliseconds and traffic per host and purpose. "
+            + "Connect and authentication are recorded per host, since connections are shared between purposes. "
+            + "Rows with purpose " + SSHMetrics.ALL_PURPOSES + " are totals for the host.");
+        descLabel.setStyle(String.format(
+            "-fx-font-family: %s; -fx-font-size: 13px; -fx-text-fill: #6B7280;",
+            PROFESSIONAL_FONT_FAMILY
+        ));
+        descLabel.setWrapText(true);
+
+        latencyTable = createLatencyTable();
+        trafficTable = createTrafficTable();
+        VBox.setVgrow(latencyTable, Priority.ALWAYS);
+
+        // Status label
+        statusLabel = new Label();
+        statusLabel.setStyle(String.format(
+            "-fx-font-family: %s; -fx-font-size: 12px; -fx-text-fill: #9CA3AF; -fx-font-style: italic;",
+            PROFESSIONAL_FONT_FAMILY
+        ));
+        statusLabel.setWrapText(true);
+
+        // Buttons
+        HBox buttonBar = createButtonBar();
+
+        mainContainer.getChildren().addAll(header, descLabel,
+            createSectionLabel("Latency"), latencyTable,
+            createSectionLabel("Traffic and query cache"), trafficTable,
+            statusLabel, buttonBar);
+
+        Scene scene = new Scene(mainContainer, 860, 640);
+        dialog.setScene(scene);
+    }
+
+    private HBox createHeader() {
+        HBox header = new HBox(12);
+        header.setAlignment(Pos.CENTER_LEFT);
+
+        FontIcon icon = new FontIcon("fa-tachometer");
+        icon.setIconSize(24);
+        icon.setIconColor(Color.web("#3B82F6"));
+
+        Label titleLabel = new Label("SSH Diagnostics");
+        titleLabel.setFont(Font.font(PROFESSIONAL_FONT_FAMILY, FontWeight.BOLD, 18));
+        titleLabel.setStyle("-fx-text-fill: #1F2937;");
+
+        header.getChildren().addAll(icon, titleLabel);
+        return header;
+    }
+
+    private Label createSectionLabel(String text) {
+        Label label = new Label(text);
+        label.setFont(Font.font(PROFESSIONAL_FONT_FAMILY, FontWeight.BOLD, 14));
+        label.setStyle("-fx-text-fill: #374151;");
+        return label;
+    }
+
+    private TableView<SSHMetrics.LatencyRow> createLatencyTable() {
+        TableView<SSHMetrics.LatencyRow> table = new TableView<>();
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.setPlaceholder(new Label("No SSH activity recorded yet"));
+        table.getColumns().add(column("Host", "host"));
+        table.getColumns().add(column("Purpose", "purpose"));
+        table.getColumns().add(column("Phase", "metric"));
+        table.getColumns().add(column("Count", "count"));
+        table.getColumns().add(column("Avg", "average"));
+        table.getColumns().add(column("p50", "p50"));
+        table.getColumns().add(column("p95", "p95"));
+        table.getColumns().add(column("Max", "max"));
+        return table;
+    }
+
+    private TableView<SSHMetrics.TrafficRow> createTrafficTable() {
+        TableView<SSHMetrics.TrafficRow> table = new TableView<>();
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
+        table.setPlaceholder(new Label("No SSH traffic recorded yet"));
+        table.setPrefHeight(180);
+        table.getColumns().add(column("Host", "host"));
+        table.getColumns().add(column("Purpose", "purpose"));
+        table.getColumns().add(column("Bytes sent", "bytesOut"));
+        table.getColumns().add(column("Bytes received", "bytesIn"));
+        table.getColumns().add(column("Cache hits", "cacheHits"));
+        table.getColumns().add(column("Cache misses", "cacheMisses"));
+        table.getColumns().add(column("Hit rate %", "cacheHitRate"));
+        table.getColumns().add(column("Transfers", "transfers"));
+        table.getColumns().add(column("Transfer KB/s", "transferRate"));
+        return table;
+    }
+
+    private static <S> TableColumn<S, Object> column(String title, String property) {
+        TableColumn<S, Object> column = new TableColumn<>(title);
+        column.setCellValueFactory(new PropertyValueFactory<>(property));
+        return column;
+    }
+
+    private HBox createButtonBar() {
+        HBox buttonBar = new HBox(12);
+        buttonBar.setAlignment(Pos.CENTER_RIGHT);
+
+        Button refreshButton = createButton("Refresh", "#3B82F6", "#FFFFFF");
+        refreshButton.setOnAction(event -> refresh());
+
+        Button resetButton = createButton("Reset", "#E5E7EB", "#374151");
+        resetButton.setOnAction(event -> {
+            SSHMetrics.reset();
+            refresh();
+        });
+
+        Button exportButton = createButton("Export JSON", "#E5E7EB", "#374151");
+        exportButton.setOnAction(event -> exportJson());
+
+        Button closeButton = createButton("Close", "#E5E7EB", "#374151");
+        closeButton.setOnAction(event -> dialog.close());
+
+        buttonBar.getChildren().addAll(refreshButton, resetButton, exportButton, closeButton);
+        return buttonBar;
+    }
+
+    private Button createButton(String text, String background, String foreground) {
+        Button button = new Button(text);
+        button.setStyle(
+            "-fx-font-family: " + PROFESSIONAL_FONT_FAMILY + "; " +
+            "-fx-font-size: 13px; " +
+            "-fx-background-color: " + background + "; " +
+            "-fx-text-fill: " + foreground + "; " +
+            "-fx-padding: 8 16; " +
+            "-fx-background-radius: 6; " +
+            "-fx-cursor: hand;"
+        );
+        return button;
+    }
+
+    /**
+     * Reload both tables and the pool and connection budget statistics
+     */
+    private void refresh() {
+        latencyTable.setItems(FXCollections.observableArrayList(SSHMetrics.latencySnapshot()));
+        trafficTable.setItems(FXCollections.observableArrayList(SSHMetrics.trafficSnapshot()));
+        statusLabel.setText(SSHJSessionManager.getShellPoolStatistics() + "\n" + SSHConnectionGovernor.getStatistics());
+    }
+
+    /**
+     * Write the metrics snapshot, including histogram buckets, to a JSON file
+     */
+    private void exportJson() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Export SSH Metrics");
+        chooser.setInitialFileName("ssh-metrics.json");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON files", "*.json"));
+        File file = chooser.showSaveDialog(dialog);
+        if (file == null) {
+            return;
+        }
+
+        try {
+            Files.writeString(file.toPath(), SSHMetrics.toJson(), StandardCharsets.UTF_8);
+            statusLabel.setText("Metrics exported to " + file.getAbsolutePath());
+            logger.info("SSH metrics exported to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            logger.warning("Failed to export SSH metrics: " + e.getMessage());
+            DialogUtil.showError("Export Failed", "Could not write " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+    }
+}
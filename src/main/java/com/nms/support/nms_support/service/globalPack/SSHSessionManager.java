@@ -20,6 +20,7 @@ import java.util.stream.Collectors;
  * - Minimal output filtering - no hardcoded patterns
  * - Proper TTY handling for sudo/su commands
  * - Session caching with automatic expiration
+ * - Connections count against the per-host {@link SSHConnectionGovernor} budget shared with SSHJ
  */
 public class SSHSessionManager {
     private static final int DEFAULT_TIMEOUT = 30_000; // 30 seconds
@@ -42,6 +43,8 @@ public class SSHSessionManager {
     private PrintWriter commandWriter;
     private ByteArrayOutputStream shellOutput;
     private long lastActivityTime;
+    private SSHConnectionGovernor.ConnectionTicket connectionTicket;
+    private SSHConnectionGovernor.ChannelPermit shellChannelPermit;
     
     // Prompt detection
     private String detectedPrompt = null;
@@ -122,6 +125,8 @@ public class SSHSessionManager {
             this.detectedPrompt = cachedSession.detectedPrompt;
             this.currentUserContext = cachedSession.currentUserContext;
             this.shellInitialized = cachedSession.shellInitialized;
+            this.connectionTicket = cachedSession.connectionTicket;
+            this.shellChannelPermit = cachedSession.shellChannelPermit;
             this.lastActivityTime = System.currentTimeMillis();
 
             if (!isSessionAlive()) {
@@ -190,12 +195,17 @@ public class SSHSessionManager {
                 }
             }
             
+            markConnectionBusy();
+            SSHConnectionGovernor.ConnectionTicket ticket = connectionTicket;
             commandInProgress = true;
             ProcessMonitorManager.getInstance().updateOperationState(sessionId, true);
             try {
                 return executeCommandInternal(command, timeoutSeconds, progressCallback);
             } finally {
                 commandInProgress = false;
+                if (ticket != null) {
+                    ticket.markIdle();
+                }
                 ProcessMonitorManager.getInstance().updateOperationState(sessionId, false);
                 commandLock.notifyAll();
             }
@@ -423,6 +433,7 @@ public class SSHSessionManager {
                     LoggerUtil.getLogger().warning("Failed to disconnect JSch session: " + e.getMessage());
                 }
             }
+            releaseConnectionBudget();
             
             LoggerUtil.getLogger().info("🔒 Session forcefully closed and removed from cache: " + sessionId);
         } finally {
@@ -508,6 +519,39 @@ public class SSHSessionManager {
     private void createNewSession() throws Exception {
         LoggerUtil.getLogger().info("Creating new SSH session to " + host + " as " + sshUser);
 
+        // The previous connection of this instance is dead or evicted; give its slot back
+        releaseConnectionBudget();
+        SSHConnectionGovernor.ConnectionTicket ticket = SSHConnectionGovernor.acquireConnection(host, "JSch", generateCacheKey());
+        SSHConnectionGovernor.ChannelPermit channelPermit;
+        try {
+            channelPermit = SSHConnectionGovernor.acquireChannel(host, "JSch");
+        } catch (IOException e) {
+            ticket.release();
+            throw e;
+        }
+
+        try {
+            openShellSession();
+        } catch (Exception e) {
+            if (jschSession != null) {
+                jschSession.disconnect();
+            }
+            channelPermit.release();
+            ticket.release();
+            throw e;
+        }
+
+        final com.jcraft.jsch.Session session = jschSession;
+        ticket.bind(session::isConnected, () -> evictConnection(session));
+        ticket.markIdle();
+        connectionTicket = ticket;
+        shellChannelPermit = channelPermit;
+    }
+
+    /**
+     * Connect, open the TTY shell and switch to the target user
+     */
+    private void openShellSession() throws Exception {
         JSch jsch = new JSch();
         jschSession = jsch.getSession(sshUser, host, port);
         jschSession.setPassword(sshPassword);
@@ -1098,7 +1142,8 @@ public class SSHSessionManager {
      */
     private void updateCache(String cacheKey) {
         sessionCache.put(cacheKey, new CachedSession(jschSession, shellChannel, inputPipe, 
-            outputPipe, commandWriter, shellOutput, detectedPrompt, currentUserContext, shellInitialized, purpose));
+            outputPipe, commandWriter, shellOutput, detectedPrompt, currentUserContext, shellInitialized, purpose,
+            connectionTicket, shellChannelPermit));
         LoggerUtil.getLogger().info("💾 Session cached with purpose '" + purpose + "': " + cacheKey);
     }
     
@@ -1119,6 +1164,49 @@ public class SSHSessionManager {
         try {
             if (cachedSession.jschSession != null) cachedSession.jschSession.disconnect();
         } catch (Exception ignored) {}
+        if (cachedSession.shellChannelPermit != null) cachedSession.shellChannelPermit.release();
+        if (cachedSession.connectionTicket != null) cachedSession.connectionTicket.release();
+    }
+
+    /**
+     * Close an idle connection on behalf of the connection governor
+     */
+    private static void evictConnection(com.jcraft.jsch.Session session) {
+        sessionCache.entrySet().removeIf(entry -> {
+            if (entry.getValue().jschSession == session) {
+                closeSessionQuietly(entry.getValue());
+                return true;
+            }
+            return false;
+        });
+        session.disconnect();
+    }
+
+    /**
+     * Mark the connection as in use; reconnects if the governor evicted it while idle
+     */
+    private void markConnectionBusy() throws Exception {
+        if (connectionTicket != null && !connectionTicket.markBusy()) {
+            LoggerUtil.getLogger().info("♻️ Connection was evicted while idle, reconnecting...");
+            initialize();
+            if (connectionTicket != null) {
+                connectionTicket.markBusy();
+            }
+        }
+    }
+
+    /**
+     * Give this instance's connection and shell channel slots back to the governor
+     */
+    private void releaseConnectionBudget() {
+        if (shellChannelPermit != null) {
+            shellChannelPermit.release();
+            shellChannelPermit = null;
+        }
+        if (connectionTicket != null) {
+            connectionTicket.release();
+            connectionTicket = null;
+        }
     }
     
     /**
@@ -1335,11 +1423,15 @@ public class SSHSessionManager {
         final String currentUserContext;
         final boolean shellInitialized;
         final String purpose; // Purpose for session isolation
+        final SSHConnectionGovernor.ConnectionTicket connectionTicket;
+        final SSHConnectionGovernor.ChannelPermit shellChannelPermit;
         
         CachedSession(com.jcraft.jsch.Session jschSession, ChannelShell shellChannel,
                      PipedInputStream inputPipe, PipedOutputStream outputPipe,
                      PrintWriter commandWriter, ByteArrayOutputStream shellOutput,
-                     String detectedPrompt, String currentUserContext, boolean shellInitialized, String purpose) {
+                     String detectedPrompt, String currentUserContext, boolean shellInitialized, String purpose,
+                     SSHConnectionGovernor.ConnectionTicket connectionTicket,
+                     SSHConnectionGovernor.ChannelPermit shellChannelPermit) {
             this.jschSession = jschSession;
             this.shellChannel = shellChannel;
             this.inputPipe = inputPipe;
@@ -1351,6 +1443,8 @@ public class SSHSessionManager {
             this.currentUserContext = currentUserContext;
             this.shellInitialized = shellInitialized;
             this.purpose = purpose;
+            this.connectionTicket = connectionTicket;
+            this.shellChannelPermit = shellChannelPermit;
         }
     }
 }
@@ -367,6 +367,15 @@ public class SVNAutomationTool {
             return;
         }
 
+        // Rename into the trash and delete in the background; SVN cleanup and lock handling are only
+        // needed when something could not be moved
+        if (TrashManager.emptyDirectory(folder.toPath(), null)) {
+            if (callback != null) {
+                callback.onComplete("Moved " + files.length + " files/folders to trash");
+            }
+            return;
+        }
+
         int totalFiles = countFilesRecursively(folder);
         int deletedFiles = 0;
         
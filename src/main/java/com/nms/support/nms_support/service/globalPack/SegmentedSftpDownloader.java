@@ -0,0 +1,558 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nms.support.nms_support.service.globalPack.sshj.SSHJSessionManager;
+import net.schmizz.sshj.sftp.FileAttributes;
+import net.schmizz.sshj.sftp.OpenMode;
+import net.schmizz.sshj.sftp.RemoteFile;
+import net.schmizz.sshj.sftp.SFTPClient;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
+
+/**
+ * Parallel, segmented and resumable SFTP download of a single large file.
+ *
+ * A single {@code sftpClient.get()} keeps one request window in flight, which caps
+ * throughput far below the link speed on high-latency VPN connections, and a dropped
+ * connection starts the download over. This downloader splits the file into fixed-size
+ * segments and fetches them concurrently over several SFTP channels of the shared transport.
+ *
+ * Features:
+ * - Segments written with positional writes into a preallocated {@code .part} file
+ * - Read-ahead within each segment, so every channel keeps several requests in flight
+ * - Completed segments recorded in a {@code .part.json} checkpoint; after a dropped connection
+ *   the download resumes with the missing segments, as long as the remote file is unchanged
+ * - Failed segments are retried on a fresh channel; a failed download is resumed from its
+ *   checkpoint a few times before it gives up and deletes the part file and checkpoint
+ * - MD5 of the result checked against {@code md5sum} on the server
+ * - Small files use a single channel
+ */
+public final class SegmentedSftpDownloader {
+
+    private static final long SEGMENT_SIZE = 8L * 1024 * 1024;
+    // Below this size one channel is as fast as several
+    private static final long PARALLEL_THRESHOLD = 16L * 1024 * 1024;
+    private static final int DEFAULT_CHANNELS = 4;
+    private static final int READ_AHEAD_REQUESTS = 16;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ATTEMPTS = 3;
+    // Whole-download rounds; each resumes from the checkpoint of the previous one
+    private static final int MAX_RESUMES = 3;
+    private static final int CHECKSUM_TIMEOUT_SECONDS = 300;
+    private static final String PART_SUFFIX = ".part";
+    private static final String CHECKPOINT_SUFFIX = ".part.json";
+
+    private static volatile int channels = DEFAULT_CHANNELS;
+    private static volatile boolean verifyChecksum = true;
+
+    private SegmentedSftpDownloader() {
+    }
+
+    /**
+     * Set the number of parallel SFTP channels per download (1 disables parallelism).
+     */
+    public static void setChannels(int count) {
+        channels = Math.max(1, count);
+    }
+
+    public static int getChannels() {
+        return channels;
+    }
+
+    /**
+     * Enable or disable the MD5 comparison with the server after the download.
+     */
+    public static void setVerifyChecksum(boolean verify) {
+        verifyChecksum = verify;
+    }
+
+    /**
+     * Download a remote file, resuming from the checkpoint when an attempt is interrupted.
+     *
+     * The file is written to {@code localFile + ".part"} and only moved to localFile once it is
+     * complete and verified. Between attempts the part file and checkpoint are kept for the
+     * resume; when the download gives up, is cancelled or fails the checksum they are deleted,
+     * so nothing is left behind in the temp directory.
+     *
+     * @param ssh Initialized session, used for the SFTP channels and the remote checksum
+     * @param remotePath Remote file path
+     * @param localFile Local target file
+     * @param cancelled Checked between reads (can be null)
+     * @param progress Receives the number of bytes present locally after every write (can be null)
+     * @return Download statistics
+     * @throws IOException On transfer failure, checksum mismatch or cancellation
+     */
+    public static Result download(SSHJSessionManager ssh, String remotePath, File localFile,
+                                  BooleanSupplier cancelled, LongConsumer progress) throws IOException {
+        Path part = Path.of(localFile.getPath() + PART_SUFFIX);
+        for (int round = 1; ; round++) {
+            try {
+                return downloadOnce(ssh, remotePath, localFile, cancelled, progress);
+            } catch (IOException e) {
+                // Cancellation and checksum mismatch delete the part file; nothing to resume then
+                if (round >= MAX_RESUMES || !Files.exists(part) || (cancelled != null && cancelled.getAsBoolean())) {
+                    // Callers download to a new file name each time, so a later call could not resume anyway
+                    deleteQuietly(part, Path.of(localFile.getPath() + CHECKPOINT_SUFFIX));
+                    throw e;
+                }
+                LoggerUtil.getLogger().info("⏯️ Resuming interrupted download of " + remotePath
+                    + " (round " + (round + 1) + "/" + MAX_RESUMES + ")");
+            }
+        }
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    private static Result downloadOnce(SSHJSessionManager ssh, String remotePath, File localFile,
+                                       BooleanSupplier cancelled, LongConsumer progress) throws IOException {
+        long start = System.currentTimeMillis();
+        FileAttributes attributes;
+        try (SFTPClient sftp = openSftp(ssh)) {
+            attributes = sftp.stat(remotePath);
+        }
+        long size = attributes.getSize();
+
+        Path part = Path.of(localFile.getPath() + PART_SUFFIX);
+        Path checkpointFile = Path.of(localFile.getPath() + CHECKPOINT_SUFFIX);
+        Checkpoint checkpoint = loadCheckpoint(checkpointFile, part, remotePath, size, attributes.getMtime());
+        if (checkpoint == null) {
+            checkpoint = new Checkpoint(remotePath, size, attributes.getMtime(), SEGMENT_SIZE);
+            Files.deleteIfExists(part);
+            try (RandomAccessFile file = new RandomAccessFile(part.toFile(), "rw")) {
+                file.setLength(size);
+            }
+            saveCheckpoint(checkpointFile, checkpoint);
+        }
+
+        int segmentCount = (int) Math.max(1, (size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+        long resumedBytes = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            if (checkpoint.getCompleted().contains(i)) {
+                resumedBytes += segmentLength(i, size);
+            } else {
+                pending.add(i);
+            }
+        }
+        if (resumedBytes > 0) {
+            LoggerUtil.getLogger().info("⏯️ Resuming download of " + remotePath + ": "
+                + (segmentCount - pending.size()) + "/" + segmentCount + " segments already present");
+        }
+
+        AtomicLong present = new AtomicLong(resumedBytes);
+        if (progress != null) {
+            progress.accept(present.get());
+        }
+        int workerCount = size < PARALLEL_THRESHOLD ? 1 : Math.min(channels, Math.max(1, pending.size()));
+        LoggerUtil.getLogger().info("⬇️ Downloading " + remotePath + " (" + size + " bytes, " + segmentCount
+            + " segments) over " + workerCount + " SFTP channel(s)");
+
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        Checkpoint progressCheckpoint = checkpoint;
+        try (FileChannel output = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            List<Thread> workers = new ArrayList<>();
+            for (int w = 0; w < workerCount && size > 0; w++) {
+                Segmenter worker = new Segmenter(ssh, remotePath, size, output, pending, progressCheckpoint,
+                    checkpointFile, present, progress, cancelled, failure);
+                workers.add(Thread.ofVirtual().name("sftp-segment-" + w).start(worker));
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during download of " + remotePath, e);
+        }
+
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            deleteQuietly(part, checkpointFile);
+            throw new IOException("Download cancelled by user");
+        }
+        if (failure.get() != null) {
+            LoggerUtil.getLogger().warning("⚠️ Download of " + remotePath + " failed: "
+                + failure.get().getMessage());
+            throw failure.get();
+        }
+
+        boolean verified = verifyChecksum && verify(ssh, remotePath, part, checkpointFile);
+        Files.move(part, localFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.deleteIfExists(checkpointFile);
+
+        Result result = new Result(size, size - resumedBytes, resumedBytes, workerCount, verified,
+            System.currentTimeMillis() - start);
+        LoggerUtil.getLogger().info("✅ Downloaded " + remotePath + ": " + result);
+        return result;
+    }
+
+    private static SFTPClient openSftp(SSHJSessionManager ssh) throws IOException {
+        try {
+            return ssh.openSftp();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to open SFTP channel: " + e.getMessage(), e);
+        }
+    }
+
+    private static long segmentLength(int segment, long size) {
+        return Math.min(SEGMENT_SIZE, size - segment * SEGMENT_SIZE);
+    }
+
+    /**
+     * Compare the MD5 of the part file with md5sum on the server.
+     *
+     * @return true if verified, false if the server could not compute a checksum
+     * @throws IOException On mismatch; the part file and checkpoint are deleted
+     */
+    private static boolean verify(SSHJSessionManager ssh, String remotePath, Path part, Path checkpointFile) throws IOException {
+        String remoteMd5;
+        try {
+            SSHJSessionManager.CommandResult result = ssh.executeCommand(
+                "md5sum -- '" + remotePath.replace("'", "'\\''") + "'", CHECKSUM_TIMEOUT_SECONDS);
+            String output = result.getOutput().trim();
+            remoteMd5 = result.isSuccess() && output.length() >= 32 ? output.substring(0, 32).toLowerCase() : null;
+        } catch (Exception e) {
+            remoteMd5 = null;
+        }
+        if (remoteMd5 == null) {
+            LoggerUtil.getLogger().warning("⚠️ Could not compute remote checksum of " + remotePath + ", skipping verification");
+            return false;
+        }
+
+        String localMd5 = md5(part);
+        if (!remoteMd5.equals(localMd5)) {
+            deleteQuietly(part, checkpointFile);
+            throw new IOException("Checksum mismatch for " + remotePath + " (remote " + remoteMd5 + ", local " + localMd5 + ")");
+        }
+        return true;
+    }
+
+    private static String md5(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("MD5 not available", e);
+        }
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Load the checkpoint of an earlier attempt if it belongs to the same, unchanged remote file.
+     */
+    private static Checkpoint loadCheckpoint(Path checkpointFile, Path part, String remotePath, long size, long mtime) {
+        if (!Files.isRegularFile(checkpointFile) || !Files.isRegularFile(part)) {
+            return null;
+        }
+        try {
+            Checkpoint checkpoint = new ObjectMapper().readValue(checkpointFile.toFile(), Checkpoint.class);
+            if (remotePath.equals(checkpoint.getRemotePath()) && checkpoint.getSize() == size
+                    && checkpoint.getMtime() == mtime && checkpoint.getSegmentSize() == SEGMENT_SIZE
+                    && Files.size(part) == size) {
+                return checkpoint;
+            }
+            LoggerUtil.getLogger().info("Download checkpoint is for a different file version, starting over");
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Ignoring unreadable download checkpoint " + checkpointFile + ": " + e.getMessage());
+        }
+        return null;
+    }
+
+    private static void saveCheckpoint(Path checkpointFile, Checkpoint checkpoint) throws IOException {
+        Path temp = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        synchronized (checkpoint) {
+            new ObjectMapper().writeValue(temp.toFile(), checkpoint);
+            Files.move(temp, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static void deleteQuietly(Path... paths) {
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LoggerUtil.getLogger().warning("Failed to delete " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // ===== INNER CLASSES =====
+
+    /**
+     * Worker that takes segments from the shared queue and fetches them over its own SFTP channel.
+     */
+    private static final class Segmenter implements Runnable {
+        private final SSHJSessionManager ssh;
+        private final String remotePath;
+        private final long size;
+        private final FileChannel output;
+        private final Queue<Integer> pending;
+        private final Checkpoint checkpoint;
+        private final Path checkpointFile;
+        private final AtomicLong present;
+        private final LongConsumer progress;
+        private final BooleanSupplier cancelled;
+        private final AtomicReference<IOException> failure;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+
+        private SFTPClient sftp;
+        private RemoteFile remoteFile;
+
+        Segmenter(SSHJSessionManager ssh, String remotePath, long size, FileChannel output, Queue<Integer> pending,
+                  Checkpoint checkpoint, Path checkpointFile, AtomicLong present, LongConsumer progress,
+                  BooleanSupplier cancelled, AtomicReference<IOException> failure) {
+            this.ssh = ssh;
+            this.remotePath = remotePath;
+            this.size = size;
+            this.output = output;
+            this.pending = pending;
+            this.checkpoint = checkpoint;
+            this.checkpointFile = checkpointFile;
+            this.present = present;
+            this.progress = progress;
+            this.cancelled = cancelled;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Integer segment;
+                while (!stopped() && (segment = pending.poll()) != null) {
+                    fetchWithRetry(segment);
+                }
+            } catch (IOException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                closeChannel();
+            }
+        }
+
+        private void fetchWithRetry(int segment) throws IOException {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    fetch(segment);
+                    output.force(false);
+                    synchronized (checkpoint) {
+                        checkpoint.getCompleted().add(segment);
+                    }
+                    saveCheckpoint(checkpointFile, checkpoint);
+                    return;
+                } catch (IOException e) {
+                    closeChannel();
+                    if (stopped() || attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    LoggerUtil.getLogger().warning("Segment " + segment + " of " + remotePath + " failed (attempt "
+                        + attempt + "/" + MAX_ATTEMPTS + "), retrying: " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Copy one segment into the part file. On failure the bytes already counted
+         * for the segment are taken off the progress counter again.
+         */
+        private void fetch(int segment) throws IOException {
+            long offset = segment * SEGMENT_SIZE;
+            long length = segmentLength(segment, size);
+            if (remoteFile == null) {
+                sftp = openSftp(ssh);
+                remoteFile = sftp.open(remotePath, EnumSet.of(OpenMode.READ));
+            }
+
+            long copied = 0;
+            try (InputStream in = remoteFile.new ReadAheadRemoteFileInputStream(READ_AHEAD_REQUESTS, offset, length)) {
+                while (copied < length) {
+                    if (stopped()) {
+                        throw new IOException("Download stopped");
+                    }
+                    int n = in.read(buffer, 0, (int) Math.min(buffer.length, length - copied));
+                    if (n < 0) {
+                        throw new IOException("Unexpected end of " + remotePath + " at offset " + (offset + copied));
+                    }
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+                    long position = offset + copied;
+                    while (chunk.hasRemaining()) {
+                        position += output.write(chunk, position);
+                    }
+                    copied += n;
+                    long total = present.addAndGet(n);
+                    if (progress != null) {
+                        progress.accept(total);
+                    }
+                }
+            } catch (IOException e) {
+                present.addAndGet(-copied);
+                throw e;
+            }
+        }
+
+        private boolean stopped() {
+            return failure.get() != null || (cancelled != null && cancelled.getAsBoolean());
+        }
+
+        private void closeChannel() {
+            try {
+                if (remoteFile != null) {
+                    remoteFile.close();
+                }
+            } catch (IOException ignored) {
+                // Channel may already be gone
+            }
+            try {
+                if (sftp != null) {
+                    sftp.close();
+                }
+            } catch (IOException ignored) {
+                // Channel may already be gone
+            }
+            remoteFile = null;
+            sftp = null;
+        }
+    }
+
+    /**
+     * Sidecar checkpoint of completed segments, stored next to the part file.
+     */
+    public static class Checkpoint {
+        private String remotePath;
+        private long size;
+        private long mtime;
+        private long segmentSize;
+        private TreeSet<Integer> completed = new TreeSet<>();
+
+        public Checkpoint() {
+        }
+
+        Checkpoint(String remotePath, long size, long mtime, long segmentSize) {
+            this.remotePath = remotePath;
+            this.size = size;
+            this.mtime = mtime;
+            this.segmentSize = segmentSize;
+        }
+
+        public String getRemotePath() {
+            return remotePath;
+        }
+
+        public void setRemotePath(String remotePath) {
+            this.remotePath = remotePath;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public long getMtime() {
+            return mtime;
+        }
+
+        public void setMtime(long mtime) {
+            this.mtime = mtime;
+        }
+
+        public long getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(long segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public TreeSet<Integer> getCompleted() {
+            return completed;
+        }
+
+        public void setCompleted(TreeSet<Integer> completed) {
+            this.completed = completed;
+        }
+    }
+
+    /**
+     * Statistics of a finished download.
+     */
+    public static final class Result {
+        private final long size;
+        private final long bytesTransferred;
+        private final long bytesResumed;
+        private final int channelCount;
+        private final boolean verified;
+        private final long durationMs;
+
+        Result(long size, long bytesTransferred, long bytesResumed, int channelCount, boolean verified, long durationMs) {
+            this.size = size;
+            this.bytesTransferred = bytesTransferred;
+            this.bytesResumed = bytesResumed;
+            this.channelCount = channelCount;
+            this.verified = verified;
+            this.durationMs = durationMs;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getBytesTransferred() {
+            return bytesTransferred;
+        }
+
+        public long getBytesResumed() {
+            return bytesResumed;
+        }
+
+        public int getChannelCount() {
+            return channelCount;
+        }
+
+        public boolean isVerified() {
+            return verified;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        @Override
+        public String toString() {
+            return size + " bytes (" + bytesResumed + " resumed) over " + channelCount + " channel(s) in "
+                + durationMs + " ms" + (verified ? ", checksum verified" : "");
+        }
+    }
+}
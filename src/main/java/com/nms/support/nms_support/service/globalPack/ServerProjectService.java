@@ -3,18 +3,19 @@ package com.nms.support.nms_support.service.globalPack;
 import net.schmizz.sshj.sftp.SFTPClient;
 import net.schmizz.sshj.sftp.FileAttributes;
 import com.nms.support.nms_support.model.ProjectEntity;
+import com.nms.support.nms_support.service.globalPack.sshj.LineConsumer;
 import com.nms.support.nms_support.service.globalPack.sshj.SSHJSessionManager;
 import com.nms.support.nms_support.service.globalPack.sshj.SSHJSessionManager.CommandResult;
 
 import java.io.*;
 import java.nio.file.Paths;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.List;
 import java.util.logging.Logger;
 
 /**
  * Service for handling server-based project operations
- * Handles zipping $NMS_CONFIG on server, downloading, and extracting locally
+ * Handles zipping $NMS_CONFIG on server, downloading, and extracting locally;
+ * streams it as a tar archive straight into the project folder when possible
  */
 public class ServerProjectService {
     private static final Logger logger = LoggerUtil.getLogger();
@@ -79,6 +80,20 @@ public class ServerProjectService {
                 return false;
             }
             
+            // Preferred: stream $NMS_CONFIG as a tar archive straight into the project folder
+            if (StreamingArchiveDownload.isEnabled()) {
+                if (streamProjectFromServer(processMonitor, stepName)) {
+                    processMonitor.markComplete(stepName, "Project downloaded and extracted successfully");
+                    ProcessMonitorManager.getInstance().updateOperationState(sshManager.getSessionId(), false);
+                    return true;
+                }
+                if (!processMonitor.isRunning()) {
+                    processMonitor.logMessage(stepName, "Operation cancelled by user during streaming download");
+                    ProcessMonitorManager.getInstance().updateOperationState(sshManager.getSessionId(), false);
+                    return false;
+                }
+            }
+            
             // Step 1: Connect to server and create zip of $NMS_CONFIG
             processMonitor.logMessage(stepName, "Connecting to server and creating project zip...");
             String remoteZipPath = createProjectZipOnServer(processMonitor, stepName);
@@ -208,6 +223,78 @@ public class ServerProjectService {
         }
     }
     
+    /**
+     * Streams $NMS_CONFIG as a compressed tar archive straight into the local project folder.
+     * No zip is created on the server and nothing is written to a temp file locally.
+     * 
+     * @return true if the project was extracted; false if streaming failed or was cancelled,
+     *         in which case the caller falls back to the zip download
+     */
+    private boolean streamProjectFromServer(ProcessMonitor processMonitor, String stepName) {
+        String projectFolder = project.getProjectFolderPath();
+        if (projectFolder == null || projectFolder.trim().isEmpty()) {
+            return false;
+        }
+        
+        ProgressCallback streamCallback = new ProgressCallback() {
+            @Override
+            public void onProgress(int percentage, String message) {
+                processMonitor.updateState(stepName, percentage);
+                processMonitor.logMessage(stepName, message);
+            }
+            
+            @Override
+            public void onComplete(String message) {
+                // Completion is reported by the caller
+            }
+            
+            @Override
+            public void onError(String error) {
+                processMonitor.logMessage(stepName, "Error: " + error);
+            }
+            
+            @Override
+            public boolean isCancelled() {
+                return !processMonitor.isRunning();
+            }
+            
+            @Override
+            public boolean isPaused() {
+                return processMonitor.isPaused();
+            }
+            
+            @Override
+            public void onTransferStarted() {
+                processMonitor.transferStarted();
+            }
+            
+            @Override
+            public void onTransferEnded() {
+                processMonitor.transferEnded();
+            }
+        };
+        
+        try {
+            processMonitor.updateState(stepName, 10);
+            processMonitor.logMessage(stepName, "Initializing SSH connection...");
+            sshManager.initialize();
+            processMonitor.logMessage(stepName, "✓ SSH connection ready");
+            
+            StreamingArchiveDownload.Result result = StreamingArchiveDownload.download(sshManager, "\"$NMS_CONFIG\"",
+                List.of(), new File(projectFolder), 0, RemoteArchiver.Compression.of(project.getArchiveCompression()),
+                1800, streamCallback, 10, 90);
+            processMonitor.logMessage(stepName, "✓ Project streamed to " + projectFolder + ": " + result);
+            return true;
+            
+        } catch (Exception e) {
+            if (processMonitor.isRunning()) {
+                logger.warning("Streaming project download failed, falling back to zip download: " + e.getMessage());
+                processMonitor.logMessage(stepName, "Streaming download unavailable (" + e.getMessage() + "), using zip download");
+            }
+            return false;
+        }
+    }
+    
     /**
      * Creates a zip file of $NMS_CONFIG on the server
      */
@@ -247,10 +334,9 @@ public class ServerProjectService {
             project.addServerZipFile(zipPath, "Project download - " + (sshManager.getPurpose() != null ? sshManager.getPurpose() : "default"));
             logger.info("✓ Tracked project zip file in entity: " + zipPath);
             
-            String zipCommand = String.format(
-                "cd $NMS_CONFIG && zip -rv %s . 2>&1 && chmod 644 %s && echo 'ZIP_COMPLETED_SUCCESSFULLY'",
-                zipPath, zipPath
-            );
+            // Quiet zip at the project's compression level; progress comes from the archive size
+            RemoteArchiver.Plan plan = RemoteArchiver.plan(sshManager, RemoteArchiver.Compression.of(project.getArchiveCompression()));
+            String zipCommand = plan.zipCommand("\"$NMS_CONFIG\"", zipPath, null);
             
             // Check for cancellation before executing zip command
             if (!processMonitor.isRunning()) {
@@ -259,36 +345,25 @@ public class ServerProjectService {
             }
             
             // Use SSHSessionManager to execute the command with progress callback for real-time updates
-            processMonitor.logMessage(stepName, "Creating project zip on server...");
+            processMonitor.logMessage(stepName, "Creating project zip on server (zip -" + plan.getCompression().getLevel() + ")...");
             processMonitor.logMessage(stepName, "Executing command: " + zipCommand);
             
-            // Create a progress callback that logs zip progress with throttling to prevent UI lag
-            ProgressCallback zipProgressCallback = new ProgressCallback() {
-                private int fileCount = 0;
-                private int lastProgressUpdate = 10;
-                private long lastUpdateTime = System.currentTimeMillis();
-                
+            // The command reports the archive size every two seconds
+            final long[] archiveBytes = {0};
+            LineConsumer zipLineConsumer = RemoteArchiver.sizeLines(bytes -> {
+                if (!processMonitor.isRunning()) {
+                    return;
+                }
+                archiveBytes[0] = bytes;
+                int progress = Math.min(10 + (int) (bytes / (20L * 1024 * 1024)), 20);
+                processMonitor.updateState(stepName, progress, "Zipping files... (" + TransferProgress.formatSize(bytes) + " written)");
+            });
+            
+            // Cancellation-only callback; progress is reported from the streamed lines
+            ProgressCallback zipCancellationCallback = new ProgressCallback() {
                 @Override
                 public void onProgress(int percentage, String message) {
-                    // Check for cancellation
-                    if (!processMonitor.isRunning()) {
-                        return;
-                    }
-                    
-                    // Count files being added
-                    if (message != null && message.contains("adding:")) {
-                        fileCount++;
-                        
-                        // Update every 10 files OR every 2 seconds (whichever comes first) to prevent UI lag
-                        long currentTime = System.currentTimeMillis();
-                        if (fileCount % 10 == 0 || (currentTime - lastUpdateTime) >= 2000) {
-                            int progress = Math.min(10 + (fileCount / 2), 80);
-                            processMonitor.updateState(stepName, progress);
-                            processMonitor.logMessage(stepName, "Zipping files... (" + fileCount + " files processed)");
-                            lastProgressUpdate = progress;
-                            lastUpdateTime = currentTime;
-                        }
-                    }
+                    // Progress is reported from the streamed lines instead
                 }
                 
                 @Override
@@ -311,7 +386,8 @@ public class ServerProjectService {
                 }
             };
             
-            CommandResult result = sshManager.executeCommand(zipCommand, 600, zipProgressCallback); // 10 minutes timeout for zip commands
+            CommandResult result = sshManager.executeCommandStreaming(zipCommand, 600, zipLineConsumer, zipCancellationCallback); // 10 minutes timeout for zip commands
+            processMonitor.logMessage(stepName, "Zip finished (" + TransferProgress.formatSize(archiveBytes[0]) + ")");
             
             // Check for cancellation after zip command execution
             if (!processMonitor.isRunning()) {
@@ -392,122 +468,21 @@ public class ServerProjectService {
             long fileSize = attrs.getSize();
             processMonitor.logMessage(stepName, "Remote project zip file size: " + fileSize + " bytes (" + (fileSize / 1024 / 1024) + " MB)");
             
-            // Create progress tracking variables
-            final long[] bytesDownloaded = {0};
-            final long[] startTime = {System.currentTimeMillis()};
-            final long[] lastUpdateTime = {System.currentTimeMillis()};
-            
-            // Start a background thread to monitor download progress BEFORE starting download
+            // Byte counts come straight from the downloader; throughput, ETA and stalls from TransferProgress
             processMonitor.logMessage(stepName, "Starting SFTP download to: " + localZipPath);
-            processMonitor.logMessage(stepName, "Starting download progress monitoring...");
-            
-            // Start progress monitoring thread BEFORE download
-            Thread progressMonitor = new Thread(() -> {
-                try {
-                    while (true) {
-                        // Check for cancellation
-                        if (!processMonitor.isRunning()) {
-                            logger.info("Download progress monitoring cancelled");
-                            return;
-                        }
-                        
-                        // Check if file exists and get its current size
-                        File localFile = new File(localZipPath);
-                        if (localFile.exists()) {
-                            long currentSize = localFile.length();
-                            
-                            // Update progress every 2 seconds for real-time updates
-                            long currentTime = System.currentTimeMillis();
-                            if (currentTime - lastUpdateTime[0] >= 2000 || currentSize >= fileSize) {
-                                logger.info("Download progress update: " + currentSize + " / " + fileSize + " bytes");
-                                
-                                // Calculate progress percentage
-                                int progressPercent = (int) ((currentSize * 100) / fileSize);
-                                
-                                // Calculate download speed
-                                double speedBps = currentSize / ((currentTime - startTime[0]) / 1000.0);
-                                String speedText = formatSpeed(speedBps);
-                                
-                                // Calculate ETA
-                                long remainingBytes = fileSize - currentSize;
-                                long estimatedTimeRemaining = 0;
-                                if (speedBps > 0) {
-                                    estimatedTimeRemaining = (long) (remainingBytes / speedBps);
-                                }
-                                String timeRemainingText = formatTime(estimatedTimeRemaining);
-                                
-                                // Format sizes
-                                String downloadedText = formatSize(currentSize);
-                                String totalText = formatSize(fileSize);
-                                
-                                // Create detailed progress message
-                                String progressMessage = String.format("Downloading: %s / %s (%.1f%%) - Speed: %s - ETA: %s", 
-                                    downloadedText, totalText, (currentSize * 100.0 / fileSize), speedText, timeRemainingText);
-                                
-                                // Log to console for debugging
-                                logger.info("Download progress: " + progressMessage);
-                                
-                                // Calculate progress percentage for UI (30-50% range)
-                                int uiProgress = 30 + (int)(progressPercent * 0.2);
-                                
-                                // Send SINGLE progress update to prevent UI lag (removed duplicate calls)
-                                processMonitor.updateState(stepName, uiProgress);
-                                processMonitor.logMessage(stepName, progressMessage);
-                                
-                                lastUpdateTime[0] = currentTime;
-                                
-                                // If download is complete, break
-                                if (currentSize >= fileSize) {
-                                    logger.info("Download completed, stopping progress monitoring");
-                                    processMonitor.logMessage(stepName, "Download completed successfully");
-                                    break;
-                                }
-                            }
-                        } else {
-                            // File doesn't exist yet, show initial progress every 2 seconds
-                            long currentTime = System.currentTimeMillis();
-                            if (currentTime - lastUpdateTime[0] >= 2000) {
-                                String message = "Download starting... (0 / " + formatSize(fileSize) + ")";
-                                logger.info(message);
-                                processMonitor.logMessage(stepName, message);
-                                lastUpdateTime[0] = currentTime;
-                            }
-                        }
-                        
-                        // Sleep for 500ms for more frequent updates
-                        Thread.sleep(500);
-                    }
-                } catch (InterruptedException e) {
-                    // Thread interrupted, stop monitoring
-                    logger.info("Download progress monitoring interrupted");
-                    Thread.currentThread().interrupt();
-                }
-            });
-            
-            // Start the progress monitoring thread
-            progressMonitor.start();
-            
-            // Now start the actual SFTP download
-            logger.info("Starting actual SFTP download...");
-            processMonitor.logMessage(stepName, "Downloading file from server...");
-            
-            try {
-                sftpClient.get(remoteZipPath, localZipPath);
+            try (TransferProgress transfer = new TransferProgress("Downloading", fileSize,
+                    TransferProgress.toMonitor(processMonitor, stepName, 30, 50))
+                    .recordMetrics(sshManager.getHost(), sshManager.getPurpose())
+                    .schedule(sshManager.getHost(), TransferScheduler.Priority.FOREGROUND, new ProcessMonitorAdapter(processMonitor, stepName))
+                    .start()) {
+                SegmentedSftpDownloader.download(sshManager, remoteZipPath, new File(localZipPath),
+                    () -> !processMonitor.isRunning(), transfer::update);
                 logger.info("SFTP download completed");
             } catch (Exception e) {
                 logger.severe("SFTP download failed: " + e.getMessage());
                 throw new RuntimeException("SFTP download failed: " + e.getMessage(), e);
             }
             
-            // Wait for progress monitoring to complete
-            try {
-                progressMonitor.join();
-                logger.info("Download progress monitoring completed");
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Download monitoring interrupted");
-            }
-            
             sftpClient.close();
             
             // Check for cancellation after download
@@ -563,65 +538,29 @@ public class ServerProjectService {
                 processMonitor.logMessage(stepName, "Project directory created successfully");
             }
             
-            // Extract zip file
+            // Extract zip file, several entries at a time
             processMonitor.logMessage(stepName, "Starting extraction of zip file...");
-            try (ZipInputStream zipIn = new ZipInputStream(new FileInputStream(localZipPath))) {
-                ZipEntry entry = zipIn.getNextEntry();
-                int fileCount = 0;
-                int totalFiles = 0;
-                long lastUpdateTime = System.currentTimeMillis();
-                
-                // First pass: count total files for progress tracking
-                try (ZipInputStream countIn = new ZipInputStream(new FileInputStream(localZipPath))) {
-                    while (countIn.getNextEntry() != null) {
-                        totalFiles++;
-                    }
-                }
-                
-                processMonitor.logMessage(stepName, "Extracting " + totalFiles + " files...");
-                
-                while (entry != null) {
-                    // Check for cancellation during extraction loop
-                    if (!processMonitor.isRunning()) {
-                        processMonitor.logMessage(stepName, "Operation cancelled by user during extraction");
-                        return false;
-                    }
-                    
-                    fileCount++;
-                    String filePath = projectFolder + File.separator + entry.getName();
-                    
-                    // Update progress every 2 seconds (similar to java folder extraction)
-                    long currentTime = System.currentTimeMillis();
-                    if (currentTime - lastUpdateTime >= 2000 || fileCount == totalFiles) {
-                        int progress = 60 + (int)((fileCount * 20.0) / totalFiles);
-                        processMonitor.updateState(stepName, progress);
-                        processMonitor.logMessage(stepName, "Extracting files... (" + fileCount + " files processed)");
-                        lastUpdateTime = currentTime;
-                    }
-                    
-                    if (!entry.isDirectory()) {
-                        // Create parent directories if they don't exist
-                        File parentDir = new File(filePath).getParentFile();
-                        if (parentDir != null && !parentDir.exists()) {
-                            parentDir.mkdirs();
-                        }
-                        
-                        // Extract file
-                        try (FileOutputStream fos = new FileOutputStream(filePath)) {
-                            byte[] buffer = new byte[4096];
-                            int len;
-                            while ((len = zipIn.read(buffer)) > 0) {
-                                fos.write(buffer, 0, len);
-                            }
+            long[] lastUpdateTime = {System.currentTimeMillis()};
+            int fileCount;
+            try {
+                fileCount = ParallelZipExtractor.extract(new File(localZipPath), projectDir, () -> !processMonitor.isRunning(),
+                    (files, totalFiles, bytes) -> {
+                        // Update progress every 2 seconds (similar to java folder extraction)
+                        long currentTime = System.currentTimeMillis();
+                        if (currentTime - lastUpdateTime[0] >= 2000) {
+                            processMonitor.updateState(stepName, 60 + (int) ((files * 20.0) / Math.max(1, totalFiles)));
+                            processMonitor.logMessage(stepName, "Extracting files... (" + files + " of " + totalFiles + " files processed)");
+                            lastUpdateTime[0] = currentTime;
                         }
-                    } else {
-                        // Create directory
-                        new File(filePath).mkdirs();
-                    }
-                    
-                    entry = zipIn.getNextEntry();
+                    });
+            } catch (IOException e) {
+                if (!processMonitor.isRunning()) {
+                    processMonitor.logMessage(stepName, "Operation cancelled by user during extraction");
+                    return false;
                 }
+                throw e;
             }
+            processMonitor.logMessage(stepName, "Extracted " + fileCount + " files");
             
             processMonitor.updateState(stepName, 80);
             logger.info("Successfully extracted project to: " + projectFolder);
@@ -778,33 +717,4 @@ public class ServerProjectService {
             return false;
         }
     }
-    
-    /**
-     * Format bytes to human readable format
-     */
-    private String formatSize(long bytes) {
-        if (bytes < 1024) return bytes + " B";
-        if (bytes < 1024 * 1024) return String.format("%.1f KB", bytes / 1024.0);
-        if (bytes < 1024 * 1024 * 1024) return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
-        return String.format("%.1f GB", bytes / (1024.0 * 1024.0 * 1024.0));
-    }
-    
-    /**
-     * Format bytes per second to human readable format
-     */
-    private String formatSpeed(double bytesPerSecond) {
-        if (bytesPerSecond < 1024) return String.format("%.1f B/s", bytesPerSecond);
-        if (bytesPerSecond < 1024 * 1024) return String.format("%.1f KB/s", bytesPerSecond / 1024.0);
-        if (bytesPerSecond < 1024 * 1024 * 1024) return String.format("%.1f MB/s", bytesPerSecond / (1024.0 * 1024.0));
-        return String.format("%.1f GB/s", bytesPerSecond / (1024.0 * 1024.0 * 1024.0));
-    }
-    
-    /**
-     * Format time in seconds to human readable format
-     */
-    private String formatTime(long seconds) {
-        if (seconds < 60) return seconds + "s";
-        if (seconds < 3600) return String.format("%dm %ds", seconds / 60, seconds % 60);
-        return String.format("%dh %dm %ds", seconds / 3600, (seconds % 3600) / 60, seconds % 60);
-    }
 }
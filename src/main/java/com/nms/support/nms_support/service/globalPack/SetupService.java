@@ -211,6 +211,8 @@ public class SetupService {
             // Validate server environment variables for server-based operations
             ValidationResult serverEnvValidationRes = validateServerEnvironmentVariables(setupMode);
             if (serverEnvValidationRes != ValidationResult.SUCCESS) {
+                // The server is likely to be fixed before the next attempt, so probe it afresh
+                SSHJSessionManager.invalidateQueryCache(project.getHost());
                 processMonitor.markFailed("server_env_validation", serverEnvValidationRes.toString());
                 return;
             }
@@ -378,7 +380,7 @@ public class SetupService {
                     ProgressCallback callback = new ProcessMonitorAdapter(processMonitor, "resource_loading");
                     String dir_temp = project.getExePath();
                     String serverURL = adjustUrl(project.getNmsAppURL()); // Using SVN repo as server URL
-                    FileFetcher.loadResources(dir_temp, serverURL, callback);
+                    FileFetcher.loadResources(dir_temp, serverURL, project.getName(), callback);
                 } catch (Exception e) {
                     e.printStackTrace();
                     processMonitor.markFailed("resource_loading", "Resource loading failed: " + e.getMessage());
@@ -487,7 +489,7 @@ public class SetupService {
                     ProgressCallback callback = new ProcessMonitorAdapter(processMonitor, "resource_loading");
                     String dir_temp = project.getExePath();
                     String serverURL = adjustUrl(project.getNmsAppURL());
-                    FileFetcher.loadResources(dir_temp, serverURL, callback);
+                    FileFetcher.loadResources(dir_temp, serverURL, project.getName(), callback);
                 } catch (Exception e) {
                     processMonitor.markFailed("resource_loading", "Resource loading failed: " + e.getMessage());
                     return;
@@ -583,7 +585,7 @@ public class SetupService {
                     ProgressCallback callback = new ProcessMonitorAdapter(processMonitor, "resource_loading");
                     String dir_temp = project.getExePath();
                     String serverURL = adjustUrl(project.getNmsAppURL()); // Using SVN repo as server URL
-                    FileFetcher.loadResources(dir_temp, serverURL, callback);
+                    FileFetcher.loadResources(dir_temp, serverURL, project.getName(), callback);
                 } catch (Exception e) {
                     processMonitor.markFailed("resource_loading", "Resource loading failed: " + e.getMessage());
                     return;
@@ -730,6 +732,8 @@ public class SetupService {
         } catch (Exception e) {
             logger.severe("Setup failed: " + e.getMessage());
         } finally {
+            // Setup changes the server (archives, build files), so later probes must not see stale answers
+            SSHJSessionManager.invalidateQueryCache(project.getHost());
             // CRITICAL: Always save project data, even on cancellation or failure
             // This ensures zip file tracking is persisted
             try {
@@ -767,6 +771,13 @@ public class SetupService {
             }
             
             processMonitor.updateState("product_cleanup", 25);
+
+            // Rename into the trash and delete in the background; whatever could not be moved is deleted below
+            if (TrashManager.emptyDirectory(dir, null)) {
+                processMonitor.updateState("product_cleanup", 100);
+                logger.info("Product directory moved to trash: " + directoryPath);
+                return true;
+            }
             
             // Walk through the directory tree and delete all files and directories
             Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
@@ -1512,7 +1523,8 @@ public class SetupService {
 
 
     /**
-     * Validates $NMS_HOME environment variable and directory on server
+     * Validates $NMS_HOME environment variable and directory on server.
+     * All probes are sent as one batch, so the check costs a single round trip.
      */
     private ValidationResult validateNmsHomeOnServer() {
         try {
@@ -1522,12 +1534,18 @@ public class SetupService {
                 return ValidationResult.CANCELLED;
             }
             
-            processMonitor.logMessage("server_env_validation", "Checking NMS_HOME environment variable...");
+            processMonitor.logMessage("server_env_validation", "Checking NMS_HOME environment variable, directory and permissions...");
             
-            // Check if NMS_HOME environment variable is set
-            SSHJSessionManager.CommandResult envResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "echo \"NMS_HOME: $NMS_HOME\"", 30, sshSessionPurpose);
+            List<SSHJSessionManager.CommandResult> results = UnifiedSSHService.executeBatchWithPersistentSession(project, List.of(
+                "echo \"NMS_HOME: $NMS_HOME\"",
+                "test -d $NMS_HOME && echo 'EXISTS' || echo 'NOT_FOUND'",
+                "ls -ld $NMS_HOME"
+            ), 30, sshSessionPurpose);
+            SSHJSessionManager.CommandResult envResult = results.get(0);
+            SSHJSessionManager.CommandResult dirResult = results.get(1);
+            SSHJSessionManager.CommandResult lsResult = results.get(2);
             
+            // Check if NMS_HOME environment variable is set
             if (!envResult.isSuccess()) {
                 processMonitor.logMessage("server_env_validation", "Failed to check NMS_HOME environment variable");
                 closeSSHSession(); // Close session on validation failure
@@ -1554,17 +1572,7 @@ public class SetupService {
             
             processMonitor.logMessage("server_env_validation", "NMS_HOME resolved to: " + nmsHomePath);
             
-            // Check if process was cancelled
-            if (!processMonitor.isRunning()) {
-                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
-                return ValidationResult.CANCELLED;
-            }
-            
             // Check if NMS_HOME directory exists and is accessible
-            processMonitor.logMessage("server_env_validation", "Verifying NMS_HOME directory exists...");
-            SSHJSessionManager.CommandResult dirResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "test -d $NMS_HOME && echo 'EXISTS' || echo 'NOT_FOUND'", 30, sshSessionPurpose);
-            
             if (!dirResult.isSuccess() || !"EXISTS".equals(dirResult.getOutput().trim())) {
                 processMonitor.logMessage("server_env_validation", "NMS_HOME directory not found or not accessible");
                 closeSSHSession(); // Close session on validation failure
@@ -1578,11 +1586,7 @@ public class SetupService {
                 return ValidationResult.CANCELLED;
             }
             
-            // Check directory permissions and contents
-            processMonitor.logMessage("server_env_validation", "Checking NMS_HOME directory permissions...");
-            SSHJSessionManager.CommandResult lsResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "ls -ld $NMS_HOME", 30, sshSessionPurpose);
-            
+            // Directory permissions and contents
             if (lsResult.isSuccess()) {
                 processMonitor.logMessage("server_env_validation", "Directory permissions: " + lsResult.getOutput().trim());
             }
@@ -1597,7 +1601,8 @@ public class SetupService {
     }
 
     /**
-     * Validates server paths used in zipping and download operations
+     * Validates server paths used in zipping and download operations.
+     * All probes are sent as one batch, so the check costs a single round trip.
      */
     private ValidationResult validateServerPaths() {
         try {
@@ -1609,29 +1614,28 @@ public class SetupService {
                 return ValidationResult.CANCELLED;
             }
             
-            // Check if /tmp directory exists and is writable (used for zip files)
-            processMonitor.logMessage("server_env_validation", "Checking /tmp directory...");
-            SSHJSessionManager.CommandResult tmpResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "test -d /tmp && test -w /tmp && echo 'WRITABLE' || echo 'NOT_WRITABLE'", 30, sshSessionPurpose);
+            processMonitor.logMessage("server_env_validation", "Checking /tmp directory, free space, write access and required commands...");
+            List<SSHJSessionManager.CommandResult> results = UnifiedSSHService.executeBatchWithPersistentSession(project, List.of(
+                "test -d /tmp && test -w /tmp && echo 'WRITABLE' || echo 'NOT_WRITABLE'",
+                "df /tmp | tail -1 | awk '{print $4}'",
+                "touch /tmp/nms_validation_test_$$ && rm -f /tmp/nms_validation_test_$$ && echo 'WRITE_OK' || echo 'WRITE_FAILED'",
+                "which zip",
+                "which chmod"
+            ), 30, sshSessionPurpose);
+            SSHJSessionManager.CommandResult tmpResult = results.get(0);
+            SSHJSessionManager.CommandResult spaceResult = results.get(1);
+            SSHJSessionManager.CommandResult testWriteResult = results.get(2);
+            SSHJSessionManager.CommandResult zipResult = results.get(3);
+            SSHJSessionManager.CommandResult chmodResult = results.get(4);
             
+            // Check if /tmp directory exists and is writable (used for zip files)
             if (!tmpResult.isSuccess() || !"WRITABLE".equals(tmpResult.getOutput().trim())) {
                 processMonitor.logMessage("server_env_validation", "/tmp directory is not accessible or not writable");
                 closeSSHSession(); // Close session on validation failure
                 return ValidationResult.SERVER_PATH_VALIDATION_FAILED;
             }
             
-            // Check if process was cancelled
-            if (!processMonitor.isRunning()) {
-                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
-                closeSSHSession(); // Close session on cancellation
-                return ValidationResult.CANCELLED;
-            }
-            
             // Check available space in /tmp (at least 100MB free)
-            processMonitor.logMessage("server_env_validation", "Checking available space in /tmp...");
-            SSHJSessionManager.CommandResult spaceResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "df /tmp | tail -1 | awk '{print $4}'", 30, sshSessionPurpose);
-            
             if (spaceResult.isSuccess()) {
                 try {
                     long freeKB = Long.parseLong(spaceResult.getOutput().trim());
@@ -1647,59 +1651,33 @@ public class SetupService {
                 }
             }
             
-            // Check if process was cancelled
-            if (!processMonitor.isRunning()) {
-                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
-                return ValidationResult.CANCELLED;
-            }
-            
             // Test creating a temporary file in /tmp
-            processMonitor.logMessage("server_env_validation", "Testing write access to /tmp...");
-            SSHJSessionManager.CommandResult testWriteResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, 
-                    "touch /tmp/nms_validation_test_$$ && rm -f /tmp/nms_validation_test_$$ && echo 'WRITE_OK' || echo 'WRITE_FAILED'", 
-                    30, "server_env_validation");
-            
             if (!testWriteResult.isSuccess() || !"WRITE_OK".equals(testWriteResult.getOutput().trim())) {
                 processMonitor.logMessage("server_env_validation", "Write test failed in /tmp directory");
                 return ValidationResult.SERVER_PATH_VALIDATION_FAILED;
             }
             
-            // Check if process was cancelled
-            if (!processMonitor.isRunning()) {
-                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
-                return ValidationResult.CANCELLED;
-            }
-            
             // Check if zip command is available
-            processMonitor.logMessage("server_env_validation", "Checking if zip command is available...");
-            SSHJSessionManager.CommandResult zipResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "which zip", 30, sshSessionPurpose);
-            
             if (!zipResult.isSuccess() || zipResult.getOutput().trim().isEmpty()) {
                 processMonitor.logMessage("server_env_validation", "zip command not found on server");
                 closeSSHSession(); // Close session on validation failure
                 return ValidationResult.SERVER_PATH_VALIDATION_FAILED;
             }
             
-            // Check if process was cancelled
-            if (!processMonitor.isRunning()) {
-                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
-                closeSSHSession(); // Close session on cancellation
-                return ValidationResult.CANCELLED;
-            }
-            
             // Check if chmod command is available
-            processMonitor.logMessage("server_env_validation", "Checking if chmod command is available...");
-            SSHJSessionManager.CommandResult chmodResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "which chmod", 30, sshSessionPurpose);
-            
             if (!chmodResult.isSuccess() || chmodResult.getOutput().trim().isEmpty()) {
                 processMonitor.logMessage("server_env_validation", "chmod command not found on server");
                 closeSSHSession(); // Close session on validation failure
                 return ValidationResult.SERVER_PATH_VALIDATION_FAILED;
             }
             
+            // Check if process was cancelled
+            if (!processMonitor.isRunning()) {
+                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
+                closeSSHSession(); // Close session on cancellation
+                return ValidationResult.CANCELLED;
+            }
+            
             processMonitor.logMessage("server_env_validation", "All server paths validated successfully");
             return ValidationResult.SUCCESS;
             
@@ -1710,7 +1688,8 @@ public class SetupService {
     }
 
     /**
-     * Validates $NMS_HOME/java path for product operations
+     * Validates $NMS_HOME/java path for product operations.
+     * All probes are sent as one batch, so the check costs a single round trip.
      */
     private ValidationResult validateNmsHomeJavaPath() {
         try {
@@ -1722,10 +1701,20 @@ public class SetupService {
             
             processMonitor.logMessage("server_env_validation", "Validating NMS_HOME/java path...");
             
-            // First check if NMS_HOME is set (this should already be validated, but double-check)
-            SSHJSessionManager.CommandResult envCheckResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "echo \"NMS_HOME: $NMS_HOME\"", 30, sshSessionPurpose);
+            List<SSHJSessionManager.CommandResult> results = UnifiedSSHService.executeBatchWithPersistentSession(project, List.of(
+                "echo \"NMS_HOME: $NMS_HOME\"",
+                "test -d $NMS_HOME/java && echo 'EXISTS' || echo 'NOT_FOUND'",
+                "ls -ld $NMS_HOME/java",
+                "test -r $NMS_HOME/java && echo 'READABLE' || echo 'NOT_READABLE'",
+                "find $NMS_HOME/java -maxdepth 1 -type f -name '*.jar' | wc -l"
+            ), 30, sshSessionPurpose);
+            SSHJSessionManager.CommandResult envCheckResult = results.get(0);
+            SSHJSessionManager.CommandResult dirResult = results.get(1);
+            SSHJSessionManager.CommandResult lsResult = results.get(2);
+            SSHJSessionManager.CommandResult readResult = results.get(3);
+            SSHJSessionManager.CommandResult contentsResult = results.get(4);
             
+            // First check if NMS_HOME is set (this should already be validated, but double-check)
             if (envCheckResult.isSuccess()) {
                 String envOutput = envCheckResult.getOutput().trim();
                 if (envOutput.equals("NMS_HOME:") || envOutput.equals("NMS_HOME: $NMS_HOME")) {
@@ -1735,69 +1724,26 @@ public class SetupService {
                 }
             }
             
-            // Check if process was cancelled
-            if (!processMonitor.isRunning()) {
-                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
-                closeSSHSession(); // Close session on cancellation
-                return ValidationResult.CANCELLED;
-            }
-            
             // Check if NMS_HOME/java directory exists and is accessible
-            processMonitor.logMessage("server_env_validation", "Verifying NMS_HOME/java directory exists...");
-            SSHJSessionManager.CommandResult dirResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "test -d $NMS_HOME/java && echo 'EXISTS' || echo 'NOT_FOUND'", 30, sshSessionPurpose);
-            
             if (!dirResult.isSuccess() || !"EXISTS".equals(dirResult.getOutput().trim())) {
                 processMonitor.logMessage("server_env_validation", "NMS_HOME/java directory not found or not accessible");
                 closeSSHSession(); // Close session on validation failure
                 return ValidationResult.PRODUCT_PATH_VALIDATION_FAILED;
             }
             
-            // Check if process was cancelled
-            if (!processMonitor.isRunning()) {
-                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
-                closeSSHSession(); // Close session on cancellation
-                return ValidationResult.CANCELLED;
-            }
-            
-            // Check directory permissions and contents
-            processMonitor.logMessage("server_env_validation", "Checking NMS_HOME/java directory permissions...");
-            SSHJSessionManager.CommandResult lsResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "ls -ld $NMS_HOME/java", 30, sshSessionPurpose);
-            
+            // Directory permissions and contents
             if (lsResult.isSuccess()) {
                 processMonitor.logMessage("server_env_validation", "Directory permissions: " + lsResult.getOutput().trim());
             }
             
-            // Check if process was cancelled
-            if (!processMonitor.isRunning()) {
-                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
-                closeSSHSession(); // Close session on cancellation
-                return ValidationResult.CANCELLED;
-            }
-            
             // Check if directory is readable (for product operations)
-            SSHJSessionManager.CommandResult readResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "test -r $NMS_HOME/java && echo 'READABLE' || echo 'NOT_READABLE'", 30, sshSessionPurpose);
-            
             if (!readResult.isSuccess() || !"READABLE".equals(readResult.getOutput().trim())) {
                 processMonitor.logMessage("server_env_validation", "NMS_HOME/java directory is not readable");
                 closeSSHSession(); // Close session on validation failure
                 return ValidationResult.PRODUCT_PATH_VALIDATION_FAILED;
             }
             
-            // Check if process was cancelled
-            if (!processMonitor.isRunning()) {
-                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
-                closeSSHSession(); // Close session on cancellation
-                return ValidationResult.CANCELLED;
-            }
-            
             // Check if directory contains Java files or subdirectories
-            processMonitor.logMessage("server_env_validation", "Checking NMS_HOME/java contents...");
-            SSHJSessionManager.CommandResult contentsResult = 
-                UnifiedSSHService.executeCommandWithPersistentSession(project, "find $NMS_HOME/java -maxdepth 1 -type f -name '*.jar' | wc -l", 30, sshSessionPurpose);
-            
             if (contentsResult.isSuccess()) {
                 try {
                     int jarCount = Integer.parseInt(contentsResult.getOutput().trim());
@@ -1810,6 +1756,13 @@ public class SetupService {
                 }
             }
             
+            // Check if process was cancelled
+            if (!processMonitor.isRunning()) {
+                processMonitor.logMessage("server_env_validation", "Validation cancelled by user");
+                closeSSHSession(); // Close session on cancellation
+                return ValidationResult.CANCELLED;
+            }
+            
             processMonitor.logMessage("server_env_validation", "NMS_HOME/java validated successfully");
             return ValidationResult.SUCCESS;
             
@@ -3118,7 +3071,7 @@ public class SetupService {
                 ProgressCallback callback = new ProcessMonitorAdapter(processMonitor, "resource_loading");
                 String dir_temp = project.getExePath();
                 String serverURL = adjustUrl(project.getNmsAppURL());
-                FileFetcher.loadResources(dir_temp, serverURL, callback);
+                FileFetcher.loadResources(dir_temp, serverURL, project.getName(), callback);
             } catch (Exception e) {
                 processMonitor.markFailed("resource_loading", "Resource loading failed: " + e.getMessage());
                 return false;
@@ -3516,7 +3469,7 @@ public class SetupService {
                 ProgressCallback callback = new ProcessMonitorAdapter(processMonitor, "resource_loading");
                 String dir_temp = project.getExePath();
                 String serverURL = adjustUrl(project.getNmsAppURL());
-                FileFetcher.loadResources(dir_temp, serverURL, callback);
+                FileFetcher.loadResources(dir_temp, serverURL, project.getName(), callback);
             } catch (Exception e) {
                 processMonitor.markFailed("resource_loading", "Resource loading failed: " + e.getMessage());
                 return false;
@@ -3591,6 +3544,12 @@ public class SetupService {
             File javaFolder = new File(productFolder, "java");
             
             processMonitor.logMessage("clean_product_dir", "Cleaning product directory: " + productFolder.getAbsolutePath());
+
+            // Rename everything but the Java folder into the trash; leftovers are deleted below
+            if (TrashManager.emptyDirectory(productFolder.toPath(), path -> path.equals(javaFolder.toPath()))) {
+                processMonitor.logMessage("clean_product_dir", "Moved product files to trash, preserved Java folder");
+                return true;
+            }
             
             // Delete all files and folders except the Java folder
             File[] files = productFolder.listFiles();
@@ -0,0 +1,165 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import com.nms.support.nms_support.service.globalPack.sshj.SSHJSessionManager;
+import com.nms.support.nms_support.service.globalPack.sshj.SSHMetrics;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads a remote directory by piping a compressed tar stream straight into local extraction.
+ *
+ * The classic path zips the directory into /tmp on the server, downloads the zip over SFTP
+ * into a local temp file and only then extracts it: three sequential phases, two temporary
+ * files and three full passes over the data. Here the remote {@code tar -cf -} writes to the
+ * exec channel's stdout and every entry is written to disk as soon as it arrives, so
+ * compression, transfer and extraction overlap and nothing is left behind on either side.
+ * The compressor and its level come from {@link RemoteArchiver}.
+ *
+ * Features:
+ * - No remote or local temporary files, nothing to track or clean up
+ * - Runs as the sudo target user when the session has one
+ * - pigz, gzip or no compression, depending on the server and the project setting
+ * - Progress in extracted bytes (percentage when the expected size is known), files and rate
+ * - Cancellation closes the channel, which also stops the remote tar
+ * - Callers fall back to the zip + SFTP path when streaming fails
+ */
+public final class StreamingArchiveDownload {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static volatile boolean enabled = true;
+
+    private StreamingArchiveDownload() {
+    }
+
+    /**
+     * Enable or disable streaming downloads. When disabled callers use the zip + SFTP path.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Stream a remote directory into a local directory.
+     *
+     * Entries are written over existing files; callers that need a clean copy empty the
+     * destination first. On failure the destination may hold a partial copy.
+     *
+     * @param ssh Initialized session
+     * @param remoteDir Remote directory, as a shell word (e.g. {@code $NMS_CONFIG} or an absolute path)
+     * @param excludes Paths relative to remoteDir to leave out (e.g. {@code ./working})
+     * @param destDir Local destination directory
+     * @param expectedBytes Total size of the files, used for the percentage (0 if unknown)
+     * @param compression Compression setting of the project
+     * @param timeoutSeconds Timeout for the whole transfer
+     * @param progressCallback Progress and cancellation; percentages are mapped to fromPercent..toPercent
+     * @return Transfer statistics
+     * @throws Exception If the remote command, the transfer or the extraction fails, or on cancellation
+     */
+    public static Result download(SSHJSessionManager ssh, String remoteDir, List<String> excludes, File destDir,
+                                  long expectedBytes, RemoteArchiver.Compression compression, int timeoutSeconds,
+                                  ProgressCallback progressCallback, int fromPercent, int toPercent) throws Exception {
+        RemoteArchiver.Plan plan = RemoteArchiver.plan(ssh, compression);
+        String command = plan.streamCommand(remoteDir, excludes);
+
+        long start = System.currentTimeMillis();
+        AtomicLong received = new AtomicLong();
+
+        LoggerUtil.getLogger().info("📦 Streaming " + remoteDir + " into " + destDir.getAbsolutePath()
+            + " (" + plan.describe() + ")");
+        progressCallback.onProgress(fromPercent, "Streaming archive from server (" + plan.describe() + ")...");
+
+        // Progress in extracted bytes, since that is what the expected size describes
+        TarStreamExtractor extractor;
+        SSHJSessionManager.CommandResult result;
+        // Bandwidth is scheduled in bytes on the wire, which is what the caps describe
+        try (TransferProgress transfer = new TransferProgress("Streaming", expectedBytes,
+                TransferProgress.toCallback(progressCallback, fromPercent, toPercent)).start();
+             TransferScheduler.Ticket ticket = TransferScheduler.register("Streaming " + remoteDir, ssh.getHost(),
+                TransferScheduler.Priority.FOREGROUND, progressCallback)) {
+            extractor = new TarStreamExtractor(destDir, progressCallback::isCancelled,
+                (files, bytes) -> transfer.update(bytes));
+            result = ssh.executeCommandToStream(command, timeoutSeconds, stdout -> {
+                InputStream counted = new FilterInputStream(new BufferedInputStream(stdout, BUFFER_SIZE)) {
+                    @Override
+                    public int read(byte[] buffer, int offset, int length) throws IOException {
+                        int n = super.read(buffer, offset, length);
+                        if (n > 0) {
+                            received.addAndGet(n);
+                            ticket.acquire(n);
+                        }
+                        return n;
+                    }
+                };
+                extractor.extract(plan.decode(counted, BUFFER_SIZE));
+            }, progressCallback);
+        }
+
+        // tar exits with 1 when files changed while being read; the archive itself is complete
+        if (result.getExitCode() == 1 && extractor.getFileCount() > 0) {
+            LoggerUtil.getLogger().warning("⚠️ tar reported changes during archiving: " + result.getError());
+        } else if (!result.isSuccess()) {
+            throw new IOException("Remote tar failed with exit code " + result.getExitCode()
+                + (result.getError().isEmpty() ? "" : ": " + result.getError()));
+        }
+
+        Result stats = new Result(extractor.getFileCount(), extractor.getBytesWritten(), received.get(),
+            System.currentTimeMillis() - start);
+        SSHMetrics.recordTransfer(ssh.getHost(), ssh.getPurpose(), stats.getBytesReceived(), stats.getDurationMs());
+        LoggerUtil.getLogger().info("✅ Streamed " + stats);
+        progressCallback.onProgress(toPercent, "Extracted " + stats.getFiles() + " files ("
+            + TransferProgress.formatSize(stats.getBytesExtracted()) + ")");
+        return stats;
+    }
+
+    // ===== INNER CLASS =====
+
+    /**
+     * Statistics of a finished streaming download.
+     */
+    public static final class Result {
+        private final int files;
+        private final long bytesExtracted;
+        private final long bytesReceived;
+        private final long durationMs;
+
+        Result(int files, long bytesExtracted, long bytesReceived, long durationMs) {
+            this.files = files;
+            this.bytesExtracted = bytesExtracted;
+            this.bytesReceived = bytesReceived;
+            this.durationMs = durationMs;
+        }
+
+        public int getFiles() {
+            return files;
+        }
+
+        public long getBytesExtracted() {
+            return bytesExtracted;
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        @Override
+        public String toString() {
+            return files + " files, " + TransferProgress.formatSize(bytesExtracted) + " extracted from "
+                + TransferProgress.formatSize(bytesReceived) + " in " + durationMs + " ms";
+        }
+    }
+}
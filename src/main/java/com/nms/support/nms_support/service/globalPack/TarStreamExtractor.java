@@ -0,0 +1,395 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Extracts a tar stream into a local directory while it is being read.
+ *
+ * Reads the archive strictly sequentially, so it can sit directly on a network stream
+ * (e.g. the stdout of a remote {@code tar -cf -}) without a temporary file on either side.
+ *
+ * Features:
+ * - ustar and GNU headers, GNU long names ('L', 'K') and pax extended headers ('x') with
+ *   path, linkpath, size (files of 8 GiB and more) and mtime records
+ * - Regular files, directories and hard links (extracted as copies of the earlier entry)
+ * - Symbolic links fail the extraction: streams are created with {@code tar -h}, so a link entry
+ *   means content is missing and the caller should fall back to another transfer
+ * - Device and FIFO entries are skipped with a warning
+ * - Entries outside the destination directory are rejected (zip-slip check)
+ * - File modification times are restored
+ * - Cancellation and byte/file progress while extracting
+ */
+public final class TarStreamExtractor {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Report progress at least every this many bytes within a large file
+    private static final long PROGRESS_STEP_BYTES = 4L * 1024 * 1024;
+
+    private final File destDir;
+    private final String destDirPath;
+    private final BooleanSupplier cancelled;
+    private final ProgressListener progressListener;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    private int fileCount;
+    private long bytesWritten;
+    private long lastReportedBytes;
+
+    /**
+     * @param destDir Directory to extract into (created if missing)
+     * @param cancelled Checked between reads; extraction stops with an IOException once it returns true (can be null)
+     * @param progressListener Receives file and byte counts while extracting (can be null)
+     */
+    public TarStreamExtractor(File destDir, BooleanSupplier cancelled, ProgressListener progressListener) throws IOException {
+        if (!destDir.isDirectory() && !destDir.mkdirs()) {
+            throw new IOException("Failed to create directory " + destDir);
+        }
+        this.destDir = destDir;
+        this.destDirPath = destDir.getCanonicalPath();
+        this.cancelled = cancelled;
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Extract every entry of an uncompressed tar stream.
+     *
+     * @param tar Tar stream, positioned at the first header
+     * @throws EOFException If the stream ends before the end-of-archive marker
+     * @throws IOException On read/write errors, unsafe entry names or cancellation
+     */
+    public void extract(InputStream tar) throws IOException {
+        byte[] header = new byte[BLOCK_SIZE];
+        String longName = null;
+        String longLinkName = null;
+        Map<String, String> pax = null;
+
+        while (true) {
+            checkCancelled();
+            readFully(tar, header, BLOCK_SIZE);
+            if (isZeroBlock(header)) {
+                // End of archive; the second zero block and the padding are left to the caller
+                return;
+            }
+
+            char type = (char) header[156];
+            long size = parseNumber(header, 124, 12);
+            long mtime = parseNumber(header, 136, 12);
+            String name = longName != null ? longName : headerName(header);
+            String linkName = longLinkName != null ? longLinkName : field(header, 157, 100);
+            if (pax != null) {
+                // pax records override the header fields they name
+                name = pax.getOrDefault("path", name);
+                linkName = pax.getOrDefault("linkpath", linkName);
+                size = paxNumber(pax, "size", size);
+                mtime = paxNumber(pax, "mtime", mtime);
+            }
+            longName = null;
+            longLinkName = null;
+            pax = null;
+
+            switch (type) {
+                case 'L':
+                    longName = trimNul(new String(readData(tar, size), StandardCharsets.UTF_8));
+                    continue;
+                case 'K':
+                    longLinkName = trimNul(new String(readData(tar, size), StandardCharsets.UTF_8));
+                    continue;
+                case 'x':
+                    pax = paxRecords(readData(tar, size));
+                    continue;
+                case 'g':
+                    skip(tar, padded(size));
+                    continue;
+                default:
+                    break;
+            }
+
+            String relativeName = normalize(name);
+            if (relativeName.isEmpty()) {
+                skip(tar, padded(size));
+                continue;
+            }
+            File target = resolve(relativeName);
+
+            if (type == '5') {
+                if (!target.isDirectory() && !target.mkdirs()) {
+                    throw new IOException("Failed to create directory " + target);
+                }
+                skip(tar, padded(size));
+            } else if (type == '0' || type == '\0' || type == '7') {
+                writeFile(tar, target, size);
+                skip(tar, padded(size) - size);
+                if (mtime > 0 && !target.setLastModified(mtime * 1000L)) {
+                    LoggerUtil.getLogger().fine("Could not set modification time of " + target);
+                }
+                fileCount++;
+                report();
+            } else if (type == '1') {
+                // tar -h still stores further names of a multiply linked file as hard links
+                copyLinked(target, linkName, relativeName);
+                skip(tar, padded(size));
+            } else if (type == '2') {
+                throw new IOException("Archive contains a symbolic link (" + relativeName + " -> " + linkName
+                    + "); its content would be missing");
+            } else {
+                LoggerUtil.getLogger().warning("⚠️ Skipping special tar entry (type '" + type + "'): " + relativeName);
+                skip(tar, padded(size));
+            }
+        }
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    private void writeFile(InputStream tar, File target, long size) throws IOException {
+        File parent = target.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory " + parent);
+        }
+        try (OutputStream out = new FileOutputStream(target)) {
+            long remaining = size;
+            while (remaining > 0) {
+                checkCancelled();
+                int n = tar.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (n < 0) {
+                    throw new EOFException("Archive truncated inside " + target.getName());
+                }
+                out.write(buffer, 0, n);
+                remaining -= n;
+                bytesWritten += n;
+                if (bytesWritten - lastReportedBytes >= PROGRESS_STEP_BYTES) {
+                    report();
+                }
+            }
+        }
+    }
+
+    /**
+     * Extract a hard link entry as a copy of the file it refers to, which the archive contains earlier.
+     */
+    private void copyLinked(File target, String linkName, String relativeName) throws IOException {
+        String linkedName = normalize(linkName);
+        File linked = linkedName.isEmpty() ? null : resolve(linkedName);
+        if (linked == null || !linked.isFile()) {
+            throw new IOException("Hard link " + relativeName + " refers to a file not in the archive: " + linkName);
+        }
+        File parent = target.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Failed to create directory " + parent);
+        }
+        Files.copy(linked.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        bytesWritten += linked.length();
+        fileCount++;
+        report();
+    }
+
+    /**
+     * Resolve an entry name below the destination directory, rejecting names that escape it.
+     */
+    private File resolve(String relativeName) throws IOException {
+        File target = new File(destDir, relativeName);
+        if (!target.getCanonicalPath().startsWith(destDirPath + File.separator)) {
+            throw new IOException("Entry is outside of the target dir: " + relativeName);
+        }
+        return target;
+    }
+
+    private void report() {
+        lastReportedBytes = bytesWritten;
+        if (progressListener != null) {
+            progressListener.onProgress(fileCount, bytesWritten);
+        }
+    }
+
+    private void checkCancelled() throws IOException {
+        if (cancelled != null && cancelled.getAsBoolean()) {
+            throw new IOException("Extraction cancelled by user");
+        }
+    }
+
+    private byte[] readData(InputStream tar, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - BLOCK_SIZE) {
+            throw new IOException("Tar extension header too large: " + size);
+        }
+        byte[] data = new byte[(int) size];
+        readFully(tar, data, data.length);
+        skip(tar, padded(size) - size);
+        return data;
+    }
+
+    private static void readFully(InputStream in, byte[] target, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int n = in.read(target, offset, length - offset);
+            if (n < 0) {
+                throw new EOFException("Archive truncated (missing end-of-archive marker)");
+            }
+            offset += n;
+        }
+    }
+
+    private void skip(InputStream in, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (n < 0) {
+                throw new EOFException("Archive truncated");
+            }
+            remaining -= n;
+        }
+    }
+
+    private static long padded(long size) {
+        return (size + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+    }
+
+    private static boolean isZeroBlock(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Entry name from the header, joining the ustar prefix field when present.
+     */
+    private static String headerName(byte[] header) {
+        String name = field(header, 0, 100);
+        boolean ustar = field(header, 257, 6).startsWith("ustar");
+        String prefix = ustar ? field(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    /**
+     * Strip "./" and leading slashes; "." itself becomes empty.
+     */
+    private static String normalize(String name) {
+        String result = name;
+        while (result.startsWith("./") || result.startsWith("/")) {
+            result = result.substring(result.startsWith("./") ? 2 : 1);
+        }
+        if (result.equals(".")) {
+            return "";
+        }
+        return result.endsWith("/") ? result.substring(0, result.length() - 1) : result;
+    }
+
+    /**
+     * Numeric header field: octal text, or GNU base-256 when the high bit is set.
+     */
+    private static long parseNumber(byte[] header, int offset, int length) {
+        if ((header[offset] & 0x80) != 0) {
+            long value = header[offset] & 0x7F;
+            for (int i = offset + 1; i < offset + length; i++) {
+                value = (value << 8) | (header[i] & 0xFF);
+            }
+            return value;
+        }
+        int i = offset;
+        int end = offset + length;
+        while (i < end && header[i] == ' ') {
+            i++;
+        }
+        long value = 0;
+        for (; i < end && header[i] >= '0' && header[i] <= '7'; i++) {
+            value = value * 8 + (header[i] - '0');
+        }
+        return value;
+    }
+
+    private static String field(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static String trimNul(String value) {
+        int end = value.indexOf('\0');
+        return end >= 0 ? value.substring(0, end) : value;
+    }
+
+    /**
+     * Records of a pax extended header ("LEN key=value\n" each). A malformed header fails the
+     * extraction, since ignoring a size record would lose the position in the stream.
+     */
+    private static Map<String, String> paxRecords(byte[] data) throws IOException {
+        Map<String, String> records = new HashMap<>();
+        int position = 0;
+        while (position < data.length && data[position] != 0) {
+            int space = position;
+            while (space < data.length && data[space] != ' ') {
+                space++;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(new String(data, position, space - position, StandardCharsets.US_ASCII));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed pax extended header", e);
+            }
+            int end = position + length;
+            if (space >= data.length || end > data.length || end <= space + 1 || data[end - 1] != '\n') {
+                throw new IOException("Malformed pax extended header");
+            }
+            String record = new String(data, space + 1, end - space - 2, StandardCharsets.UTF_8);
+            int equals = record.indexOf('=');
+            if (equals <= 0) {
+                throw new IOException("Malformed pax record: " + record);
+            }
+            records.put(record.substring(0, equals), record.substring(equals + 1));
+            position = end;
+        }
+        return records;
+    }
+
+    /**
+     * Numeric pax record (e.g. "size" or "mtime", which may have a fraction), or the header value.
+     */
+    private static long paxNumber(Map<String, String> pax, String key, long headerValue) throws IOException {
+        String value = pax.get(key);
+        if (value == null) {
+            return headerValue;
+        }
+        try {
+            int dot = value.indexOf('.');
+            return Long.parseLong(dot >= 0 ? value.substring(0, dot) : value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed pax " + key + " record: " + value, e);
+        }
+    }
+
+    // ===== INNER INTERFACE =====
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * Called after every extracted file and periodically within large files.
+         *
+         * @param files Files extracted so far
+         * @param bytes File bytes written so far
+         */
+        void onProgress(int files, long bytes);
+    }
+}
@@ -0,0 +1,403 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import com.nms.support.nms_support.service.globalPack.sshj.SSHMetrics;
+import net.schmizz.sshj.common.StreamCopier;
+import net.schmizz.sshj.xfer.TransferListener;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Byte-accurate progress of one transfer, with smoothed throughput, ETA and stall detection.
+ *
+ * Transfer code reports bytes exactly where they are read (a counting stream, an SFTP
+ * progress hook) instead of a monitor thread guessing progress from the size of the local
+ * file. A ticker thread turns the counter into a snapshot once a second and hands it to a
+ * listener; adapters map snapshots to a {@link ProgressCallback} or a {@link ProcessMonitor} step.
+ *
+ * Features:
+ * - Thread-safe counter, fed with increments or absolute values
+ * - Throughput as an exponential moving average, so one slow second does not swing the ETA
+ * - Stall detection: a transfer without new bytes for 15 seconds is reported as stalled
+ * - Total may be unknown (0) or grow while the transfer runs
+ * - SSH transfers feed their throughput into {@link SSHMetrics}
+ * - Scheduled transfers ask the {@link TransferScheduler} for every byte, so they share
+ *   bandwidth caps and can be paused
+ */
+public final class TransferProgress implements AutoCloseable {
+
+    private static final long REPORT_INTERVAL_MS = 1000;
+    private static final long STALL_THRESHOLD_MS = 15_000;
+    // Weight of the newest one-second sample in the moving average
+    private static final double SMOOTHING = 0.3;
+
+    private final String label;
+    private final Listener listener;
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong totalBytes;
+    private final long startTime = System.currentTimeMillis();
+
+    private String metricsHost;
+    private String metricsPurpose;
+    private TransferScheduler.Ticket ticket;
+    // Highest byte count already granted by the scheduler
+    private final AtomicLong scheduled = new AtomicLong();
+    private Thread ticker;
+    private volatile boolean closed;
+
+    // Ticker state, only touched by the ticker thread and close()
+    private long lastSampleBytes;
+    private long lastSampleTime = startTime;
+    private long lastChangeTime = startTime;
+    private double smoothedRate;
+    private boolean stallLogged;
+
+    /**
+     * @param label Short description shown in messages (e.g. "Downloading")
+     * @param totalBytes Expected size in bytes, 0 if unknown
+     * @param listener Receives a snapshot about once a second and once when closed
+     */
+    public TransferProgress(String label, long totalBytes, Listener listener) {
+        this.label = label;
+        this.totalBytes = new AtomicLong(Math.max(0, totalBytes));
+        this.listener = listener;
+    }
+
+    /**
+     * Record the throughput of this transfer in the SSH metrics of a host when it is closed.
+     *
+     * @return this
+     */
+    public TransferProgress recordMetrics(String host, String purpose) {
+        this.metricsHost = host;
+        this.metricsPurpose = purpose;
+        return this;
+    }
+
+    /**
+     * Route this transfer through the {@link TransferScheduler}: bytes reported to it are paced
+     * to the transfer's share of the bandwidth caps, and it waits while paused.
+     *
+     * @param control Supplies pause and cancel requests (e.g. from the process monitor, can be null)
+     * @return this
+     */
+    public TransferProgress schedule(String host, TransferScheduler.Priority priority, ProgressCallback control) {
+        ticket = TransferScheduler.register(label, host, priority, control);
+        return this;
+    }
+
+    /**
+     * Start reporting.
+     *
+     * @return this
+     */
+    public TransferProgress start() {
+        ticker = Thread.ofVirtual().name("transfer-progress").start(() -> {
+            try {
+                while (!closed) {
+                    Thread.sleep(REPORT_INTERVAL_MS);
+                    if (!closed) {
+                        emit(false);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Closed
+            }
+        });
+        return this;
+    }
+
+    /**
+     * Add transferred bytes.
+     */
+    public void add(long count) {
+        if (count != 0) {
+            long present = bytes.addAndGet(count);
+            if (ticket != null && count > 0) {
+                scheduled.accumulateAndGet(present, Math::max);
+                ticket.acquire(count);
+            }
+        }
+    }
+
+    /**
+     * Set the number of bytes transferred so far.
+     */
+    public void update(long present) {
+        bytes.set(present);
+        if (ticket != null) {
+            // Only bytes beyond the highest count so far; updates from parallel readers can arrive out of order
+            long before = scheduled.getAndAccumulate(present, Math::max);
+            if (present > before) {
+                ticket.acquire(present - before);
+            }
+        }
+    }
+
+    /**
+     * Grow the expected total, e.g. when the size of the next file becomes known.
+     */
+    public void addTotal(long count) {
+        totalBytes.addAndGet(Math.max(0, count));
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Wrap a stream so every byte read from it is counted.
+     */
+    public InputStream count(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    add(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    add(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Stop reporting, send the final snapshot and record the throughput metrics.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (ticket != null) {
+            ticket.close();
+        }
+        if (ticker != null) {
+            ticker.interrupt();
+            try {
+                ticker.join(REPORT_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        emit(true);
+        if (metricsHost != null) {
+            SSHMetrics.recordTransfer(metricsHost, metricsPurpose, bytes.get(), System.currentTimeMillis() - startTime);
+        }
+    }
+
+    // ===== ADAPTERS =====
+
+    /**
+     * Listener that maps the transfer onto a range of a progress callback.
+     * Without a known total the percentage stays at fromPercent.
+     */
+    public static Listener toCallback(ProgressCallback progressCallback, int fromPercent, int toPercent) {
+        return snapshot -> progressCallback.onProgress(snapshot.scale(fromPercent, toPercent), snapshot.describe());
+    }
+
+    /**
+     * SFTP transfer listener feeding this transfer, for
+     * {@code sftpClient.getFileTransfer().setTransferListener(...)}. Files transferred one after
+     * another add up; a scheduled transfer is paced from SSHJ's copy loop.
+     */
+    public TransferListener toSftpListener() {
+        return new TransferListener() {
+            @Override
+            public TransferListener directory(String name) {
+                return this;
+            }
+
+            @Override
+            public StreamCopier.Listener file(String name, long size) {
+                long base = bytes.get();
+                return transferred -> update(base + transferred);
+            }
+        };
+    }
+
+    /**
+     * Listener that maps the transfer onto a range of a process monitor step.
+     */
+    public static Listener toMonitor(ProcessMonitor processMonitor, String stepName, int fromPercent, int toPercent) {
+        return snapshot -> processMonitor.updateState(stepName, snapshot.scale(fromPercent, toPercent), snapshot.describe());
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    private synchronized void emit(boolean finished) {
+        long now = System.currentTimeMillis();
+        long current = bytes.get();
+        long elapsed = now - lastSampleTime;
+        if (elapsed > 0) {
+            double sample = (current - lastSampleBytes) * 1000.0 / elapsed;
+            smoothedRate = smoothedRate == 0 ? sample : SMOOTHING * sample + (1 - SMOOTHING) * smoothedRate;
+        }
+        if (current != lastSampleBytes) {
+            lastChangeTime = now;
+            stallLogged = false;
+        }
+        lastSampleBytes = current;
+        lastSampleTime = now;
+
+        long stalledFor = now - lastChangeTime;
+        boolean stalled = !finished && stalledFor >= STALL_THRESHOLD_MS;
+        if (stalled && !stallLogged && (ticket == null || !ticket.isPaused())) {
+            LoggerUtil.getLogger().warning("⚠️ " + label + " stalled: no data for " + stalledFor / 1000 + "s at "
+                + formatSize(current));
+            stallLogged = true;
+        }
+
+        long totalElapsed = now - startTime;
+        double rate = finished && totalElapsed > 0 ? current * 1000.0 / totalElapsed : Math.max(0, smoothedRate);
+        boolean paused = !finished && ticket != null && ticket.isPaused();
+        Snapshot snapshot = new Snapshot(label, current, totalBytes.get(), rate, totalElapsed,
+            stalled && !paused ? stalledFor : 0, paused, finished);
+        try {
+            listener.onUpdate(snapshot);
+        } catch (RuntimeException e) {
+            LoggerUtil.getLogger().warning("Transfer progress listener failed: " + e.getMessage());
+        }
+    }
+
+    static String formatSize(long bytes) {
+        if (bytes < 1024) {
+            return String.format("%d B", bytes);
+        } else if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        } else if (bytes < 1024L * 1024 * 1024) {
+            return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+        } else {
+            return String.format("%.2f GB", bytes / (1024.0 * 1024.0 * 1024.0));
+        }
+    }
+
+    static String formatTime(long seconds) {
+        if (seconds < 60) {
+            return seconds + "s";
+        } else if (seconds < 3600) {
+            return String.format("%dm %ds", seconds / 60, seconds % 60);
+        } else {
+            return String.format("%dh %dm", seconds / 3600, (seconds % 3600) / 60);
+        }
+    }
+
+    // ===== INNER CLASSES =====
+
+    @FunctionalInterface
+    public interface Listener {
+        void onUpdate(Snapshot snapshot);
+    }
+
+    /**
+     * State of a transfer at one point in time.
+     */
+    public static final class Snapshot {
+        private final String label;
+        private final long bytes;
+        private final long totalBytes;
+        private final double bytesPerSecond;
+        private final long elapsedMs;
+        private final long stalledMs;
+        private final boolean paused;
+        private final boolean finished;
+
+        Snapshot(String label, long bytes, long totalBytes, double bytesPerSecond, long elapsedMs,
+                 long stalledMs, boolean paused, boolean finished) {
+            this.label = label;
+            this.bytes = bytes;
+            this.totalBytes = totalBytes;
+            this.bytesPerSecond = bytesPerSecond;
+            this.elapsedMs = elapsedMs;
+            this.stalledMs = stalledMs;
+            this.paused = paused;
+            this.finished = finished;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public double getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public boolean isStalled() {
+            return stalledMs > 0;
+        }
+
+        public boolean isPaused() {
+            return paused;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * Completed fraction in percent, or -1 if the total is unknown.
+         */
+        public double getPercent() {
+            return totalBytes > 0 ? Math.min(100.0, bytes * 100.0 / totalBytes) : -1;
+        }
+
+        /**
+         * Remaining time in seconds, or -1 if it cannot be estimated.
+         */
+        public long getEtaSeconds() {
+            if (totalBytes <= 0 || bytesPerSecond <= 0) {
+                return -1;
+            }
+            return (long) (Math.max(0, totalBytes - bytes) / bytesPerSecond);
+        }
+
+        /**
+         * Map the completed fraction onto a progress range.
+         */
+        public int scale(int fromPercent, int toPercent) {
+            double percent = getPercent();
+            return percent < 0 ? fromPercent : fromPercent + (int) ((toPercent - fromPercent) * percent / 100.0);
+        }
+
+        /**
+         * Message in the format of the existing download progress lines.
+         */
+        public String describe() {
+            StringBuilder text = new StringBuilder(label).append(": ").append(formatSize(bytes));
+            if (totalBytes > 0) {
+                text.append(" / ").append(formatSize(totalBytes)).append(String.format(" (%.1f%%)", getPercent()));
+            }
+            text.append(" - Speed: ").append(formatSize((long) bytesPerSecond)).append("/s");
+            if (finished) {
+                text.append(" - Time: ").append(formatTime(elapsedMs / 1000));
+            } else if (paused) {
+                text.append(" - Paused");
+            } else if (stalledMs > 0) {
+                text.append(" - Stalled for ").append(formatTime(stalledMs / 1000));
+            } else if (getEtaSeconds() >= 0) {
+                text.append(" - ETA: ").append(formatTime(getEtaSeconds()));
+            }
+            return text.toString();
+        }
+    }
+}
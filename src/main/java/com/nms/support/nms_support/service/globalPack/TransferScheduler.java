@@ -0,0 +1,391 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Shares the available bandwidth between all running downloads and uploads.
+ *
+ * Product downloads, project downloads and JNLP refreshes used to run side by side without
+ * knowing of each other, and interactive SSH commands stalled behind them on a slow VPN.
+ * Every transfer now registers a ticket here and asks for its bytes before it reads them;
+ * the scheduler paces each ticket to its share of the configured caps. Leaving headroom
+ * below the link speed keeps interactive sessions responsive.
+ *
+ * Features:
+ * - Priority classes: interactive, foreground and background transfers get bandwidth in the ratio 8:4:1
+ * - Global cap and per-host caps in bytes per second (0 = unlimited, the default)
+ * - Fair sharing: a cap is divided between the transfers that are actually moving data, by weight
+ * - Pause and resume per transfer, also driven by a {@link ProgressCallback} (e.g. the process monitor)
+ * - Idle transfers do not build up credit, so a resumed transfer cannot burst past the cap
+ */
+public final class TransferScheduler {
+
+    // A ticket that did not ask for bytes this long ago no longer takes a share
+    private static final long IDLE_AFTER_MS = 2000;
+    // Longest single sleep, so pause and cancel requests are noticed quickly
+    private static final long MAX_SLEEP_MS = 200;
+    private static final long PAUSE_POLL_MS = 200;
+
+    private static final Map<Long, Ticket> tickets = new ConcurrentHashMap<>();
+    private static final Map<String, Long> hostLimits = new ConcurrentHashMap<>();
+    private static final AtomicLong nextId = new AtomicLong();
+    private static volatile long globalLimit = 0;
+
+    private TransferScheduler() {
+    }
+
+    /**
+     * Priority class of a transfer; the weight is its relative share of a cap.
+     */
+    public enum Priority {
+        /** Small transfers the user is waiting for (delta sync, single files). */
+        INTERACTIVE(8),
+        /** Product and project downloads started by the user. */
+        FOREGROUND(4),
+        /** Refreshes that can take longer without anybody noticing. */
+        BACKGROUND(1);
+
+        private final int weight;
+
+        Priority(int weight) {
+            this.weight = weight;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    // ===== CONFIGURATION =====
+
+    /**
+     * Cap for all transfers together, in bytes per second (0 = unlimited).
+     */
+    public static void setGlobalLimit(long bytesPerSecond) {
+        globalLimit = Math.max(0, bytesPerSecond);
+        LoggerUtil.getLogger().info("📶 Global transfer limit: " + describeLimit(globalLimit));
+    }
+
+    public static long getGlobalLimit() {
+        return globalLimit;
+    }
+
+    /**
+     * Cap for all transfers to or from one host, in bytes per second (0 = unlimited).
+     */
+    public static void setHostLimit(String host, long bytesPerSecond) {
+        if (host == null) {
+            return;
+        }
+        String key = host.toLowerCase(Locale.ROOT);
+        if (bytesPerSecond > 0) {
+            hostLimits.put(key, bytesPerSecond);
+        } else {
+            hostLimits.remove(key);
+        }
+        LoggerUtil.getLogger().info("📶 Transfer limit for " + host + ": " + describeLimit(bytesPerSecond));
+    }
+
+    public static long getHostLimit(String host) {
+        return host == null ? 0 : hostLimits.getOrDefault(host.toLowerCase(Locale.ROOT), 0L);
+    }
+
+    // ===== TICKETS =====
+
+    /**
+     * Register a transfer. Close the ticket when the transfer ends.
+     *
+     * @param name Shown in logs and in {@link #getTickets()}
+     * @param host Remote host, used for the per-host cap (can be null)
+     * @param paused Checked before every request for bytes; the transfer waits while it is true (can be null)
+     * @param cancelled Ends a pause or a wait early, so the caller can notice the cancellation (can be null)
+     */
+    public static Ticket register(String name, String host, Priority priority,
+                                  BooleanSupplier paused, BooleanSupplier cancelled) {
+        return register(name, host, priority, paused, cancelled, null);
+    }
+
+    /**
+     * Register a transfer that pauses and cancels with a progress callback. The callback is told
+     * when the transfer starts and when its ticket is closed, so a monitor can offer pausing only
+     * while there is something to pause.
+     *
+     * @param control Supplies pause and cancel requests (can be null)
+     */
+    public static Ticket register(String name, String host, Priority priority, ProgressCallback control) {
+        if (control == null) {
+            return register(name, host, priority, null, null, null);
+        }
+        Ticket ticket = register(name, host, priority, control::isPaused, control::isCancelled, control);
+        control.onTransferStarted();
+        return ticket;
+    }
+
+    /**
+     * Transfers currently registered.
+     */
+    public static List<Ticket> getTickets() {
+        return new ArrayList<>(tickets.values());
+    }
+
+    /**
+     * Pause every registered transfer.
+     */
+    public static void pauseAll() {
+        tickets.values().forEach(Ticket::pause);
+    }
+
+    /**
+     * Resume every transfer paused with {@link Ticket#pause()}.
+     */
+    public static void resumeAll() {
+        tickets.values().forEach(Ticket::resume);
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    private static Ticket register(String name, String host, Priority priority,
+                                   BooleanSupplier paused, BooleanSupplier cancelled, ProgressCallback owner) {
+        Ticket ticket = new Ticket(nextId.incrementAndGet(), name, host, priority, paused, cancelled, owner);
+        tickets.put(ticket.id, ticket);
+        LoggerUtil.getLogger().fine("Transfer registered: " + ticket);
+        return ticket;
+    }
+
+    /**
+     * Bytes per second a ticket may use right now, or 0 if nothing limits it.
+     * A host cap is split by weight between the busy tickets of that host. The global cap is
+     * split by weight too, but a ticket held below its share by a host cap leaves the rest to
+     * the others (weighted max-min fairness).
+     */
+    private static long allowedRate(Ticket ticket) {
+        long now = System.currentTimeMillis();
+        List<Ticket> busy = new ArrayList<>();
+        for (Ticket other : tickets.values()) {
+            if (other == ticket || other.isBusy(now)) {
+                busy.add(other);
+            }
+        }
+        if (!busy.contains(ticket)) {
+            busy.add(ticket);
+        }
+        Map<Ticket, Long> hostShares = new HashMap<>();
+        for (Ticket t : busy) {
+            hostShares.put(t, hostShare(t, busy));
+        }
+        long hostShare = hostShares.get(ticket);
+        long global = globalLimit;
+        if (global <= 0) {
+            return hostShare == Long.MAX_VALUE ? 0 : Math.max(1, hostShare);
+        }
+
+        long remaining = global;
+        List<Ticket> open = new ArrayList<>(busy);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int weight = totalWeight(open);
+            for (Iterator<Ticket> it = open.iterator(); it.hasNext(); ) {
+                Ticket t = it.next();
+                long share = hostShares.get(t);
+                if (share < remaining * t.priority.weight / weight) {
+                    remaining -= share;
+                    it.remove();
+                    changed = true;
+                }
+            }
+        }
+        if (!open.contains(ticket)) {
+            return Math.max(1, hostShare);
+        }
+        return Math.max(1, Math.min(hostShare, remaining * ticket.priority.weight / totalWeight(open)));
+    }
+
+    private static long hostShare(Ticket ticket, List<Ticket> busy) {
+        long limit = getHostLimit(ticket.host);
+        if (limit <= 0) {
+            return Long.MAX_VALUE;
+        }
+        int weight = 0;
+        for (Ticket other : busy) {
+            if (other == ticket || (ticket.host != null && ticket.host.equalsIgnoreCase(other.host))) {
+                weight += other.priority.weight;
+            }
+        }
+        return limit * ticket.priority.weight / weight;
+    }
+
+    private static int totalWeight(List<Ticket> list) {
+        int weight = 0;
+        for (Ticket t : list) {
+            weight += t.priority.weight;
+        }
+        return weight;
+    }
+
+    private static String describeLimit(long bytesPerSecond) {
+        return bytesPerSecond > 0 ? TransferProgress.formatSize(bytesPerSecond) + "/s" : "unlimited";
+    }
+
+    // ===== INNER CLASSES =====
+
+    /**
+     * One registered transfer.
+     */
+    public static final class Ticket implements AutoCloseable {
+        private final long id;
+        private final String name;
+        private final String host;
+        private final Priority priority;
+        private final BooleanSupplier externalPause;
+        private final BooleanSupplier cancelled;
+        // Told when the ticket is closed (can be null)
+        private final ProgressCallback owner;
+        private final AtomicBoolean paused = new AtomicBoolean();
+        private final AtomicLong bytes = new AtomicLong();
+        private volatile long lastActive;
+        // Earliest time (System.nanoTime) the next bytes may go, guarded by this
+        private long nextSlot;
+
+        private Ticket(long id, String name, String host, Priority priority,
+                       BooleanSupplier externalPause, BooleanSupplier cancelled, ProgressCallback owner) {
+            this.id = id;
+            this.name = name;
+            this.host = host;
+            this.priority = priority != null ? priority : Priority.FOREGROUND;
+            this.externalPause = externalPause;
+            this.cancelled = cancelled;
+            this.owner = owner;
+            this.nextSlot = System.nanoTime();
+        }
+
+        /**
+         * Ask for permission to move bytes. Blocks while the transfer is paused and until the
+         * bytes fit into the transfer's share of the caps. Returns early when cancelled.
+         */
+        public void acquire(long count) {
+            if (count <= 0) {
+                return;
+            }
+            awaitResume();
+            lastActive = System.currentTimeMillis();
+            bytes.addAndGet(count);
+
+            long rate = allowedRate(this);
+            if (rate <= 0) {
+                return;
+            }
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long start = Math.max(now, nextSlot);
+                nextSlot = start + count * 1_000_000_000L / rate;
+                wait = nextSlot - now;
+            }
+            sleep(wait / 1_000_000);
+        }
+
+        public void pause() {
+            if (paused.compareAndSet(false, true)) {
+                LoggerUtil.getLogger().info("⏸️ Transfer paused: " + name);
+            }
+        }
+
+        public void resume() {
+            if (paused.compareAndSet(true, false)) {
+                LoggerUtil.getLogger().info("▶️ Transfer resumed: " + name);
+            }
+        }
+
+        /**
+         * Whether the transfer is paused, by {@link #pause()} or by its pause supplier.
+         */
+        public boolean isPaused() {
+            return paused.get() || (externalPause != null && externalPause.getAsBoolean());
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public Priority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Bytes granted so far.
+         */
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        @Override
+        public void close() {
+            if (tickets.remove(id) != null && owner != null) {
+                owner.onTransferEnded();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name + " [" + priority + (host != null ? ", " + host : "") + "]";
+        }
+
+        private boolean isBusy(long now) {
+            return now - lastActive < IDLE_AFTER_MS && !isPaused();
+        }
+
+        private boolean isCancelled() {
+            return cancelled != null && cancelled.getAsBoolean();
+        }
+
+        private void awaitResume() {
+            boolean waited = false;
+            while (isPaused() && !isCancelled()) {
+                waited = true;
+                if (!sleep(PAUSE_POLL_MS)) {
+                    return;
+                }
+            }
+            if (waited) {
+                // No credit for the paused time
+                synchronized (this) {
+                    nextSlot = Math.max(nextSlot, System.nanoTime());
+                }
+            }
+        }
+
+        /**
+         * Sleep in short steps, stopping early when cancelled or interrupted.
+         *
+         * @return false if interrupted
+         */
+        private boolean sleep(long millis) {
+            long deadline = System.currentTimeMillis() + millis;
+            long remaining = millis;
+            while (remaining > 0 && !isCancelled()) {
+                try {
+                    Thread.sleep(Math.min(remaining, MAX_SLEEP_MS));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                remaining = deadline - System.currentTimeMillis();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.nms.support.nms_support.service.globalPack;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Empties directories instantly by renaming them into a trash directory, and deletes the
+ * trash in the background.
+ *
+ * Setup used to delete the product directory (tens of thousands of files) and the project
+ * checkout file by file before it could continue. A rename within the same volume is a
+ * single metadata operation, so the directory is empty immediately; the actual deletion runs
+ * on low-priority background threads while setup goes on.
+ *
+ * Features:
+ * - Trash is a hidden sibling ".nms_trash" directory, so renames never cross volumes
+ * - Whole directory renamed in one step where possible, otherwise entry by entry
+ *   (e.g. when a process has its working directory inside it); entries that cannot be
+ *   renamed are left for the caller's own deletion
+ * - Background deletion in parallel on low-priority daemon threads, read-only files included
+ * - Trash locations recorded under nms_support_data; unfinished cleanup resumes on next start
+ */
+public final class TrashManager {
+
+    private static final String TRASH_DIR_NAME = ".nms_trash";
+    private static final Path REGISTRY_FILE = Paths.get(System.getProperty("user.home"), "Documents", "nms_support_data", "trash_roots.txt");
+    private static final int DELETE_THREADS = 4;
+
+    private static volatile boolean enabled = true;
+    private static final AtomicInteger sequence = new AtomicInteger();
+    private static final Set<Path> pending = new LinkedHashSet<>();
+    private static ExecutorService deleter;
+
+    private TrashManager() {
+    }
+
+    /**
+     * Enable or disable the trash. When disabled every caller deletes synchronously, as before.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // ===== TRASH =====
+
+    /**
+     * Move everything inside a directory to the trash; the directory itself stays.
+     *
+     * @param dir Directory to empty
+     * @param keep Entries directly inside dir to leave in place (can be null)
+     * @return true if the directory now only holds kept entries; false if some entries could
+     *         not be moved (they are still there) or the trash is disabled
+     */
+    public static boolean emptyDirectory(Path dir, Predicate<Path> keep) {
+        if (!enabled || !Files.isDirectory(dir)) {
+            return false;
+        }
+        Path batch = newBatch(dir);
+        if (batch == null) {
+            return false;
+        }
+
+        // One rename for the whole directory, then recreate it empty (a symbolic link stays a link)
+        if (keep == null && !Files.isSymbolicLink(dir)) {
+            try {
+                Files.move(dir, batch.resolve(dir.getFileName().toString()), StandardCopyOption.ATOMIC_MOVE);
+                Files.createDirectories(dir);
+                LoggerUtil.getLogger().info("🗑️ Moved " + dir + " to trash");
+                scheduleDelete(batch);
+                return true;
+            } catch (IOException e) {
+                LoggerUtil.getLogger().fine("Could not move " + dir + " as a whole, moving its entries: " + e.getMessage());
+                if (!Files.isDirectory(dir)) {
+                    // Moved but not recreated
+                    try {
+                        Files.createDirectories(dir);
+                    } catch (IOException createException) {
+                        LoggerUtil.getLogger().warning("Failed to recreate " + dir + ": " + createException.getMessage());
+                    }
+                    scheduleDelete(batch);
+                    return Files.isDirectory(dir);
+                }
+            }
+        }
+
+        int moved = 0;
+        int failed = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            for (Path entry : entries) {
+                if (keep != null && keep.test(entry)) {
+                    continue;
+                }
+                try {
+                    Files.move(entry, batch.resolve(entry.getFileName().toString()), StandardCopyOption.ATOMIC_MOVE);
+                    moved++;
+                } catch (IOException e) {
+                    failed++;
+                    LoggerUtil.getLogger().warning("Could not move " + entry + " to trash: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Could not list " + dir + ": " + e.getMessage());
+            failed++;
+        }
+        LoggerUtil.getLogger().info("🗑️ Moved " + moved + " entries of " + dir + " to trash"
+            + (failed > 0 ? ", " + failed + " could not be moved" : ""));
+        scheduleDelete(batch);
+        return failed == 0;
+    }
+
+    /**
+     * Move a file or directory to the trash.
+     *
+     * @return true if it is gone from its place; false if it could not be moved or the trash is disabled
+     */
+    public static boolean delete(Path path) {
+        if (!enabled || !Files.exists(path)) {
+            return false;
+        }
+        Path batch = newBatch(path);
+        if (batch == null) {
+            return false;
+        }
+        try {
+            Files.move(path, batch.resolve(path.getFileName().toString()), StandardCopyOption.ATOMIC_MOVE);
+            LoggerUtil.getLogger().info("🗑️ Moved " + path + " to trash");
+            return true;
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Could not move " + path + " to trash: " + e.getMessage());
+            return false;
+        } finally {
+            scheduleDelete(batch);
+        }
+    }
+
+    /**
+     * Resume deleting trash left by an earlier run (call once at application start).
+     */
+    public static void resumePending() {
+        for (Path root : readRegistry()) {
+            if (!Files.isDirectory(root)) {
+                unregister(root);
+                continue;
+            }
+            try (DirectoryStream<Path> batches = Files.newDirectoryStream(root)) {
+                for (Path batch : batches) {
+                    LoggerUtil.getLogger().info("🗑️ Resuming cleanup of " + batch);
+                    scheduleDelete(batch);
+                }
+            } catch (IOException e) {
+                LoggerUtil.getLogger().warning("Could not list trash " + root + ": " + e.getMessage());
+            }
+            // An empty root is removed by the last batch; this covers roots that were already empty
+            scheduleRootCleanup(root);
+        }
+    }
+
+    /**
+     * Number of trash batches waiting for or in deletion.
+     */
+    public static synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    /**
+     * Create a new batch directory in the trash next to a path, or null if that is not possible.
+     */
+    private static Path newBatch(Path path) {
+        Path parent = path.toAbsolutePath().normalize().getParent();
+        if (parent == null) {
+            return null;
+        }
+        Path root = parent.resolve(TRASH_DIR_NAME);
+        Path batch = root.resolve(path.getFileName() + "-" + System.currentTimeMillis() + "-" + sequence.incrementAndGet());
+        try {
+            boolean created = !Files.isDirectory(root);
+            Files.createDirectories(batch);
+            if (created) {
+                hide(root);
+            }
+            register(root);
+            return batch;
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Cannot create trash next to " + path + ", deleting in place: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void hide(Path root) {
+        try {
+            Files.setAttribute(root, "dos:hidden", true);
+        } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+            // Only Windows has the attribute; the leading dot hides it elsewhere
+        }
+    }
+
+    private static synchronized void scheduleDelete(Path batch) {
+        if (!pending.add(batch)) {
+            return;
+        }
+        executor().execute(() -> {
+            long started = System.currentTimeMillis();
+            int[] counts = deleteTree(batch);
+            synchronized (TrashManager.class) {
+                pending.remove(batch);
+            }
+            LoggerUtil.getLogger().info(String.format("🗑️ Deleted %d files from trash in %.1fs%s", counts[0],
+                (System.currentTimeMillis() - started) / 1000.0, counts[1] > 0 ? " (" + counts[1] + " left, retried on next start)" : ""));
+            scheduleRootCleanup(batch.getParent());
+        });
+    }
+
+    /**
+     * Remove an empty trash root and forget it; a root that still holds batches stays registered.
+     */
+    private static void scheduleRootCleanup(Path root) {
+        executor().execute(() -> {
+            synchronized (TrashManager.class) {
+                for (Path batch : pending) {
+                    if (batch.getParent().equals(root)) {
+                        return;
+                    }
+                }
+                try {
+                    Files.deleteIfExists(root);
+                    unregister(root);
+                } catch (IOException e) {
+                    // Not empty (a batch failed, or a new one was created); stays registered
+                }
+            }
+        });
+    }
+
+    /**
+     * Delete a trash batch; the entries of each moved directory are deleted in parallel.
+     *
+     * @return Files deleted and entries that could not be deleted
+     */
+    private static int[] deleteTree(Path batch) {
+        AtomicInteger deleted = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        // Entries of each moved directory are independent; the directories follow once they are empty
+        List<Path> work = new ArrayList<>();
+        List<Path> parents = new ArrayList<>();
+        try (DirectoryStream<Path> moved = Files.newDirectoryStream(batch)) {
+            for (Path entry : moved) {
+                if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                    parents.add(entry);
+                    try (DirectoryStream<Path> children = Files.newDirectoryStream(entry)) {
+                        children.forEach(work::add);
+                    }
+                } else {
+                    work.add(entry);
+                }
+            }
+        } catch (IOException e) {
+            LoggerUtil.getLogger().fine("Could not list trash batch " + batch + ": " + e.getMessage());
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < Math.min(DELETE_THREADS, Math.max(1, work.size())); t++) {
+            Thread worker = new Thread(() -> {
+                int index;
+                while ((index = next.getAndIncrement()) < work.size()) {
+                    deleteRecursively(work.get(index), deleted, failed);
+                }
+            }, "trash-delete-worker");
+            worker.setDaemon(true);
+            worker.setPriority(Thread.MIN_PRIORITY);
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new int[]{deleted.get(), failed.get()};
+            }
+        }
+        for (Path parent : parents) {
+            deleteRecursively(parent, deleted, failed);
+        }
+        deleteRecursively(batch, deleted, failed);
+        return new int[]{deleted.get(), failed.get()};
+    }
+
+    private static void deleteRecursively(Path path, AtomicInteger deleted, AtomicInteger failed) {
+        try {
+            Files.walkFileTree(path, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (deleteOne(file)) {
+                        deleted.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    failed.incrementAndGet();
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+                    if (!deleteOne(dir)) {
+                        failed.incrementAndGet();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            failed.incrementAndGet();
+        }
+    }
+
+    private static boolean deleteOne(Path path) {
+        try {
+            Files.deleteIfExists(path);
+            return true;
+        } catch (AccessDeniedException e) {
+            // Read-only files (e.g. SVN metadata on Windows)
+            if (path.toFile().setWritable(true)) {
+                try {
+                    Files.deleteIfExists(path);
+                    return true;
+                } catch (IOException retry) {
+                    return false;
+                }
+            }
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static synchronized ExecutorService executor() {
+        if (deleter == null) {
+            // One batch at a time; each batch deletes with its own worker threads
+            deleter = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "trash-cleanup");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            });
+            ((ThreadPoolExecutor) deleter).allowCoreThreadTimeOut(true);
+        }
+        return deleter;
+    }
+
+    // ===== REGISTRY =====
+
+    private static synchronized Set<Path> readRegistry() {
+        Set<Path> roots = new LinkedHashSet<>();
+        if (Files.isRegularFile(REGISTRY_FILE)) {
+            try {
+                for (String line : Files.readAllLines(REGISTRY_FILE, StandardCharsets.UTF_8)) {
+                    if (!line.isBlank()) {
+                        roots.add(Paths.get(line.trim()));
+                    }
+                }
+            } catch (IOException e) {
+                LoggerUtil.getLogger().warning("Could not read trash registry: " + e.getMessage());
+            }
+        }
+        return roots;
+    }
+
+    private static synchronized void register(Path root) {
+        Set<Path> roots = readRegistry();
+        if (roots.add(root)) {
+            writeRegistry(roots);
+        }
+    }
+
+    private static synchronized void unregister(Path root) {
+        Set<Path> roots = readRegistry();
+        if (roots.remove(root)) {
+            writeRegistry(roots);
+        }
+    }
+
+    private static void writeRegistry(Set<Path> roots) {
+        List<String> lines = new ArrayList<>();
+        for (Path root : roots) {
+            lines.add(root.toString());
+        }
+        try {
+            Files.createDirectories(REGISTRY_FILE.getParent());
+            Files.write(REGISTRY_FILE, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Could not write trash registry: " + e.getMessage());
+        }
+    }
+}
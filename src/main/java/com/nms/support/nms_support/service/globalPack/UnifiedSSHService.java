@@ -4,6 +4,8 @@ import com.nms.support.nms_support.model.ProjectEntity;
 import com.nms.support.nms_support.service.globalPack.sshj.SSHJSessionManager;
 import com.nms.support.nms_support.service.globalPack.sshj.SSHJSessionManager.CommandResult;
 
+import java.util.List;
+
 /**
  * Unified SSH Service that handles both LDAP and basic authentication consistently
  * across the entire application.
@@ -282,6 +284,29 @@ public class UnifiedSSHService {
         }
     }
     
+    /**
+     * Executes several short commands in one round trip using a persistent session
+     * 
+     * @param project The project entity containing authentication details
+     * @param commands The commands to execute, in order
+     * @param timeoutSeconds Timeout for the whole batch in seconds
+     * @param purpose Session purpose for cache isolation
+     * @return One result per command, in the same order
+     * @throws Exception if batch execution fails
+     */
+    public static List<CommandResult> executeBatchWithPersistentSession(ProjectEntity project, List<String> commands, int timeoutSeconds, String purpose) throws Exception {
+        try {
+            // Don't close the session - let it be cached for reuse
+            SSHJSessionManager ssh = createSSHSession(project, purpose);
+            ssh.initialize();
+            return ssh.executeBatch(commands, timeoutSeconds);
+        } catch (Exception e) {
+            LoggerUtil.getLogger().severe("Error in executeBatchWithPersistentSession: " + e.getMessage());
+            LoggerUtil.error(e);
+            throw e;
+        }
+    }
+    
     /**
      * Validates project authentication configuration based on LDAP setting.
      * Checks LDAP fields (ldapUser, ldapPassword) if useLdap is true,
@@ -239,15 +239,20 @@ public class ZipCleanupDialog {
                 List<ZipFileInfo> existingFiles = new ArrayList<>();
                 List<String> filesToRemoveFromTracking = new ArrayList<>();
                 
+                Platform.runLater(() -> statusLabel.setText("Checking " + trackedZips.size() + " tracked zip file(s)..."));
+                
+                // Check existence and size of every file in a single round trip
+                List<String> checkCommands = new ArrayList<>();
                 for (ProjectEntity.ServerZipFile zipFile : trackedZips) {
                     String path = zipFile.getPath();
-                    
-                    Platform.runLater(() -> statusLabel.setText("Checking: " + path));
-                    
-                    // Check if file exists and get its size
-                    SSHJSessionManager.CommandResult checkResult = sshSession.executeCommand(
-                        "test -f " + path + " && stat -c '%s' " + path + " || echo 'NOT_FOUND'", 30
-                    );
+                    checkCommands.add("test -f " + path + " && stat -c '%s' " + path + " || echo 'NOT_FOUND'");
+                }
+                List<SSHJSessionManager.CommandResult> checkResults = sshSession.executeBatch(checkCommands, 60);
+                
+                for (int i = 0; i < trackedZips.size(); i++) {
+                    ProjectEntity.ServerZipFile zipFile = trackedZips.get(i);
+                    String path = zipFile.getPath();
+                    SSHJSessionManager.CommandResult checkResult = checkResults.get(i);
                     
                     if (checkResult.isSuccess()) {
                         String output = checkResult.getOutput().trim();
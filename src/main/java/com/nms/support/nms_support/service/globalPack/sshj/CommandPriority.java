@@ -0,0 +1,30 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+/**
+ * Scheduling class of a command run on a pooled sudo shell.
+ *
+ * INTERACTIVE commands (stat, test -d, validation probes) are handed an idle shell ahead of
+ * any queued BATCH command (zip, large finds), and one shell of each pool is kept free of
+ * batch work whenever the pool may hold more than one shell.
+ */
+public enum CommandPriority {
+
+    /** Short command a user or dialog is waiting on. */
+    INTERACTIVE,
+
+    /** Long-running command such as zipping a project tree. */
+    BATCH;
+
+    // Commands allowed to run longer than this are treated as batch work
+    private static final int BATCH_TIMEOUT_THRESHOLD_SECONDS = 300;
+
+    /**
+     * Classify a command by the timeout its caller expects it to need.
+     *
+     * @param timeoutSeconds Command timeout in seconds
+     * @return BATCH for long timeouts, INTERACTIVE otherwise
+     */
+    public static CommandPriority forTimeout(int timeoutSeconds) {
+        return timeoutSeconds > BATCH_TIMEOUT_THRESHOLD_SECONDS ? BATCH : INTERACTIVE;
+    }
+}
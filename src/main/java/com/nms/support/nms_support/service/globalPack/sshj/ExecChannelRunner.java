@@ -0,0 +1,268 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import com.nms.support.nms_support.service.globalPack.LoggerUtil;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.connection.channel.direct.Session;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs a single command on its own SSH exec channel.
+ *
+ * Used for sessions that need no sudo user switch. Unlike the pre-sudoed shell there is no
+ * marker framing and no echo or ANSI noise to strip: the exit status comes from the SSH
+ * protocol, stdout and stderr arrive on separate streams, and any number of commands can
+ * run in parallel as separate channels on one transport.
+ *
+ * Commands are run through {@code bash -l -c}, so they see the same login environment
+ * (NMS_HOME, NMS_CONFIG, PATH from the profile) as commands in the interactive shell.
+ */
+final class ExecChannelRunner {
+
+    // Maximum time to block before re-checking cancellation
+    private static final long WAIT_SLICE_MS = 250;
+
+    private ExecChannelRunner() {
+    }
+
+    /**
+     * Run a command and collect its complete output.
+     *
+     * @param client Connected and authenticated SSH client
+     * @param command Command to run
+     * @param timeoutSeconds Timeout in seconds
+     * @param cancelled Checked while waiting; the channel is closed once it returns true (can be null)
+     * @param onStart Receives the channel once it is open, so callers can abort it (can be null)
+     * @return Result with stdout, stderr and the real exit status (-1 if killed by a signal)
+     * @throws IOException On channel errors, timeout or cancellation
+     */
+    static SSHCommandResult run(SSHClient client, String command, int timeoutSeconds,
+                                BooleanSupplier cancelled, Consumer<Session> onStart) throws IOException {
+        return run(client, command, timeoutSeconds, cancelled, onStart, null, 0);
+    }
+
+    /**
+     * Run a command and hand its stdout to a line consumer, keeping only the last lines.
+     *
+     * @param client Connected and authenticated SSH client
+     * @param command Command to run
+     * @param timeoutSeconds Timeout in seconds
+     * @param cancelled Checked while waiting; the channel is closed once it returns true (can be null)
+     * @param onStart Receives the channel once it is open, so callers can abort it (can be null)
+     * @param lineConsumer Consumer for every stdout line (called on a reader thread)
+     * @param tailLines Number of trailing stdout lines kept in the result
+     * @return Result with the stdout tail, stderr and the real exit status
+     * @throws IOException On channel errors, timeout or cancellation
+     */
+    static SSHCommandResult run(SSHClient client, String command, int timeoutSeconds,
+                                BooleanSupplier cancelled, Consumer<Session> onStart,
+                                LineConsumer lineConsumer, int tailLines) throws IOException {
+
+        long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
+        try (Session session = client.startSession()) {
+            if (onStart != null) {
+                onStart.accept(session);
+            }
+            Session.Command exec = session.exec(loginShellCommand(command));
+
+            StreamReader stdout = lineConsumer != null
+                ? new StreamReader(exec.getInputStream(), lineConsumer, tailLines)
+                : new StreamReader(exec.getInputStream());
+            StreamReader stderr = new StreamReader(exec.getErrorStream());
+            Thread stdoutThread = Thread.ofVirtual().name("sshj-exec-stdout").start(stdout);
+            Thread stderrThread = Thread.ofVirtual().name("sshj-exec-stderr").start(stderr);
+
+            try {
+                awaitReader(stdoutThread, deadline, cancelled, command, timeoutSeconds);
+                awaitReader(stderrThread, deadline, cancelled, command, timeoutSeconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted during command execution", e);
+            }
+
+            // Exit status follows the end of the streams closely
+            exec.join(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            Integer exitStatus = exec.getExitStatus();
+            if (exitStatus == null && exec.getExitSignal() != null) {
+                LoggerUtil.getLogger().warning("Command killed by signal " + exec.getExitSignal() + ": " + command);
+            }
+
+            return new SSHCommandResult(stdout.text(), stderr.text(), exitStatus != null ? exitStatus : -1);
+        }
+    }
+
+    /**
+     * Run a command and hand its raw stdout to a stream consumer.
+     *
+     * The command string is executed as given (callers wrap it, e.g. with
+     * {@link #loginShellCommand(String)}). Cancellation and timeout close the channel,
+     * which ends the consumer's read with an IOException.
+     *
+     * @param client Connected and authenticated SSH client
+     * @param command Command line to execute
+     * @param stdin Bytes written to the command's stdin before it is closed (can be null)
+     * @param timeoutSeconds Timeout in seconds for the whole transfer
+     * @param cancelled Checked while waiting; the channel is closed once it returns true (can be null)
+     * @param onStart Receives the channel once it is open, so callers can abort it (can be null)
+     * @param consumer Consumer for stdout (called on a reader thread)
+     * @return Result with empty stdout, the collected stderr and the real exit status
+     * @throws IOException On channel errors, consumer failure, timeout or cancellation
+     */
+    static SSHCommandResult stream(SSHClient client, String command, byte[] stdin, int timeoutSeconds,
+                                   BooleanSupplier cancelled, Consumer<Session> onStart,
+                                   StreamConsumer consumer) throws IOException {
+
+        long deadline = System.currentTimeMillis() + timeoutSeconds * 1000L;
+        try (Session session = client.startSession()) {
+            if (onStart != null) {
+                onStart.accept(session);
+            }
+            Session.Command exec = session.exec(command);
+            try (OutputStream input = exec.getOutputStream()) {
+                if (stdin != null) {
+                    input.write(stdin);
+                    input.flush();
+                }
+            }
+
+            IOException[] failure = new IOException[1];
+            InputStream output = exec.getInputStream();
+            Thread stdoutThread = Thread.ofVirtual().name("sshj-exec-stream").start(() -> {
+                try {
+                    consumer.consume(output);
+                    output.transferTo(OutputStream.nullOutputStream());
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            StreamReader stderr = new StreamReader(exec.getErrorStream());
+            Thread stderrThread = Thread.ofVirtual().name("sshj-exec-stderr").start(stderr);
+
+            try {
+                awaitReader(stdoutThread, deadline, cancelled, command, timeoutSeconds);
+                awaitReader(stderrThread, deadline, cancelled, command, timeoutSeconds);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted during command execution", e);
+            }
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+
+            exec.join(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            Integer exitStatus = exec.getExitStatus();
+            if (exitStatus == null && exec.getExitSignal() != null) {
+                LoggerUtil.getLogger().warning("Command killed by signal " + exec.getExitSignal() + ": " + command);
+            }
+
+            return new SSHCommandResult("", stderr.text(), exitStatus != null ? exitStatus : -1);
+        }
+    }
+
+    /**
+     * Quote a command for {@code bash -l -c '...'}.
+     */
+    static String loginShellCommand(String command) {
+        return "bash -l -c '" + command.replace("'", "'\\''") + "'";
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    /**
+     * Wait for a reader to reach end of stream, honouring timeout and cancellation.
+     * Closing the channel (by try-with-resources on failure) ends the reader.
+     */
+    private static void awaitReader(Thread reader, long deadline, BooleanSupplier cancelled,
+                                    String command, int timeoutSeconds) throws IOException, InterruptedException {
+        while (reader.isAlive()) {
+            if (cancelled != null && cancelled.getAsBoolean()) {
+                LoggerUtil.getLogger().info("Command execution cancelled by user");
+                throw new IOException("Command execution cancelled by user");
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException("Command execution timeout after " + timeoutSeconds + " seconds: " + command);
+            }
+            reader.join(Math.min(remaining, WAIT_SLICE_MS));
+        }
+    }
+
+    // ===== INNER CLASS =====
+
+    /**
+     * Reads one channel stream to the end, either into memory or line by line into a consumer.
+     */
+    private static final class StreamReader implements Runnable {
+        private final InputStream stream;
+        private final LineConsumer lineConsumer;
+        private final int tailLimit;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final ArrayDeque<String> tail = new ArrayDeque<>();
+
+        StreamReader(InputStream stream) {
+            this(stream, null, 0);
+        }
+
+        StreamReader(InputStream stream, LineConsumer lineConsumer, int tailLimit) {
+            this.stream = stream;
+            this.lineConsumer = lineConsumer;
+            this.tailLimit = Math.max(1, tailLimit);
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (lineConsumer == null) {
+                    stream.transferTo(buffer);
+                    return;
+                }
+                BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    synchronized (tail) {
+                        tail.addLast(line);
+                        if (tail.size() > tailLimit) {
+                            tail.removeFirst();
+                        }
+                    }
+                    try {
+                        lineConsumer.onLine(line);
+                    } catch (RuntimeException e) {
+                        LoggerUtil.getLogger().warning("Line consumer failed: " + e.getMessage());
+                    }
+                }
+            } catch (IOException e) {
+                LoggerUtil.getLogger().fine("Exec channel reader stopped: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Collected text without the trailing line break, like the shell path returns it.
+         */
+        String text() {
+            String text;
+            if (lineConsumer == null) {
+                text = buffer.toString(StandardCharsets.UTF_8);
+            } else {
+                synchronized (tail) {
+                    text = String.join("\n", tail);
+                }
+            }
+            int end = text.length();
+            while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r')) {
+                end--;
+            }
+            return text.substring(0, end);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+/**
+ * Receives command output one line at a time while the command is still running.
+ * 
+ * Used by the streaming command APIs so that long, chatty commands (e.g. {@code zip -rv})
+ * can be processed in constant memory instead of accumulating their full output.
+ * Lines are delivered in order, without line terminators, on the shell reader thread,
+ * so implementations should return quickly.
+ */
+@FunctionalInterface
+public interface LineConsumer {
+    
+    /**
+     * Called for every complete output line.
+     * 
+     * @param line Output line without line terminator
+     */
+    void onLine(String line);
+}
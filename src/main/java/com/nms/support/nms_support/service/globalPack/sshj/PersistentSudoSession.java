@@ -7,7 +7,12 @@ import net.schmizz.sshj.connection.channel.direct.Session;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
@@ -19,10 +24,14 @@ import java.util.regex.Pattern;
  * 
  * Features:
  * - Pre-sudoed shell: sudo is performed once at session creation
+ * - Prompt-driven sudo handshake (no fixed sleeps) bounded by an overall timeout,
+ *   with startup timing exposed for monitoring
  * - Command execution with unique markers for completion detection
- * - Concurrent stdout/stderr capture
+ * - Pipelined batches: many short commands in one write and one round trip
+ * - Concurrent stdout/stderr capture via background readers (no sleep polling)
  * - Per-command timeout with interrupt capability
- * - Heartbeat checks to verify shell responsiveness
+ * - Cheap liveness check from transport and channel state, plus an echo heartbeat
+ *   for background probing of idle shells
  * - Clean output with marker and prompt removal
  * - Thread-safe command execution
  */
@@ -33,20 +42,49 @@ public class PersistentSudoSession {
     private final OutputStream shellInput;
     private final InputStream shellOutput;
     private final InputStream shellError;
+    private final ShellOutputPump outputPump;
     private final String targetUser;
     private final String purpose;
     
     // Command execution state
-    private final Object commandLock = new Object();
-    private volatile boolean commandInProgress = false;
+    // Held by a running command or heartbeat; the heartbeat only tries it, so it never waits behind a command
+    private final ReentrantLock commandLock = new ReentrantLock();
     private volatile boolean shellReady = false;
+    private volatile boolean dead = false;
+    private volatile long lastActivityMillis = System.currentTimeMillis();
     
     // Command ID generator for unique markers
     private static final AtomicLong commandIdGenerator = new AtomicLong(System.currentTimeMillis());
     
-    // Buffer size for reading output
-    private static final int BUFFER_SIZE = 8192;
+    // Maximum time to block waiting for output before re-checking cancellation and progress
+    private static final long OUTPUT_WAIT_SLICE_MS = 250;
     
+    // Maximum time to wait for a heartbeat echo
+    private static final long HEARTBEAT_TIMEOUT_MS = 1000;
+    
+    // Characters of trailing output inspected for progress messages
+    private static final int PROGRESS_TAIL_CHARS = 4096;
+
+    // Default overall time allowed for shell start, sudo and user verification
+    public static final long DEFAULT_HANDSHAKE_TIMEOUT_MS = 30_000;
+
+    // Prompt passed to sudo -p so the password request is recognised exactly
+    private static final String SUDO_PROMPT = "NMS_SUDO_PASSWORD:";
+
+    // Our own sudo prompt, or a generic one when PAM overrides it
+    private static final Pattern PASSWORD_PROMPT_PATTERN = Pattern.compile(
+        Pattern.quote(SUDO_PROMPT) + "|(?i)password[^\\n]*:\\s*$");
+
+    // sudo/su output that means the user switch cannot succeed
+    private static final Pattern SUDO_FAILURE_PATTERN = Pattern.compile(
+        "(?i)sorry, try again|incorrect password|not in the sudoers|is not allowed to|"
+            + "authentication failure|a password is required|su: .*does not exist");
+
+    // Startup timing metric, in milliseconds
+    private long shellReadyMillis;
+    private long sudoMillis;
+    private long startupMillis;
+
     /**
      * Create a persistent sudo session.
      * 
@@ -62,7 +100,28 @@ public class PersistentSudoSession {
             String sudoPassword,
             String purpose
     ) throws IOException {
-        
+        this(sshClient, targetUser, sudoPassword, purpose, DEFAULT_HANDSHAKE_TIMEOUT_MS);
+    }
+
+    /**
+     * Create a persistent sudo session with a custom handshake timeout.
+     *
+     * @param sshClient Connected and authenticated SSH client
+     * @param targetUser User to sudo to (null if no sudo needed)
+     * @param sudoPassword Password for sudo (null if passwordless sudo)
+     * @param purpose Session purpose for logging
+     * @param handshakeTimeoutMs Overall time allowed for shell start, sudo and verification
+     * @throws IOException If session creation or sudo fails or the handshake times out
+     */
+    public PersistentSudoSession(
+            SSHClient sshClient,
+            String targetUser,
+            String sudoPassword,
+            String purpose,
+            long handshakeTimeoutMs
+    ) throws IOException {
+
+        long startTime = System.currentTimeMillis();
         this.sshClient = sshClient;
         this.targetUser = targetUser;
         this.purpose = purpose != null ? purpose : "default";
@@ -80,28 +139,38 @@ public class PersistentSudoSession {
         this.shellOutput = shell.getInputStream();
         this.shellError = shell.getErrorStream();
         
-        LoggerUtil.getLogger().info("✓ Interactive shell started with PTY");
+        // Start background readers so output is captured as soon as it arrives
+        this.outputPump = new ShellOutputPump(shellOutput, shellError, this.purpose);
+        this.outputPump.start();
         
-        // Wait for shell to be ready
+        LoggerUtil.getLogger().info("✓ Interactive shell started with PTY");
+
+        // Handshake: react to the actual shell output instead of sleeping
+        long deadline = startTime + handshakeTimeoutMs;
         try {
-            Thread.sleep(2000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Interrupted while waiting for shell initialization", e);
-        }
-        
-        // Initialize shell environment
-        initializeShellEnvironment();
-        
-        // Perform sudo if target user specified
-        if (targetUser != null && !targetUser.trim().isEmpty()) {
-            performSudo(sudoPassword);
-            LoggerUtil.getLogger().info("✓ Successfully switched to " + targetUser);
-        } else {
-            LoggerUtil.getLogger().info("✓ Shell ready (no sudo)");
+            // Initialize shell environment; returns once the shell has answered
+            initializeShellEnvironment(deadline);
+            this.shellReadyMillis = System.currentTimeMillis() - startTime;
+
+            // Perform sudo if target user specified
+            if (targetUser != null && !targetUser.trim().isEmpty()) {
+                long sudoStart = System.currentTimeMillis();
+                performSudo(sudoPassword, deadline);
+                this.sudoMillis = System.currentTimeMillis() - sudoStart;
+                LoggerUtil.getLogger().info("✓ Successfully switched to " + targetUser);
+            } else {
+                LoggerUtil.getLogger().info("✓ Shell ready (no sudo)");
+            }
+        } catch (IOException | RuntimeException e) {
+            // Do not leave a half-initialized shell channel open on the shared transport
+            closeShellQuietly();
+            throw e;
         }
-        
+
+        this.startupMillis = System.currentTimeMillis() - startTime;
         this.shellReady = true;
+        LoggerUtil.getLogger().info("⏱️ Session startup took " + startupMillis + " ms (shell " + shellReadyMillis
+            + " ms, sudo " + sudoMillis + " ms) for purpose: " + this.purpose);
         LoggerUtil.getLogger().info("✅ PersistentSudoSession ready for command execution");
     }
     
@@ -154,57 +223,130 @@ public class PersistentSudoSession {
      */
     private SSHCommandResult runCommand(String command, int timeoutSeconds, ProgressCallback progressCallback, boolean checkCancellation) throws IOException {
         
-        if (!shellReady || !isAlive()) {
+        if (!isConnected()) {
             throw new IOException("Shell session is not ready or not alive");
         }
         
-        synchronized (commandLock) {
-            if (commandInProgress) {
-                throw new IOException("Another command is already in progress");
-            }
-            
-            commandInProgress = true;
-            try {
-                return executeCommandInternal(command, timeoutSeconds, progressCallback, checkCancellation);
-            } finally {
-                commandInProgress = false;
-            }
+        return withCommandLock(() -> executeCommandInternal(command, timeoutSeconds, progressCallback, checkCancellation));
+    }
+    
+    /**
+     * Execute a command and stream its output line by line.
+     * 
+     * Only the last {@code tailLines} lines are retained for the returned result, so the
+     * memory used does not grow with the amount of output. The consumer is called on the
+     * shell reader thread.
+     * 
+     * @param command Command to execute
+     * @param timeoutSeconds Timeout in seconds
+     * @param lineConsumer Consumer for every output line
+     * @param tailLines Number of trailing lines kept in the result output
+     * @param progressCallback Progress callback used for cancellation checks (can be null)
+     * @return Command result with the output tail and exit code
+     * @throws IOException If command execution fails
+     */
+    public SSHCommandResult runCommandStreaming(String command, int timeoutSeconds, LineConsumer lineConsumer,
+                                                int tailLines, ProgressCallback progressCallback) throws IOException {
+        
+        if (!isConnected()) {
+            throw new IOException("Shell session is not ready or not alive");
         }
+        
+        return withCommandLock(() -> executeStreamingInternal(command, timeoutSeconds, lineConsumer, tailLines, progressCallback));
+    }
+    
+    /**
+     * Execute several commands with a single write and a single wait.
+     * 
+     * All commands are sent at once, each framed by its own begin and exit code marker,
+     * so N short commands cost one round trip instead of N. Commands run one after another
+     * in the shell, with stdin redirected from /dev/null so one command cannot swallow the
+     * next. A failing command does not stop the batch.
+     * 
+     * @param commands Commands to execute, in order
+     * @param timeoutSeconds Timeout for the whole batch in seconds
+     * @return One result per command, in the same order; exit code -1 if a command's output could not be found
+     * @throws IOException If the batch fails or times out
+     */
+    public List<SSHCommandResult> runBatch(List<String> commands, int timeoutSeconds) throws IOException {
+        
+        if (!isConnected()) {
+            throw new IOException("Shell session is not ready or not alive");
+        }
+        
+        return withCommandLock(() -> executeBatchInternal(commands, timeoutSeconds));
+    }
+    
+    /**
+     * Cheap liveness check from local state only: the shell is ready, has not failed a
+     * heartbeat, and its transport, channel and output stream are all still open.
+     * Does not touch the network, so it is safe to call on every command.
+     * 
+     * @return true if the shell looks usable, false otherwise
+     */
+    public boolean isConnected() {
+        return shellReady && !dead && sshClient.isConnected() && shellSession.isOpen() && !outputPump.isClosed();
     }
     
     /**
      * Check if the shell is still alive and responsive.
-     * Uses a heartbeat echo command to verify.
+     * Uses a heartbeat echo command to verify; returns as soon as the echo arrives.
+     * While a command is running only the transport and channel state are checked,
+     * so the heartbeat does not interleave with the command output.
+     * A shell that misses the heartbeat is marked dead and fails {@link #isConnected()} from then on.
+     * Meant for background probing; use {@link #isConnected()} on hot paths.
      * 
      * @return true if alive, false otherwise
      */
     public boolean isAlive() {
         try {
-            if (!sshClient.isConnected() || !shellSession.isOpen()) {
+            if (!isConnected()) {
                 return false;
             }
             
-            // Quick heartbeat check
-            String marker = "ALIVE_" + System.currentTimeMillis();
-            String heartbeatCmd = "echo " + marker + "\n";
-            
-            shellInput.write(heartbeatCmd.getBytes(StandardCharsets.UTF_8));
-            shellInput.flush();
-            
-            // Wait briefly and check for response
-            Thread.sleep(500);
-            
-            StringBuilder output = new StringBuilder();
-            readAvailableOutput(shellOutput, output, 100);
-            
-            return output.toString().contains(marker);
+            // A running command (or another heartbeat) owns the shell, which is proof enough
+            if (!commandLock.tryLock()) {
+                return true;
+            }
+            try {
+                // Quick heartbeat check
+                String marker = "ALIVE_" + System.currentTimeMillis();
+                String heartbeatCmd = "echo " + marker + "\n";
+                
+                outputPump.clear();
+                shellInput.write(heartbeatCmd.getBytes(StandardCharsets.UTF_8));
+                shellInput.flush();
+                
+                boolean alive = outputPump.awaitText(marker, HEARTBEAT_TIMEOUT_MS);
+                outputPump.clear();
+                if (alive) {
+                    lastActivityMillis = System.currentTimeMillis();
+                } else {
+                    dead = true;
+                }
+                return alive;
+            } finally {
+                commandLock.unlock();
+            }
             
+        } catch (InterruptedException e) {
+            // Interrupted by the caller, not a sign the shell is broken
+            Thread.currentThread().interrupt();
+            return isConnected();
         } catch (Exception e) {
             LoggerUtil.getLogger().fine("Heartbeat check failed: " + e.getMessage());
+            dead = true;
             return false;
         }
     }
     
+    /**
+     * Milliseconds since the shell last completed a command or answered a heartbeat.
+     */
+    public long getIdleMillis() {
+        return System.currentTimeMillis() - lastActivityMillis;
+    }
+    
     /**
      * Interrupt the currently running command (send Ctrl+C).
      * 
@@ -251,13 +393,7 @@ public class PersistentSudoSession {
             LoggerUtil.getLogger().fine("Error during graceful shell exit: " + e.getMessage());
         }
         
-        try {
-            if (shellSession != null && shellSession.isOpen()) {
-                shellSession.close();
-            }
-        } catch (Exception e) {
-            LoggerUtil.getLogger().warning("Error closing shell session: " + e.getMessage());
-        }
+        closeShellQuietly();
         
         LoggerUtil.getLogger().info("✓ PersistentSudoSession closed");
     }
@@ -268,130 +404,232 @@ public class PersistentSudoSession {
     public String getPurpose() {
         return purpose;
     }
-    
+
+    /**
+     * Total time the session took to become ready, from shell start to verified user switch.
+     */
+    public long getStartupMillis() {
+        return startupMillis;
+    }
+
+    /**
+     * Time until the login shell answered its first ready probe.
+     */
+    public long getShellReadyMillis() {
+        return shellReadyMillis;
+    }
+
+    /**
+     * Time spent in the sudo handshake including user verification (0 if no sudo).
+     */
+    public long getSudoMillis() {
+        return sudoMillis;
+    }
+
     // ===== PRIVATE IMPLEMENTATION =====
     
+    /**
+     * Steps of the sudo handshake.
+     */
+    private enum SudoState {
+        CHECK_CREDENTIALS,
+        AWAIT_PASSWORD_PROMPT,
+        AWAIT_SHELL
+    }
+    
     /**
      * Initialize the shell environment.
-     * Suppress echo and disable history expansion.
+     * Suppress echo and disable history expansion, then wait for the shell-ready sentinel.
      */
-    private void initializeShellEnvironment() throws IOException {
+    private void initializeShellEnvironment(long deadline) throws IOException {
         LoggerUtil.getLogger().info("Initializing shell environment...");
         
-        try {
-            // Suppress terminal echo to avoid command duplication
-            sendCommand("stty -echo");
-            Thread.sleep(800);
-            
-            // Disable history expansion
-            sendCommand("set +o histexpand 2>/dev/null || true");
-            Thread.sleep(800);
-            
-            // Drain any initial output
-            drainOutput();
-            
-            LoggerUtil.getLogger().info("✓ Shell environment initialized");
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Interrupted during shell initialization", e);
-        }
+        // The probe is queued by the PTY, so it can be sent before the login scripts finish
+        String sentinel = sendReadyProbe();
+        awaitSentinel(sentinel, deadline, "shell start");
+        
+        // Drop MOTD, prompts and the sentinel itself
+        outputPump.clear();
+        
+        LoggerUtil.getLogger().info("✓ Shell environment initialized");
     }
     
     /**
      * Perform sudo to switch to target user.
-     * Simplified approach: always send password after sudo command.
+     * 
+     * Expect-style state machine driven by the actual shell output:
+     * - CHECK_CREDENTIALS: ask sudo non-interactively whether the user switch itself needs a password
+     * - AWAIT_PASSWORD_PROMPT: wait for the password prompt (up to the handshake deadline) and answer it
+     * - AWAIT_SHELL: wait for the ready sentinel from the target user's shell
+     * Known sudo/su failure messages end the handshake immediately.
      */
-    private void performSudo(String sudoPassword) throws IOException {
+    private void performSudo(String sudoPassword, long deadline) throws IOException {
         LoggerUtil.getLogger().info("Switching to target user: " + targetUser);
         
-        try {
-            // Clear any pending output
-            drainOutput();
-            
-            // Temporarily enable echo for sudo password prompt
-            sendCommand("stty echo");
-            Thread.sleep(500);
-            
-            // Execute sudo command (same as JSch implementation)
-            String sudoCmd = "sudo su - " + targetUser;
-            LoggerUtil.getLogger().info("Executing: " + sudoCmd);
-            
-            shellInput.write((sudoCmd + "\n").getBytes(StandardCharsets.UTF_8));
-            shellInput.flush();
-            
-            // Wait for potential password prompt
-            Thread.sleep(2000);
-            
-            // Read response
-            StringBuilder response = new StringBuilder();
-            readAvailableOutput(shellOutput, response, 100);
-            
-            // Clean the response before logging to avoid escape sequences in logs
-            String cleanResponse = cleanAnsiEscapeSequences(response.toString());
-            LoggerUtil.getLogger().info("Sudo response output: '" + cleanResponse + "'");
-            
-            // Check if password prompt detected (use cleaned response for detection)
-            if (isPasswordPrompt(cleanResponse)) {
-                LoggerUtil.getLogger().info("Password prompt detected, providing password...");
-                if (sudoPassword != null && !sudoPassword.trim().isEmpty()) {
-                    shellInput.write((sudoPassword + "\n").getBytes(StandardCharsets.UTF_8));
-                    shellInput.flush();
-                    LoggerUtil.getLogger().info("Password sent");
-                    Thread.sleep(3000);
-                } else {
-                    throw new IOException("Sudo password required but not provided");
+        String sentinel = null;
+        SudoState state = SudoState.CHECK_CREDENTIALS;
+        
+        while (state != SudoState.AWAIT_SHELL) {
+            switch (state) {
+                case CHECK_CREDENTIALS -> {
+                    String checkId = "SUDOCHK_" + commandIdGenerator.incrementAndGet();
+                    String checkMarker = checkId + "_EXIT_CODE:";
+                    outputPump.clear();
+                    // The exact command, since sudo rules may allow "su -" without a password but not everything
+                    sendCommand("sudo -n su - " + targetUser + " -c true </dev/null >/dev/null 2>&1; echo \""
+                        + checkId + "\"\"_EXIT_CODE:$?\"");
+                    try {
+                        if (!outputPump.awaitExitMarker(checkMarker, remainingMillis(deadline, "sudo check"))) {
+                            throw handshakeFailure("sudo check");
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted during sudo operation", e);
+                    }
+                    boolean passwordless = extractExitCode(outputPump.drainStdout(), checkId) == 0;
+                    
+                    if (passwordless) {
+                        // No prompt will come, so the probe can follow the switch right away
+                        LoggerUtil.getLogger().info("Executing: sudo su - " + targetUser + " (no password required)");
+                        sendCommand("sudo su - " + targetUser);
+                        sentinel = sendReadyProbe();
+                        state = SudoState.AWAIT_SHELL;
+                    } else {
+                        LoggerUtil.getLogger().info("Executing: sudo su - " + targetUser);
+                        sendCommand("sudo -p '" + SUDO_PROMPT + "' su - " + targetUser);
+                        state = SudoState.AWAIT_PASSWORD_PROMPT;
+                    }
                 }
-            } else {
-                LoggerUtil.getLogger().info("No clear password prompt, sending password anyway to be safe...");
-                // Send password anyway - better safe than sorry
-                if (sudoPassword != null && !sudoPassword.trim().isEmpty()) {
-                    shellInput.write((sudoPassword + "\n").getBytes(StandardCharsets.UTF_8));
-                    shellInput.flush();
-                    LoggerUtil.getLogger().info("Password sent preemptively");
-                    Thread.sleep(3000);
+                case AWAIT_PASSWORD_PROMPT -> {
+                    // The check showed a password is needed: nothing may be typed before the prompt
+                    // (a slow PAM/LDAP prompt would read it as the password), so wait for it
+                    String match = awaitHandshakeOutput(PASSWORD_PROMPT_PATTERN,
+                        remainingMillis(deadline, "sudo password prompt"));
+                    if (match == null) {
+                        throw handshakeFailure("sudo password prompt");
+                    }
+                    LoggerUtil.getLogger().info("Password prompt detected, providing password...");
+                    if (sudoPassword == null || sudoPassword.trim().isEmpty()) {
+                        throw new IOException("Sudo password required but not provided");
+                    }
+                    outputPump.clear();
+                    sendCommand(sudoPassword);
+                    LoggerUtil.getLogger().info("Password sent");
+                    // On a wrong password sudo flushes typed-ahead input before prompting again,
+                    // so the probe never ends up being used as a second password attempt
+                    sentinel = sendReadyProbe();
+                    state = SudoState.AWAIT_SHELL;
                 }
+                default -> throw new IllegalStateException("Unexpected sudo state: " + state);
             }
-            
-            // Re-suppress echo after user switch
-            Thread.sleep(1000);
-            sendCommand("stty -echo");
-            Thread.sleep(800);
-            
-            // Verify user switch
-            verifyUserSwitch();
-            
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Interrupted during sudo operation", e);
         }
+        
+        awaitSentinel(sentinel, deadline, "sudo su - " + targetUser);
+        outputPump.clear();
+        
+        // Verify user switch
+        verifyUserSwitch(deadline);
     }
     
     /**
      * Verify that sudo/user switch was successful.
      */
-    private void verifyUserSwitch() throws IOException {
+    private void verifyUserSwitch(long deadline) throws IOException {
         LoggerUtil.getLogger().info("Verifying user switch...");
         
+        // Call executeCommandInternal directly since shellReady is not yet set during constructor
+        int timeoutSeconds = (int) Math.max(1, remainingMillis(deadline, "user verification") / 1000);
+        SSHCommandResult result = executeCommandInternal("whoami", timeoutSeconds, null, false);
+        String whoami = result.getOutput().trim();
+        
+        LoggerUtil.getLogger().info("Current user: " + whoami);
+        
+        if (!whoami.contains(targetUser)) {
+            throw new IOException("Failed to switch to target user: " + targetUser + ". Current user: " + whoami);
+        }
+        
+        LoggerUtil.getLogger().info("✓ User switch verified");
+    }
+    
+    /**
+     * Send the shell-ready probe: re-applies the shell settings and echoes a unique sentinel.
+     * The sentinel is split by quotes in the command so an echoed command line never matches.
+     * 
+     * @return The sentinel text the shell prints once it has run the probe
+     */
+    private String sendReadyProbe() throws IOException {
+        String id = "READY_" + commandIdGenerator.incrementAndGet();
+        sendCommand("stty -echo; set +o histexpand 2>/dev/null || true; echo \"NMS_\"\"" + id + "\"");
+        return "NMS_" + id;
+    }
+    
+    /**
+     * Wait for a ready sentinel, failing fast on sudo/su error output.
+     */
+    private void awaitSentinel(String sentinel, long deadline, String step) throws IOException {
+        Pattern readyPattern = Pattern.compile(Pattern.quote(sentinel) + "|" + PASSWORD_PROMPT_PATTERN.pattern());
+        String match = awaitHandshakeOutput(readyPattern, remainingMillis(deadline, step));
+        if (match == null) {
+            throw handshakeFailure(step);
+        }
+        if (!match.equals(sentinel)) {
+            // Prompted (again) after the password was sent
+            throw new IOException("Sudo authentication failed for " + targetUser + ": password rejected");
+        }
+    }
+    
+    /**
+     * Wait until the output matches the given pattern or a known failure message.
+     * 
+     * @return The matched text, or null if nothing matched in time
+     * @throws IOException If a failure message arrives or the shell closes
+     */
+    private String awaitHandshakeOutput(Pattern expected, long maxWaitMs) throws IOException {
+        Pattern combined = Pattern.compile("(" + expected.pattern() + ")|(" + SUDO_FAILURE_PATTERN.pattern() + ")");
+        String match;
         try {
-            drainOutput();
-            Thread.sleep(1000);
-            
-            // Call executeCommandInternal directly since shellReady is not yet set during constructor
-            SSHCommandResult result = executeCommandInternal("whoami", 30, null, false);
-            String whoami = result.getOutput().trim();
-            
-            LoggerUtil.getLogger().info("Current user: " + whoami);
-            
-            if (!whoami.contains(targetUser)) {
-                throw new IOException("Failed to switch to target user: " + targetUser + ". Current user: " + whoami);
-            }
-            
-            LoggerUtil.getLogger().info("✓ User switch verified");
-            
+            match = outputPump.awaitPattern(combined, maxWaitMs);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new IOException("Interrupted during user verification", e);
+            throw new IOException("Interrupted during session handshake", e);
+        }
+        
+        if (match != null && SUDO_FAILURE_PATTERN.matcher(match).matches()) {
+            throw new IOException("Sudo to " + targetUser + " failed: " + cleanAnsiEscapeSequences(match));
+        }
+        if (match == null && outputPump.isClosed()) {
+            throw new IOException("Shell closed during session handshake");
+        }
+        return match;
+    }
+    
+    /**
+     * Milliseconds left before the handshake deadline.
+     */
+    private long remainingMillis(long deadline, String step) throws IOException {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw handshakeFailure(step);
+        }
+        return remaining;
+    }
+    
+    private IOException handshakeFailure(String step) {
+        String recent = cleanAnsiEscapeSequences(outputPump.stdoutTail(300)).trim();
+        LoggerUtil.getLogger().severe("Session handshake timed out during " + step + ", output tail: '" + recent + "'");
+        return new IOException("Session handshake timed out during " + step);
+    }
+    
+    /**
+     * Close the shell channel without throwing.
+     */
+    private void closeShellQuietly() {
+        try {
+            if (shellSession != null && shellSession.isOpen()) {
+                shellSession.close();
+            }
+        } catch (Exception e) {
+            LoggerUtil.getLogger().warning("Error closing shell session: " + e.getMessage());
         }
     }
     
@@ -420,35 +658,171 @@ public class PersistentSudoSession {
         
         LoggerUtil.getLogger().fine("Wrapped command: " + wrappedCommand);
         
-        // Drain any pending output
-        drainOutput();
+        // Discard any pending output
+        outputPump.clear();
         
         // Send command
         shellInput.write((wrappedCommand + "\n").getBytes(StandardCharsets.UTF_8));
         shellInput.flush();
         
-        // Small delay to let command start
+        if (progressCallback != null) {
+            progressCallback.onProgress(20, "Command sent, waiting for response...");
+        }
+        
+        // Wait until the marker arrives or timeout; the output pump wakes us on every chunk
+        String exitMarker = commandId + "_EXIT_CODE:";
+        awaitCompletion(command, timeoutSeconds, progressCallback, checkCancellation,
+            maxWaitMs -> outputPump.awaitExitMarker(exitMarker, maxWaitMs),
+            () -> outputPump.stdoutTail(PROGRESS_TAIL_CHARS));
+        
+        // Extract exit code and clean output
+        String fullOutput = outputPump.drainStdout();
+        int exitCode = extractExitCode(fullOutput, commandId);
+        String cleanOutput = cleanCommandOutput(fullOutput, command, commandId);
+        String cleanStderr = outputPump.drainStderr().trim();
+        
+        LoggerUtil.getLogger().info("=== COMMAND EXECUTION RESULT ===");
+        LoggerUtil.getLogger().info("Exit code: " + exitCode);
+        LoggerUtil.getLogger().info("Stdout length: " + cleanOutput.length());
+        LoggerUtil.getLogger().info("Stderr length: " + cleanStderr.length());
+        LoggerUtil.getLogger().fine("Clean output: " + cleanOutput.substring(0, Math.min(800, cleanOutput.length())));
+        LoggerUtil.getLogger().info("=== END COMMAND EXECUTION ===");
+        
+        return new SSHCommandResult(cleanOutput, cleanStderr, exitCode);
+    }
+    
+    /**
+     * Streaming command execution: output lines go to the consumer, only a tail is kept.
+     */
+    private SSHCommandResult executeStreamingInternal(
+            String command,
+            int timeoutSeconds,
+            LineConsumer lineConsumer,
+            int tailLines,
+            ProgressCallback progressCallback
+    ) throws IOException {
+        
+        command = cleanCommand(command);
+        LoggerUtil.getLogger().info("=== SSHJ STREAMING COMMAND EXECUTION ===");
+        LoggerUtil.getLogger().info("Command: " + command);
+        LoggerUtil.getLogger().info("Timeout: " + timeoutSeconds + " seconds");
+        
+        String commandId = "CMD_" + commandIdGenerator.incrementAndGet();
+        String wrappedCommand = command + "; echo \"" + commandId + "_EXIT_CODE:$?\"";
+        
+        ShellOutputPump.LineStream stream = outputPump.beginLineStream(
+            commandId + "_EXIT_CODE:",
+            line -> lineConsumer.onLine(cleanAnsiEscapeSequences(line)),
+            tailLines
+        );
+        
         try {
-            Thread.sleep(200);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new IOException("Interrupted during command execution", e);
+            shellInput.write((wrappedCommand + "\n").getBytes(StandardCharsets.UTF_8));
+            shellInput.flush();
+            
+            awaitCompletion(command, timeoutSeconds, progressCallback, true,
+                maxWaitMs -> outputPump.awaitLineStream(stream, maxWaitMs),
+                () -> String.join("\n", outputPump.lineStreamTail(stream)));
+            
+        } finally {
+            outputPump.endLineStream(stream);
         }
         
-        if (progressCallback != null) {
-            progressCallback.onProgress(20, "Command sent, waiting for response...");
+        int exitCode = extractExitCode(stream.getExitLine(), commandId);
+        String tail = cleanAnsiEscapeSequences(String.join("\n", outputPump.lineStreamTail(stream))).trim();
+        String cleanStderr = outputPump.drainStderr().trim();
+        
+        LoggerUtil.getLogger().info("=== STREAMING COMMAND RESULT ===");
+        LoggerUtil.getLogger().info("Exit code: " + exitCode);
+        LoggerUtil.getLogger().info("Lines streamed: " + stream.getLineCount());
+        LoggerUtil.getLogger().info("=== END STREAMING COMMAND EXECUTION ===");
+        
+        return new SSHCommandResult(tail, cleanStderr, exitCode);
+    }
+    
+    /**
+     * Batch execution: one write, one wait for the last marker, then split the output per command.
+     */
+    private List<SSHCommandResult> executeBatchInternal(List<String> commands, int timeoutSeconds) throws IOException {
+        
+        if (commands.isEmpty()) {
+            return new ArrayList<>();
         }
         
-        // Read output until marker appears or timeout
-        StringBuilder stdout = new StringBuilder();
-        StringBuilder stderr = new StringBuilder();
+        String batchId = "CMD_" + commandIdGenerator.incrementAndGet();
+        LoggerUtil.getLogger().info("=== SSHJ BATCH EXECUTION (" + commands.size() + " commands) ===");
+        
+        // Begin markers are split by quotes so an echoed command line never matches them
+        StringBuilder script = new StringBuilder();
+        for (int i = 0; i < commands.size(); i++) {
+            String command = cleanCommand(commands.get(i));
+            String id = batchId + "_" + i;
+            LoggerUtil.getLogger().info("Command " + (i + 1) + ": " + command);
+            script.append("echo \"").append(id).append("\"\"_BEGIN\"; {\n")
+                  .append(command)
+                  .append("\n} </dev/null; echo \"").append(id).append("_EXIT_CODE:$?\"\n");
+        }
+        
+        outputPump.clear();
+        shellInput.write(script.toString().getBytes(StandardCharsets.UTF_8));
+        shellInput.flush();
+        
+        // Commands run in order, so the last exit marker means the whole batch is done
+        String lastMarker = batchId + "_" + (commands.size() - 1) + "_EXIT_CODE:";
+        awaitCompletion("batch of " + commands.size() + " commands", timeoutSeconds, null, false,
+            maxWaitMs -> outputPump.awaitExitMarker(lastMarker, maxWaitMs),
+            () -> outputPump.stdoutTail(PROGRESS_TAIL_CHARS));
+        
+        String fullOutput = outputPump.drainStdout().replace("\r", "");
+        outputPump.drainStderr();
+        
+        List<SSHCommandResult> results = new ArrayList<>(commands.size());
+        int searchFrom = 0;
+        for (int i = 0; i < commands.size(); i++) {
+            String id = batchId + "_" + i;
+            String beginMarker = id + "_BEGIN\n";
+            int begin = fullOutput.indexOf(beginMarker, searchFrom);
+            Matcher exit = begin < 0 ? null
+                : Pattern.compile(Pattern.quote(id + "_EXIT_CODE:") + "(\\d+)").matcher(fullOutput);
+            
+            if (exit == null || !exit.find(begin)) {
+                LoggerUtil.getLogger().warning("Batch output missing for command " + (i + 1) + ": " + commands.get(i));
+                results.add(new SSHCommandResult("", "Command output not found in batch output", -1));
+                continue;
+            }
+            
+            String output = cleanAnsiEscapeSequences(fullOutput.substring(begin + beginMarker.length(), exit.start())).trim();
+            int exitCode = Integer.parseInt(exit.group(1));
+            results.add(new SSHCommandResult(output, "", exitCode));
+            searchFrom = exit.end();
+        }
+        
+        LoggerUtil.getLogger().info("=== END BATCH EXECUTION ===");
+        return results;
+    }
+    
+    /**
+     * Wait for a command's completion marker while honouring timeout, cancellation and
+     * throttled progress updates. Returns normally once the marker has been received.
+     * 
+     * @param waiter Blocks until the marker arrives or the given slice elapses
+     * @param recentOutput Supplies recent output for progress messages and diagnostics
+     */
+    private void awaitCompletion(
+            String command,
+            int timeoutSeconds,
+            ProgressCallback progressCallback,
+            boolean checkCancellation,
+            MarkerWaiter waiter,
+            Supplier<String> recentOutput
+    ) throws IOException {
+        
         long startTime = System.currentTimeMillis();
         long timeoutMs = timeoutSeconds * 1000L;
         long lastProgressUpdate = 0;
+        long lastDebugLog = 0;
         
-        boolean markerFound = false;
-        
-        while (System.currentTimeMillis() - startTime < timeoutMs) {
+        while (true) {
             // Check for cancellation
             if (checkCancellation && progressCallback != null && progressCallback.isCancelled()) {
                 LoggerUtil.getLogger().info("Command execution cancelled by user");
@@ -456,141 +830,102 @@ public class PersistentSudoSession {
                 throw new IOException("Command execution cancelled by user");
             }
             
-            // Read stdout
-            readAvailableOutput(shellOutput, stdout, 50);
-            
-            // Read stderr
-            readAvailableOutput(shellError, stderr, 50);
-            
-            // Log output periodically for debugging
             long elapsed = System.currentTimeMillis() - startTime;
-            if (elapsed % 5000 < 100) { // Every 5 seconds
-                LoggerUtil.getLogger().fine("Command running for " + (elapsed/1000) + "s, stdout length: " + stdout.length() + ", stderr length: " + stderr.length());
-                // Show actual output at 10s, 30s, 60s intervals for stuck command debugging
-                if (elapsed >= 10000 && (elapsed % 30000 < 100 || elapsed < 11000)) {
-                    LoggerUtil.getLogger().warning("Command output so far: '" + stdout.toString() + "'");
-                }
+            long remaining = timeoutMs - elapsed;
+            if (remaining <= 0) {
+                break;
             }
             
-            // Check for marker
-            if (stdout.toString().contains(commandId + "_EXIT_CODE:")) {
-                markerFound = true;
+            boolean markerFound;
+            try {
+                markerFound = waiter.await(Math.min(remaining, OUTPUT_WAIT_SLICE_MS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted during command execution", e);
+            }
+            
+            if (markerFound) {
                 LoggerUtil.getLogger().info("Command completion marker found");
                 if (progressCallback != null) {
                     progressCallback.onProgress(90, "Command completed");
                 }
-                break;
+                return;
+            }
+            
+            if (outputPump.isClosed()) {
+                throw new IOException("Shell output stream closed while executing: " + command);
+            }
+            
+            // Log output periodically for debugging
+            elapsed = System.currentTimeMillis() - startTime;
+            if (elapsed - lastDebugLog >= 5000) { // Every 5 seconds
+                lastDebugLog = elapsed;
+                LoggerUtil.getLogger().fine("Command running for " + (elapsed/1000) + "s, stdout length: " + outputPump.stdoutLength() + ", stderr length: " + outputPump.stderrLength());
+                // Show recent output at 10s and then every 30s for stuck command debugging
+                if (elapsed >= 10000 && (elapsed % 30000 < 5000 || elapsed < 15000)) {
+                    String recent = recentOutput.get();
+                    LoggerUtil.getLogger().warning("Command output so far (tail): '" + recent.substring(Math.max(0, recent.length() - 500)) + "'");
+                }
             }
             
             // Throttled progress updates
             long currentTime = System.currentTimeMillis();
             if (progressCallback != null && (currentTime - lastProgressUpdate) >= 2000) {
-                String latestOutput = getLastLines(stdout.toString(), 2);
+                String latestOutput = getLastLines(recentOutput.get(), 2);
                 if (!latestOutput.trim().isEmpty()) {
                     progressCallback.onProgress(30, latestOutput.trim());
                     lastProgressUpdate = currentTime;
                 }
             }
-            
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new IOException("Interrupted during command execution", e);
-            }
-        }
-        
-        if (!markerFound) {
-            LoggerUtil.getLogger().severe("Command timeout after " + timeoutSeconds + " seconds");
-            LoggerUtil.getLogger().severe("Stdout captured (" + stdout.length() + " bytes): " + stdout.toString().substring(0, Math.min(500, stdout.length())));
-            LoggerUtil.getLogger().severe("Stderr captured (" + stderr.length() + " bytes): " + stderr.toString());
-            interruptCommand();
-            throw new IOException("Command execution timeout after " + timeoutSeconds + " seconds: " + command);
         }
         
-        // Extract exit code and clean output
-        String fullOutput = stdout.toString();
-        int exitCode = extractExitCode(fullOutput, commandId);
-        String cleanOutput = cleanCommandOutput(fullOutput, command, commandId);
-        String cleanStderr = stderr.toString().trim();
-        
-        LoggerUtil.getLogger().info("=== COMMAND EXECUTION RESULT ===");
-        LoggerUtil.getLogger().info("Exit code: " + exitCode);
-        LoggerUtil.getLogger().info("Stdout length: " + cleanOutput.length());
-        LoggerUtil.getLogger().info("Stderr length: " + cleanStderr.length());
-        LoggerUtil.getLogger().fine("Clean output: " + cleanOutput.substring(0, Math.min(800, cleanOutput.length())));
-        LoggerUtil.getLogger().info("=== END COMMAND EXECUTION ===");
-        
-        return new SSHCommandResult(cleanOutput, cleanStderr, exitCode);
+        String recent = recentOutput.get();
+        LoggerUtil.getLogger().severe("Command timeout after " + timeoutSeconds + " seconds");
+        LoggerUtil.getLogger().severe("Output tail: " + recent.substring(Math.max(0, recent.length() - 500)));
+        LoggerUtil.getLogger().severe("Stderr captured (" + outputPump.stderrLength() + " chars)");
+        interruptCommand();
+        throw new IOException("Command execution timeout after " + timeoutSeconds + " seconds: " + command);
     }
     
     /**
-     * Send a simple command to the shell.
+     * Run a command while holding the command lock. A heartbeat holding it is waited for
+     * (it takes at most the heartbeat timeout); a nested call from the running command fails.
      */
-    private void sendCommand(String command) throws IOException {
-        shellInput.write((command + "\n").getBytes(StandardCharsets.UTF_8));
-        shellInput.flush();
+    private <T> T withCommandLock(ShellAction<T> action) throws IOException {
+        if (commandLock.isHeldByCurrentThread()) {
+            throw new IOException("Another command is already in progress");
+        }
+        commandLock.lock();
+        try {
+            return action.run();
+        } finally {
+            lastActivityMillis = System.currentTimeMillis();
+            commandLock.unlock();
+        }
     }
     
     /**
-     * Read available output from an input stream without blocking.
+     * Work done on the shell while holding the command lock.
      */
-    private void readAvailableOutput(InputStream inputStream, StringBuilder buffer, int waitMs) throws IOException {
-        try {
-            if (waitMs > 0) {
-                Thread.sleep(waitMs);
-            }
-            
-            int available = inputStream.available();
-            if (available > 0) {
-                byte[] data = new byte[Math.min(available, BUFFER_SIZE)];
-                int read = inputStream.read(data);
-                if (read > 0) {
-                    buffer.append(new String(data, 0, read, StandardCharsets.UTF_8));
-                }
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    @FunctionalInterface
+    private interface ShellAction<T> {
+        T run() throws IOException;
     }
     
     /**
-     * Drain any pending output from stdout and stderr.
+     * Blocks until a completion marker is seen or the wait slice elapses.
      */
-    private void drainOutput() throws IOException {
-        try {
-            Thread.sleep(200);
-            
-            // Drain stdout
-            int available = shellOutput.available();
-            if (available > 0) {
-                byte[] drain = new byte[available];
-                shellOutput.read(drain);
-            }
-            
-            // Drain stderr
-            available = shellError.available();
-            if (available > 0) {
-                byte[] drain = new byte[available];
-                shellError.read(drain);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    @FunctionalInterface
+    private interface MarkerWaiter {
+        boolean await(long maxWaitMs) throws InterruptedException;
     }
     
     /**
-     * Check if output contains a password prompt.
+     * Send a simple command to the shell.
      */
-    private boolean isPasswordPrompt(String output) {
-        if (output == null || output.isEmpty()) {
-            return false;
-        }
-        
-        String lower = output.toLowerCase();
-        return lower.contains("[sudo] password") ||
-               lower.contains("password:") ||
-               lower.contains("password for");
+    private void sendCommand(String command) throws IOException {
+        shellInput.write((command + "\n").getBytes(StandardCharsets.UTF_8));
+        shellInput.flush();
     }
     
     /**
@@ -598,7 +933,7 @@ public class PersistentSudoSession {
      */
     private int extractExitCode(String output, String commandId) {
         String marker = commandId + "_EXIT_CODE:";
-        int index = output.lastIndexOf(marker);
+        int index = output != null ? output.lastIndexOf(marker) : -1;
         
         if (index == -1) {
             LoggerUtil.getLogger().warning("Exit code marker not found, defaulting to 0");
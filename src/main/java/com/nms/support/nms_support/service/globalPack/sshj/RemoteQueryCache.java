@@ -0,0 +1,200 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import com.nms.support.nms_support.service.globalPack.LoggerUtil;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Per-host cache of results of idempotent remote queries.
+ *
+ * Setup runs the same probes against a server every time ({@code printenv NMS_HOME},
+ * {@code test -d ...}, {@code which zip}), although the answers almost never change. Commands matching a registered idempotent pattern are
+ * answered from this cache until their entry expires or the host is invalidated.
+ *
+ * Features:
+ * - Entries are kept per host and login identity (ssh user and sudo target), since the
+ *   environment differs per user
+ * - Only successful results (exit code 0) are cached, so a missing variable or directory
+ *   is probed again next time. Patterns are therefore limited to commands whose exit code
+ *   carries the answer ({@code echo $VAR} or {@code test ... || echo ...} always exit 0)
+ * - Configurable TTL and additional idempotent patterns
+ * - Explicit invalidation per host or for all hosts
+ * - Hit/miss counters
+ */
+final class RemoteQueryCache {
+
+    // Entries older than this are probed again
+    static final long DEFAULT_TTL_MS = 10 * 60 * 1000;
+
+    // Queries without side effects whose answers only change when the server is reconfigured
+    private static final List<Pattern> idempotentPatterns = new CopyOnWriteArrayList<>(List.of(
+        // printenv NMS_HOME
+        Pattern.compile("printenv \\w+"),
+        // test -d $NMS_HOME/java
+        Pattern.compile("test -[dr] [^\\s;&|<>`()]+"),
+        // which zip
+        Pattern.compile("which [\\w.-]+")
+    ));
+
+    private static volatile long ttlMs = DEFAULT_TTL_MS;
+
+    // Cached results per "host:port:sshUser:targetUser"
+    private static final Map<String, IdentityCache> caches = new ConcurrentHashMap<>();
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private RemoteQueryCache() {
+    }
+
+    /**
+     * Check whether a command is registered as idempotent and may be answered from the cache.
+     */
+    static boolean isIdempotent(String command) {
+        if (command == null) {
+            return false;
+        }
+        String trimmed = command.trim();
+        for (Pattern pattern : idempotentPatterns) {
+            if (pattern.matcher(trimmed).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Look up a cached result. Counts a hit or a miss for idempotent commands.
+     *
+     * @param identity Login identity, see {@link #identity}
+     * @param command Command text
+     * @return The cached result, or null if the command is not idempotent or not cached
+     */
+    static SSHJSessionManager.CommandResult get(String identity, String command) {
+        if (!isIdempotent(command)) {
+            return null;
+        }
+        IdentityCache cache = caches.get(identity);
+        Entry entry = cache != null ? cache.entries.get(command.trim()) : null;
+        if (entry != null && System.currentTimeMillis() - entry.storedAt <= ttlMs) {
+            hits.incrementAndGet();
+            LoggerUtil.getLogger().fine("⚡ Query cache hit: " + command);
+            return entry.result;
+        }
+        if (entry != null) {
+            cache.entries.remove(command.trim(), entry);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Store the result of an idempotent command. Ignored for other commands and failed results.
+     *
+     * @param identity Login identity, see {@link #identity}
+     * @param host Host the identity belongs to, used for invalidation
+     * @param command Command text
+     * @param result Result to cache
+     */
+    static void put(String identity, String host, String command, SSHJSessionManager.CommandResult result) {
+        if (result == null || !result.isSuccess() || !isIdempotent(command)) {
+            return;
+        }
+        caches.computeIfAbsent(identity, k -> new IdentityCache(host))
+            .entries.put(command.trim(), new Entry(result));
+    }
+
+    /**
+     * Drop all cached results for a host, for every user.
+     * Call this after an operation that may have changed the server.
+     */
+    static void invalidateHost(String host) {
+        int removed = 0;
+        for (Map.Entry<String, IdentityCache> entry : caches.entrySet()) {
+            if (entry.getValue().host.equals(host) && caches.remove(entry.getKey(), entry.getValue())) {
+                removed += entry.getValue().entries.size();
+            }
+        }
+        if (removed > 0) {
+            LoggerUtil.getLogger().info("🧹 Invalidated " + removed + " cached query results for " + host);
+        }
+    }
+
+    /**
+     * Drop all cached results.
+     */
+    static void invalidateAll() {
+        caches.clear();
+    }
+
+    /**
+     * Register an additional idempotent command pattern. The whole (trimmed) command must match.
+     */
+    static void registerIdempotent(Pattern pattern) {
+        idempotentPatterns.add(pattern);
+    }
+
+    /**
+     * Set how long results stay valid.
+     */
+    static void setTtlMillis(long ttl) {
+        ttlMs = Math.max(0, ttl);
+    }
+
+    static long getHits() {
+        return hits.get();
+    }
+
+    static long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Get cache statistics for monitoring.
+     *
+     * @return Statistics string
+     */
+    static String getStatistics() {
+        int entries = 0;
+        for (IdentityCache cache : caches.values()) {
+            entries += cache.entries.size();
+        }
+        long h = hits.get();
+        long total = h + misses.get();
+        return String.format("Query cache: %d entries for %d identities, %d hits / %d misses (%d%% hit rate), TTL %d s",
+            entries, caches.size(), h, total - h, total == 0 ? 0 : h * 100 / total, ttlMs / 1000);
+    }
+
+    /**
+     * Cache identity for a login: results are only shared between sessions with the same identity.
+     */
+    static String identity(String host, int port, String sshUser, String targetUser) {
+        String target = (targetUser == null || targetUser.trim().isEmpty()) ? "-" : targetUser;
+        return host + ":" + port + ":" + sshUser + ":" + target;
+    }
+
+    // ===== INNER CLASSES =====
+
+    private static final class IdentityCache {
+        final String host;
+        final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+        IdentityCache(String host) {
+            this.host = host;
+        }
+    }
+
+    private static final class Entry {
+        final SSHJSessionManager.CommandResult result;
+        final long storedAt = System.currentTimeMillis();
+
+        Entry(SSHJSessionManager.CommandResult result) {
+            this.result = result;
+        }
+    }
+}
@@ -3,13 +3,22 @@ package com.nms.support.nms_support.service.globalPack.sshj;
 import com.nms.support.nms_support.service.globalPack.LoggerUtil;
 import com.nms.support.nms_support.service.globalPack.ProcessMonitorManager;
 import com.nms.support.nms_support.service.globalPack.ProgressCallback;
-import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.connection.channel.direct.Session;
 import net.schmizz.sshj.sftp.SFTPClient;
+import net.schmizz.sshj.sftp.SFTPEngine;
 
 import java.io.File;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 /**
  * SSHJ-based SSH Session Manager - Drop-in replacement for JSch-based SSHSessionManager.
@@ -20,8 +29,16 @@ import java.util.Set;
  * Key Features:
  * - Session caching per host/user/purpose
  * - Pre-sudoed shell sessions for elevated command execution
+ * - Pooled shells with a priority scheduler: several commands of one purpose run in
+ *   parallel and short commands are not queued behind long-running ones
  * - Timeout handling and command interruption
  * - Progress callback support
+ * - Streaming, memory-bounded output for chatty commands
+ * - Batched execution of short probes in a single round trip
+ * - Per-host cache for idempotent queries (printenv, echo $VAR, test -d, which)
+ * - Latency, traffic and cache metrics per host and purpose (see {@link SSHMetrics})
+ * - Exec-channel fast path for sessions without a sudo target user: real exit status,
+ *   separate stdout/stderr and parallel commands on one transport
  * - File tracking for cleanup
  * - Thread-safe command execution
  * 
@@ -42,17 +59,29 @@ public class SSHJSessionManager {
     private final String sudoPassword;
     private final String purpose;
     
+    // Key under which idempotent query results are shared with other sessions
+    private final String queryCacheIdentity;
+    
     // Session state
-    private PersistentSudoSession persistentSession;
+    private volatile SudoShellPool shellPool;
+    
+    // Exec-channel mode: no sudo shell, every command runs on its own channel
+    private final boolean execMode;
+    private volatile boolean execReady = false;
+    private static volatile boolean execChannelEnabled = true;
     private String sessionId;
     
     // File tracking for cleanup
     private final Set<String> createdRemoteFiles = Collections.synchronizedSet(new java.util.HashSet<>());
     private final Set<String> createdLocalFiles = Collections.synchronizedSet(new java.util.HashSet<>());
     
-    // Command execution state
-    private volatile boolean commandInProgress = false;
-    private final Object commandLock = new Object();
+    // Command execution state: shells currently leased by this manager
+    private final Set<PersistentSudoSession> activeShells = ConcurrentHashMap.newKeySet();
+    private final Set<Session> activeExecChannels = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeCommands = new AtomicInteger();
+    
+    // Trailing output lines kept in the result of streaming commands
+    private static final int STREAMING_TAIL_LINES = 50;
     
     /**
      * Constructor with password authentication and purpose-based session isolation.
@@ -104,6 +133,8 @@ public class SSHJSessionManager {
         this.targetUser = targetUser;
         this.sudoPassword = sudoPassword;
         this.purpose = purpose != null ? purpose : "default";
+        this.queryCacheIdentity = RemoteQueryCache.identity(host, port, sshUser, targetUser);
+        this.execMode = execChannelEnabled && (targetUser == null || targetUser.trim().isEmpty());
         this.sessionId = "sshj_session_" + System.currentTimeMillis();
         
         // Register with ProcessMonitorManager (pass 'this' reference)
@@ -129,7 +160,7 @@ public class SSHJSessionManager {
      * @throws Exception If initialization fails
      */
     public void initialize() throws Exception {
-        if (persistentSession != null && persistentSession.isAlive()) {
+        if (isReady()) {
             LoggerUtil.getLogger().fine("⚡ Session already initialized and alive");
             return;
         }
@@ -137,7 +168,16 @@ public class SSHJSessionManager {
         LoggerUtil.getLogger().info("🔐 Initializing SSHJ session: " + host + ":" + port);
         
         try {
-            persistentSession = UnifiedSSHManager.getOrCreateSession(
+            if (execMode) {
+                // No sudo shell needed; just make sure the shared transport is up
+                SSHTransportPool.acquire(host, port, sshUser, sshPassword, keyFilePath).release();
+                UnifiedSSHManager.startMaintenance();
+                execReady = true;
+                LoggerUtil.getLogger().info("✅ SSHJ session initialized successfully (exec channel mode)");
+                return;
+            }
+            
+            shellPool = UnifiedSSHManager.getOrCreatePool(
                 host, port, sshUser, sshPassword, keyFilePath,
                 targetUser, sudoPassword, purpose
             );
@@ -188,36 +228,264 @@ public class SSHJSessionManager {
      * @throws Exception If execution fails
      */
     public CommandResult executeCommand(String command, int timeoutSeconds, ProgressCallback progressCallback) throws Exception {
+        return executeCommand(command, timeoutSeconds, progressCallback, CommandPriority.forTimeout(timeoutSeconds));
+    }
+    
+    /**
+     * Execute command with an explicit scheduling priority.
+     * Idempotent queries (printenv, echo $VAR, test -d, which; see
+     * {@link #registerIdempotentQuery}) are answered from the per-host query cache when possible.
+     * 
+     * @param command Command to execute
+     * @param timeoutSeconds Timeout in seconds (also bounds the wait for a free shell)
+     * @param progressCallback Progress callback (can be null)
+     * @param priority INTERACTIVE commands get a free shell ahead of queued BATCH commands
+     * @return Command result
+     * @throws Exception If execution fails
+     */
+    public CommandResult executeCommand(String command, int timeoutSeconds, ProgressCallback progressCallback,
+                                        CommandPriority priority) throws Exception {
+        CommandResult cached = lookupQueryCache(command);
+        if (cached != null) {
+            return cached;
+        }
         
-        // Ensure session is initialized
-        if (persistentSession == null || !persistentSession.isAlive()) {
+        SSHCommandResult result = execMode
+            ? runOnExecChannel(command, timeoutSeconds, progressCallback, null)
+            : runOnPooledShell(priority, timeoutSeconds, progressCallback,
+                session -> session.runCommand(command, timeoutSeconds, progressCallback));
+        recordTraffic(command, result);
+        
+        // Convert to legacy CommandResult format
+        CommandResult converted = new CommandResult(result.getOutput(), result.getError(), result.getExitCode());
+        RemoteQueryCache.put(queryCacheIdentity, host, command, converted);
+        return converted;
+    }
+    
+    /**
+     * Execute command and stream its output line by line.
+     * 
+     * Output is not accumulated: each line is handed to the consumer as it arrives and only
+     * the last {@value #STREAMING_TAIL_LINES} lines are kept in the returned result. Use this
+     * for very chatty commands such as {@code zip -rv}.
+     * 
+     * @param command Command to execute
+     * @param timeoutSeconds Timeout in seconds
+     * @param lineConsumer Consumer for every output line (called on the reader thread)
+     * @return Command result whose output holds the trailing lines only
+     * @throws Exception If execution fails
+     */
+    public CommandResult executeCommandStreaming(String command, int timeoutSeconds, LineConsumer lineConsumer) throws Exception {
+        return executeCommandStreaming(command, timeoutSeconds, lineConsumer, null);
+    }
+    
+    /**
+     * Execute command and stream its output line by line, with cancellation support.
+     * 
+     * @param command Command to execute
+     * @param timeoutSeconds Timeout in seconds
+     * @param lineConsumer Consumer for every output line (called on the reader thread)
+     * @param progressCallback Callback checked for cancellation (can be null)
+     * @return Command result whose output holds the trailing lines only
+     * @throws Exception If execution fails
+     */
+    public CommandResult executeCommandStreaming(String command, int timeoutSeconds, LineConsumer lineConsumer,
+                                                 ProgressCallback progressCallback) throws Exception {
+        // Count streamed output, only its tail ends up in the result
+        AtomicLong streamedBytes = new AtomicLong();
+        LineConsumer countingConsumer = line -> {
+            streamedBytes.addAndGet(SSHMetrics.utf8Length(line) + 1);
+            lineConsumer.onLine(line);
+        };
+        
+        SSHCommandResult result = execMode
+            ? runOnExecChannel(command, timeoutSeconds, progressCallback, countingConsumer)
+            : runOnPooledShell(CommandPriority.BATCH, timeoutSeconds, progressCallback,
+                session -> session.runCommandStreaming(command, timeoutSeconds, countingConsumer, STREAMING_TAIL_LINES, progressCallback));
+        SSHMetrics.recordTraffic(host, purpose, SSHMetrics.utf8Length(command) + 1,
+            streamedBytes.get() + SSHMetrics.utf8Length(result.getError()));
+        return new CommandResult(result.getOutput(), result.getError(), result.getExitCode());
+    }
+    
+    /**
+     * Execute a command and hand its raw stdout to a consumer as it arrives.
+     * 
+     * Always uses a dedicated exec channel of the shared transport, also for sessions with a
+     * target user: the command is then wrapped in {@code sudo su - <target> -c}, with the sudo
+     * password written to the channel's stdin. Nothing is buffered, which makes this the API
+     * for binary output such as an archive piped straight into local extraction.
+     * 
+     * @param command Command to execute (in the target user's login environment)
+     * @param timeoutSeconds Timeout in seconds for the whole transfer
+     * @param consumer Consumer for stdout (called on a reader thread)
+     * @param progressCallback Callback checked for cancellation (can be null)
+     * @return Command result with empty output, the collected stderr and the exit code
+     * @throws Exception If execution, the consumer, timeout or cancellation fails the transfer
+     */
+    public CommandResult executeCommandToStream(String command, int timeoutSeconds, StreamConsumer consumer,
+                                                ProgressCallback progressCallback) throws Exception {
+        if (!isReady()) {
             initialize();
         }
         
-        synchronized (commandLock) {
-            // Check if another command is in progress
-            if (commandInProgress) {
-                LoggerUtil.getLogger().warning("Another command is already in progress. Waiting...");
-                int waitCount = 0;
-                while (commandInProgress && waitCount < 30) {
-                    try {
-                        commandLock.wait(1000);
-                        waitCount++;
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Interrupted while waiting for command completion", e);
-                    }
+        String commandLine;
+        byte[] stdin = null;
+        if (hasTargetUser()) {
+            String quoted = "'" + command.replace("'", "'\\''") + "'";
+            if (sudoPassword != null && !sudoPassword.isEmpty()) {
+                commandLine = "sudo -S -p '' su - " + targetUser + " -c " + quoted;
+                stdin = (sudoPassword + "\n").getBytes(StandardCharsets.UTF_8);
+            } else {
+                commandLine = "sudo -n su - " + targetUser + " -c " + quoted;
+            }
+        } else {
+            commandLine = ExecChannelRunner.loginShellCommand(command);
+        }
+        
+        // Count the raw stream, the consumer sees it unchanged
+        AtomicLong streamedBytes = new AtomicLong();
+        StreamConsumer countingConsumer = stdout -> consumer.consume(new FilterInputStream(stdout) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    streamedBytes.incrementAndGet();
                 }
-                
-                if (commandInProgress) {
-                    LoggerUtil.getLogger().severe("Command still in progress after 30 seconds. Cancelling.");
-                    cancelCommand();
-                    Thread.sleep(2000);
+                return b;
+            }
+            
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    streamedBytes.addAndGet(n);
                 }
+                return n;
+            }
+        });
+        
+        beginCommand();
+        SSHTransportPool.TransportLease transport = null;
+        Session[] channel = new Session[1];
+        try {
+            transport = SSHTransportPool.acquire(host, port, sshUser, sshPassword, keyFilePath);
+            LoggerUtil.getLogger().info("⚡ Streaming exec channel command: " + command);
+            long start = System.currentTimeMillis();
+            SSHCommandResult result;
+            try {
+                result = ExecChannelRunner.stream(transport.getClient(), commandLine, stdin, timeoutSeconds,
+                    progressCallback != null ? progressCallback::isCancelled : null,
+                    session -> {
+                        channel[0] = session;
+                        activeExecChannels.add(session);
+                    },
+                    countingConsumer);
+            } finally {
+                SSHMetrics.record(host, purpose, SSHMetrics.Metric.COMMAND, System.currentTimeMillis() - start);
+                SSHMetrics.recordTraffic(host, purpose, SSHMetrics.utf8Length(command) + 1, streamedBytes.get());
             }
+            return new CommandResult("", result.getError(), result.getExitCode());
             
-            commandInProgress = true;
-            ProcessMonitorManager.getInstance().updateOperationState(sessionId, true);
+        } catch (IOException e) {
+            LoggerUtil.getLogger().severe("Streaming command failed: " + e.getMessage());
+            throw new Exception("Command execution failed: " + e.getMessage(), e);
+            
+        } finally {
+            if (channel[0] != null) {
+                activeExecChannels.remove(channel[0]);
+            }
+            if (transport != null) {
+                transport.release();
+            }
+            endCommand();
+        }
+    }
+    
+    /**
+     * Execute several short commands in one round trip with the default 60-second timeout.
+     * 
+     * @param commands Commands to execute, in order
+     * @return One result per command, in the same order
+     * @throws Exception If execution fails
+     * @see #executeBatch(List, int)
+     */
+    public List<CommandResult> executeBatch(List<String> commands) throws Exception {
+        return executeBatch(commands, 60);
+    }
+    
+    /**
+     * Execute several short commands in one round trip.
+     * 
+     * All commands are written to the shell at once with a distinct marker per command,
+     * and their outputs and exit codes are split out of a single read. Use this for
+     * probes such as path checks, where N separate calls would cost N round trips.
+     * Commands run sequentially; a failing command does not stop the rest.
+     * Idempotent queries answered by the per-host query cache are left out of the batch;
+     * if all of them are cached, no round trip is made at all. In exec channel mode the
+     * commands run in parallel, each on its own channel.
+     * 
+     * @param commands Commands to execute, in order
+     * @param timeoutSeconds Timeout for the whole batch in seconds
+     * @return One result per command, in the same order (exit code -1 if its output was lost)
+     * @throws Exception If execution fails
+     */
+    public List<CommandResult> executeBatch(List<String> commands, int timeoutSeconds) throws Exception {
+        List<CommandResult> converted = new ArrayList<>(commands.size());
+        List<String> pending = new ArrayList<>();
+        for (String command : commands) {
+            CommandResult cached = lookupQueryCache(command);
+            converted.add(cached);
+            if (cached == null) {
+                pending.add(command);
+            }
+        }
+        if (pending.isEmpty()) {
+            return converted;
+        }
+        
+        List<SSHCommandResult> results = execMode
+            ? runBatchOnExecChannels(pending, timeoutSeconds)
+            : runOnPooledShell(CommandPriority.INTERACTIVE, timeoutSeconds, null,
+                session -> session.runBatch(pending, timeoutSeconds));
+        
+        // Fill the gaps left by cache misses, in order
+        int next = 0;
+        for (int i = 0; i < converted.size(); i++) {
+            if (converted.get(i) == null) {
+                SSHCommandResult result = results.get(next++);
+                recordTraffic(commands.get(i), result);
+                CommandResult fresh = new CommandResult(result.getOutput(), result.getError(), result.getExitCode());
+                RemoteQueryCache.put(queryCacheIdentity, host, commands.get(i), fresh);
+                converted.set(i, fresh);
+            }
+        }
+        return converted;
+    }
+    
+    /**
+     * Run a command on a shell leased from the session's pool.
+     * Waits in the pool's priority queue for a free shell, tracks operation state and
+     * discards the shell if the command fails, so the next command gets a fresh one.
+     */
+    private <T> T runOnPooledShell(CommandPriority priority, int timeoutSeconds,
+                                   ProgressCallback progressCallback, SessionCommand<T> sessionCommand) throws Exception {
+        
+        // Ensure session is initialized
+        if (!isReady()) {
+            initialize();
+        }
+        SudoShellPool pool = shellPool;
+        
+        beginCommand();
+        try {
+            PersistentSudoSession session;
+            try {
+                session = pool.acquire(priority, timeoutSeconds * 1000L,
+                    progressCallback != null ? progressCallback::isCancelled : null);
+            } catch (IOException e) {
+                throw new Exception("Command execution failed: " + e.getMessage(), e);
+            }
+            activeShells.add(session);
             
             try {
                 // Check for cancellation
@@ -225,31 +493,185 @@ public class SSHJSessionManager {
                     throw new RuntimeException("Command execution cancelled by user");
                 }
                 
-                // Execute command via persistent session
-                SSHCommandResult result = persistentSession.runCommand(command, timeoutSeconds, progressCallback);
-                
-                // Convert to legacy CommandResult format
-                return new CommandResult(result.getOutput(), result.getExitCode());
+                // Execute command via the leased shell
+                long start = System.currentTimeMillis();
+                T result;
+                try {
+                    result = sessionCommand.run(session);
+                } finally {
+                    SSHMetrics.record(host, purpose, SSHMetrics.Metric.COMMAND, System.currentTimeMillis() - start);
+                }
+                activeShells.remove(session);
+                pool.release(session);
+                return result;
                 
             } catch (IOException e) {
                 LoggerUtil.getLogger().severe("Command execution failed: " + e.getMessage());
                 
-                // Try to recover by reinitializing session
-                LoggerUtil.getLogger().info("Attempting to recover session...");
-                try {
-                    UnifiedSSHManager.closeSession(host, port, sshUser, targetUser, purpose);
-                    persistentSession = null;
-                    initialize();
-                } catch (Exception recoveryError) {
-                    LoggerUtil.getLogger().severe("Session recovery failed: " + recoveryError.getMessage());
-                }
+                // The shell may still be running or be in an unknown state; replace it
+                LoggerUtil.getLogger().info("Discarding shell after failure, the pool will open a fresh one");
+                activeShells.remove(session);
+                pool.discard(session);
                 
                 throw new Exception("Command execution failed: " + e.getMessage(), e);
                 
+            } catch (RuntimeException e) {
+                activeShells.remove(session);
+                pool.release(session);
+                throw e;
+            }
+            
+        } finally {
+            endCommand();
+        }
+    }
+    
+    /**
+     * Run a command on its own exec channel of the shared transport (exec channel mode).
+     * 
+     * @param lineConsumer Streams stdout line by line when not null; only a tail is kept
+     */
+    private SSHCommandResult runOnExecChannel(String command, int timeoutSeconds, ProgressCallback progressCallback,
+                                              LineConsumer lineConsumer) throws Exception {
+        if (!isReady()) {
+            initialize();
+        }
+        
+        beginCommand();
+        SSHTransportPool.TransportLease transport = null;
+        Session[] channel = new Session[1];
+        try {
+            transport = SSHTransportPool.acquire(host, port, sshUser, sshPassword, keyFilePath);
+            LoggerUtil.getLogger().info("⚡ Exec channel command: " + command);
+            long start = System.currentTimeMillis();
+            try {
+                return ExecChannelRunner.run(transport.getClient(), command, timeoutSeconds,
+                    progressCallback != null ? progressCallback::isCancelled : null,
+                    session -> {
+                        channel[0] = session;
+                        activeExecChannels.add(session);
+                    },
+                    lineConsumer, STREAMING_TAIL_LINES);
             } finally {
-                commandInProgress = false;
-                ProcessMonitorManager.getInstance().updateOperationState(sessionId, false);
-                commandLock.notifyAll();
+                SSHMetrics.record(host, purpose, SSHMetrics.Metric.COMMAND, System.currentTimeMillis() - start);
+            }
+            
+        } catch (IOException e) {
+            LoggerUtil.getLogger().severe("Command execution failed: " + e.getMessage());
+            throw new Exception("Command execution failed: " + e.getMessage(), e);
+            
+        } finally {
+            if (channel[0] != null) {
+                activeExecChannels.remove(channel[0]);
+            }
+            if (transport != null) {
+                transport.release();
+            }
+            endCommand();
+        }
+    }
+    
+    /**
+     * Run a batch in exec channel mode: every command on its own channel, in parallel.
+     * At most as many channels run at once as the shared transport has free, so a large
+     * batch neither opens extra connections nor waits on the per-host connection budget.
+     */
+    private List<SSHCommandResult> runBatchOnExecChannels(List<String> commands, int timeoutSeconds) throws Exception {
+        SSHCommandResult[] results = new SSHCommandResult[commands.size()];
+        Exception[] failures = new Exception[commands.size()];
+        int parallel = Math.max(1, Math.min(commands.size(), SSHTransportPool.freeChannels(host, port, sshUser)));
+        List<Thread> workers = new ArrayList<>(parallel);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        
+        for (int w = 0; w < parallel; w++) {
+            workers.add(Thread.ofVirtual().name("sshj-exec-batch-" + w).start(() -> {
+                int index;
+                while (failed.get() == 0 && (index = next.getAndIncrement()) < commands.size()) {
+                    try {
+                        results[index] = runOnExecChannel(commands.get(index), timeoutSeconds, null, null);
+                    } catch (Exception e) {
+                        failures[index] = e;
+                        failed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        
+        for (Exception failure : failures) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        return List.of(results);
+    }
+    
+    /**
+     * Answer an idempotent query from the per-host cache, counting the lookup in the metrics.
+     * 
+     * @return The cached result, or null if the command must be run
+     */
+    private CommandResult lookupQueryCache(String command) {
+        if (!RemoteQueryCache.isIdempotent(command)) {
+            return null;
+        }
+        CommandResult cached = RemoteQueryCache.get(queryCacheIdentity, command);
+        SSHMetrics.recordCacheLookup(host, purpose, cached != null);
+        return cached;
+    }
+    
+    /**
+     * Count a command and its output in the traffic metrics.
+     */
+    private void recordTraffic(String command, SSHCommandResult result) {
+        SSHMetrics.recordTraffic(host, purpose, SSHMetrics.utf8Length(command) + 1,
+            SSHMetrics.utf8Length(result.getOutput()) + SSHMetrics.utf8Length(result.getError()));
+    }
+    
+    /**
+     * Check whether the session can run commands without initializing first.
+     */
+    private boolean isReady() {
+        if (execMode) {
+            return execReady;
+        }
+        SudoShellPool pool = shellPool;
+        return pool != null && pool.isUsable();
+    }
+    
+    private void beginCommand() {
+        if (activeCommands.incrementAndGet() == 1) {
+            ProcessMonitorManager.getInstance().updateOperationState(sessionId, true);
+        }
+    }
+    
+    private void endCommand() {
+        if (activeCommands.decrementAndGet() == 0) {
+            ProcessMonitorManager.getInstance().updateOperationState(sessionId, false);
+        }
+    }
+    
+    /**
+     * Interrupt and discard every shell or exec channel currently running a command for this manager.
+     */
+    private void abortActiveCommands() {
+        SudoShellPool pool = shellPool;
+        for (PersistentSudoSession session : activeShells) {
+            activeShells.remove(session);
+            if (pool != null) {
+                pool.abort(session);
+            }
+        }
+        // Closing an exec channel ends the command's streams; the waiting caller fails fast
+        for (Session channel : activeExecChannels) {
+            activeExecChannels.remove(channel);
+            try {
+                channel.close();
+            } catch (Exception e) {
+                LoggerUtil.getLogger().warning("Failed to close exec channel: " + e.getMessage());
             }
         }
     }
@@ -265,16 +687,12 @@ public class SSHJSessionManager {
     public CommandResult executeCommandWithoutCancellation(String command, int timeoutSeconds) throws Exception {
         LoggerUtil.getLogger().info("Executing command without cancellation checks: " + command);
         
-        if (persistentSession == null || !persistentSession.isAlive()) {
-            initialize();
-        }
-        
-        try {
-            SSHCommandResult result = persistentSession.runCommandWithoutCancellation(command, timeoutSeconds);
-            return new CommandResult(result.getOutput(), result.getExitCode());
-        } catch (IOException e) {
-            throw new Exception("Command execution failed: " + e.getMessage(), e);
-        }
+        SSHCommandResult result = execMode
+            ? runOnExecChannel(command, timeoutSeconds, null, null)
+            : runOnPooledShell(CommandPriority.INTERACTIVE, timeoutSeconds, null,
+                session -> session.runCommandWithoutCancellation(command, timeoutSeconds));
+        recordTraffic(command, result);
+        return new CommandResult(result.getOutput(), result.getError(), result.getExitCode());
     }
     
     /**
@@ -286,10 +704,6 @@ public class SSHJSessionManager {
      * @throws Exception If execution fails
      */
     public CommandResult executeSudoCommand(String command, int timeoutSeconds) throws Exception {
-        if (persistentSession == null || !persistentSession.isAlive()) {
-            initialize();
-        }
-        
         String sudoCommand = "sudo " + command;
         LoggerUtil.getLogger().info("Executing sudo command: " + sudoCommand);
         
@@ -325,50 +739,31 @@ public class SSHJSessionManager {
     
     /**
      * Open SFTP client for file transfers.
-     * Note: This creates a separate SSH connection for SFTP operations.
-     * Make sure to close the SFTPClient and its parent SSHClient when done.
+     * The SFTP subsystem is opened as a channel on the SSH transport shared with this host's
+     * shell sessions, so no extra connection or authentication is needed. Closing the returned
+     * client closes only the SFTP channel and releases its share of the transport.
      * 
      * @return SFTP client
      * @throws Exception If SFTP setup fails
      */
-    @SuppressWarnings("resource") // sshClient intentionally left open for SFTP operations
     public SFTPClient openSftp() throws Exception {
-        if (persistentSession == null || !persistentSession.isAlive()) {
+        if (!isReady()) {
             throw new IllegalStateException("SSH session not connected");
         }
         
         LoggerUtil.getLogger().info("Opening SFTP channel...");
         
-        SSHClient sshClient = null;
+        SSHTransportPool.TransportLease transport = null;
         try {
-            sshClient = new SSHClient();
-            sshClient.addHostKeyVerifier(new net.schmizz.sshj.transport.verification.PromiscuousVerifier());
-            // Configure timeouts: 30s connect, 3 minutes read/socket
-            sshClient.setConnectTimeout(30_000);
-            sshClient.setTimeout(120_000);
-            sshClient.connect(host, port);
-            
-            if (keyFilePath != null && !keyFilePath.trim().isEmpty()) {
-                sshClient.authPublickey(sshUser, keyFilePath);
-            } else if (sshPassword != null) {
-                sshClient.authPassword(sshUser, sshPassword);
-            }
-            
-            SFTPClient sftpClient = sshClient.newSFTPClient();
+            transport = SSHTransportPool.acquire(host, port, sshUser, sshPassword, keyFilePath);
+            SFTPClient sftpClient = new PooledSFTPClient(new SFTPEngine(transport.getClient()).init(), transport);
             LoggerUtil.getLogger().info("✓ SFTP channel opened");
-            
-            // Note: Caller is responsible for closing both sftpClient and sshClient.
-            // To close properly: sftpClient.close(); then sshClient.disconnect();
             return sftpClient;
             
         } catch (IOException e) {
-            // Clean up on error
-            if (sshClient != null && sshClient.isConnected()) {
-                try {
-                    sshClient.disconnect();
-                } catch (IOException closeError) {
-                    LoggerUtil.getLogger().fine("Error closing SSH client after SFTP failure: " + closeError.getMessage());
-                }
+            // Give the transport back on error
+            if (transport != null) {
+                transport.release();
             }
             LoggerUtil.getLogger().severe("Failed to open SFTP channel: " + e.getMessage());
             throw new Exception("SFTP connection failed", e);
@@ -384,18 +779,9 @@ public class SSHJSessionManager {
         ProcessMonitorManager.getInstance().unregisterSession(getSessionId());
         LoggerUtil.getLogger().info("🗑️ Session removed from ProcessMonitor cache");
         
-        // Close the session
-        UnifiedSSHManager.closeSession(host, port, sshUser, targetUser, purpose);
-        persistentSession = null;
-        
-        // Interrupt command if session is available
-        if (persistentSession != null) {
-            try {
-                persistentSession.interruptCommand();
-            } catch (IOException e) {
-                LoggerUtil.getLogger().warning("Failed to interrupt command: " + e.getMessage());
-            }
-        }
+        // Interrupt and drop only the shells running this manager's commands;
+        // other users of the same cached session keep their shells
+        abortActiveCommands();
         
         // Clean up tracked files
         try {
@@ -413,7 +799,7 @@ public class SSHJSessionManager {
      * @return true if command is in progress
      */
     public boolean isCommandRunning() {
-        return commandInProgress;
+        return activeCommands.get() > 0;
     }
     
     /**
@@ -423,19 +809,19 @@ public class SSHJSessionManager {
      * @throws InterruptedException If interrupted while waiting
      */
     public void waitForCommandCompletion(int maxWaitSeconds) throws InterruptedException {
-        if (!commandInProgress) {
+        if (!isCommandRunning()) {
             return;
         }
         
         LoggerUtil.getLogger().info("Waiting for command completion (max " + maxWaitSeconds + " seconds)...");
         int waitCount = 0;
         
-        while (commandInProgress && waitCount < maxWaitSeconds) {
+        while (isCommandRunning() && waitCount < maxWaitSeconds) {
             Thread.sleep(1000);
             waitCount++;
         }
         
-        if (commandInProgress) {
+        if (isCommandRunning()) {
             LoggerUtil.getLogger().warning("Command still running after " + maxWaitSeconds + " seconds");
         } else {
             LoggerUtil.getLogger().info("Command completed successfully");
@@ -463,6 +849,15 @@ public class SSHJSessionManager {
         return purpose;
     }
     
+    /**
+     * Get the SSH host of this session.
+     * 
+     * @return Host name or address
+     */
+    public String getHost() {
+        return host;
+    }
+    
     /**
      * Track a remote file created by this session for cleanup.
      * 
@@ -527,7 +922,8 @@ public class SSHJSessionManager {
             LoggerUtil.getLogger().info("📝 Session instance closed (cache preserved): " + sessionId);
             
         } finally {
-            commandInProgress = false;
+            // Commands still running keep their shells; they are returned when they finish
+            activeShells.clear();
         }
     }
     
@@ -541,7 +937,9 @@ public class SSHJSessionManager {
             
             // Remove from cache and close
             UnifiedSSHManager.closeSession(host, port, sshUser, targetUser, purpose);
-            persistentSession = null;
+            abortActiveCommands();
+            shellPool = null;
+            execReady = false;
             
             // Clean up tracked files
             try {
@@ -555,7 +953,7 @@ public class SSHJSessionManager {
             LoggerUtil.getLogger().info("🔒 Session forcefully closed and removed from cache: " + sessionId);
             
         } finally {
-            commandInProgress = false;
+            activeShells.clear();
         }
     }
     
@@ -574,6 +972,126 @@ public class SSHJSessionManager {
     public static String getCacheStatistics() {
         return UnifiedSSHManager.getCacheStatistics();
     }
+
+    /**
+     * Export SSH latency, traffic and cache metrics per host and purpose as JSON.
+     *
+     * @return JSON document
+     */
+    public static String getMetricsJson() {
+        return SSHMetrics.toJson();
+    }
+
+    /**
+     * Get per-session shell pool statistics (shells, queue depth, wait times).
+     *
+     * @return Shell pool statistics string
+     */
+    public static String getShellPoolStatistics() {
+        return UnifiedSSHManager.getShellPoolStatistics();
+    }
+
+    /**
+     * Number of commands currently waiting for a free shell of this session's pool.
+     *
+     * @return Queue depth, 0 if the session is not initialized
+     */
+    public int getQueueDepth() {
+        SudoShellPool pool = shellPool;
+        return pool != null ? pool.getQueueDepth() : 0;
+    }
+
+    /**
+     * Average time commands of this session's pool waited for a free shell.
+     *
+     * @return Average wait in milliseconds, 0 if the session is not initialized
+     */
+    public long getAverageQueueWaitMillis() {
+        SudoShellPool pool = shellPool;
+        return pool != null ? pool.getAverageWaitMillis() : 0;
+    }
+
+    /**
+     * Drop cached query results for this session's host (all users).
+     * Call this after an operation that may have changed the server, e.g. a setup that
+     * failed validation and will be retried after the server has been fixed.
+     */
+    public void invalidateQueryCache() {
+        RemoteQueryCache.invalidateHost(host);
+    }
+    
+    /**
+     * Drop cached query results for a host (all users).
+     * 
+     * @param host SSH host
+     */
+    public static void invalidateQueryCache(String host) {
+        RemoteQueryCache.invalidateHost(host);
+    }
+    
+    /**
+     * Drop all cached query results.
+     */
+    public static void invalidateAllQueryCaches() {
+        RemoteQueryCache.invalidateAll();
+    }
+    
+    /**
+     * Enable or disable the exec channel fast path for sessions without a sudo target user.
+     * Applies to session managers created afterwards; when disabled they use a shell pool
+     * like sudo sessions do. Enabled by default.
+     * 
+     * @param enabled Whether to use exec channels
+     */
+    public static void setExecChannelEnabled(boolean enabled) {
+        execChannelEnabled = enabled;
+    }
+    
+    /**
+     * Check whether this session runs its commands on exec channels instead of a sudo shell.
+     * 
+     * @return true in exec channel mode
+     */
+    public boolean isExecChannelMode() {
+        return execMode;
+    }
+    
+    /**
+     * Check whether commands run as a sudo target user rather than as the SSH user.
+     * 
+     * @return true if a target user is configured
+     */
+    public boolean hasTargetUser() {
+        return targetUser != null && !targetUser.trim().isEmpty();
+    }
+    
+    /**
+     * Set how long cached query results stay valid.
+     * 
+     * @param ttlMillis Time to live in milliseconds; 0 disables caching
+     */
+    public static void setQueryCacheTtl(long ttlMillis) {
+        RemoteQueryCache.setTtlMillis(ttlMillis);
+    }
+    
+    /**
+     * Register an additional command pattern as idempotent, so its results are cached.
+     * The whole command must match. Only register queries without side effects.
+     * 
+     * @param pattern Pattern matched against the trimmed command
+     */
+    public static void registerIdempotentQuery(Pattern pattern) {
+        RemoteQueryCache.registerIdempotent(pattern);
+    }
+    
+    /**
+     * Get query cache statistics (entries, hits, misses).
+     * 
+     * @return Query cache statistics string
+     */
+    public static String getQueryCacheStatistics() {
+        return RemoteQueryCache.getStatistics();
+    }
     
     /**
      * Clean up expired sessions.
@@ -639,9 +1157,10 @@ public class SSHJSessionManager {
     @Deprecated
     public void safeKillCurrentSessionProcesses() {
         try {
-            if (persistentSession != null && persistentSession.isAlive()) {
+            if (isReady()) {
                 LoggerUtil.getLogger().info("Safely killing current session processes");
-                executeCommandWithoutCancellation("pkill -P $$", 30);
+                // Closing a shell hangs up every process it started
+                abortActiveCommands();
                 cleanupCreatedRemoteFiles();
             }
         } catch (Exception e) {
@@ -655,10 +1174,9 @@ public class SSHJSessionManager {
     @Deprecated
     public void forceKillZipProcesses() {
         try {
-            if (persistentSession != null && persistentSession.isAlive()) {
+            if (isReady()) {
                 LoggerUtil.getLogger().info("Forcefully killing zip processes");
-                persistentSession.interruptCommand();
-                Thread.sleep(500);
+                abortActiveCommands();
                 executeCommandWithoutCancellation("pkill -f zip", 30);
             }
         } catch (Exception e) {
@@ -672,12 +1190,9 @@ public class SSHJSessionManager {
     @Deprecated
     public void forceKillCurrentCommand() {
         try {
-            if (persistentSession != null && persistentSession.isAlive()) {
+            if (isReady()) {
                 LoggerUtil.getLogger().info("Forcefully killing current command");
-                persistentSession.interruptCommand();
-                Thread.sleep(500);
-                executeCommandWithoutCancellation("pkill -P $$", 30);
-                commandInProgress = false;
+                abortActiveCommands();
             }
         } catch (Exception e) {
             LoggerUtil.getLogger().warning("Failed to kill current command: " + e.getMessage());
@@ -690,12 +1205,9 @@ public class SSHJSessionManager {
     @Deprecated
     public void emergencySessionCleanup() {
         try {
-            if (persistentSession != null && persistentSession.isAlive()) {
+            if (isReady()) {
                 LoggerUtil.getLogger().info("EMERGENCY SESSION CLEANUP");
-                persistentSession.interruptCommand();
-                Thread.sleep(1000);
-                executeCommandWithoutCancellation("kill -9 -$$", 30);
-                commandInProgress = false;
+                abortActiveCommands();
             }
         } catch (Exception e) {
             LoggerUtil.getLogger().warning("Failed to perform emergency cleanup: " + e.getMessage());
@@ -704,15 +1216,52 @@ public class SSHJSessionManager {
     
     // ===== INNER CLASSES =====
     
+    /**
+     * SFTP client on a pooled transport; closing it releases the transport lease.
+     */
+    private static class PooledSFTPClient extends SFTPClient {
+        private final SSHTransportPool.TransportLease transport;
+        
+        PooledSFTPClient(SFTPEngine engine, SSHTransportPool.TransportLease transport) {
+            super(engine);
+            this.transport = transport;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                transport.release();
+            }
+        }
+    }
+    
+    /**
+     * A command run against a leased shell.
+     */
+    @FunctionalInterface
+    private interface SessionCommand<T> {
+        T run(PersistentSudoSession session) throws IOException;
+    }
+    
     /**
      * Command result container for backward compatibility.
+     * In shell mode stderr is merged into the output by the PTY and {@link #getError()} is empty;
+     * in exec channel mode the two streams are kept apart.
      */
     public static class CommandResult {
         private final String output;
+        private final String error;
         private final int exitCode;
         
         public CommandResult(String output, int exitCode) {
+            this(output, "", exitCode);
+        }
+        
+        public CommandResult(String output, String error, int exitCode) {
             this.output = output;
+            this.error = error != null ? error : "";
             this.exitCode = exitCode;
         }
         
@@ -720,6 +1269,10 @@ public class SSHJSessionManager {
             return output;
         }
         
+        public String getError() {
+            return error;
+        }
+        
         public int getExitCode() {
             return exitCode;
         }
@@ -0,0 +1,528 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency and throughput metrics of the SSH stack, per host and per (host, purpose).
+ *
+ * When setup is slow these numbers show where the time goes: establishing the connection,
+ * the sudo handshake, waiting for a free shell, or the command itself. Comparing them
+ * across servers and VPN locations makes network problems visible.
+ *
+ * Features:
+ * - Histograms for connect, auth, shell ready, sudo handshake, queue wait and command wall time
+ * - Bytes sent (commands) and received (output) per scope
+ * - File transfer count and average throughput per scope
+ * - Query cache hit rate per scope
+ * - Host-wide totals next to the per-purpose breakdown (connect and auth are host-wide
+ *   only, because transports are shared between purposes)
+ * - Snapshots for the diagnostics dialog and JSON export
+ */
+public final class SSHMetrics {
+
+    /**
+     * Timed phases of SSH work.
+     */
+    public enum Metric {
+        CONNECT("Connect"),
+        AUTH("Auth"),
+        SHELL_READY("Shell ready"),
+        SUDO("Sudo handshake"),
+        QUEUE_WAIT("Queue wait"),
+        COMMAND("Command");
+
+        private final String label;
+
+        Metric(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // Purpose of the host-wide scope
+    public static final String ALL_PURPOSES = "*";
+
+    // Scopes per "host|purpose"
+    private static final Map<String, Scope> scopes = new ConcurrentHashMap<>();
+
+    private SSHMetrics() {
+    }
+
+    // ===== RECORDING =====
+
+    /**
+     * Record the duration of a phase.
+     *
+     * @param host SSH host
+     * @param purpose Session purpose, or null if the phase is shared by all purposes
+     * @param metric Phase
+     * @param millis Duration in milliseconds
+     */
+    static void record(String host, String purpose, Metric metric, long millis) {
+        for (Scope scope : scopesFor(host, purpose)) {
+            scope.histogram(metric).record(millis);
+        }
+    }
+
+    /**
+     * Record bytes sent to and received from the server by a command.
+     */
+    static void recordTraffic(String host, String purpose, long bytesOut, long bytesIn) {
+        for (Scope scope : scopesFor(host, purpose)) {
+            scope.bytesOut.addAndGet(bytesOut);
+            scope.bytesIn.addAndGet(bytesIn);
+        }
+    }
+
+    /**
+     * Record a finished file transfer (SFTP download, streamed archive).
+     *
+     * @param host SSH host
+     * @param purpose Session purpose (can be null)
+     * @param bytes Bytes transferred
+     * @param millis Wall time of the transfer in milliseconds
+     */
+    public static void recordTransfer(String host, String purpose, long bytes, long millis) {
+        for (Scope scope : scopesFor(host, purpose)) {
+            scope.transfers.incrementAndGet();
+            scope.transferBytes.addAndGet(bytes);
+            scope.transferMillis.addAndGet(Math.max(0, millis));
+        }
+    }
+
+    /**
+     * Average throughput of the finished transfers from a host.
+     *
+     * @return KB/s, or 0 if nothing has been transferred from the host yet
+     */
+    public static long transferRate(String host) {
+        Scope scope = scopes.get((host != null ? host : "unknown") + "|" + ALL_PURPOSES);
+        return scope != null ? scope.transferRate() : 0;
+    }
+
+    /**
+     * Record a lookup in the query cache.
+     */
+    static void recordCacheLookup(String host, String purpose, boolean hit) {
+        for (Scope scope : scopesFor(host, purpose)) {
+            (hit ? scope.cacheHits : scope.cacheMisses).incrementAndGet();
+        }
+    }
+
+    /**
+     * Forget all recorded values.
+     */
+    public static void reset() {
+        scopes.clear();
+    }
+
+    // ===== REPORTING =====
+
+    /**
+     * Latency statistics of every scope and phase that has samples, host-wide rows first.
+     *
+     * @return Rows sorted by host, purpose and phase
+     */
+    public static List<LatencyRow> latencySnapshot() {
+        List<LatencyRow> rows = new ArrayList<>();
+        for (Scope scope : sortedScopes()) {
+            for (Map.Entry<Metric, LatencyHistogram> entry : scope.histograms.entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                if (histogram.count() > 0) {
+                    rows.add(new LatencyRow(scope.host, scope.purpose, entry.getKey(), histogram));
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Traffic and cache statistics of every scope.
+     *
+     * @return Rows sorted by host and purpose
+     */
+    public static List<TrafficRow> trafficSnapshot() {
+        List<TrafficRow> rows = new ArrayList<>();
+        for (Scope scope : sortedScopes()) {
+            rows.add(new TrafficRow(scope));
+        }
+        return rows;
+    }
+
+    /**
+     * One line per host with the most telling numbers.
+     *
+     * @return Summary string
+     */
+    public static String getSummary() {
+        StringBuilder summary = new StringBuilder("SSH metrics:");
+        boolean any = false;
+        for (Scope scope : sortedScopes()) {
+            if (!ALL_PURPOSES.equals(scope.purpose)) {
+                continue;
+            }
+            any = true;
+            LatencyHistogram connect = scope.histograms.get(Metric.CONNECT);
+            LatencyHistogram shell = scope.histograms.get(Metric.SHELL_READY);
+            LatencyHistogram sudo = scope.histograms.get(Metric.SUDO);
+            LatencyHistogram queue = scope.histograms.get(Metric.QUEUE_WAIT);
+            LatencyHistogram command = scope.histograms.get(Metric.COMMAND);
+            summary.append(String.format(
+                " [%s: connect avg %d ms, shell avg %d ms, sudo avg %d ms, queue p95 %d ms, %d commands avg %d ms / p95 %d ms, %d B out / %d B in, cache hit rate %d%%]",
+                scope.host, connect.average(), shell.average(), sudo.average(), queue.percentile(95),
+                command.count(), command.average(), command.percentile(95),
+                scope.bytesOut.get(), scope.bytesIn.get(), scope.cacheHitRate()));
+        }
+        return any ? summary.toString() : "SSH metrics: no data";
+    }
+
+    /**
+     * Export all metrics as pretty-printed JSON.
+     *
+     * @return JSON document with one entry per scope
+     */
+    public static String toJson() {
+        List<Map<String, Object>> scopeList = new ArrayList<>();
+        for (Scope scope : sortedScopes()) {
+            Map<String, Object> scopeJson = new LinkedHashMap<>();
+            scopeJson.put("host", scope.host);
+            scopeJson.put("purpose", scope.purpose);
+
+            Map<String, Object> latencies = new LinkedHashMap<>();
+            for (Map.Entry<Metric, LatencyHistogram> entry : scope.histograms.entrySet()) {
+                if (entry.getValue().count() > 0) {
+                    latencies.put(entry.getKey().name().toLowerCase(), entry.getValue().toJson());
+                }
+            }
+            scopeJson.put("latencyMs", latencies);
+            scopeJson.put("bytesOut", scope.bytesOut.get());
+            scopeJson.put("bytesIn", scope.bytesIn.get());
+            scopeJson.put("cacheHits", scope.cacheHits.get());
+            scopeJson.put("cacheMisses", scope.cacheMisses.get());
+            scopeJson.put("cacheHitRatePercent", scope.cacheHitRate());
+            scopeJson.put("transfers", scope.transfers.get());
+            scopeJson.put("transferBytes", scope.transferBytes.get());
+            scopeJson.put("transferMillis", scope.transferMillis.get());
+            scopeJson.put("transferKBps", scope.transferRate());
+            scopeList.add(scopeJson);
+        }
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("exportedAt", System.currentTimeMillis());
+        root.put("scopes", scopeList);
+        try {
+            return new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(root);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize SSH metrics", e);
+        }
+    }
+
+    /**
+     * Number of bytes a string occupies in UTF-8, without encoding it.
+     */
+    static long utf8Length(String text) {
+        if (text == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    /**
+     * The host-wide scope and, if a purpose is given, the per-purpose scope.
+     */
+    private static List<Scope> scopesFor(String host, String purpose) {
+        String safeHost = host != null ? host : "unknown";
+        Scope hostScope = scopes.computeIfAbsent(safeHost + "|" + ALL_PURPOSES, k -> new Scope(safeHost, ALL_PURPOSES));
+        if (purpose == null || purpose.isEmpty() || ALL_PURPOSES.equals(purpose)) {
+            return List.of(hostScope);
+        }
+        Scope purposeScope = scopes.computeIfAbsent(safeHost + "|" + purpose, k -> new Scope(safeHost, purpose));
+        return List.of(hostScope, purposeScope);
+    }
+
+    private static List<Scope> sortedScopes() {
+        List<Scope> sorted = new ArrayList<>(scopes.values());
+        sorted.sort(Comparator.comparing((Scope scope) -> scope.host)
+            .thenComparing(scope -> !ALL_PURPOSES.equals(scope.purpose))
+            .thenComparing(scope -> scope.purpose));
+        return sorted;
+    }
+
+    // ===== INNER CLASSES =====
+
+    /**
+     * Metrics of one host or one (host, purpose) pair.
+     */
+    private static final class Scope {
+        final String host;
+        final String purpose;
+        final Map<Metric, LatencyHistogram> histograms = new EnumMap<>(Metric.class);
+        final AtomicLong bytesOut = new AtomicLong();
+        final AtomicLong bytesIn = new AtomicLong();
+        final AtomicLong cacheHits = new AtomicLong();
+        final AtomicLong cacheMisses = new AtomicLong();
+        final AtomicLong transfers = new AtomicLong();
+        final AtomicLong transferBytes = new AtomicLong();
+        final AtomicLong transferMillis = new AtomicLong();
+
+        Scope(String host, String purpose) {
+            this.host = host;
+            this.purpose = purpose;
+            // All histograms exist up front, so the map is never modified after construction
+            for (Metric metric : Metric.values()) {
+                histograms.put(metric, new LatencyHistogram());
+            }
+        }
+
+        LatencyHistogram histogram(Metric metric) {
+            return histograms.get(metric);
+        }
+
+        int cacheHitRate() {
+            long hits = cacheHits.get();
+            long total = hits + cacheMisses.get();
+            return total == 0 ? 0 : (int) (hits * 100 / total);
+        }
+
+        /**
+         * Average transfer throughput in KB/s.
+         */
+        long transferRate() {
+            long millis = transferMillis.get();
+            return millis == 0 ? 0 : transferBytes.get() * 1000 / 1024 / millis;
+        }
+    }
+
+    /**
+     * Lock-free latency histogram with roughly logarithmic millisecond buckets.
+     * Percentiles are reported as the upper bound of the bucket they fall in.
+     */
+    static final class LatencyHistogram {
+
+        private static final long[] BUCKET_BOUNDS_MS = {
+            1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000, 30_000, 60_000, 300_000, Long.MAX_VALUE
+        };
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+        void record(long millis) {
+            long value = Math.max(0, millis);
+            int bucket = 0;
+            while (value > BUCKET_BOUNDS_MS[bucket]) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+            min.accumulateAndGet(value, Math::min);
+        }
+
+        long count() {
+            return count.get();
+        }
+
+        long average() {
+            long n = count.get();
+            return n == 0 ? 0 : sum.get() / n;
+        }
+
+        long max() {
+            return max.get();
+        }
+
+        long min() {
+            return count.get() == 0 ? 0 : min.get();
+        }
+
+        long percentile(int percent) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * percent / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(BUCKET_BOUNDS_MS[i], max.get());
+                }
+            }
+            return max.get();
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("count", count());
+            json.put("avg", average());
+            json.put("min", min());
+            json.put("p50", percentile(50));
+            json.put("p95", percentile(95));
+            json.put("p99", percentile(99));
+            json.put("max", max());
+            Map<String, Long> bucketJson = new LinkedHashMap<>();
+            for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+                long value = buckets.get(i);
+                if (value > 0) {
+                    bucketJson.put(BUCKET_BOUNDS_MS[i] == Long.MAX_VALUE ? "inf" : "le_" + BUCKET_BOUNDS_MS[i], value);
+                }
+            }
+            json.put("buckets", bucketJson);
+            return json;
+        }
+    }
+
+    /**
+     * Latency statistics of one phase in one scope, for display.
+     */
+    public static final class LatencyRow {
+        private final String host;
+        private final String purpose;
+        private final String metric;
+        private final long count;
+        private final long average;
+        private final long p50;
+        private final long p95;
+        private final long max;
+
+        private LatencyRow(String host, String purpose, Metric metric, LatencyHistogram histogram) {
+            this.host = host;
+            this.purpose = purpose;
+            this.metric = metric.getLabel();
+            this.count = histogram.count();
+            this.average = histogram.average();
+            this.p50 = histogram.percentile(50);
+            this.p95 = histogram.percentile(95);
+            this.max = histogram.max();
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public String getPurpose() {
+            return purpose;
+        }
+
+        public String getMetric() {
+            return metric;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getAverage() {
+            return average;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP95() {
+            return p95;
+        }
+
+        public long getMax() {
+            return max;
+        }
+    }
+
+    /**
+     * Traffic and cache statistics of one scope, for display.
+     */
+    public static final class TrafficRow {
+        private final String host;
+        private final String purpose;
+        private final long bytesOut;
+        private final long bytesIn;
+        private final long cacheHits;
+        private final long cacheMisses;
+        private final int cacheHitRate;
+        private final long transfers;
+        private final long transferRate;
+
+        private TrafficRow(Scope scope) {
+            this.host = scope.host;
+            this.purpose = scope.purpose;
+            this.bytesOut = scope.bytesOut.get();
+            this.bytesIn = scope.bytesIn.get();
+            this.cacheHits = scope.cacheHits.get();
+            this.cacheMisses = scope.cacheMisses.get();
+            this.cacheHitRate = scope.cacheHitRate();
+            this.transfers = scope.transfers.get();
+            this.transferRate = scope.transferRate();
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        public String getPurpose() {
+            return purpose;
+        }
+
+        public long getBytesOut() {
+            return bytesOut;
+        }
+
+        public long getBytesIn() {
+            return bytesIn;
+        }
+
+        public long getCacheHits() {
+            return cacheHits;
+        }
+
+        public long getCacheMisses() {
+            return cacheMisses;
+        }
+
+        public int getCacheHitRate() {
+            return cacheHitRate;
+        }
+
+        public long getTransfers() {
+            return transfers;
+        }
+
+        public long getTransferRate() {
+            return transferRate;
+        }
+    }
+}
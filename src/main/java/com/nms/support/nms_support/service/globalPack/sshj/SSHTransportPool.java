@@ -0,0 +1,448 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import com.nms.support.nms_support.service.globalPack.LoggerUtil;
+import com.nms.support.nms_support.service.globalPack.SSHConnectionGovernor;
+import net.schmizz.sshj.SSHClient;
+import net.schmizz.sshj.common.Message;
+import net.schmizz.sshj.common.SSHPacket;
+import net.schmizz.sshj.transport.verification.PromiscuousVerifier;
+import net.schmizz.sshj.userauth.keyprovider.KeyProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pool of authenticated SSH transports shared by all sessions to the same host and user.
+ *
+ * Every session purpose (project_only, product_only, datastore_report, ...) and every SFTP
+ * download used to open its own TCP connection and authenticate separately. The pool keeps
+ * one authenticated {@link SSHClient} per (host, port, user) and hands out leases on it;
+ * shells and SFTP subsystems are opened as channels on the leased transport.
+ *
+ * Features:
+ * - One connect/auth per host and user instead of one per purpose and per download
+ * - Lease counting: a transport is disconnected once its last lease has been released
+ *   and it stayed unused for a short linger period, so short-lived channels (exec
+ *   commands, SFTP downloads) do not reconnect every time
+ * - Channel cap per transport; an extra transport is opened only when all are full,
+ *   so the server's MaxSessions limit is respected
+ * - Dead transports are dropped and replaced transparently
+ * - Keepalive packets on idle connections, so firewalls and NAT do not silently drop them
+ * - Connections and channels count against the per-host {@link SSHConnectionGovernor} budget
+ *   shared with the JSch stack; idle transports can be evicted by it
+ */
+final class SSHTransportPool {
+
+    // Channels (shells + SFTP subsystems) per transport; sshd's default MaxSessions is 10
+    private static final int MAX_CHANNELS_PER_TRANSPORT = 8;
+
+    // Connection timeout: 30 seconds
+    private static final int CONNECTION_TIMEOUT_MS = 30_000;
+    // Read/socket timeout for IO (e.g., SFTP): 2 minutes
+    private static final int READ_TIMEOUT_MS = 120_000;
+
+    // How long a transport without leases stays connected for reuse
+    private static final long IDLE_LINGER_MS = 2 * 60 * 1000;
+
+    // Transports per "host:port:user"
+    private static final Map<String, TransportGroup> groups = new ConcurrentHashMap<>();
+
+    private SSHTransportPool() {
+    }
+
+    /**
+     * Lease a connected and authenticated transport for the given host and user,
+     * connecting only if no shared transport with free channel capacity exists.
+     *
+     * @param host SSH host
+     * @param port SSH port
+     * @param sshUser SSH username
+     * @param sshPassword SSH password (can be null if using key auth)
+     * @param keyFilePath Path to SSH private key file (can be null if using password auth)
+     * @return Lease on a shared transport; release it when the channel is closed
+     * @throws IOException If connecting or authenticating fails
+     */
+    static TransportLease acquire(String host, int port, String sshUser, String sshPassword, String keyFilePath) throws IOException {
+        String key = host + ":" + port + ":" + sshUser;
+        TransportGroup group = groups.computeIfAbsent(key, TransportGroup::new);
+
+        // Taken before the group lock, so waiting for a channel never blocks lease releases
+        SSHConnectionGovernor.ChannelPermit channel = SSHConnectionGovernor.acquireChannel(host, "SSHJ");
+        try {
+            return group.acquire(host, port, sshUser, sshPassword, keyFilePath, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Channels still free on the least loaded live transport for a host and user, or a whole
+     * transport's capacity if none is open yet. Callers that run several channels at once stay
+     * within this, so they share one transport instead of opening more.
+     */
+    static int freeChannels(String host, int port, String sshUser) {
+        TransportGroup group = groups.get(host + ":" + port + ":" + sshUser);
+        if (group == null) {
+            return MAX_CHANNELS_PER_TRANSPORT;
+        }
+        synchronized (group) {
+            int free = -1;
+            for (PooledTransport transport : group.transports) {
+                if (transport.client.isConnected()) {
+                    free = Math.max(free, MAX_CHANNELS_PER_TRANSPORT - transport.leases);
+                }
+            }
+            return free < 0 ? MAX_CHANNELS_PER_TRANSPORT : free;
+        }
+    }
+
+    /**
+     * Disconnect all pooled transports. Outstanding leases become invalid.
+     */
+    static void closeAll() {
+        for (TransportGroup group : groups.values()) {
+            group.closeAll();
+        }
+        groups.clear();
+    }
+
+    /**
+     * Send an SSH keepalive (IGNORE packet) on every pooled transport. A transport whose
+     * write fails is disconnected, which closes its channels and lets the shells on it be
+     * replaced. Called from the background maintenance task.
+     */
+    static void sendKeepAlives() {
+        List<SSHClient> clients = new ArrayList<>();
+        for (TransportGroup group : groups.values()) {
+            synchronized (group) {
+                for (PooledTransport transport : group.transports) {
+                    clients.add(transport.client);
+                }
+            }
+        }
+
+        // Written outside the group locks so a stalled socket cannot block lease handling
+        for (SSHClient client : clients) {
+            if (!client.isConnected()) {
+                continue; // dropped on the next acquire
+            }
+            try {
+                client.getTransport().write(new SSHPacket(Message.IGNORE));
+            } catch (Exception e) {
+                LoggerUtil.getLogger().warning("💔 SSH keepalive failed, disconnecting transport: " + e.getMessage());
+                disconnectQuietly(client);
+            }
+        }
+    }
+
+    /**
+     * Disconnect transports that have had no leases for longer than the linger period.
+     * Called from the background maintenance task.
+     */
+    static void closeIdleTransports() {
+        long now = System.currentTimeMillis();
+        for (TransportGroup group : groups.values()) {
+            group.closeIdle(now);
+        }
+    }
+
+    /**
+     * Get pool statistics for monitoring.
+     *
+     * @return Statistics string
+     */
+    static String getStatistics() {
+        int transports = 0;
+        int leases = 0;
+        for (TransportGroup group : groups.values()) {
+            synchronized (group) {
+                transports += group.transports.size();
+                for (PooledTransport transport : group.transports) {
+                    leases += transport.leases;
+                }
+            }
+        }
+        return String.format("SSH transports: %d open, %d channels leased", transports, leases);
+    }
+
+    /**
+     * Create, connect and authenticate a new SSH client.
+     */
+    static SSHClient connect(String host, int port, String sshUser, String sshPassword, String keyFilePath) throws IOException {
+        SSHClient client = new SSHClient();
+
+        // Configure client
+        client.addHostKeyVerifier(new PromiscuousVerifier()); // TODO: Replace with proper host key verification in production
+        client.setConnectTimeout(CONNECTION_TIMEOUT_MS);
+        client.setTimeout(READ_TIMEOUT_MS);
+
+        try {
+            // Connect
+            long connectStart = System.currentTimeMillis();
+            client.connect(host, port);
+            SSHMetrics.record(host, null, SSHMetrics.Metric.CONNECT, System.currentTimeMillis() - connectStart);
+            LoggerUtil.getLogger().info("✓ SSHJ connected to " + host + ":" + port);
+            long authStart = System.currentTimeMillis();
+
+            // Authenticate
+            if (keyFilePath != null && !keyFilePath.trim().isEmpty()) {
+                File keyFile = new File(keyFilePath);
+                if (keyFile.exists()) {
+                    LoggerUtil.getLogger().info("🔑 Authenticating with SSH key: " + keyFilePath);
+                    KeyProvider keyProvider = client.loadKeys(keyFilePath);
+                    client.authPublickey(sshUser, keyProvider);
+                } else {
+                    throw new IOException("SSH key file not found: " + keyFilePath);
+                }
+            } else if (sshPassword != null && !sshPassword.trim().isEmpty()) {
+                LoggerUtil.getLogger().info("🔑 Authenticating with password for user: " + sshUser);
+                client.authPassword(sshUser, sshPassword);
+            } else {
+                throw new IOException("No authentication method provided (password or key)");
+            }
+            SSHMetrics.record(host, null, SSHMetrics.Metric.AUTH, System.currentTimeMillis() - authStart);
+        } catch (IOException e) {
+            disconnectQuietly(client);
+            throw e;
+        }
+
+        LoggerUtil.getLogger().info("✓ SSHJ authenticated as " + sshUser);
+        return client;
+    }
+
+    private static void disconnectQuietly(SSHClient client) {
+        try {
+            if (client.isConnected()) {
+                client.disconnect();
+            }
+        } catch (Exception e) {
+            LoggerUtil.getLogger().fine("Error disconnecting SSH client: " + e.getMessage());
+        }
+    }
+
+    // ===== INNER CLASSES =====
+
+    /**
+     * A lease on a pooled transport. Releasing is idempotent.
+     */
+    static final class TransportLease {
+        private final TransportGroup group;
+        private final PooledTransport transport;
+        private final SSHConnectionGovernor.ChannelPermit channel;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private TransportLease(TransportGroup group, PooledTransport transport, SSHConnectionGovernor.ChannelPermit channel) {
+            this.group = group;
+            this.transport = transport;
+            this.channel = channel;
+        }
+
+        /**
+         * The shared, authenticated client. Do not disconnect it; release the lease instead.
+         */
+        SSHClient getClient() {
+            return transport.client;
+        }
+
+        /**
+         * Give the lease back; the transport is disconnected when no leases remain.
+         */
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                group.release(transport);
+                channel.release();
+            }
+        }
+    }
+
+    /**
+     * A pooled SSH client and the number of channels leased on it.
+     */
+    private static final class PooledTransport {
+        final SSHClient client;
+        final SSHConnectionGovernor.ConnectionTicket ticket;
+        int leases;
+        // When the last lease was released, 0 while leased
+        long idleSince;
+
+        PooledTransport(SSHClient client, SSHConnectionGovernor.ConnectionTicket ticket) {
+            this.client = client;
+            this.ticket = ticket;
+        }
+
+        void disconnect() {
+            disconnectQuietly(client);
+            ticket.release();
+        }
+    }
+
+    /**
+     * All transports for one host and user. The group lock only guards the transport list:
+     * waiting for a governor connection ticket and the TCP connect and authentication happen
+     * outside it, so lease releases (which free channels and make tickets evictable) are never
+     * held up. Callers that find every transport full wait for a connect already in flight when
+     * it has room for them, so concurrent callers for the same host still share one handshake.
+     */
+    private static final class TransportGroup {
+        final String key;
+        final List<PooledTransport> transports = new ArrayList<>();
+        // Connects in flight, and callers waiting for one of them
+        int connecting;
+        int waitingForConnect;
+        // Failure of the last connect, handed to the callers that waited for it
+        IOException connectFailure;
+        long connectFailures;
+
+        TransportGroup(String key) {
+            this.key = key;
+        }
+
+        TransportLease acquire(String host, int port, String sshUser, String sshPassword, String keyFilePath,
+                               SSHConnectionGovernor.ChannelPermit channel) throws IOException {
+            synchronized (this) {
+                while (true) {
+                    TransportLease lease = leaseExisting(channel);
+                    if (lease != null) {
+                        return lease;
+                    }
+                    // A connect in flight has room for its own caller plus MAX - 1 waiters
+                    if (connecting * (MAX_CHANNELS_PER_TRANSPORT - 1) <= waitingForConnect) {
+                        // None with room for this caller: reserve a new one
+                        connecting++;
+                        break;
+                    }
+                    long failuresBefore = connectFailures;
+                    waitingForConnect++;
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for SSH transport: " + key, e);
+                    } finally {
+                        waitingForConnect--;
+                    }
+                    if (connectFailures != failuresBefore && connecting == 0) {
+                        TransportLease retry = leaseExisting(channel);
+                        if (retry != null) {
+                            return retry;
+                        }
+                        throw new IOException("SSH connect failed: " + connectFailure.getMessage(), connectFailure);
+                    }
+                }
+            }
+
+            LoggerUtil.getLogger().info("🔐 Opening new SSH transport: " + key);
+            SSHConnectionGovernor.ConnectionTicket ticket = null;
+            SSHClient client;
+            try {
+                // The new ticket counts as busy for this first lease
+                ticket = SSHConnectionGovernor.acquireConnection(host, "SSHJ", key);
+                client = connect(host, port, sshUser, sshPassword, keyFilePath);
+            } catch (IOException | RuntimeException e) {
+                if (ticket != null) {
+                    ticket.release();
+                }
+                synchronized (this) {
+                    connecting--;
+                    connectFailure = e instanceof IOException ? (IOException) e : new IOException(e.getMessage(), e);
+                    connectFailures++;
+                    notifyAll();
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                connecting--;
+                // Leases released during the connect may have freed a channel on an existing transport
+                TransportLease lease = leaseExisting(channel);
+                if (lease != null) {
+                    LoggerUtil.getLogger().info("♻️ Channel freed while connecting, closing the extra transport: " + key);
+                    disconnectQuietly(client);
+                    ticket.release();
+                    notifyAll();
+                    return lease;
+                }
+                // Eviction only disconnects; the dead transport is dropped on the next acquire
+                ticket.bind(client::isConnected, () -> disconnectQuietly(client));
+                PooledTransport transport = new PooledTransport(client, ticket);
+                transports.add(transport);
+                transport.leases++;
+                notifyAll();
+                return new TransportLease(this, transport, channel);
+            }
+        }
+
+        /**
+         * Lease the least loaded live transport with free channel capacity, or null if there is none.
+         * Must hold the group lock.
+         */
+        private TransportLease leaseExisting(SSHConnectionGovernor.ChannelPermit channel) {
+            // Drop transports that died underneath us (or were evicted by the governor)
+            transports.removeIf(transport -> {
+                if (!transport.client.isConnected() || !transport.client.isAuthenticated()) {
+                    LoggerUtil.getLogger().info("🗑️ Dropping dead SSH transport: " + key);
+                    transport.disconnect();
+                    return true;
+                }
+                return false;
+            });
+
+            while (true) {
+                PooledTransport best = null;
+                for (PooledTransport transport : transports) {
+                    if (transport.leases < MAX_CHANNELS_PER_TRANSPORT && (best == null || transport.leases < best.leases)) {
+                        best = transport;
+                    }
+                }
+                if (best == null) {
+                    return null;
+                }
+                if (!best.ticket.markBusy()) {
+                    // Evicted between the liveness check and now
+                    transports.remove(best);
+                    best.disconnect();
+                    continue;
+                }
+                LoggerUtil.getLogger().info("♻️ Reusing SSH transport: " + key + " (" + (best.leases + 1) + " channels)");
+                best.leases++;
+                best.idleSince = 0;
+                return new TransportLease(this, best, channel);
+            }
+        }
+
+        synchronized void release(PooledTransport transport) {
+            transport.leases--;
+            transport.ticket.markIdle();
+            if (transport.leases <= 0) {
+                // Keep it for reuse; closeIdle() disconnects it after the linger period
+                transport.idleSince = System.currentTimeMillis();
+            }
+            // Callers waiting for a connect can take the freed channel instead
+            notifyAll();
+        }
+
+        synchronized void closeIdle(long now) {
+            transports.removeIf(transport -> {
+                if (transport.leases <= 0 && now - transport.idleSince > IDLE_LINGER_MS) {
+                    LoggerUtil.getLogger().info("🔒 Closing idle SSH transport: " + key);
+                    transport.disconnect();
+                    return true;
+                }
+                return false;
+            });
+        }
+
+        synchronized void closeAll() {
+            for (PooledTransport transport : transports) {
+                transport.disconnect();
+            }
+            transports.clear();
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import com.nms.support.nms_support.service.globalPack.LoggerUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Background reader for the stdout/stderr streams of an interactive shell channel.
+ *
+ * One reader thread per stream blocks on the channel and appends decoded text to an
+ * in-memory buffer as soon as it arrives. Callers wait on the buffer instead of
+ * sleeping and polling {@code available()}, so they wake up the moment the output
+ * they are waiting for (typically a command completion marker) is complete.
+ *
+ * Features:
+ * - Event-driven wake-up on every chunk of output
+ * - Incremental marker search (already scanned text is not searched again)
+ * - Optional line streaming mode that hands stdout to a {@link LineConsumer} and keeps
+ *   only a bounded tail, so very chatty commands run in constant memory
+ * - Detection of closed streams so waiters fail fast instead of timing out
+ */
+class ShellOutputPump {
+
+    // Buffer size for reading from the channel
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Object lock = new Object();
+    private final StringBuilder stdout = new StringBuilder();
+    private final StringBuilder stderr = new StringBuilder();
+    private final InputStream stdoutStream;
+    private final InputStream stderrStream;
+    private final String name;
+
+    // Position in stdout from which the next marker search starts
+    private int scanFrom = 0;
+    private volatile boolean closed = false;
+    
+    // Active line stream; while set, stdout is routed to it instead of the buffer
+    private LineStream lineStream;
+
+    /**
+     * Create a pump for the given shell streams. Call {@link #start()} to begin reading.
+     *
+     * @param stdoutStream Shell stdout stream
+     * @param stderrStream Shell stderr stream (can be null)
+     * @param name Name used for the reader threads and logging
+     */
+    ShellOutputPump(InputStream stdoutStream, InputStream stderrStream, String name) {
+        this.stdoutStream = stdoutStream;
+        this.stderrStream = stderrStream;
+        this.name = name;
+    }
+
+    /**
+     * Start the reader threads.
+     */
+    void start() {
+        Thread.ofVirtual().name("sshj-stdout-" + name).start(() -> pump(stdoutStream, stdout, true));
+        if (stderrStream != null) {
+            Thread.ofVirtual().name("sshj-stderr-" + name).start(() -> pump(stderrStream, stderr, false));
+        }
+    }
+
+    /**
+     * Check whether the stdout stream has reached end-of-stream (shell exited or channel closed).
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Discard everything buffered so far.
+     */
+    void clear() {
+        synchronized (lock) {
+            stdout.setLength(0);
+            stderr.setLength(0);
+            scanFrom = 0;
+        }
+    }
+
+    /**
+     * Return and clear buffered stdout.
+     */
+    String drainStdout() {
+        synchronized (lock) {
+            String text = stdout.toString();
+            stdout.setLength(0);
+            scanFrom = 0;
+            return text;
+        }
+    }
+
+    /**
+     * Return and clear buffered stderr.
+     */
+    String drainStderr() {
+        synchronized (lock) {
+            String text = stderr.toString();
+            stderr.setLength(0);
+            return text;
+        }
+    }
+
+    /**
+     * Current length of buffered stdout.
+     */
+    int stdoutLength() {
+        synchronized (lock) {
+            return stdout.length();
+        }
+    }
+
+    /**
+     * Current length of buffered stderr.
+     */
+    int stderrLength() {
+        synchronized (lock) {
+            return stderr.length();
+        }
+    }
+
+    /**
+     * Copy of the last {@code maxChars} characters of buffered stdout.
+     */
+    String stdoutTail(int maxChars) {
+        synchronized (lock) {
+            return stdout.substring(Math.max(0, stdout.length() - maxChars));
+        }
+    }
+
+    /**
+     * Wait until stdout contains a complete exit code marker, i.e. the marker followed by
+     * the exit code digits and a line terminator.
+     *
+     * @param marker Marker prefix, e.g. {@code CMD_42_EXIT_CODE:}
+     * @param maxWaitMs Maximum time to wait in milliseconds
+     * @return true if the complete marker is present, false on timeout or closed streams
+     * @throws InterruptedException If interrupted while waiting
+     */
+    boolean awaitExitMarker(String marker, long maxWaitMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        synchronized (lock) {
+            while (true) {
+                if (scanForExitMarker(marker)) {
+                    return true;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || closed) {
+                    return false;
+                }
+                lock.wait(remaining);
+            }
+        }
+    }
+
+    /**
+     * Wait until stdout contains the given text anywhere in the buffer.
+     *
+     * @param text Text to look for
+     * @param maxWaitMs Maximum time to wait in milliseconds
+     * @return true if the text is present, false on timeout or closed streams
+     * @throws InterruptedException If interrupted while waiting
+     */
+    boolean awaitText(String text, long maxWaitMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        synchronized (lock) {
+            while (true) {
+                if (stdout.indexOf(text) >= 0) {
+                    return true;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || closed) {
+                    return false;
+                }
+                lock.wait(remaining);
+            }
+        }
+    }
+
+    /**
+     * Wait until stdout contains a match for the given pattern.
+     *
+     * @param pattern Pattern to look for
+     * @param maxWaitMs Maximum time to wait in milliseconds
+     * @return The matched text, or null on timeout or closed streams
+     * @throws InterruptedException If interrupted while waiting
+     */
+    String awaitPattern(Pattern pattern, long maxWaitMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        synchronized (lock) {
+            while (true) {
+                Matcher matcher = pattern.matcher(stdout);
+                if (matcher.find()) {
+                    return matcher.group();
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || closed) {
+                    return null;
+                }
+                lock.wait(remaining);
+            }
+        }
+    }
+
+    /**
+     * Route stdout to a line consumer until the given exit marker line arrives.
+     * Buffered stdout is discarded.
+     *
+     * @param exitMarker Marker prefix, e.g. {@code CMD_42_EXIT_CODE:}
+     * @param consumer Consumer for every output line before the marker
+     * @param tailLines Number of trailing lines to retain for the final result
+     * @return Handle used to wait for and inspect the stream
+     */
+    LineStream beginLineStream(String exitMarker, LineConsumer consumer, int tailLines) {
+        synchronized (lock) {
+            stdout.setLength(0);
+            stderr.setLength(0);
+            scanFrom = 0;
+            lineStream = new LineStream(exitMarker, consumer, tailLines);
+            return lineStream;
+        }
+    }
+
+    /**
+     * Wait until the line stream has seen its exit marker line.
+     *
+     * @param stream Stream returned by {@link #beginLineStream}
+     * @param maxWaitMs Maximum time to wait in milliseconds
+     * @return true if the marker line has arrived, false on timeout or closed streams
+     * @throws InterruptedException If interrupted while waiting
+     */
+    boolean awaitLineStream(LineStream stream, long maxWaitMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        synchronized (lock) {
+            while (true) {
+                if (stream.exitLine != null) {
+                    return true;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0 || closed) {
+                    return false;
+                }
+                lock.wait(remaining);
+            }
+        }
+    }
+
+    /**
+     * Copy of the trailing lines retained by a line stream.
+     */
+    List<String> lineStreamTail(LineStream stream) {
+        synchronized (lock) {
+            return new ArrayList<>(stream.tail);
+        }
+    }
+
+    /**
+     * Stop line streaming and return to buffered mode.
+     */
+    void endLineStream(LineStream stream) {
+        synchronized (lock) {
+            if (lineStream == stream) {
+                lineStream = null;
+            }
+        }
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    /**
+     * Look for a complete exit code marker in the not yet scanned part of stdout.
+     * Must be called while holding {@code lock}.
+     */
+    private boolean scanForExitMarker(String marker) {
+        while (true) {
+            int index = stdout.indexOf(marker, scanFrom);
+            if (index < 0) {
+                // Keep a marker-sized overlap so a marker split across chunks is still found
+                scanFrom = Math.max(scanFrom, stdout.length() - marker.length());
+                return false;
+            }
+
+            int pos = index + marker.length();
+            int digitsStart = pos;
+            while (pos < stdout.length() && Character.isDigit(stdout.charAt(pos))) {
+                pos++;
+            }
+            if (pos >= stdout.length()) {
+                // Marker seen but exit code not fully received yet
+                scanFrom = index;
+                return false;
+            }
+
+            char terminator = stdout.charAt(pos);
+            if (pos > digitsStart && (terminator == '\n' || terminator == '\r')) {
+                return true;
+            }
+
+            // Marker text followed by something else (e.g. an echoed "$?"), keep scanning after it
+            scanFrom = index + 1;
+        }
+    }
+
+    /**
+     * Reader loop for a single stream.
+     */
+    private void pump(InputStream stream, StringBuilder target, boolean primary) {
+        char[] buffer = new char[BUFFER_SIZE];
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                synchronized (lock) {
+                    if (primary && lineStream != null) {
+                        lineStream.accept(buffer, read);
+                    } else {
+                        target.append(buffer, 0, read);
+                    }
+                    lock.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            LoggerUtil.getLogger().fine("Shell output reader stopped (" + name + "): " + e.getMessage());
+        } finally {
+            if (primary) {
+                synchronized (lock) {
+                    closed = true;
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    // ===== INNER CLASS =====
+
+    /**
+     * State of a line-streamed command: splits output into lines, forwards them to the
+     * consumer and keeps the last few lines plus the exit marker line.
+     */
+    static final class LineStream {
+
+        // Longest partial line kept before it is flushed to the consumer as-is
+        private static final int MAX_LINE_CHARS = 64 * 1024;
+
+        private final String exitMarker;
+        private final LineConsumer consumer;
+        private final int tailLimit;
+        private final StringBuilder partialLine = new StringBuilder();
+        private final ArrayDeque<String> tail = new ArrayDeque<>();
+        private long lineCount = 0;
+        private volatile String exitLine;
+
+        private LineStream(String exitMarker, LineConsumer consumer, int tailLimit) {
+            this.exitMarker = exitMarker;
+            this.consumer = consumer;
+            this.tailLimit = Math.max(1, tailLimit);
+        }
+
+        /**
+         * The line containing the exit marker, or null if not received yet.
+         */
+        String getExitLine() {
+            return exitLine;
+        }
+
+        /**
+         * Number of output lines delivered to the consumer.
+         */
+        long getLineCount() {
+            return lineCount;
+        }
+
+        /**
+         * Feed a chunk of output. Called by the reader thread while holding the pump lock.
+         */
+        private void accept(char[] chunk, int length) {
+            for (int i = 0; i < length && exitLine == null; i++) {
+                char c = chunk[i];
+                if (c == '\n') {
+                    completeLine();
+                } else {
+                    partialLine.append(c);
+                    if (partialLine.length() >= MAX_LINE_CHARS) {
+                        completeLine();
+                    }
+                }
+            }
+        }
+
+        private void completeLine() {
+            int end = partialLine.length();
+            while (end > 0 && partialLine.charAt(end - 1) == '\r') {
+                end--;
+            }
+            String line = partialLine.substring(0, end);
+            partialLine.setLength(0);
+
+            if (isExitLine(line)) {
+                exitLine = line;
+                return;
+            }
+
+            lineCount++;
+            tail.addLast(line);
+            if (tail.size() > tailLimit) {
+                tail.removeFirst();
+            }
+            try {
+                consumer.onLine(line);
+            } catch (RuntimeException e) {
+                LoggerUtil.getLogger().warning("Line consumer failed: " + e.getMessage());
+            }
+        }
+
+        private boolean isExitLine(String line) {
+            int index = line.indexOf(exitMarker);
+            if (index < 0) {
+                return false;
+            }
+            int pos = index + exitMarker.length();
+            return pos < line.length() && Character.isDigit(line.charAt(pos));
+        }
+    }
+}
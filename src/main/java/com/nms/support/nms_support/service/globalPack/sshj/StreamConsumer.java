@@ -0,0 +1,24 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Receives the raw stdout of a remote command as a byte stream while the command is running.
+ * 
+ * Used by the binary streaming API so that large command output (e.g. {@code tar -czf -})
+ * can be processed on the fly, without a remote or local temporary file. The consumer is
+ * called once, on a reader thread, and should read the stream to its end; anything it
+ * leaves unread is drained and discarded.
+ */
+@FunctionalInterface
+public interface StreamConsumer {
+    
+    /**
+     * Called once with the command's stdout.
+     * 
+     * @param stdout Raw stdout of the remote command
+     * @throws IOException If reading or processing the stream fails
+     */
+    void consume(InputStream stdout) throws IOException;
+}
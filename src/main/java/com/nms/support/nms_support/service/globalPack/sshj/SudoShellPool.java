@@ -0,0 +1,598 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import com.nms.support.nms_support.service.globalPack.LoggerUtil;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Elastic pool of pre-sudoed shells for one session cache key, with a fair command scheduler.
+ *
+ * A single {@link PersistentSudoSession} runs one command at a time, so a long {@code zip -rv}
+ * used to block every other command for the same host and purpose. The pool opens additional
+ * shells (as channels on the shared transport) when commands queue up and closes them again
+ * after they have been idle for a while.
+ *
+ * Features:
+ * - Grows on demand up to a configurable per-host shell limit, shrinks when idle
+ * - INTERACTIVE commands are dispatched ahead of queued BATCH commands
+ * - One shell stays reserved for interactive work when more than one shell is allowed
+ * - Dead shells are detected on lease (local state only, no round trip) and by a
+ *   background heartbeat of idle shells, and replaced transparently
+ * - Queue depth and wait time statistics
+ */
+final class SudoShellPool {
+
+    // Shells per host (across all purposes) unless configured otherwise
+    static final int DEFAULT_MAX_SHELLS_PER_HOST = 4;
+
+    // Extra shells idle for longer than this are closed
+    private static final long SHELL_IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+
+    // Maximum time to block before re-checking cancellation
+    private static final long WAIT_SLICE_MS = 250;
+
+    // Waits longer than this are logged
+    private static final long SLOW_WAIT_LOG_MS = 1000;
+
+    private static volatile int defaultMaxShellsPerHost = DEFAULT_MAX_SHELLS_PER_HOST;
+    private static final Map<String, Integer> hostLimits = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicInteger> hostShellCounts = new ConcurrentHashMap<>();
+
+    private final String cacheKey;
+    private final String host;
+    private final String purpose;
+    private final ShellFactory factory;
+
+    // Pool state, guarded by this
+    private final List<Shell> shells = new ArrayList<>();
+    private final ArrayDeque<Shell> idle = new ArrayDeque<>();
+    private final ArrayDeque<Waiter> interactiveQueue = new ArrayDeque<>();
+    private final ArrayDeque<Waiter> batchQueue = new ArrayDeque<>();
+    private int creating = 0;
+    private int busyBatch = 0;
+    private boolean closed = false;
+
+    // Scheduler statistics, guarded by this
+    private long leaseCount = 0;
+    private long totalWaitMs = 0;
+    private long maxWaitMs = 0;
+
+    /**
+     * Create an empty pool. Call {@link #start()} to open the first shell.
+     *
+     * @param cacheKey Session cache key, used for logging
+     * @param host Host whose shell limit applies to this pool
+     * @param purpose Session purpose, used for metrics
+     * @param factory Opens a new pre-sudoed shell
+     */
+    SudoShellPool(String cacheKey, String host, String purpose, ShellFactory factory) {
+        this.cacheKey = cacheKey;
+        this.host = host;
+        this.purpose = purpose;
+        this.factory = factory;
+    }
+
+    // ===== CONFIGURATION =====
+
+    /**
+     * Set the default number of shells that may be open per host.
+     */
+    static void setDefaultMaxShellsPerHost(int maxShells) {
+        defaultMaxShellsPerHost = Math.max(1, maxShells);
+    }
+
+    /**
+     * Set the number of shells that may be open to a specific host.
+     */
+    static void setMaxShellsPerHost(String host, int maxShells) {
+        hostLimits.put(host, Math.max(1, maxShells));
+    }
+
+    /**
+     * Number of shells that may be open to the given host.
+     */
+    static int getMaxShellsPerHost(String host) {
+        return hostLimits.getOrDefault(host, defaultMaxShellsPerHost);
+    }
+
+    // ===== POOL OPERATIONS =====
+
+    /**
+     * Open the first shell synchronously, so handshake errors reach the caller directly.
+     *
+     * @throws IOException If the shell cannot be created
+     */
+    void start() throws IOException {
+        reserveHostSlot(true);
+        Shell shell;
+        try {
+            shell = factory.create();
+        } catch (IOException | RuntimeException e) {
+            releaseHostSlot();
+            throw e;
+        }
+        synchronized (this) {
+            shells.add(shell);
+            idle.addLast(shell);
+        }
+    }
+
+    /**
+     * Lease a live shell, waiting in the priority queue if all shells are busy.
+     *
+     * @param priority Scheduling class of the command
+     * @param maxWaitMs Maximum time to wait for a shell
+     * @param cancelled Checked while waiting; the wait is abandoned once it returns true (can be null)
+     * @return A shell reserved for the caller; give it back with {@link #release} or {@link #discard}
+     * @throws IOException On timeout, cancellation, pool closure or if no shell can be created
+     */
+    PersistentSudoSession acquire(CommandPriority priority, long maxWaitMs, BooleanSupplier cancelled) throws IOException {
+        long deadline = System.currentTimeMillis() + maxWaitMs;
+        while (true) {
+            PersistentSudoSession session = awaitShell(priority, deadline, cancelled);
+            if (session.isConnected()) {
+                return session;
+            }
+            LoggerUtil.getLogger().warning("⚠️ Pooled shell is dead, replacing: " + cacheKey);
+            discard(session);
+        }
+    }
+
+    /**
+     * Give a leased shell back to the pool.
+     */
+    void release(PersistentSudoSession session) {
+        List<Shell> toClose = new ArrayList<>();
+        synchronized (this) {
+            Shell shell = find(session);
+            if (shell == null) {
+                return; // already discarded
+            }
+            markIdle(shell);
+            if (closed) {
+                shells.remove(shell);
+                toClose.add(shell);
+            } else {
+                idle.addLast(shell);
+                dispatch();
+            }
+        }
+        toClose.forEach(this::closeShell);
+    }
+
+    /**
+     * Remove a broken or interrupted shell from the pool and close it.
+     * Safe to call more than once for the same shell.
+     */
+    void discard(PersistentSudoSession session) {
+        Shell shell;
+        synchronized (this) {
+            shell = find(session);
+            if (shell == null) {
+                return;
+            }
+            if (shell.busyPriority != null) {
+                markIdle(shell);
+            }
+            shells.remove(shell);
+            idle.remove(shell);
+            // Queued commands may need a replacement
+            growIfNeeded();
+        }
+        closeShell(shell);
+    }
+
+    /**
+     * Interrupt the command running on a leased shell and discard the shell.
+     */
+    void abort(PersistentSudoSession session) {
+        try {
+            session.interruptCommand();
+        } catch (IOException e) {
+            LoggerUtil.getLogger().warning("Failed to interrupt command: " + e.getMessage());
+        }
+        discard(session);
+    }
+
+    /**
+     * Probe shells that have been idle for a while and drop the ones that no longer answer,
+     * then close extra shells that have been idle too long. Called from the background
+     * maintenance task, never on a command path. Shells are taken out of the idle queue
+     * while they are probed, so a probe never overlaps a command.
+     *
+     * @param probeAfterMs Only shells idle for at least this long are probed
+     */
+    void heartbeat(long probeAfterMs) {
+        List<Shell> probing = new ArrayList<>();
+        List<Shell> toClose = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            evictIdleShells(toClose);
+            for (Iterator<Shell> it = idle.iterator(); it.hasNext(); ) {
+                Shell shell = it.next();
+                if (shell.session.getIdleMillis() >= probeAfterMs) {
+                    it.remove();
+                    probing.add(shell);
+                }
+            }
+        }
+        toClose.forEach(this::closeShell);
+
+        for (Shell shell : probing) {
+            boolean alive = shell.session.isAlive();
+            synchronized (this) {
+                if (!shells.contains(shell)) {
+                    continue; // pool closed meanwhile
+                }
+                if (alive) {
+                    // Back at the old end of the queue, it is still the least recently used
+                    idle.addFirst(shell);
+                    dispatch();
+                    continue;
+                }
+                shells.remove(shell);
+                growIfNeeded();
+            }
+            LoggerUtil.getLogger().warning("💔 Idle shell missed heartbeat, closing: " + cacheKey);
+            closeShell(shell);
+        }
+    }
+
+    /**
+     * Check whether the pool can still serve commands (it may need to replace dead shells).
+     */
+    synchronized boolean isUsable() {
+        return !closed && (!shells.isEmpty() || creating > 0);
+    }
+
+    /**
+     * Close all shells, including busy ones, and fail all queued requests.
+     */
+    void close() {
+        List<Shell> toClose;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            failWaiters(new IOException("Shell pool closed: " + cacheKey));
+            toClose = new ArrayList<>(shells);
+            shells.clear();
+            idle.clear();
+        }
+        toClose.forEach(this::closeShell);
+    }
+
+    // ===== STATISTICS =====
+
+    /**
+     * Number of commands waiting for a shell.
+     */
+    synchronized int getQueueDepth() {
+        return interactiveQueue.size() + batchQueue.size();
+    }
+
+    /**
+     * Average time commands waited for a shell, in milliseconds.
+     */
+    synchronized long getAverageWaitMillis() {
+        return leaseCount == 0 ? 0 : totalWaitMs / leaseCount;
+    }
+
+    /**
+     * Longest time a command waited for a shell, in milliseconds.
+     */
+    synchronized long getMaxWaitMillis() {
+        return maxWaitMs;
+    }
+
+    /**
+     * Get pool statistics for monitoring.
+     *
+     * @return Statistics string
+     */
+    synchronized String getStatistics() {
+        return String.format("%s: %d shells (%d busy, %d creating, limit %d), queued %d interactive / %d batch, wait avg %d ms / max %d ms over %d commands",
+            cacheKey, shells.size(), shells.size() - idle.size(), creating, getMaxShellsPerHost(host),
+            interactiveQueue.size(), batchQueue.size(), getAverageWaitMillis(), maxWaitMs, leaseCount);
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    /**
+     * Queue for a shell and wait until the scheduler hands one over.
+     */
+    private synchronized PersistentSudoSession awaitShell(CommandPriority priority, long deadline, BooleanSupplier cancelled) throws IOException {
+        if (closed) {
+            throw new IOException("Shell pool closed: " + cacheKey);
+        }
+
+        long start = System.currentTimeMillis();
+        Waiter waiter = new Waiter(priority);
+        queueFor(priority).addLast(waiter);
+        dispatch();
+        growIfNeeded();
+
+        try {
+            while (waiter.shell == null && waiter.failure == null) {
+                if (cancelled != null && cancelled.getAsBoolean()) {
+                    queueFor(priority).remove(waiter);
+                    throw new IOException("Command cancelled while waiting for a free shell");
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    queueFor(priority).remove(waiter);
+                    throw new IOException("Timed out waiting for a free shell: " + cacheKey + " (" + getQueueDepth() + " queued)");
+                }
+                wait(Math.min(remaining, WAIT_SLICE_MS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queueFor(priority).remove(waiter);
+            if (waiter.shell != null) {
+                markIdle(waiter.shell);
+                idle.addLast(waiter.shell);
+                dispatch();
+            }
+            throw new IOException("Interrupted while waiting for a free shell", e);
+        }
+
+        if (waiter.failure != null) {
+            throw waiter.failure;
+        }
+
+        long waited = System.currentTimeMillis() - start;
+        leaseCount++;
+        totalWaitMs += waited;
+        maxWaitMs = Math.max(maxWaitMs, waited);
+        SSHMetrics.record(host, purpose, SSHMetrics.Metric.QUEUE_WAIT, waited);
+        if (waited >= SLOW_WAIT_LOG_MS) {
+            LoggerUtil.getLogger().info("⏳ " + priority + " command waited " + waited + " ms for a shell: " + cacheKey);
+        }
+        return waiter.shell.session;
+    }
+
+    /**
+     * Hand idle shells to queued commands: interactive first, batch only while below its cap.
+     * Must be called while holding the pool lock.
+     */
+    private void dispatch() {
+        while (!idle.isEmpty()) {
+            Waiter next = interactiveQueue.pollFirst();
+            if (next == null && !batchQueue.isEmpty() && busyBatch < maxBatchShells()) {
+                next = batchQueue.pollFirst();
+            }
+            if (next == null) {
+                break;
+            }
+
+            // Most recently used shell first, so surplus shells stay idle and can be evicted
+            Shell shell = idle.pollLast();
+            shell.busyPriority = next.priority;
+            if (next.priority == CommandPriority.BATCH) {
+                busyBatch++;
+            }
+            next.shell = shell;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Open more shells while commands are queued that an extra shell could serve.
+     * Must be called while holding the pool lock.
+     */
+    private void growIfNeeded() {
+        if (closed) {
+            return;
+        }
+        int runnableBatch = Math.min(batchQueue.size(), Math.max(0, maxBatchShells() - busyBatch));
+        int demand = interactiveQueue.size() + runnableBatch;
+        int limit = getMaxShellsPerHost(host);
+
+        while (creating < demand && shells.size() + creating < limit) {
+            // An empty pool may always open one shell, otherwise the host budget applies
+            if (!reserveHostSlot(shells.isEmpty() && creating == 0)) {
+                break;
+            }
+            creating++;
+            LoggerUtil.getLogger().info("➕ Opening additional shell for " + cacheKey + " (" + demand + " queued)");
+            Thread.ofVirtual().name("sshj-shell-open-" + cacheKey).start(this::createShell);
+        }
+    }
+
+    /**
+     * Open a shell in the background and add it to the pool.
+     */
+    private void createShell() {
+        Shell shell = null;
+        IOException failure = null;
+        try {
+            shell = factory.create();
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException("Failed to open shell: " + e.getMessage(), e);
+        }
+
+        synchronized (this) {
+            creating--;
+            if (shell != null && !closed) {
+                shells.add(shell);
+                idle.addLast(shell);
+                dispatch();
+                return;
+            }
+            if (shell == null) {
+                LoggerUtil.getLogger().warning("Failed to open additional shell for " + cacheKey + ": " + failure.getMessage());
+                // Nothing left that could serve the queue
+                if (shells.isEmpty() && creating == 0) {
+                    failWaiters(failure);
+                }
+            }
+        }
+
+        if (shell != null) {
+            closeShell(shell); // pool was closed meanwhile
+        } else {
+            releaseHostSlot();
+        }
+    }
+
+    /**
+     * Close extra shells that have been idle too long, keeping at least one.
+     * Must be called while holding the pool lock.
+     */
+    private void evictIdleShells(List<Shell> toClose) {
+        long now = System.currentTimeMillis();
+        while (shells.size() > 1 && !idle.isEmpty() && now - idle.peekFirst().lastUsed > SHELL_IDLE_TIMEOUT_MS) {
+            Shell shell = idle.pollFirst();
+            shells.remove(shell);
+            toClose.add(shell);
+            LoggerUtil.getLogger().info("➖ Closing idle extra shell for " + cacheKey);
+        }
+    }
+
+    /**
+     * Must be called while holding the pool lock.
+     */
+    private void markIdle(Shell shell) {
+        if (shell.busyPriority == CommandPriority.BATCH) {
+            busyBatch--;
+        }
+        shell.busyPriority = null;
+        shell.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Must be called while holding the pool lock.
+     */
+    private void failWaiters(IOException failure) {
+        for (Waiter waiter : interactiveQueue) {
+            waiter.failure = failure;
+        }
+        for (Waiter waiter : batchQueue) {
+            waiter.failure = failure;
+        }
+        interactiveQueue.clear();
+        batchQueue.clear();
+        notifyAll();
+    }
+
+    private ArrayDeque<Waiter> queueFor(CommandPriority priority) {
+        return priority == CommandPriority.BATCH ? batchQueue : interactiveQueue;
+    }
+
+    /**
+     * Shells batch commands may occupy; one is kept for interactive work when possible.
+     */
+    private int maxBatchShells() {
+        int limit = getMaxShellsPerHost(host);
+        return limit > 1 ? limit - 1 : 1;
+    }
+
+    private Shell find(PersistentSudoSession session) {
+        for (Shell shell : shells) {
+            if (shell.session == session) {
+                return shell;
+            }
+        }
+        return null;
+    }
+
+    private boolean reserveHostSlot(boolean force) {
+        AtomicInteger count = hostShellCounts.computeIfAbsent(host, h -> new AtomicInteger());
+        while (true) {
+            int current = count.get();
+            if (!force && current >= getMaxShellsPerHost(host)) {
+                return false;
+            }
+            if (count.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void releaseHostSlot() {
+        AtomicInteger count = hostShellCounts.get(host);
+        if (count != null) {
+            count.decrementAndGet();
+        }
+    }
+
+    private void closeShell(Shell shell) {
+        if (shell.close()) {
+            releaseHostSlot();
+        }
+    }
+
+    // ===== INNER CLASSES =====
+
+    /**
+     * Opens a new pre-sudoed shell on a leased transport.
+     */
+    @FunctionalInterface
+    interface ShellFactory {
+        Shell create() throws IOException;
+    }
+
+    /**
+     * A pooled shell and the transport lease its channel runs on.
+     */
+    static final class Shell {
+        final SSHTransportPool.TransportLease transport;
+        final PersistentSudoSession session;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        // Guarded by the pool lock
+        CommandPriority busyPriority;
+        long lastUsed = System.currentTimeMillis();
+
+        Shell(SSHTransportPool.TransportLease transport, PersistentSudoSession session) {
+            this.transport = transport;
+            this.session = session;
+        }
+
+        /**
+         * Close the shell and release its transport lease.
+         *
+         * @return true if this call closed it, false if it was already closed
+         */
+        private boolean close() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            try {
+                session.close();
+            } catch (Exception e) {
+                LoggerUtil.getLogger().warning("Error closing persistent session: " + e.getMessage());
+            }
+            // Release the shared transport; it is disconnected once no channel uses it
+            transport.release();
+            return true;
+        }
+    }
+
+    /**
+     * A command waiting for a shell.
+     */
+    private static final class Waiter {
+        final CommandPriority priority;
+        // Guarded by the pool lock
+        Shell shell;
+        IOException failure;
+
+        Waiter(CommandPriority priority) {
+            this.priority = priority;
+        }
+    }
+}
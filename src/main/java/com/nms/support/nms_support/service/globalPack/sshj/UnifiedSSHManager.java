@@ -1,15 +1,14 @@
 package com.nms.support.nms_support.service.globalPack.sshj;
 
 import com.nms.support.nms_support.service.globalPack.LoggerUtil;
-import net.schmizz.sshj.SSHClient;
-import net.schmizz.sshj.transport.verification.PromiscuousVerifier;
-import net.schmizz.sshj.userauth.keyprovider.KeyProvider;
-
-import java.io.File;
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Unified SSH Manager using SSHJ for robust, production-ready SSH session management.
@@ -17,34 +16,49 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * Features:
  * - Session caching per (host, user, purpose) to avoid repeated connections
  * - Automatic cleanup of stale/disconnected sessions
- * - Thread-safe access to cached sessions
- * - Heartbeat checks to validate session liveness
+ * - Thread-safe, lock-free access to cached sessions
+ * - Single-flight creation per cache key: concurrent callers for the same key share one
+ *   connect/sudo handshake, callers for different keys never wait on each other
+ * - Elastic pool of sudo shells per cache key with a priority scheduler, so short
+ *   commands are not stuck behind long-running ones
+ * - Configurable per-host shell limits
+ * - Per-host and per-purpose latency, traffic and cache metrics ({@link SSHMetrics})
+ * - Background maintenance on a scheduler: SSH keepalives, heartbeat probes of idle
+ *   shells, closing of unused transports and removal of expired or dead sessions, so a cache hit only checks local
+ *   state and returns without a round trip
  * - Support for SSH key authentication and password authentication
  * 
- * This manager maintains a pool of active SSH connections and associated
- * PersistentSudoSession instances for command execution.
+ * This manager maintains the cached shell pools ({@link SudoShellPool}) of
+ * PersistentSudoSession instances for command execution. Their shell channels are opened
+ * on transports shared through {@link SSHTransportPool}, so all purposes for one host and
+ * user use one connection.
  */
 public class UnifiedSSHManager {
     
     // Session cache: key = "host:port:user:targetUser:purpose"
     private static final Map<String, CachedSSHSession> sessionCache = new ConcurrentHashMap<>();
     
-    // Lock for thread-safe session operations
-    private static final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+    // Sessions currently being created, per cache key (single-flight)
+    private static final Map<String, CompletableFuture<CachedSSHSession>> pendingSessions = new ConcurrentHashMap<>();
     
     // Session timeout: 30 minutes of inactivity
     private static final long SESSION_TIMEOUT_MS = 60 * 60 * 1000;
     
-    // Connection timeout: 30 seconds
-    private static final int CONNECTION_TIMEOUT_MS = 30_000;
-    // Read/socket timeout for IO (e.g., SFTP): 3 minutes
-    private static final int READ_TIMEOUT_MS = 120_000;
+    // Interval of keepalives and idle shell heartbeats
+    private static final long HEARTBEAT_INTERVAL_MS = 30 * 1000;
+    
+    // Interval of the expired session sweep
+    private static final long CLEANUP_INTERVAL_MS = 5 * 60 * 1000;
+    
+    // Background maintenance, started with the first cached session
+    private static final Object maintenanceLock = new Object();
+    private static ScheduledExecutorService maintenanceExecutor;
     
     /**
-     * Get or create a PersistentSudoSession for the given connection parameters.
+     * Get or create the shell pool for the given connection parameters.
      * 
-     * This method checks the cache first. If a valid session exists, it returns it after
-     * validating liveness. If not, it creates a new SSH connection and persistent session.
+     * This method checks the cache first. If a usable pool exists, it is returned; dead shells
+     * are replaced when they are leased. If not, a new pool is created with one pre-sudoed shell.
      * 
      * @param host SSH host to connect to
      * @param port SSH port
@@ -54,10 +68,10 @@ public class UnifiedSSHManager {
      * @param targetUser Target user to sudo to (null if no sudo needed)
      * @param sudoPassword Password for sudo (can be null if passwordless sudo or no sudo)
      * @param purpose Session purpose for isolation (e.g., "project_only", "product_only")
-     * @return A PersistentSudoSession ready for command execution
+     * @return Shell pool ready for command execution
      * @throws IOException If connection fails
      */
-    public static PersistentSudoSession getOrCreateSession(
+    static SudoShellPool getOrCreatePool(
             String host,
             int port,
             String sshUser,
@@ -70,84 +84,38 @@ public class UnifiedSSHManager {
         
         String cacheKey = generateCacheKey(host, port, sshUser, targetUser, purpose);
         
-        cacheLock.readLock().lock();
-        try {
-            CachedSSHSession cached = sessionCache.get(cacheKey);
-            
-            // Check if cached session exists and is still valid
-            if (cached != null && !isSessionExpired(cached)) {
-                if (cached.persistentSession.isAlive()) {
-                    LoggerUtil.getLogger().info("♻️ Reusing cached SSHJ session: " + cacheKey);
-                    cached.updateLastActivity();
-                    return cached.persistentSession;
-                } else {
-                    LoggerUtil.getLogger().warning("⚠️ Cached session is dead, will recreate: " + cacheKey);
-                }
+        CachedSSHSession cached = sessionCache.get(cacheKey);
+        
+        // Check if cached session exists and is still valid
+        if (cached != null && !isSessionExpired(cached)) {
+            if (cached.pool.isUsable()) {
+                LoggerUtil.getLogger().info("♻️ Reusing cached SSHJ session: " + cacheKey);
+                cached.updateLastActivity();
+                return cached.pool;
+            } else {
+                LoggerUtil.getLogger().warning("⚠️ Cached session is dead, will recreate: " + cacheKey);
             }
-        } finally {
-            cacheLock.readLock().unlock();
         }
         
-        // Need to create new session
-        cacheLock.writeLock().lock();
+        // Join a creation already in flight for this key, or become the creator
+        CompletableFuture<CachedSSHSession> creation = new CompletableFuture<>();
+        CompletableFuture<CachedSSHSession> inFlight = pendingSessions.putIfAbsent(cacheKey, creation);
+        if (inFlight != null) {
+            LoggerUtil.getLogger().info("⏳ Waiting for in-flight session creation: " + cacheKey);
+            return awaitPendingSession(inFlight, cacheKey).pool;
+        }
+        
         try {
-            // Double-check after acquiring write lock
-            CachedSSHSession cached = sessionCache.get(cacheKey);
-            if (cached != null && !isSessionExpired(cached) && cached.persistentSession.isAlive()) {
-                LoggerUtil.getLogger().info("♻️ Another thread created session, reusing: " + cacheKey);
-                cached.updateLastActivity();
-                return cached.persistentSession;
-            }
-            
-            // Remove old session if exists
-            if (cached != null) {
-                LoggerUtil.getLogger().info("🗑️ Removing stale session: " + cacheKey);
-                closeSessionQuietly(cached);
-                sessionCache.remove(cacheKey);
-            }
-            
-            // Create new SSH connection
-            LoggerUtil.getLogger().info("🔐 Creating new SSHJ session: " + cacheKey);
-            SSHClient sshClient = null;
-            try {
-                sshClient = createSSHClient(host, port, sshUser, sshPassword, keyFilePath);
-                LoggerUtil.getLogger().info("✓ SSH client created successfully");
-            } catch (IOException e) {
-                LoggerUtil.getLogger().severe("Failed to create SSH client: " + e.getMessage());
-                LoggerUtil.error(e);
-                throw e;
-            }
-            
-            // Create persistent sudo session
-            PersistentSudoSession persistentSession = null;
-            try {
-                persistentSession = new PersistentSudoSession(
-                    sshClient, targetUser, sudoPassword, purpose
-                );
-                LoggerUtil.getLogger().info("✓ PersistentSudoSession created successfully");
-            } catch (IOException e) {
-                LoggerUtil.getLogger().severe("Failed to create PersistentSudoSession: " + e.getMessage());
-                LoggerUtil.error(e);
-                // Clean up SSH client on failure
-                try {
-                    if (sshClient != null && sshClient.isConnected()) {
-                        sshClient.disconnect();
-                    }
-                } catch (Exception cleanupError) {
-                    LoggerUtil.getLogger().fine("Error during SSH client cleanup: " + cleanupError.getMessage());
-                }
-                throw e;
-            }
-            
-            // Cache the session
-            CachedSSHSession newCached = new CachedSSHSession(sshClient, persistentSession, cacheKey);
-            sessionCache.put(cacheKey, newCached);
-            
-            LoggerUtil.getLogger().info("✅ New SSHJ session created and cached: " + cacheKey);
-            return persistentSession;
-            
+            CachedSSHSession created = createAndCacheSession(
+                cacheKey, host, port, sshUser, sshPassword, keyFilePath, targetUser, sudoPassword, purpose
+            );
+            creation.complete(created);
+            return created.pool;
+        } catch (IOException | RuntimeException e) {
+            creation.completeExceptionally(e);
+            throw e;
         } finally {
-            cacheLock.writeLock().unlock();
+            pendingSessions.remove(cacheKey, creation);
         }
     }
     
@@ -163,15 +131,10 @@ public class UnifiedSSHManager {
     public static void closeSession(String host, int port, String sshUser, String targetUser, String purpose) {
         String cacheKey = generateCacheKey(host, port, sshUser, targetUser, purpose);
         
-        cacheLock.writeLock().lock();
-        try {
-            CachedSSHSession cached = sessionCache.remove(cacheKey);
-            if (cached != null) {
-                LoggerUtil.getLogger().info("🗑️ Closing session: " + cacheKey);
-                closeSessionQuietly(cached);
-            }
-        } finally {
-            cacheLock.writeLock().unlock();
+        CachedSSHSession cached = sessionCache.remove(cacheKey);
+        if (cached != null) {
+            LoggerUtil.getLogger().info("🗑️ Closing session: " + cacheKey);
+            closeSessionQuietly(cached);
         }
     }
     
@@ -182,40 +145,37 @@ public class UnifiedSSHManager {
     public static void closeAllSessions() {
         LoggerUtil.getLogger().info("🗑️ Closing all SSHJ sessions...");
         
-        cacheLock.writeLock().lock();
-        try {
-            int count = sessionCache.size();
-            for (CachedSSHSession cached : sessionCache.values()) {
+        int count = 0;
+        for (String cacheKey : sessionCache.keySet()) {
+            CachedSSHSession cached = sessionCache.remove(cacheKey);
+            if (cached != null) {
                 closeSessionQuietly(cached);
+                count++;
             }
-            sessionCache.clear();
-            LoggerUtil.getLogger().info("✅ Closed " + count + " SSHJ sessions");
-        } finally {
-            cacheLock.writeLock().unlock();
         }
+        SSHTransportPool.closeAll();
+        RemoteQueryCache.invalidateAll();
+        stopMaintenance();
+        LoggerUtil.getLogger().info("✅ Closed " + count + " SSHJ sessions");
     }
     
     /**
      * Clean up expired sessions from the cache.
-     * This can be called periodically to prevent memory leaks.
+     * Runs periodically on the maintenance scheduler; can also be called directly.
      */
     public static void cleanupExpiredSessions() {
-        LoggerUtil.getLogger().info("🧹 Cleaning up expired SSHJ sessions...");
+        LoggerUtil.getLogger().fine("🧹 Cleaning up expired SSHJ sessions...");
         
-        cacheLock.writeLock().lock();
-        try {
-            int removed = 0;
-            for (Map.Entry<String, CachedSSHSession> entry : sessionCache.entrySet()) {
-                if (isSessionExpired(entry.getValue())) {
-                    LoggerUtil.getLogger().info("🗑️ Removing expired session: " + entry.getKey());
-                    closeSessionQuietly(entry.getValue());
-                    sessionCache.remove(entry.getKey());
-                    removed++;
-                }
+        int removed = 0;
+        for (Map.Entry<String, CachedSSHSession> entry : sessionCache.entrySet()) {
+            if (isSessionExpired(entry.getValue()) && sessionCache.remove(entry.getKey(), entry.getValue())) {
+                LoggerUtil.getLogger().info("🗑️ Removing expired session: " + entry.getKey());
+                closeSessionQuietly(entry.getValue());
+                removed++;
             }
+        }
+        if (removed > 0) {
             LoggerUtil.getLogger().info("✅ Cleaned up " + removed + " expired sessions");
-        } finally {
-            cacheLock.writeLock().unlock();
         }
     }
     
@@ -225,69 +185,242 @@ public class UnifiedSSHManager {
      * @return Statistics string
      */
     public static String getCacheStatistics() {
-        cacheLock.readLock().lock();
-        try {
-            int total = sessionCache.size();
-            int active = 0;
-            int expired = 0;
-            
-            for (CachedSSHSession cached : sessionCache.values()) {
-                if (isSessionExpired(cached)) {
-                    expired++;
-                } else {
-                    active++;
-                }
+        int total = 0;
+        int active = 0;
+        int expired = 0;
+        
+        for (CachedSSHSession cached : sessionCache.values()) {
+            total++;
+            if (isSessionExpired(cached)) {
+                expired++;
+            } else {
+                active++;
             }
-            
-            return String.format("SSHJ Cache: %d total, %d active, %d expired", total, active, expired);
-        } finally {
-            cacheLock.readLock().unlock();
         }
+        
+        int queued = 0;
+        long maxWait = 0;
+        for (CachedSSHSession cached : sessionCache.values()) {
+            queued += cached.pool.getQueueDepth();
+            maxWait = Math.max(maxWait, cached.pool.getMaxWaitMillis());
+        }
+        
+        return String.format("SSHJ Cache: %d total, %d active, %d expired, %d being created; %d commands queued (max wait %d ms); %s; %s",
+            total, active, expired, pendingSessions.size(), queued, maxWait, SSHTransportPool.getStatistics(),
+            RemoteQueryCache.getStatistics()) + "; " + SSHMetrics.getSummary();
+    }
+    
+    /**
+     * Get per-session shell pool statistics: shell count, queue depth and wait times.
+     * 
+     * @return One line per cached session
+     */
+    public static String getShellPoolStatistics() {
+        StringBuilder stats = new StringBuilder();
+        for (CachedSSHSession cached : sessionCache.values()) {
+            if (stats.length() > 0) {
+                stats.append('\n');
+            }
+            stats.append(cached.pool.getStatistics());
+        }
+        return stats.length() > 0 ? stats.toString() : "No SSHJ shell pools";
+    }
+    
+    /**
+     * Set the default number of sudo shells that may be open to one host (all purposes together).
+     * 
+     * @param maxShells Shell limit, at least 1
+     */
+    public static void setDefaultMaxShellsPerHost(int maxShells) {
+        SudoShellPool.setDefaultMaxShellsPerHost(maxShells);
+    }
+    
+    /**
+     * Set the number of sudo shells that may be open to a specific host (all purposes together).
+     * 
+     * @param host SSH host
+     * @param maxShells Shell limit, at least 1
+     */
+    public static void setMaxShellsPerHost(String host, int maxShells) {
+        SudoShellPool.setMaxShellsPerHost(host, maxShells);
     }
     
     // ===== PRIVATE HELPER METHODS =====
     
     /**
-     * Create and configure an SSH client connection.
+     * Create a new SSH connection and persistent session and put it in the cache,
+     * replacing any stale entry. Called only by the single creator for a cache key.
      */
-    private static SSHClient createSSHClient(
+    private static CachedSSHSession createAndCacheSession(
+            String cacheKey,
             String host,
             int port,
             String sshUser,
             String sshPassword,
-            String keyFilePath
+            String keyFilePath,
+            String targetUser,
+            String sudoPassword,
+            String purpose
     ) throws IOException {
         
-        SSHClient client = new SSHClient();
+        // Double-check: another creator may have finished just before we registered
+        CachedSSHSession cached = sessionCache.get(cacheKey);
+        if (cached != null && !isSessionExpired(cached) && cached.pool.isUsable()) {
+            LoggerUtil.getLogger().info("♻️ Another thread created session, reusing: " + cacheKey);
+            cached.updateLastActivity();
+            return cached;
+        }
+        
+        // Remove old session if exists
+        if (cached != null && sessionCache.remove(cacheKey, cached)) {
+            LoggerUtil.getLogger().info("🗑️ Removing stale session: " + cacheKey);
+            closeSessionQuietly(cached);
+        }
         
-        // Configure client
-        client.addHostKeyVerifier(new PromiscuousVerifier()); // TODO: Replace with proper host key verification in production
-        client.setConnectTimeout(CONNECTION_TIMEOUT_MS);
-        client.setTimeout(READ_TIMEOUT_MS);
+        // Open the first shell; further shells are added by the pool when commands queue up
+        LoggerUtil.getLogger().info("🔐 Creating new SSHJ session: " + cacheKey);
+        SudoShellPool pool = new SudoShellPool(cacheKey, host, purpose,
+            () -> openShell(host, port, sshUser, sshPassword, keyFilePath, targetUser, sudoPassword, purpose));
+        pool.start();
         
-        // Connect
-        client.connect(host, port);
-        LoggerUtil.getLogger().info("✓ SSHJ connected to " + host + ":" + port);
+        // Cache the session
+        CachedSSHSession newCached = new CachedSSHSession(pool, cacheKey);
+        sessionCache.put(cacheKey, newCached);
+        startMaintenance();
         
-        // Authenticate
-        if (keyFilePath != null && !keyFilePath.trim().isEmpty()) {
-            File keyFile = new File(keyFilePath);
-            if (keyFile.exists()) {
-                LoggerUtil.getLogger().info("🔑 Authenticating with SSH key: " + keyFilePath);
-                KeyProvider keyProvider = client.loadKeys(keyFilePath);
-                client.authPublickey(sshUser, keyProvider);
-            } else {
-                throw new IOException("SSH key file not found: " + keyFilePath);
+        LoggerUtil.getLogger().info("✅ New SSHJ session created and cached: " + cacheKey);
+        return newCached;
+    }
+    
+    /**
+     * Start the maintenance scheduler if it is not running yet.
+     */
+    static void startMaintenance() {
+        synchronized (maintenanceLock) {
+            if (maintenanceExecutor != null) {
+                return;
+            }
+            maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "sshj-maintenance");
+                t.setDaemon(true);
+                return t;
+            });
+            maintenanceExecutor.scheduleWithFixedDelay(UnifiedSSHManager::runHeartbeat,
+                HEARTBEAT_INTERVAL_MS, HEARTBEAT_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            maintenanceExecutor.scheduleWithFixedDelay(UnifiedSSHManager::runCleanup,
+                CLEANUP_INTERVAL_MS, CLEANUP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            LoggerUtil.getLogger().info("💓 SSHJ maintenance scheduler started");
+        }
+    }
+    
+    /**
+     * Stop the maintenance scheduler; it is started again with the next cached session.
+     */
+    private static void stopMaintenance() {
+        synchronized (maintenanceLock) {
+            if (maintenanceExecutor != null) {
+                maintenanceExecutor.shutdownNow();
+                maintenanceExecutor = null;
             }
-        } else if (sshPassword != null && !sshPassword.trim().isEmpty()) {
-            LoggerUtil.getLogger().info("🔑 Authenticating with password for user: " + sshUser);
-            client.authPassword(sshUser, sshPassword);
-        } else {
-            throw new IOException("No authentication method provided (password or key)");
         }
+    }
+    
+    /**
+     * Send transport keepalives, probe idle shells and drop sessions with no live shell left.
+     */
+    private static void runHeartbeat() {
+        try {
+            SSHTransportPool.sendKeepAlives();
+            SSHTransportPool.closeIdleTransports();
+            for (Map.Entry<String, CachedSSHSession> entry : sessionCache.entrySet()) {
+                CachedSSHSession cached = entry.getValue();
+                cached.pool.heartbeat(HEARTBEAT_INTERVAL_MS);
+                if (!cached.pool.isUsable() && sessionCache.remove(entry.getKey(), cached)) {
+                    LoggerUtil.getLogger().warning("💔 Cached session has no live shell, removing: " + entry.getKey());
+                    closeSessionQuietly(cached);
+                }
+            }
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule
+            LoggerUtil.getLogger().warning("SSHJ heartbeat failed: " + e.getMessage());
+        }
+    }
+    
+    private static void runCleanup() {
+        try {
+            cleanupExpiredSessions();
+        } catch (RuntimeException e) {
+            LoggerUtil.getLogger().warning("SSHJ session cleanup failed: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Open one pre-sudoed shell as a channel on a shared transport.
+     */
+    private static SudoShellPool.Shell openShell(
+            String host,
+            int port,
+            String sshUser,
+            String sshPassword,
+            String keyFilePath,
+            String targetUser,
+            String sudoPassword,
+            String purpose
+    ) throws IOException {
         
-        LoggerUtil.getLogger().info("✓ SSHJ authenticated as " + sshUser);
-        return client;
+        // Lease a shared SSH transport (connects only if none is open for this host and user)
+        SSHTransportPool.TransportLease transport;
+        try {
+            transport = SSHTransportPool.acquire(host, port, sshUser, sshPassword, keyFilePath);
+            LoggerUtil.getLogger().info("✓ SSH transport ready");
+        } catch (IOException e) {
+            LoggerUtil.getLogger().severe("Failed to create SSH client: " + e.getMessage());
+            LoggerUtil.error(e);
+            throw e;
+        }
+        
+        // Create persistent sudo session as a channel on the shared transport
+        try {
+            PersistentSudoSession persistentSession = new PersistentSudoSession(
+                transport.getClient(), targetUser, sudoPassword, purpose
+            );
+            LoggerUtil.getLogger().info("✓ PersistentSudoSession created successfully in " + persistentSession.getStartupMillis() + " ms");
+            SSHMetrics.record(host, purpose, SSHMetrics.Metric.SHELL_READY, persistentSession.getShellReadyMillis());
+            if (targetUser != null && !targetUser.trim().isEmpty()) {
+                SSHMetrics.record(host, purpose, SSHMetrics.Metric.SUDO, persistentSession.getSudoMillis());
+            }
+            return new SudoShellPool.Shell(transport, persistentSession);
+        } catch (IOException e) {
+            LoggerUtil.getLogger().severe("Failed to create PersistentSudoSession: " + e.getMessage());
+            LoggerUtil.error(e);
+            // Give the transport back on failure
+            transport.release();
+            throw e;
+        } catch (RuntimeException e) {
+            transport.release();
+            throw e;
+        }
+    }
+    
+    /**
+     * Wait for another thread's in-flight session creation and share its outcome.
+     */
+    private static CachedSSHSession awaitPendingSession(CompletableFuture<CachedSSHSession> pending, String cacheKey) throws IOException {
+        try {
+            CachedSSHSession shared = pending.get();
+            shared.updateLastActivity();
+            LoggerUtil.getLogger().info("♻️ Sharing session created by another thread: " + cacheKey);
+            return shared;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for session creation: " + cacheKey, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            throw new IOException("Session creation failed: " + cacheKey, cause);
+        }
     }
     
     /**
@@ -311,19 +444,10 @@ public class UnifiedSSHManager {
      */
     private static void closeSessionQuietly(CachedSSHSession cached) {
         try {
-            if (cached.persistentSession != null) {
-                cached.persistentSession.close();
-            }
-        } catch (Exception e) {
-            LoggerUtil.getLogger().warning("Error closing persistent session: " + e.getMessage());
-        }
-        
-        try {
-            if (cached.sshClient != null && cached.sshClient.isConnected()) {
-                cached.sshClient.disconnect();
-            }
+            // Closes every shell and releases their transport leases
+            cached.pool.close();
         } catch (Exception e) {
-            LoggerUtil.getLogger().warning("Error disconnecting SSH client: " + e.getMessage());
+            LoggerUtil.getLogger().warning("Error closing shell pool: " + e.getMessage());
         }
     }
     
@@ -333,13 +457,11 @@ public class UnifiedSSHManager {
      * Container for cached SSH session information.
      */
     private static class CachedSSHSession {
-        final SSHClient sshClient;
-        final PersistentSudoSession persistentSession;
+        final SudoShellPool pool;
         volatile long lastActivityTime;
         
-        CachedSSHSession(SSHClient sshClient, PersistentSudoSession persistentSession, String cacheKey) {
-            this.sshClient = sshClient;
-            this.persistentSession = persistentSession;
+        CachedSSHSession(SudoShellPool pool, String cacheKey) {
+            this.pool = pool;
             this.lastActivityTime = System.currentTimeMillis();
         }
         
@@ -20,10 +20,12 @@
  * <h2>Key Features:</h2>
  * <ul>
  *   <li>Session caching per host/user/purpose</li>
- *   <li>Pre-sudoed shell sessions</li>
+ *   <li>One shared SSH transport per host/user for all session purposes and SFTP channels</li>
+ *   <li>Pre-sudoed shell sessions, pooled per purpose with a priority scheduler</li>
  *   <li>Command timeout and interruption support</li>
  *   <li>Progress callback support for long-running operations</li>
  *   <li>Concurrent stdout/stderr capture</li>
+ *   <li>Binary stdout streaming on a dedicated exec channel, also for sudo target users</li>
  *   <li>Thread-safe session access</li>
  *   <li>Automatic cleanup of stale sessions</li>
  *   <li>SFTP support</li>
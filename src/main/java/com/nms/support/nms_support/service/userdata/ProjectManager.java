@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nms.support.nms_support.model.LogEntity;
 import com.nms.support.nms_support.model.ProjectEntity;
 import com.nms.support.nms_support.model.ProjectWrapper;
+import com.nms.support.nms_support.service.globalPack.ArtifactStore;
 import com.nms.support.nms_support.service.globalPack.LoggerUtil;
 
 import java.io.File;
@@ -158,6 +159,8 @@ public class ProjectManager implements IManager {
         if (projects != null) {
             projects.removeIf(project -> project.getName().equals(projectName));
         }
+        // Its product files no longer keep shared artifacts alive
+        ArtifactStore.release(projectName);
     }
 
     public List<String> getListProject() {
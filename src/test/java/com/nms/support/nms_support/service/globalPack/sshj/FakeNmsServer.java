@@ -0,0 +1,176 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import org.apache.sshd.server.SshServer;
+import org.apache.sshd.server.keyprovider.SimpleGeneratorHostKeyProvider;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process SSH server standing in for an NMS host in tests and benchmarks.
+ *
+ * Runs Apache MINA SSHD on a free local port. Shells and exec channels are served by a
+ * {@link ScriptedShell}, so the SSH layer can be exercised without a real server, sudo setup
+ * or operating-system shell (the tests also run on Windows).
+ *
+ * Features:
+ * - Password authentication for one user, with an optional artificial delay
+ * - {@code sudo su - <user>} with a password prompt (or passwordless), optionally slow to appear
+ * - Counters for authentications, shells and exec channels, to check how often the client connected
+ * - Extra commands can be scripted per server (e.g. a command that fails or produces binary output)
+ */
+final class FakeNmsServer implements AutoCloseable {
+
+    static final String HOST = "127.0.0.1";
+
+    final String user;
+    final String password;
+    final String sudoPassword;
+    final long authDelayMs;
+    final long loginDelayMs;
+    final long promptDelayMs;
+    final Map<String, ScriptedShell.Builtin> commands;
+
+    private final SshServer server;
+    private final AtomicInteger authentications = new AtomicInteger();
+    private final AtomicInteger shells = new AtomicInteger();
+    private final AtomicInteger execs = new AtomicInteger();
+
+    private FakeNmsServer(Builder builder) throws IOException {
+        this.user = builder.user;
+        this.password = builder.password;
+        this.sudoPassword = builder.sudoPassword;
+        this.authDelayMs = builder.authDelayMs;
+        this.loginDelayMs = builder.loginDelayMs;
+        this.promptDelayMs = builder.promptDelayMs;
+        this.commands = Map.copyOf(builder.commands);
+
+        server = SshServer.setUpDefaultServer();
+        server.setHost(HOST);
+        server.setPort(0);
+        server.setKeyPairProvider(new SimpleGeneratorHostKeyProvider());
+        server.setPasswordAuthenticator((name, secret, session) -> {
+            authentications.incrementAndGet();
+            pause(authDelayMs);
+            return user.equals(name) && password.equals(secret);
+        });
+        server.setShellFactory(channel -> {
+            shells.incrementAndGet();
+            return new ScriptedShell(this, null);
+        });
+        server.setCommandFactory((channel, command) -> {
+            execs.incrementAndGet();
+            return new ScriptedShell(this, command);
+        });
+        server.start();
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    int getPort() {
+        return server.getPort();
+    }
+
+    /**
+     * Password checks so far, one per authenticated (or rejected) connection.
+     */
+    int getAuthentications() {
+        return authentications.get();
+    }
+
+    /**
+     * Interactive shells opened so far.
+     */
+    int getShells() {
+        return shells.get();
+    }
+
+    /**
+     * Exec channels opened so far.
+     */
+    int getExecs() {
+        return execs.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.stop(true);
+    }
+
+    static void pause(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===== INNER CLASSES =====
+
+    static final class Builder {
+        private String user = "nmsadmin";
+        private String password = "secret";
+        private String sudoPassword = "secret";
+        private long authDelayMs;
+        private long loginDelayMs;
+        private long promptDelayMs;
+        private final Map<String, ScriptedShell.Builtin> commands = new ConcurrentHashMap<>();
+
+        Builder credentials(String user, String password) {
+            this.user = user;
+            this.password = password;
+            return this;
+        }
+
+        /**
+         * Password sudo asks for; null makes sudo passwordless.
+         */
+        Builder sudoPassword(String sudoPassword) {
+            this.sudoPassword = sudoPassword;
+            return this;
+        }
+
+        /**
+         * Delay of every password check, like a slow or distant server.
+         */
+        Builder authDelay(long millis) {
+            this.authDelayMs = millis;
+            return this;
+        }
+
+        /**
+         * Delay before a new shell reads its first line, like slow login scripts.
+         */
+        Builder loginDelay(long millis) {
+            this.loginDelayMs = millis;
+            return this;
+        }
+
+        /**
+         * Delay before sudo shows its password prompt, like a slow PAM/LDAP lookup.
+         */
+        Builder promptDelay(long millis) {
+            this.promptDelayMs = millis;
+            return this;
+        }
+
+        /**
+         * Add or replace a command of the scripted shell.
+         */
+        Builder command(String name, ScriptedShell.Builtin builtin) {
+            commands.put(name, builtin);
+            return this;
+        }
+
+        FakeNmsServer start() throws IOException {
+            return new FakeNmsServer(this);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trip benchmarks for the SSHJ session layer, against an in-process {@link FakeNmsServer}.
+ *
+ * Compares changes to the SSH hot path before and after without a real NMS host. Both session
+ * kinds are measured: a pre-sudoed shell (target user set) and plain exec channels (no target user).
+ *
+ * Scenarios:
+ * - Cold session creation (transport connect, authentication and shell/sudo setup)
+ * - Cached session creation (session cache hit)
+ * - Single command round trip
+ * - Batch of small commands
+ * - Large output, collected and streamed
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *     -Dexec.mainClass=com.nms.support.nms_support.service.globalPack.sshj.SSHRoundTripBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SSHRoundTripBenchmark {
+
+    private static final String PURPOSE = "sshj_benchmark";
+    private static final int BATCH_SIZE = 20;
+    private static final int OUTPUT_LINES = 100_000;
+
+    /** Sudo target user; empty for the exec-channel path. */
+    @Param({"nmsadm", ""})
+    public String targetUser;
+
+    private FakeNmsServer server;
+    private SSHJSessionManager manager;
+    private List<String> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = FakeNmsServer.builder().start();
+        manager = newManager();
+        manager.initialize();
+        batch = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add("echo batch-" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        manager.close();
+        SSHJSessionManager.closeAllSessions();
+        SSHTransportPool.closeAll();
+        server.close();
+    }
+
+    // ===== BENCHMARKS =====
+
+    @Benchmark
+    public void coldSession() throws Exception {
+        SSHJSessionManager.closeAllSessions();
+        SSHTransportPool.closeAll();
+        newManager().initialize();
+    }
+
+    @Benchmark
+    public void cachedSession() throws Exception {
+        newManager().initialize();
+    }
+
+    @Benchmark
+    public Object singleCommand() throws Exception {
+        return expectSuccess(manager.executeCommand("echo ok", 30));
+    }
+
+    @Benchmark
+    public void batch(Blackhole blackhole) throws Exception {
+        for (SSHJSessionManager.CommandResult result : manager.executeBatch(batch, 60)) {
+            blackhole.consume(expectSuccess(result));
+        }
+    }
+
+    @Benchmark
+    public Object largeOutputCollected() throws Exception {
+        return expectSuccess(manager.executeCommand("seq 1 " + OUTPUT_LINES, 120));
+    }
+
+    @Benchmark
+    public void largeOutputStreamed(Blackhole blackhole) throws Exception {
+        expectSuccess(manager.executeCommandStreaming("seq 1 " + OUTPUT_LINES, 120, blackhole::consume));
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    private SSHJSessionManager newManager() {
+        return new SSHJSessionManager(FakeNmsServer.HOST, server.user, server.password, server.getPort(),
+            targetUser.isEmpty() ? null : targetUser, PURPOSE);
+    }
+
+    private static SSHJSessionManager.CommandResult expectSuccess(SSHJSessionManager.CommandResult result) {
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Command failed with exit code " + result.getExitCode());
+        }
+        return result;
+    }
+
+    // ===== ENTRY POINT =====
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(SSHRoundTripBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
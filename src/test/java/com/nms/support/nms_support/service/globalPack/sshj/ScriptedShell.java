@@ -0,0 +1,502 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import org.apache.sshd.server.Environment;
+import org.apache.sshd.server.ExitCallback;
+import org.apache.sshd.server.channel.ChannelSession;
+import org.apache.sshd.server.command.Command;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Small shell interpreter behind the {@link FakeNmsServer}.
+ *
+ * Understands exactly the shell the SSH layer talks to: command lists with {@code ;}, {@code &&}
+ * and {@code ||}, single and double quotes (including adjacent quoted parts), {@code $?} and
+ * {@code $VAR}, redirections (output is discarded or merged, never written to files) and the
+ * {@code { ... }} groups of batch scripts. Without a PTY echo, like a shell after {@code stty -echo}.
+ *
+ * Features:
+ * - Builtins: echo, true, false, whoami, sleep (slow commands), seq (large output), exit, export,
+ *   and no-ops for stty, set, cd and source
+ * - {@code sudo [-n] [-p prompt] ...} with a password prompt read from the shell input, three attempts,
+ *   and credentials remembered for the rest of the shell, like sudo's timestamp
+ * - {@code su - user [-c command]}, also nested in a login {@code bash -l -c '...'} of an exec channel
+ * - Unknown commands fail with exit code 127, like bash
+ */
+final class ScriptedShell implements Command, Runnable {
+
+    /**
+     * A scripted command: gets its arguments (without the command name) and returns the exit code.
+     */
+    @FunctionalInterface
+    interface Builtin {
+        int run(List<String> args, PrintStream out, PrintStream err) throws IOException;
+    }
+
+    // Placeholders for expansions that depend on the state when the command runs
+    private static final char EXIT_STATUS = '\u0000';
+    private static final char VAR_START = '\u0001';
+    private static final char VAR_END = '\u0002';
+    private static final Pattern REDIRECT = Pattern.compile("(\\d?)(>>|>|<)(&\\d)?(.*)");
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    private final FakeNmsServer server;
+    // Command of an exec channel, null for an interactive shell
+    private final String script;
+    private final Deque<String> users = new ArrayDeque<>();
+    private final Map<String, String> env = new HashMap<>();
+
+    private InputStream in;
+    private OutputStream stdout;
+    private OutputStream stderr;
+    private ExitCallback exitCallback;
+    private BufferedReader reader;
+    private PrintStream out;
+    private PrintStream err;
+    private Thread thread;
+    private volatile boolean destroyed;
+    private int lastExit;
+    private boolean sudoAuthenticated;
+
+    ScriptedShell(FakeNmsServer server, String script) {
+        this.server = server;
+        this.script = script;
+    }
+
+    @Override
+    public void setInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public void setOutputStream(OutputStream out) {
+        this.stdout = out;
+    }
+
+    @Override
+    public void setErrorStream(OutputStream err) {
+        this.stderr = err;
+    }
+
+    @Override
+    public void setExitCallback(ExitCallback callback) {
+        this.exitCallback = callback;
+    }
+
+    @Override
+    public void start(ChannelSession channel, Environment environment) {
+        users.push(server.user);
+        reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        out = new PrintStream(stdout, false, StandardCharsets.UTF_8);
+        err = new PrintStream(stderr, false, StandardCharsets.UTF_8);
+        thread = new Thread(this, script != null ? "scripted-exec" : "scripted-shell");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void destroy(ChannelSession channel) {
+        destroyed = true;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        int status;
+        try {
+            if (script != null) {
+                status = runLine(script);
+            } else {
+                FakeNmsServer.pause(server.loginDelayMs);
+                String line;
+                while (!destroyed && !users.isEmpty() && (line = reader.readLine()) != null) {
+                    runLine(line);
+                }
+                status = lastExit;
+            }
+        } catch (IOException e) {
+            status = 1;
+        }
+        out.flush();
+        err.flush();
+        exitCallback.onExit(status);
+    }
+
+    // ===== INTERPRETER =====
+
+    /**
+     * Run one input line (a command list) and return the exit code of the last command that ran.
+     */
+    int runLine(String line) throws IOException {
+        List<Token> tokens = tokenize(line);
+        tokens.add(Token.operator("end"));
+        List<Token> words = new ArrayList<>();
+        String previous = ";";
+        for (Token token : tokens) {
+            if (!token.operator) {
+                words.add(token);
+                continue;
+            }
+            if (!words.isEmpty() && !users.isEmpty()) {
+                boolean run = previous.equals(";")
+                    || (previous.equals("&&") && lastExit == 0)
+                    || (previous.equals("||") && lastExit != 0);
+                if (previous.equals("|")) {
+                    err.println("scripted shell: pipes are not supported");
+                    lastExit = 2;
+                } else if (run) {
+                    lastExit = runSimple(words);
+                }
+            }
+            previous = token.text;
+            words = new ArrayList<>();
+        }
+        out.flush();
+        err.flush();
+        return lastExit;
+    }
+
+    private int runSimple(List<Token> words) throws IOException {
+        boolean quietOut = false;
+        boolean quietErr = false;
+        boolean errToOut = false;
+        List<String> args = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            Token word = words.get(i);
+            Matcher redirect = word.quoted ? null : REDIRECT.matcher(word.text);
+            if (redirect == null || !redirect.matches()) {
+                args.add(expand(word.text));
+                continue;
+            }
+            if (redirect.group(3) == null && redirect.group(4).isEmpty()) {
+                i++; // target is the next word
+            }
+            if (redirect.group(2).equals("<")) {
+                continue;
+            }
+            if (redirect.group(1).equals("2")) {
+                errToOut = "&1".equals(redirect.group(3));
+                quietErr = !errToOut;
+            } else {
+                quietOut = true;
+            }
+        }
+        PrintStream o = quietOut ? DISCARD : out;
+        PrintStream e = errToOut ? o : quietErr ? DISCARD : err;
+        int status = execute(args, o, e);
+        o.flush();
+        return status;
+    }
+
+    private int execute(List<String> args, PrintStream o, PrintStream e) throws IOException {
+        if (args.isEmpty()) {
+            return lastExit;
+        }
+        String name = args.get(0);
+        List<String> rest = args.subList(1, args.size());
+        Builtin scripted = server.commands.get(name);
+        if (scripted != null) {
+            return scripted.run(rest, o, e);
+        }
+        switch (name) {
+            case "{", "}":
+                return lastExit;
+            case "true", ":", "stty", "set", "cd", "source", ".":
+                return 0;
+            case "false":
+                return 1;
+            case "echo": {
+                boolean newline = !rest.isEmpty() && rest.get(0).equals("-n");
+                o.print(String.join(" ", newline ? rest.subList(1, rest.size()) : rest));
+                if (!newline) {
+                    o.print('\n');
+                }
+                return 0;
+            }
+            case "whoami":
+                o.println(users.peek());
+                return 0;
+            case "export":
+                for (String assignment : rest) {
+                    int eq = assignment.indexOf('=');
+                    if (eq > 0) {
+                        env.put(assignment.substring(0, eq), assignment.substring(eq + 1));
+                    }
+                }
+                return 0;
+            case "sleep":
+                FakeNmsServer.pause((long) (Double.parseDouble(rest.get(0)) * 1000));
+                return Thread.currentThread().isInterrupted() ? 130 : 0;
+            case "seq":
+                return seq(rest, o);
+            case "exit": {
+                users.pop();
+                return rest.isEmpty() ? lastExit : Integer.parseInt(rest.get(0));
+            }
+            case "bash", "sh": {
+                int c = rest.indexOf("-c");
+                return c >= 0 && c + 1 < rest.size() ? runLine(rest.get(c + 1)) : 0;
+            }
+            case "sudo":
+                return sudo(rest, o, e);
+            case "su":
+                return su(rest, o, e);
+            default:
+                e.println("bash: " + name + ": command not found");
+                return 127;
+        }
+    }
+
+    private int seq(List<String> args, PrintStream o) {
+        long first = args.size() > 1 ? Long.parseLong(args.get(0)) : 1;
+        long last = Long.parseLong(args.get(args.size() - 1));
+        StringBuilder chunk = new StringBuilder();
+        for (long n = first; n <= last; n++) {
+            chunk.append(n).append('\n');
+            if (chunk.length() > 32 * 1024) {
+                o.print(chunk);
+                chunk.setLength(0);
+            }
+        }
+        o.print(chunk);
+        return 0;
+    }
+
+    private int sudo(List<String> args, PrintStream o, PrintStream e) throws IOException {
+        boolean nonInteractive = false;
+        String prompt = null;
+        int i = 0;
+        for (; i < args.size() && args.get(i).startsWith("-"); i++) {
+            switch (args.get(i)) {
+                case "-n" -> nonInteractive = true;
+                case "-p" -> prompt = args.get(++i);
+                case "-u" -> i++;
+                default -> { }
+            }
+        }
+
+        if (server.sudoPassword != null && !sudoAuthenticated) {
+            if (nonInteractive) {
+                e.println("sudo: a password is required");
+                return 1;
+            }
+            if (script != null) {
+                e.println("sudo: a terminal is required to read the password");
+                return 1;
+            }
+            FakeNmsServer.pause(server.promptDelayMs);
+            for (int attempt = 1; attempt <= 3 && !sudoAuthenticated; attempt++) {
+                // Like sudo, typed-ahead input is discarded before prompting
+                while (reader.ready()) {
+                    reader.read();
+                }
+                o.print(prompt != null ? prompt : "[sudo] password for " + users.peek() + ": ");
+                o.flush();
+                String answer = reader.readLine();
+                if (answer == null) {
+                    return 1;
+                }
+                if (answer.equals(server.sudoPassword)) {
+                    sudoAuthenticated = true;
+                } else {
+                    o.println("Sorry, try again.");
+                }
+            }
+            if (!sudoAuthenticated) {
+                o.println("sudo: 3 incorrect password attempts");
+                return 1;
+            }
+        }
+
+        List<String> command = args.subList(i, args.size());
+        if (command.isEmpty()) {
+            return 0;
+        }
+        users.push("root");
+        int depth = users.size();
+        int status = execute(command, o, e);
+        if (users.size() > depth) {
+            // "su -" left a login shell open: it replaces sudo's root process
+            String user = users.pop();
+            users.pop();
+            users.push(user);
+        } else if (users.size() == depth) {
+            users.pop();
+        }
+        return status;
+    }
+
+    private int su(List<String> args, PrintStream o, PrintStream e) throws IOException {
+        String target = null;
+        String command = null;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("-c") && i + 1 < args.size()) {
+                command = args.get(++i);
+            } else if (!arg.startsWith("-")) {
+                target = arg;
+            }
+        }
+        if (!"root".equals(users.peek())) {
+            e.println("su: Authentication failure");
+            return 1;
+        }
+        if (target == null) {
+            target = "root";
+        }
+        users.push(target);
+        if (command == null) {
+            return 0;
+        }
+        try {
+            return runLine(command);
+        } finally {
+            users.pop();
+        }
+    }
+
+    // ===== PARSING =====
+
+    private String expand(String text) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == EXIT_STATUS) {
+                result.append(lastExit);
+            } else if (c == VAR_START) {
+                int end = text.indexOf(VAR_END, i);
+                result.append(variable(text.substring(i + 1, end)));
+                i = end;
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private String variable(String name) {
+        return switch (name) {
+            case "USER", "LOGNAME" -> users.peek();
+            case "HOME" -> "/home/" + users.peek();
+            default -> env.getOrDefault(name, "");
+        };
+    }
+
+    private static List<Token> tokenize(String line) {
+        List<Token> tokens = new ArrayList<>();
+        StringBuilder current = null;
+        boolean quoted = false;
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '\'') {
+                int end = line.indexOf('\'', i + 1);
+                end = end < 0 ? line.length() : end;
+                current = current != null ? current : new StringBuilder();
+                current.append(line, i + 1, end);
+                quoted = true;
+                i = end + 1;
+            } else if (c == '"') {
+                current = current != null ? current : new StringBuilder();
+                quoted = true;
+                i++;
+                while (i < line.length() && line.charAt(i) != '"') {
+                    char q = line.charAt(i);
+                    if (q == '\\' && i + 1 < line.length() && "\"\\$`".indexOf(line.charAt(i + 1)) >= 0) {
+                        current.append(line.charAt(i + 1));
+                        i += 2;
+                    } else if (q == '$') {
+                        i = appendVariable(line, i, current);
+                    } else {
+                        current.append(q);
+                        i++;
+                    }
+                }
+                i++;
+            } else if (c == '\\' && i + 1 < line.length()) {
+                current = current != null ? current : new StringBuilder();
+                current.append(line.charAt(i + 1));
+                i += 2;
+            } else if (Character.isWhitespace(c)) {
+                flush(tokens, current, quoted);
+                current = null;
+                quoted = false;
+                i++;
+            } else if (c == '&' && current != null && current.toString().endsWith(">")) {
+                current.append(c);
+                i++;
+            } else if (c == ';' || c == '&' || c == '|') {
+                flush(tokens, current, quoted);
+                current = null;
+                quoted = false;
+                boolean doubled = i + 1 < line.length() && line.charAt(i + 1) == c && c != ';';
+                tokens.add(Token.operator(doubled ? "" + c + c : c == '&' ? ";" : "" + c));
+                i += doubled ? 2 : 1;
+            } else if (c == '#' && current == null) {
+                break;
+            } else if (c == '$') {
+                current = current != null ? current : new StringBuilder();
+                i = appendVariable(line, i, current);
+            } else {
+                current = current != null ? current : new StringBuilder();
+                current.append(c);
+                i++;
+            }
+        }
+        flush(tokens, current, quoted);
+        return tokens;
+    }
+
+    /**
+     * Append the placeholder for the variable starting at the '$' at index i; returns the index after it.
+     */
+    private static int appendVariable(String line, int i, StringBuilder target) {
+        if (i + 1 < line.length() && line.charAt(i + 1) == '?') {
+            target.append(EXIT_STATUS);
+            return i + 2;
+        }
+        int start = i + 1;
+        boolean braced = start < line.length() && line.charAt(start) == '{';
+        if (braced) {
+            start++;
+        }
+        int end = start;
+        while (end < line.length() && (Character.isLetterOrDigit(line.charAt(end)) || line.charAt(end) == '_')) {
+            end++;
+        }
+        if (end == start) {
+            target.append('$');
+            return i + 1;
+        }
+        target.append(VAR_START).append(line, start, end).append(VAR_END);
+        return braced ? end + 1 : end;
+    }
+
+    private static void flush(List<Token> tokens, StringBuilder current, boolean quoted) {
+        if (current != null) {
+            tokens.add(new Token(current.toString(), quoted, false));
+        }
+    }
+
+    private record Token(String text, boolean quoted, boolean operator) {
+        static Token operator(String text) {
+            return new Token(text, false, true);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.nms.support.nms_support.service.globalPack.sshj;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Single-flight session creation in {@link UnifiedSSHManager#getOrCreatePool}.
+ */
+@Timeout(60)
+class UnifiedSSHManagerTest {
+
+    private static final String TARGET_USER = "nmsadm";
+    private static final String PURPOSE = "single_flight_test";
+    private static final int CALLERS = 8;
+
+    private final List<FakeNmsServer> servers = new ArrayList<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        executor.shutdownNow();
+        UnifiedSSHManager.closeAllSessions();
+        SSHTransportPool.closeAll();
+        for (FakeNmsServer server : servers) {
+            server.close();
+        }
+    }
+
+    @Test
+    void concurrentCallersForOneKeyShareOneHandshake() throws Exception {
+        // The login delay keeps the creation in flight while all callers arrive
+        FakeNmsServer server = start(FakeNmsServer.builder().loginDelay(500));
+
+        List<Future<SudoShellPool>> calls = callConcurrently(server, FakeNmsServer.HOST, server.sudoPassword);
+
+        SudoShellPool first = calls.get(0).get();
+        for (Future<SudoShellPool> call : calls) {
+            assertSame(first, call.get());
+        }
+        assertEquals(1, server.getAuthentications());
+        assertEquals(1, server.getShells());
+    }
+
+    @Test
+    void slowHostDoesNotBlockAnotherHost() throws Exception {
+        FakeNmsServer slow = start(FakeNmsServer.builder().authDelay(5000));
+        FakeNmsServer fast = start(FakeNmsServer.builder());
+
+        Future<SudoShellPool> slowCall = executor.submit(() -> create(slow, FakeNmsServer.HOST, slow.sudoPassword));
+        while (slow.getAuthentications() == 0) {
+            Thread.sleep(10);
+        }
+
+        // Another host name for the same loopback server: its own cache key and connection budget
+        long start = System.currentTimeMillis();
+        create(fast, "localhost", fast.sudoPassword);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed < 3000, "Second host waited " + elapsed + " ms for the slow one");
+        assertFalse(slowCall.isDone(), "Slow host finished before the second host");
+        slowCall.get();
+    }
+
+    @Test
+    void failedCreationIsPropagatedToEveryWaiter() throws Exception {
+        // Wrong sudo password, with a slow prompt so all callers join the same attempt
+        FakeNmsServer server = start(FakeNmsServer.builder().promptDelay(1000));
+
+        List<Future<SudoShellPool>> calls = callConcurrently(server, FakeNmsServer.HOST, "wrong");
+
+        for (Future<SudoShellPool> call : calls) {
+            try {
+                call.get();
+                fail("Session creation should have failed");
+            } catch (ExecutionException e) {
+                assertInstanceOf(IOException.class, e.getCause());
+            }
+        }
+        assertEquals(1, server.getShells());
+    }
+
+    // ===== PRIVATE IMPLEMENTATION =====
+
+    private FakeNmsServer start(FakeNmsServer.Builder builder) throws IOException {
+        FakeNmsServer server = builder.start();
+        servers.add(server);
+        return server;
+    }
+
+    private List<Future<SudoShellPool>> callConcurrently(FakeNmsServer server, String host, String sudoPassword) {
+        CountDownLatch ready = new CountDownLatch(1);
+        List<Future<SudoShellPool>> calls = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            calls.add(executor.submit(() -> {
+                ready.await();
+                return create(server, host, sudoPassword);
+            }));
+        }
+        ready.countDown();
+        return calls;
+    }
+
+    private static SudoShellPool create(FakeNmsServer server, String host, String sudoPassword) throws IOException {
+        return UnifiedSSHManager.getOrCreatePool(host, server.getPort(), server.user, server.password,
+            null, TARGET_USER, sudoPassword, PURPOSE);
+    }
+}